@@ -18,16 +18,17 @@
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
 
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.test.GitIntegrationSpecification
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry
 import java.nio.file.Path
 import java.util.concurrent.atomic.AtomicReference
 import spock.lang.Subject
 import spock.lang.Title
 
 class BufferAnalyzerIntegrationSpecification extends GitIntegrationSpecification {
-    protected BufferAnalyzer newBufferAnalyzerForFile(Path filePath) {
+    protected BufferAnalyzer newBufferAnalyzerForFile(Path filePath, HeadBlobSpiller headBlobSpiller = null) {
         def buffer = newBufferForFile(filePath)
         def log = Stub(ILog)
-        new BufferAnalyzer(buffer, newGitRunnerFactory(), log)
+        new BufferAnalyzer(buffer, newGitRunnerFactory(), log, null, headBlobSpiller)
     }
 }
 
@@ -51,7 +52,62 @@ class BufferAnalyzer_CreatePatchBetweenHeadRevisionAndCurrentStateIntegrationSpe
         def patch = bufferAnalyzer.createPatchBetweenHeadRevisionAndCurrentState()
 
         then: 'the patch should not be empty'
-        patch.deltas.size() == 1
+        patch.hunkCount == 1
+    }
+
+    def 'when file is unchanged from HEAD it should return an empty patch without diffing'() {
+        given: 'a file committed on HEAD'
+        def filePath = repoPath.resolve('subdir1').resolve('file')
+        touchFile(filePath, 'line1\nline2\n')
+        addAndCommitFile(filePath)
+
+        and: 'a buffer analyzer for the file'
+        def bufferAnalyzer = newBufferAnalyzerForFile(filePath)
+
+        and: 'the number of diffs skipped so far'
+        def skippedDiffCounter = MetricsRegistry.getDefault().counter('diff.skippedUnmodified')
+        def skippedDiffCount = skippedDiffCounter.count
+
+        when: 'creating a patch between the HEAD revision and the current state'
+        def patch = bufferAnalyzer.createPatchBetweenHeadRevisionAndCurrentState()
+
+        then: 'the patch should be empty'
+        patch.hunkCount == 0
+
+        and: 'the diff should be skipped'
+        skippedDiffCounter.count == skippedDiffCount + 1
+    }
+
+    def 'when HEAD revision is spilled it should return patch and delete spill file when disposed'() {
+        given: 'a file committed on HEAD'
+        def filePath = repoPath.resolve('subdir1').resolve('file')
+        touchFile(filePath, 'line1\nline2\nline3\n')
+        addAndCommitFile(filePath)
+
+        and: 'the current file contents changed'
+        touchFile(filePath, 'line1\nnew line2\nline3\n')
+
+        and: 'a buffer analyzer for the file that spills all HEAD revisions'
+        def spillDirectoryPath = newTemporaryFolder()
+        def bufferAnalyzer = newBufferAnalyzerForFile(filePath, new HeadBlobSpiller(spillDirectoryPath, 0))
+
+        when: 'creating a patch between the HEAD revision and the current state twice'
+        def patch1 = bufferAnalyzer.createPatchBetweenHeadRevisionAndCurrentState()
+        def patch2 = bufferAnalyzer.createPatchBetweenHeadRevisionAndCurrentState()
+
+        then: 'the patches should describe the changed line'
+        [patch1, patch2].every {
+            it.hunkCount == 1 && it.getOriginalPosition(0) == 1 && it.getOriginalSize(0) == 1
+        }
+
+        and: 'the HEAD revision should be spilled to a single file'
+        spillDirectoryPath.toFile().list().length == 1
+
+        when: 'the analyzer is disposed'
+        bufferAnalyzer.dispose()
+
+        then: 'the spill file should be deleted'
+        spillDirectoryPath.toFile().list().length == 0
     }
 
     def 'when file does not exist on HEAD it should return an empty patch'() {
@@ -66,7 +122,7 @@ class BufferAnalyzer_CreatePatchBetweenHeadRevisionAndCurrentStateIntegrationSpe
         def patch = bufferAnalyzer.createPatchBetweenHeadRevisionAndCurrentState()
 
         then: 'the patch should be empty'
-        patch.deltas.size() == 0
+        patch.hunkCount == 0
     }
 }
 
@@ -18,7 +18,6 @@
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
 
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.test.GitIntegrationSpecification
-import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitException
 import spock.lang.Subject
 import spock.lang.Title
 
@@ -31,155 +30,63 @@ class GitCommandsIntegrationSpecification extends GitIntegrationSpecification {
 }
 
 @Subject(GitCommands)
-@Title('Integration tests for GitCommands#getCommitRefAtHeadRevision')
-class GitCommands_GetCommitRefAtHeadRevisionIntegrationSpec extends GitCommandsIntegrationSpecification {
-    def 'when file exists on HEAD it should return commit ref'() {
+@Title('Integration tests for GitCommands#getBlobIdAtHeadRevision')
+class GitCommands_GetBlobIdAtHeadRevisionIntegrationSpec extends GitCommandsIntegrationSpecification {
+    def 'when file exists on HEAD it should return the blob ID of the file'() {
         given: 'a file committed on HEAD'
         def filePath = repoPath.resolve('subdir1').resolve('file')
-        touchFile(filePath)
-        addAndCommitFile(filePath)
-
-        when: 'getting the commit ref at the HEAD revision'
-        def commitRef = gitCommands.getCommitRefAtHeadRevision(repoPath.relativize(filePath))
-
-        then: 'it should be a SHA-1 hash'
-        commitRef ==~ /[0-9a-f]{40}/
-    }
-
-    def 'when file is inside repo but does not exist on HEAD it should throw an exception'() {
-        given: 'a file present inside the repo but not committed on HEAD'
-        def filePath = repoPath.resolve('subdir1').resolve('file')
-        touchFile(filePath)
-
-        when: 'getting the commit ref at the HEAD revision'
-        gitCommands.getCommitRefAtHeadRevision(repoPath.relativize(filePath))
-
-        then: 'it should throw an exception'
-        thrown(GitException)
-    }
-
-    def 'when file is outside repo it should throw an exception'() {
-        given: 'a file present outside the repo'
-        def filePath = newTemporaryFile()
-        def gitCommands = new GitCommands(newGitRunnerForRepo(filePath.parent))
-
-        when: 'getting the commit ref at the HEAD revision'
-        gitCommands.getCommitRefAtHeadRevision(filePath)
-
-        then: 'it should throw an exception'
-        thrown(GitException)
-    }
-}
-
-@Subject(GitCommands)
-@Title('Integration tests for GitCommands#getRepoRelativeFilePathAtHeadRevision')
-class GitCommands_GetRepoRelativeFilePathAtHeadRevisionIntegrationSpec extends GitCommandsIntegrationSpecification {
-    def 'when file exists on HEAD it should return repo-relative path'() {
-        given: 'a file committed on HEAD'
-        def filePath = repoPath.resolve('subdir1').resolve('file')
-        touchFile(filePath)
-        addAndCommitFile(filePath)
-
-        when: 'getting the repo-relative path at the HEAD revision'
-        def repoRelativeFilePath = gitCommands.getRepoRelativeFilePathAtHeadRevision(filePath)
-
-        then: 'it should be the repo-relative path of the file'
-        repoRelativeFilePath == repoPath.relativize(filePath)
-    }
-
-    def 'when file is inside repo but does not exist on HEAD it should throw an exception'() {
-        given: 'a file present inside the repo but not committed on HEAD'
-        def filePath = repoPath.resolve('subdir1').resolve('file')
-        touchFile(filePath)
-
-        when: 'getting the repo-relative path at the HEAD revision'
-        gitCommands.getRepoRelativeFilePathAtHeadRevision(filePath)
-
-        then: 'it should throw an exception'
-        thrown(GitException)
-    }
-
-    def 'when file is outside repo it should throw an exception'() {
-        given: 'a file present outside the repo'
-        def filePath = newTemporaryFile()
-
-        when: 'getting the repo-relative path at the HEAD revision'
-        gitCommands.getRepoRelativeFilePathAtHeadRevision(filePath)
-
-        then: 'it should throw an exception'
-        thrown(GitException)
-    }
-}
-
-@Subject(GitCommands)
-@Title('Integration tests for GitCommands#isFilePresentAtHeadRevision')
-class GitCommands_IsFilePresentAtHeadRevisionIntegrationSpec extends GitCommandsIntegrationSpecification {
-    def 'when file exists on HEAD it should return true'() {
-        given: 'a file committed on HEAD'
-        def filePath = repoPath.resolve('subdir1').resolve('file')
-        touchFile(filePath)
+        touchFile(filePath, 'line1\n')
         addAndCommitFile(filePath)
 
-        when: 'asking if the file is present at the HEAD revision'
-        def result = gitCommands.isFilePresentAtHeadRevision(filePath)
+        when: 'getting the blob ID at the HEAD revision'
+        def blobId = gitCommands.getBlobIdAtHeadRevision(filePath)
 
-        then: 'it should be true'
-        result == true
+        then: 'it should be the object name Git resolves for the file at HEAD'
+        def outWriter = new StringWriter()
+        newGitRunner().run(outWriter, 'rev-parse', 'HEAD:subdir1/file')
+        blobId == outWriter.toString().trim()
     }
 
-    def 'when file is inside repo but does not exist on HEAD it should return false'() {
+    def 'when file is inside repo but does not exist on HEAD it should return null'() {
         given: 'a file present inside the repo but not committed on HEAD'
         def filePath = repoPath.resolve('subdir1').resolve('file')
         touchFile(filePath)
 
-        when: 'asking if the file is present at the HEAD revision'
-        def result = gitCommands.isFilePresentAtHeadRevision(filePath)
+        when: 'getting the blob ID at the HEAD revision'
+        def blobId = gitCommands.getBlobIdAtHeadRevision(filePath)
 
-        then: 'it should be false'
-        result == false
+        then: 'it should be null'
+        blobId == null
     }
 
-    def 'when file is outside repo it should return false'() {
+    def 'when file is outside repo it should return null'() {
         given: 'a file present outside the repo'
         def filePath = newTemporaryFile()
 
-        when: 'asking if the file is present at the HEAD revision'
-        def result = gitCommands.isFilePresentAtHeadRevision(filePath)
+        when: 'getting the blob ID at the HEAD revision'
+        def blobId = gitCommands.getBlobIdAtHeadRevision(filePath)
 
-        then: 'it should be false'
-        result == false
+        then: 'it should be null'
+        blobId == null
     }
 }
 
 @Subject(GitCommands)
-@Title('Integration tests for GitCommands#readFileContentAtHeadRevision')
-class GitCommands_ReadFileContentAtHeadRevisionIntegrationSpec extends GitCommandsIntegrationSpecification {
-    def 'when file exists on HEAD it should read file content'() {
+@Title('Integration tests for GitCommands#readBlobContent')
+class GitCommands_ReadBlobContentIntegrationSpec extends GitCommandsIntegrationSpecification {
+    def 'when blob exists it should read blob content'() {
         given: 'a file committed on HEAD'
         def filePath = repoPath.resolve('file')
-        def fileContent = 'line1\nline2\n'
-        touchFile(filePath, fileContent)
+        touchFile(filePath, 'line1\nline2\n')
         addAndCommitFile(filePath)
 
-        and: 'a writer to capture the file content'
+        and: 'a writer to capture the blob content'
         def writer = new StringWriter()
 
-        when: 'reading the file content at the HEAD revision'
-        gitCommands.readFileContentAtHeadRevision(repoPath.relativize(filePath), writer)
+        when: 'reading the blob content'
+        gitCommands.readBlobContent(gitCommands.getBlobIdAtHeadRevision(filePath), writer)
 
         then: 'the writer should contain the file content'
         writer.toString() == 'line1\nline2\n'
     }
-
-    def 'when file does not exist on HEAD it should throw an exception'() {
-        given: 'a file present inside the repo but not committed on HEAD'
-        def filePath = repoPath.resolve('file')
-        touchFile(filePath)
-
-        when: 'reading the file content at the HEAD revision'
-        gitCommands.readFileContentAtHeadRevision(repoPath.relativize(filePath), new StringWriter())
-
-        then: 'it should throw an exception'
-        thrown(GitException)
-    }
 }
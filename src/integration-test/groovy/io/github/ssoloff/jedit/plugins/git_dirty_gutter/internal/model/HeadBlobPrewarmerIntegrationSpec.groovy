@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.test.GitIntegrationSpecification
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier
+import java.nio.file.Path
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(HeadBlobPrewarmer)
+@Title('Integration tests for HeadBlobPrewarmer')
+class HeadBlobPrewarmerIntegrationSpec extends GitIntegrationSpecification {
+    private headBlobCache = new HeadBlobCache(1024 * 1024)
+    private gitCommands
+    private prewarmer
+
+    def setup() {
+        gitCommands = new GitCommands(newGitRunner())
+        prewarmer = new HeadBlobPrewarmer(headBlobCache, null, { gitProgramPath } as ISupplier<Path>, Stub(ILog), 2)
+    }
+
+    def 'it should cache the normalized HEAD revisions of visible and other files'() {
+        given: 'two files committed on HEAD'
+        def visibleFilePath = repoPath.resolve('subdir1').resolve('file1')
+        touchFile(visibleFilePath, 'line1\r\nline2')
+        addAndCommitFile(visibleFilePath)
+        def otherFilePath = repoPath.resolve('file2')
+        touchFile(otherFilePath, 'line3\n')
+        addAndCommitFile(otherFilePath)
+
+        when: 'prewarming the cache'
+        prewarmer.prewarm([visibleFilePath], [otherFilePath])
+
+        then: 'the cache should contain the HEAD revision of each file as read by Git line by line'
+        headBlobCache.get(gitCommands.getBlobIdAtHeadRevision(visibleFilePath)) == 'line1\nline2\n'
+        headBlobCache.get(gitCommands.getBlobIdAtHeadRevision(otherFilePath)) == 'line3\n'
+    }
+
+    def 'it should ignore files that are not present at the HEAD revision or not within a repository'() {
+        given: 'a file present inside the repo but not committed on HEAD'
+        def uncommittedFilePath = repoPath.resolve('file')
+        touchFile(uncommittedFilePath, 'line1\n')
+
+        and: 'a file outside the repo'
+        def outsideFilePath = newTemporaryFile()
+
+        when: 'prewarming the cache'
+        prewarmer.prewarm([uncommittedFilePath], [outsideFilePath])
+
+        then: 'the cache should be empty'
+        headBlobCache.blobCount == 0
+    }
+
+    def 'it should skip HEAD revisions that would be spilled'() {
+        given: 'a prewarmer whose spill threshold is smaller than one of two files committed on HEAD'
+        def spilledFilePath = repoPath.resolve('file1')
+        touchFile(spilledFilePath, 'line1\nline2\nline3\n')
+        addAndCommitFile(spilledFilePath)
+        def cachedFilePath = repoPath.resolve('file2')
+        touchFile(cachedFilePath, 'line4\n')
+        addAndCommitFile(cachedFilePath)
+        def spiller = new HeadBlobSpiller(newTemporaryFolder(), 8)
+        prewarmer = new HeadBlobPrewarmer(headBlobCache, spiller, { gitProgramPath } as ISupplier<Path>, Stub(ILog), 2)
+
+        when: 'prewarming the cache'
+        prewarmer.prewarm([spilledFilePath, cachedFilePath], [])
+
+        then: 'the cache should contain only the HEAD revision of the smaller file'
+        headBlobCache.blobCount == 1
+        headBlobCache.get(gitCommands.getBlobIdAtHeadRevision(cachedFilePath)) == 'line4\n'
+    }
+}
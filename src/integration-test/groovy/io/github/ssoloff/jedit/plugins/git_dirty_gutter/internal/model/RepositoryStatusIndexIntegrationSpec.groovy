@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.test.GitIntegrationSpecification
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory
+import spock.lang.IgnoreIf
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(RepositoryStatusIndex)
+@Title('Integration tests for RepositoryStatusIndex')
+class RepositoryStatusIndexIntegrationSpec extends GitIntegrationSpecification {
+    private RepositoryStatusIndex newRepositoryStatusIndex() {
+        new RepositoryStatusIndex(repoPath, newGitRunnerFactory(), Stub(ILog))
+    }
+
+    def 'when refreshed it should report the status of every dirty file in the working tree'() {
+        given: 'a modified file, an untracked file, a deleted file, and a clean file'
+        def modifiedFilePath = repoPath.resolve('subdir').resolve('modified file')
+        touchFile(modifiedFilePath, 'line1\nline2\nline3\n')
+        addAndCommitFile(modifiedFilePath)
+        touchFile(modifiedFilePath, 'line1\nnew line2\nline3\nline4\n')
+        def untrackedFilePath = repoPath.resolve('untracked')
+        touchFile(untrackedFilePath, 'line1\n')
+        def deletedFilePath = repoPath.resolve('deleted')
+        touchFile(deletedFilePath, 'line1\nline2\n')
+        addAndCommitFile(deletedFilePath)
+        assert deletedFilePath.toFile().delete()
+        def cleanFilePath = repoPath.resolve('README')
+
+        and: 'an index of the repository'
+        def index = newRepositoryStatusIndex()
+
+        when: 'refreshing the index'
+        def changed = index.refresh()
+
+        then: 'it should report each dirty file'
+        changed
+        def status = index.status
+        status.getFileStatus(modifiedFilePath) == new FileStatus(FileStatus.Kind.MODIFIED, 2, 1)
+        status.getFileStatus(untrackedFilePath) == new FileStatus(FileStatus.Kind.UNTRACKED, -1, -1)
+        status.getFileStatus(deletedFilePath) == new FileStatus(FileStatus.Kind.DELETED, 0, 2)
+        status.getFileStatus(cleanFilePath) == null
+        status.dirtyFileCount == 3
+        status.addedLineCount == 2
+        status.removedLineCount == 3
+    }
+
+    @IgnoreIf({ os.windows })
+    def 'when refreshed it should report the status of a file whose name contains line breaks'() {
+        given: 'a modified file whose name contains a carriage return and a line feed'
+        def filePath = repoPath.resolve('line\rbreak\n')
+        touchFile(filePath, 'line1\n')
+        addAndCommitFile(filePath)
+        touchFile(filePath, 'line1\nline2\n')
+
+        and: 'an index of the repository'
+        def index = newRepositoryStatusIndex()
+
+        when: 'refreshing the index'
+        index.refresh()
+
+        then: 'it should report the file under its exact name'
+        index.status.getFileStatus(filePath) == new FileStatus(FileStatus.Kind.MODIFIED, 1, 0)
+    }
+
+    def 'when a file is invalidated it should refresh only the status of that file'() {
+        given: 'two modified files'
+        def filePath1 = repoPath.resolve('file1')
+        def filePath2 = repoPath.resolve('file2')
+        [filePath1, filePath2].each {
+            touchFile(it, 'line1\n')
+            addAndCommitFile(it)
+            touchFile(it, 'line1\nline2\n')
+        }
+
+        and: 'a refreshed index of the repository and a listener'
+        def index = newRepositoryStatusIndex()
+        index.refresh()
+        def listener = Mock(Runnable)
+        index.addListener(listener)
+
+        and: 'both files are then reverted but only the first file is invalidated'
+        [filePath1, filePath2].each { touchFile(it, 'line1\n') }
+        index.invalidateFile(filePath1)
+
+        when: 'refreshing the index'
+        def changed = index.refresh()
+
+        then: 'only the status of the invalidated file should change'
+        changed
+        index.status.getFileStatus(filePath1) == null
+        index.status.getFileStatus(filePath2) == new FileStatus(FileStatus.Kind.MODIFIED, 1, 0)
+
+        and: 'the listener should be notified'
+        1 * listener.run()
+    }
+
+    def 'when nothing is invalidated it should not run Git'() {
+        given: 'a refreshed index of the repository'
+        def gitRunnerFactory = Mock(IGitRunnerFactory)
+        def index = new RepositoryStatusIndex(repoPath, gitRunnerFactory, Stub(ILog))
+        gitRunnerFactory.createGitRunner(_) >> { args -> newGitRunnerForRepo(repoPath) }
+        index.refresh()
+
+        when: 'refreshing the index again'
+        def changed = index.refresh()
+
+        then: 'Git should not be run'
+        !changed
+        0 * gitRunnerFactory.createGitRunner(_)
+    }
+
+    def 'when the working tree is unchanged it should not notify listeners'() {
+        given: 'a modified file'
+        def filePath = repoPath.resolve('file')
+        touchFile(filePath, 'line1\n')
+        addAndCommitFile(filePath)
+        touchFile(filePath, 'line2\n')
+
+        and: 'a refreshed index of the repository and a listener'
+        def index = newRepositoryStatusIndex()
+        index.refresh()
+        def listener = Mock(Runnable)
+        index.addListener(listener)
+
+        when: 'invalidating and refreshing the whole index again'
+        index.invalidate()
+        def changed = index.refresh()
+
+        then: 'the listener should not be notified'
+        !changed
+        0 * listener.run()
+    }
+}
@@ -17,8 +17,8 @@
  */
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.test
 
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.BufferSnapshot
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.IBuffer
-import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.StringUtils
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.ProcessRunner
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunner
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunner
@@ -74,8 +74,16 @@ class GitIntegrationSpecification extends Specification {
                 filePath
             }
 
-            List<String> getLines() {
-                StringUtils.splitLinesWithExplicitFinalLine(new String(filePath.readBytes()))
+            String getEncoding() {
+                'UTF-8'
+            }
+
+            long getEditSequenceNumber() {
+                0L
+            }
+
+            BufferSnapshot getSnapshot() {
+                BufferSnapshot.fromText(new String(filePath.readBytes()), 0L)
             }
         }
     }
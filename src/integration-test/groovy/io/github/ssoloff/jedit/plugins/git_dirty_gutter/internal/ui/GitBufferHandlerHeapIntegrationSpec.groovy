@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobCache
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.ILog
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.test.GitIntegrationSpecification
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.HeapPressureMonitor
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.RefreshScheduler
+import java.awt.Color
+import java.lang.management.ManagementFactory
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import javax.swing.SwingUtilities
+import spock.lang.Shared
+import spock.lang.Subject
+import spock.lang.Title
+import spock.lang.Unroll
+
+/**
+ * Measures the heap retained by buffer handlers once their patches have been
+ * published.
+ *
+ * <p>
+ * The retained heap of each buffer must not exceed a fixed budget per buffer
+ * plus a budget per line. The budgets (in bytes) may be configured using the
+ * {@code gitdirtygutter.heapBudget.bytesPerBuffer} and
+ * {@code gitdirtygutter.heapBudget.bytesPerLine} system properties.
+ * </p>
+ */
+@Subject(GitBufferHandler)
+@Title('Retained heap budget tests for GitBufferHandler')
+class GitBufferHandlerHeapIntegrationSpec extends GitIntegrationSpecification {
+    private static final BUFFER_COUNT = 50
+    private static final BYTES_PER_BUFFER_BUDGET = Long.getLong('gitdirtygutter.heapBudget.bytesPerBuffer', 32 * 1024)
+    private static final BYTES_PER_LINE_BUDGET = Long.getLong('gitdirtygutter.heapBudget.bytesPerLine', 64)
+    private static final CHANGED_LINE_INTERVAL = 10
+    private static final POLL_TIME_IN_MILLISECONDS = 60000
+
+    @Shared
+    private heapPressureMonitor = new HeapPressureMonitor(100)
+    @Shared
+    private refreshScheduler = new RefreshScheduler('test', 2, 0, 0, true)
+
+    private final bufferHandlers = []
+
+    private static long getUsedHeapAfterGc() {
+        def memoryMXBean = ManagementFactory.memoryMXBean
+        def usedHeap = Long.MAX_VALUE
+        5.times {
+            System.gc()
+            Thread.sleep(100)
+            usedHeap = Math.min(usedHeap, memoryMXBean.heapMemoryUsage.used)
+        }
+        usedHeap
+    }
+
+    private static newFileContent(fileIndex, lineCount, changed) {
+        def content = new StringBuilder()
+        lineCount.times { lineIndex ->
+            def lineChanged = changed && ((lineIndex % CHANGED_LINE_INTERVAL) == 0)
+            content << "${lineChanged ? 'changed' : 'original'} line $lineIndex of file $fileIndex in the buffer\n"
+        }
+        content.toString()
+    }
+
+    private newBufferHandlerForFile(filePath, headBlobCache, pollInterval) {
+        // avoid mocks, whose bookkeeping would be measured as retained heap
+        def buffer = newBufferForFile(filePath)
+        def dirtyMarkPainterSpecificationFactoryContext = [
+            getAddedDirtyMarkColor: { Color.GREEN },
+            getChangedDirtyMarkColor: { Color.ORANGE },
+            getRemovedDirtyMarkColor: { Color.RED },
+        ] as IDirtyMarkPainterSpecificationFactoryContext
+        def log = [
+            logDebug: { source, message -> },
+            logError: { source, message, t -> },
+            logWarning: { source, message, t -> },
+        ] as ILog
+        def gitRunnerFactory = newGitRunnerFactory()
+        def context = [
+            getBackgroundBufferIdleTimeInMilliseconds: { Integer.MAX_VALUE },
+            getBuffer: { buffer },
+            getDirtyMarkPainterSpecificationFactoryContext: { dirtyMarkPainterSpecificationFactoryContext },
+            getGitRunnerFactory: { gitRunnerFactory },
+            getHeadBlobCache: { headBlobCache },
+            getHeadBlobSpiller: { null },
+            getHeapPressureMonitor: { heapPressureMonitor },
+            getLog: { log },
+            getRefreshScheduler: { refreshScheduler },
+            getRepositoryPollInterval: { repoRootPath -> pollInterval },
+            getRepositoryPollTimeInMilliseconds: { POLL_TIME_IN_MILLISECONDS },
+        ] as IGitBufferHandlerContext
+        new GitBufferHandler(context)
+    }
+
+    private newDirtyFiles(lineCount) {
+        def filePaths = (0..BUFFER_COUNT).collect { repoPath.resolve("file$it") }
+        filePaths.eachWithIndex { filePath, fileIndex -> touchFile(filePath, newFileContent(fileIndex, lineCount, false)) }
+        runGit(COMMAND_ADD, '.')
+        runGit(COMMAND_COMMIT, '-m', 'test commit')
+        filePaths.eachWithIndex { filePath, fileIndex -> touchFile(filePath, newFileContent(fileIndex, lineCount, true)) }
+        filePaths
+    }
+
+    private startBufferHandlers(filePaths) {
+        def headBlobCache = new HeadBlobCache(Long.MAX_VALUE)
+        def pollInterval = new AdaptivePollInterval({ POLL_TIME_IN_MILLISECONDS } as ISupplier<Integer>,
+                POLL_TIME_IN_MILLISECONDS, { true } as ISupplier<Boolean>)
+        def patchesUpdated = new CountDownLatch(filePaths.size())
+        SwingUtilities.invokeAndWait {
+            filePaths.each { filePath ->
+                def bufferHandler = newBufferHandlerForFile(filePath, headBlobCache, pollInterval)
+                def patchUpdated = false
+                bufferHandler.addListener({
+                    if (!patchUpdated) {
+                        patchUpdated = true
+                        patchesUpdated.countDown()
+                    }
+                } as IGitBufferHandlerListener)
+                bufferHandler.setVisible(true)
+                bufferHandler.start()
+                bufferHandlers << bufferHandler
+            }
+        }
+        assert patchesUpdated.await(120, TimeUnit.SECONDS)
+    }
+
+    def cleanup() {
+        SwingUtilities.invokeAndWait {
+            bufferHandlers*.stop()
+        }
+    }
+
+    def cleanupSpec() {
+        refreshScheduler.shutdown()
+    }
+
+    @Unroll
+    def 'when #lineCount-line buffers are dirty it should retain no more heap per buffer than budgeted'() {
+        given: 'dirty files with every tenth line changed from HEAD'
+        def filePaths = newDirtyFiles(lineCount)
+
+        and: 'a buffer handler started for the first file to exclude one-time allocations from the measurement'
+        startBufferHandlers(filePaths.take(1))
+
+        and: 'the heap used before starting the buffer handlers'
+        def usedHeapBefore = usedHeapAfterGc
+
+        when: 'starting a buffer handler for each file and waiting for the initial patches'
+        startBufferHandlers(filePaths.drop(1))
+
+        and: 'measuring the heap retained per buffer'
+        def retainedBytesPerBuffer = (usedHeapAfterGc - usedHeapBefore).intdiv(BUFFER_COUNT)
+        def budgetBytesPerBuffer = BYTES_PER_BUFFER_BUDGET + (BYTES_PER_LINE_BUDGET * lineCount)
+
+        then: 'it should not exceed the per-buffer budget plus the per-line budget'
+        assert retainedBytesPerBuffer <= budgetBytesPerBuffer, String.format(
+                '%d-line buffer retains %,d bytes (%,d bytes per line); budget is %,d bytes',
+                lineCount, retainedBytesPerBuffer, retainedBytesPerBuffer.intdiv(lineCount), budgetBytesPerBuffer)
+
+        where:
+        lineCount << [100, 1000, 10000]
+    }
+}
@@ -17,14 +17,19 @@
  */
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui
 
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobCache
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.ILog
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.test.GitIntegrationSpecification
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.HeapPressureMonitor
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AutoResetEvent
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.RefreshScheduler
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry
 import java.awt.Color
-import java.nio.file.Path
 import java.util.concurrent.TimeUnit
 import javax.swing.SwingUtilities
+import spock.lang.Shared
 import spock.lang.Subject
 import spock.lang.Title
 
@@ -35,9 +40,16 @@ class GitBufferHandlerIntegrationSpec extends GitIntegrationSpecification {
     private static final CHANGED_DIRTY_MARK_COLOR = Color.ORANGE
     private static final REMOVED_DIRTY_MARK_COLOR = Color.RED
 
+    @Shared
+    private heapPressureMonitor = new HeapPressureMonitor(100)
+    @Shared
+    private refreshScheduler = new RefreshScheduler('test', 2, 0, 0, true)
+
+    private backgroundBufferIdleTimeInMilliseconds = 60000
     private bufferHandler
     private final bufferHandlerListenerEvent = new AutoResetEvent()
     private final bufferHandlerListener = { bufferHandlerListenerEvent.signal() }
+    private final headBlobCache = new HeadBlobCache(1024 * 1024)
 
     private getDirtyMarkPainterSpecificationForLine(lineIndex) {
         def dirtyMarkPainterSpecification = null
@@ -64,11 +76,21 @@ class GitBufferHandlerIntegrationSpec extends GitIntegrationSpecification {
             getRemovedDirtyMarkColor() >> REMOVED_DIRTY_MARK_COLOR
         }
         def log = Stub(ILog)
+        def backgroundBufferIdleTimeInMilliseconds = this.backgroundBufferIdleTimeInMilliseconds
+        def headBlobCache = this.headBlobCache
+        def heapPressureMonitor = this.heapPressureMonitor
         def context = Stub(IGitBufferHandlerContext) {
+            getBackgroundBufferIdleTimeInMilliseconds() >> backgroundBufferIdleTimeInMilliseconds
             getBuffer() >> buffer
             getDirtyMarkPainterSpecificationFactoryContext() >> dirtyMarkPainterSpecificationFactoryContext
-            getGitProgramPathSupplier() >> ({ gitProgramPath } as ISupplier<Path>)
+            getGitRunnerFactory() >> newGitRunnerFactory()
+            getHeadBlobCache() >> headBlobCache
+            getHeadBlobSpiller() >> null
+            getHeapPressureMonitor() >> heapPressureMonitor
             getLog() >> log
+            getRefreshScheduler() >> refreshScheduler
+            getRepositoryPollInterval(_) >> new AdaptivePollInterval({ 500 } as ISupplier<Integer>, 500,
+                    { true } as ISupplier<Boolean>)
             getRepositoryPollTimeInMilliseconds() >> 500
         }
         new GitBufferHandler(context)
@@ -88,6 +110,12 @@ class GitBufferHandlerIntegrationSpec extends GitIntegrationSpecification {
         }
     }
 
+    private setBufferVisible(visible) {
+        SwingUtilities.invokeAndWait {
+            bufferHandler.visible = visible
+        }
+    }
+
     private stopBufferHandler() {
         SwingUtilities.invokeAndWait {
             if (bufferHandler) {
@@ -101,10 +129,23 @@ class GitBufferHandlerIntegrationSpec extends GitIntegrationSpecification {
         bufferHandlerListenerEvent.await(30, TimeUnit.SECONDS)
     }
 
+    private waitForStateRelease() {
+        for (def i = 0; (i < 300) && (headBlobCache.blobCount > 0); ++i) {
+            Thread.sleep(100)
+        }
+        SwingUtilities.invokeAndWait {
+            // flush the release if it is pending on the event dispatch thread
+        }
+    }
+
     def cleanup() {
         stopBufferHandler()
     }
 
+    def cleanupSpec() {
+        refreshScheduler.shutdown()
+    }
+
     def 'when buffer does not differ from HEAD revision at start it should not report dirty lines'() {
         given: 'a file with one line committed on HEAD'
         def filePath = repoPath.resolve('file')
@@ -201,4 +242,89 @@ class GitBufferHandlerIntegrationSpec extends GitIntegrationSpecification {
         then: 'it should be an UNCHANGED dirty mark painter specification'
         matchesUnchangedDirtyMarkPainterSpecification(dirtyMarkPainterSpecification)
     }
+
+    def 'when the gutter is repainted after an edit it should record the edit latency by phase'() {
+        given: 'a file with one line committed on HEAD'
+        def filePath = repoPath.resolve('file')
+        touchFile(filePath, 'line 1\n')
+        addAndCommitFile(filePath)
+
+        and: 'a started buffer handler'
+        startBufferHandler(filePath)
+        waitForPatchUpdateNotification()
+
+        and: 'the current edit latency metrics'
+        def metrics = MetricsRegistry.default
+        def phases = ['queueWait', 'snapshot', 'git', 'diff', 'edtHandOff', 'paint', 'total']
+        def counts = phases.collectEntries { [(it): metrics.histogram("editLatency.$it").count] }
+
+        when: 'editing the first line of the file'
+        touchFile(filePath, 'new line 1\n')
+        SwingUtilities.invokeAndWait {
+            bufferHandler.contentInserted(0, 0)
+        }
+
+        and: 'waiting for the subsequent patch update notification'
+        waitForPatchUpdateNotification()
+
+        and: 'repainting the gutter'
+        getDirtyMarkPainterSpecificationForLine(0)
+
+        then: 'it should record the latency of each phase once'
+        phases.every { metrics.histogram("editLatency.$it").count == counts[it] + 1 }
+    }
+
+    def 'when buffer has been hidden for the background idle time it should release and rebuild its state'() {
+        given: 'a file with one line committed on HEAD'
+        def filePath = repoPath.resolve('file')
+        touchFile(filePath, 'line 1\n')
+        addAndCommitFile(filePath)
+
+        and: 'modifying the first line of the file'
+        touchFile(filePath, 'new line 1\n')
+
+        and: 'a started buffer handler with a short background idle time'
+        backgroundBufferIdleTimeInMilliseconds = 100
+        startBufferHandler(filePath)
+        waitForPatchUpdateNotification()
+
+        when: 'hiding the buffer until its state is released'
+        setBufferVisible(false)
+        waitForStateRelease()
+
+        then: 'its patch and HEAD revision content should be released'
+        matchesUnchangedDirtyMarkPainterSpecification(getDirtyMarkPainterSpecificationForLine(0))
+        headBlobCache.blobCount == 0
+
+        when: 'showing the buffer again'
+        setBufferVisible(true)
+        waitForPatchUpdateNotification()
+
+        then: 'its state should be rebuilt'
+        matchesChangedDirtyMarkPainterSpecification(getDirtyMarkPainterSpecificationForLine(0))
+        headBlobCache.blobCount == 1
+    }
+
+    def 'when the heap is under pressure it should release the state of hidden buffers'() {
+        given: 'a file with one line committed on HEAD'
+        def filePath = repoPath.resolve('file')
+        touchFile(filePath, 'line 1\n')
+        addAndCommitFile(filePath)
+
+        and: 'modifying the first line of the file'
+        touchFile(filePath, 'new line 1\n')
+
+        and: 'a started buffer handler that is hidden'
+        startBufferHandler(filePath)
+        waitForPatchUpdateNotification()
+        setBufferVisible(false)
+
+        when: 'the heap is under pressure'
+        heapPressureMonitor.notifyListeners()
+        waitForStateRelease()
+
+        then: 'its patch and HEAD revision content should be released'
+        matchesUnchangedDirtyMarkPainterSpecification(getDirtyMarkPainterSpecificationForLine(0))
+        headBlobCache.blobCount == 0
+    }
 }
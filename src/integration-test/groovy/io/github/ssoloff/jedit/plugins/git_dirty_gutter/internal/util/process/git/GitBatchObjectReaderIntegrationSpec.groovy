@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.test.GitIntegrationSpecification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(GitBatchObjectReader)
+@Title('Integration tests for GitBatchObjectReader')
+class GitBatchObjectReaderIntegrationSpec extends GitIntegrationSpecification {
+    private objectReader
+
+    def setup() {
+        objectReader = new GitBatchObjectReader(repoPath, gitProgramPath)
+    }
+
+    def cleanup() {
+        objectReader.close()
+    }
+
+    def 'when objects exist it should read each object through the same process'() {
+        given: 'two files committed on HEAD'
+        def filePath1 = repoPath.resolve('subdir1').resolve('file1')
+        touchFile(filePath1, 'line1\nline2\n')
+        addAndCommitFile(filePath1)
+        def filePath2 = repoPath.resolve('file2')
+        touchFile(filePath2, 'line3')
+        addAndCommitFile(filePath2)
+
+        when: 'reading the files at the HEAD revision'
+        def object1 = objectReader.read('HEAD:subdir1/file1')
+        def object2 = objectReader.read('HEAD:file2')
+
+        then: 'it should return the blobs with their raw content'
+        object1.type == 'blob'
+        object1.objectId ==~ /[0-9a-f]{40}/
+        new String(object1.content, 'UTF-8') == 'line1\nline2\n'
+        object2.type == 'blob'
+        new String(object2.content, 'UTF-8') == 'line3'
+    }
+
+    def 'when object does not exist it should return null and continue reading'() {
+        given: 'a file committed on HEAD'
+        def filePath = repoPath.resolve('file')
+        touchFile(filePath, 'line1\n')
+        addAndCommitFile(filePath)
+
+        when: 'reading a missing object followed by the file at the HEAD revision'
+        def missingObject = objectReader.read('HEAD:missing')
+        def object = objectReader.read('HEAD:file')
+
+        then: 'it should return null for the missing object and the blob for the file'
+        missingObject == null
+        new String(object.content, 'UTF-8') == 'line1\n'
+    }
+
+    def 'when object exceeds maximum size it should return null and continue reading'() {
+        given: 'two files committed on HEAD'
+        def largeFilePath = repoPath.resolve('file1')
+        touchFile(largeFilePath, 'line1\nline2\n')
+        addAndCommitFile(largeFilePath)
+        def smallFilePath = repoPath.resolve('file2')
+        touchFile(smallFilePath, 'line3\n')
+        addAndCommitFile(smallFilePath)
+
+        when: 'reading both files at the HEAD revision with a maximum size between their sizes'
+        def largeObject = objectReader.read('HEAD:file1', 6)
+        def smallObject = objectReader.read('HEAD:file2', 6)
+
+        then: 'it should return null for the larger file and the blob for the smaller file'
+        largeObject == null
+        new String(smallObject.content, 'UTF-8') == 'line3\n'
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunnerResult;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A factory of Git runners that answer the commands issued by the plugin from
+ * an in-memory HEAD revision instead of running Git.
+ *
+ * <p>
+ * Each command is delayed by a configurable latency, drawn uniformly from the
+ * base latency plus or minus the jitter, to stand in for the cost of spawning
+ * a Git process. The delay is interruptible, like waiting for a real Git
+ * process.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class FakeGitRunnerFactory implements IGitRunnerFactory {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final int GIT_FATAL_EXIT_CODE = 128;
+
+    private final Map<String, String> blobIdsByRepoRelativePath = new HashMap<>();
+    private final Map<String, String> contentsByBlobId = new HashMap<>();
+    private final long latencyInMicroseconds;
+    private final long latencyJitterInMicroseconds;
+    private final Path repoPath;
+
+    /**
+     * Initializes a new instance of the {@code FakeGitRunnerFactory} class.
+     *
+     * @param repoPath
+     *        The path to the root of the simulated repository working tree.
+     * @param headContentsByRepoRelativePath
+     *        The content of each file at the HEAD revision keyed by its
+     *        repository-relative path (using {@code /} as the separator).
+     * @param latencyInMicroseconds
+     *        The base latency (in microseconds) of each command; must not be
+     *        negative.
+     * @param latencyJitterInMicroseconds
+     *        The maximum deviation (in microseconds) from the base latency;
+     *        must not be negative or greater than the base latency.
+     */
+    public FakeGitRunnerFactory(final Path repoPath, final Map<String, String> headContentsByRepoRelativePath,
+            final long latencyInMicroseconds, final long latencyJitterInMicroseconds) {
+        assert latencyInMicroseconds >= 0L;
+        assert (latencyJitterInMicroseconds >= 0L) && (latencyJitterInMicroseconds <= latencyInMicroseconds);
+
+        this.latencyInMicroseconds = latencyInMicroseconds;
+        this.latencyJitterInMicroseconds = latencyJitterInMicroseconds;
+        this.repoPath = repoPath;
+        for (final Map.Entry<String, String> entry : headContentsByRepoRelativePath.entrySet()) {
+            final String blobId = getBlobId(entry.getValue());
+            blobIdsByRepoRelativePath.put(entry.getKey(), blobId);
+            contentsByBlobId.put(blobId, entry.getValue());
+        }
+    }
+
+    @Override
+    public IGitRunner createGitRunner(final Path workingDirPath) {
+        return new IGitRunner() {
+            @Override
+            public GitRunnerResult run(final Writer outWriter, final String... programArgs)
+                    throws IOException, InterruptedException {
+                delay();
+                final List<String> command = new ArrayList<>();
+                command.add("git"); //$NON-NLS-1$
+                command.addAll(Arrays.asList(programArgs));
+                return new GitRunnerResult(workingDirPath, command, answer(outWriter, programArgs));
+            }
+
+            @Override
+            public GitRunnerResult run(final OutputStream outStream, final String... programArgs) {
+                throw new UnsupportedOperationException("unsupported Git command: " //$NON-NLS-1$
+                        + Arrays.toString(programArgs));
+            }
+        };
+    }
+
+    private int answer(final Writer outWriter, final String... programArgs) throws IOException {
+        final String subcommand = programArgs[0];
+        final String lastArg = programArgs[programArgs.length - 1];
+        if (subcommand.equals("ls-tree")) { //$NON-NLS-1$
+            // like Git, list nothing for a path that is not present
+            final String repoRelativePath = getRepoRelativePath(lastArg);
+            final String blobId = blobIdsByRepoRelativePath.get(repoRelativePath);
+            if (blobId != null) {
+                if (Arrays.asList(programArgs).contains("--name-only")) { //$NON-NLS-1$
+                    outWriter.write(repoRelativePath + "\n"); //$NON-NLS-1$
+                } else if (Arrays.asList(programArgs).contains("-l")) { //$NON-NLS-1$
+                    outWriter.write(String.format("100644 blob %s %7d\t%s\n", blobId, //$NON-NLS-1$
+                            Integer.valueOf(contentsByBlobId.get(blobId).getBytes(CHARSET).length), repoRelativePath));
+                } else {
+                    outWriter.write(String.format("100644 blob %s\t%s\n", blobId, repoRelativePath)); //$NON-NLS-1$
+                }
+            }
+            return 0;
+        } else if (subcommand.equals("cat-file")) { //$NON-NLS-1$
+            return writeContent(outWriter, contentsByBlobId.get(lastArg));
+        } else if (subcommand.equals("show")) { //$NON-NLS-1$
+            return writeContent(outWriter, contentsByBlobId.get(blobIdsByRepoRelativePath.get(stripHead(lastArg))));
+        } else if (subcommand.equals("rev-parse")) { //$NON-NLS-1$
+            final String blobId = blobIdsByRepoRelativePath.get(stripHead(lastArg));
+            if (blobId == null) {
+                return GIT_FATAL_EXIT_CODE;
+            }
+            outWriter.write(blobId + "\n"); //$NON-NLS-1$
+            return 0;
+        }
+
+        throw new UnsupportedOperationException("unsupported Git command: " + Arrays.toString(programArgs)); //$NON-NLS-1$
+    }
+
+    private void delay() throws InterruptedException {
+        final long jitter = (latencyJitterInMicroseconds > 0L)
+                ? ThreadLocalRandom.current().nextLong(-latencyJitterInMicroseconds, latencyJitterInMicroseconds + 1L)
+                : 0L;
+        TimeUnit.MICROSECONDS.sleep(latencyInMicroseconds + jitter);
+    }
+
+    private static String getBlobId(final String content) {
+        try {
+            final byte[] contentBytes = content.getBytes(CHARSET);
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+            digest.update(String.format("blob %d\0", Integer.valueOf(contentBytes.length)).getBytes(CHARSET)); //$NON-NLS-1$
+            final StringBuilder blobId = new StringBuilder();
+            for (final byte b : digest.digest(contentBytes)) {
+                blobId.append(String.format("%02x", Integer.valueOf(b & 0xFF))); //$NON-NLS-1$
+            }
+            return blobId.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private String getRepoRelativePath(final String filePath) {
+        final StringBuilder repoRelativePath = new StringBuilder();
+        for (final Path name : repoPath.relativize(Paths.get(filePath))) {
+            if (repoRelativePath.length() > 0) {
+                repoRelativePath.append('/');
+            }
+            repoRelativePath.append(name);
+        }
+        return repoRelativePath.toString();
+    }
+
+    private static String stripHead(final String objectName) {
+        return objectName.substring("HEAD:".length()); //$NON-NLS-1$
+    }
+
+    private static int writeContent(final Writer outWriter, final String content) throws IOException {
+        if (content == null) {
+            return GIT_FATAL_EXIT_CODE;
+        }
+
+        outWriter.write(content);
+        return 0;
+    }
+}
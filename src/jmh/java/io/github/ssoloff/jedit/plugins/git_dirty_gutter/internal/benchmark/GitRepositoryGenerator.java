@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates local Git repositories with reproducible content for benchmarks.
+ *
+ * <p>
+ * Repositories are generated with {@code git fast-import} and so do not require
+ * network access. A generated repository is kept in the repository directory
+ * (the {@code gitdirtygutter.benchmark.repoDir} system property, defaulting to
+ * a directory below {@code java.io.tmpdir}) and reused by later benchmark runs
+ * with the same configuration.
+ * </p>
+ */
+public final class GitRepositoryGenerator {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final String COMPLETE_MARKER_FILE_NAME = ".complete"; //$NON-NLS-1$
+    private static final int COMMITS_PER_PACK = 10;
+    private static final double FILE_EDIT_PROBABILITY = 0.1;
+    private static final double LINE_EDIT_DENSITY = 0.05;
+
+    private final int fileCount;
+    private final List<List<String>> fileLines = new ArrayList<>();
+    private final int historyDepth;
+    private final int lineCount;
+    private final PackLayout packLayout;
+    private final Random random = new Random(1L);
+    private final Path repoPath;
+
+    private GitRepositoryGenerator(final Path repoPath, final int fileCount, final int lineCount,
+            final int historyDepth, final PackLayout packLayout) {
+        this.fileCount = fileCount;
+        this.historyDepth = historyDepth;
+        this.lineCount = lineCount;
+        this.packLayout = packLayout;
+        this.repoPath = repoPath;
+    }
+
+    private void appendCommit(final StringBuilder sb, final int commitIndex, final boolean continuesBranch) {
+        final String message = String.format("commit %d\n", Integer.valueOf(commitIndex)); //$NON-NLS-1$
+        final long baseTimeInSeconds = 1_000_000_000L;
+        sb.append("commit refs/heads/master\n"); //$NON-NLS-1$
+        sb.append(String.format("committer Benchmark <benchmark@example.com> %d +0000\n", //$NON-NLS-1$
+                Long.valueOf(baseTimeInSeconds + commitIndex)));
+        appendData(sb, message);
+        if (continuesBranch) {
+            sb.append("from refs/heads/master^0\n"); //$NON-NLS-1$
+        }
+
+        for (int fileIndex = 0; fileIndex < fileCount; ++fileIndex) {
+            final boolean edited;
+            if (commitIndex == 0) {
+                fileLines.add(SyntheticFiles.newLines(lineCount, random.nextLong()));
+                edited = true;
+            } else if (random.nextDouble() < FILE_EDIT_PROBABILITY) {
+                fileLines.set(fileIndex,
+                        SyntheticFiles.editLines(fileLines.get(fileIndex), LINE_EDIT_DENSITY, random.nextLong()));
+                edited = true;
+            } else {
+                edited = false;
+            }
+
+            if (edited) {
+                sb.append(String.format("M 100644 inline %s\n", getRepoRelativeFilePath(fileIndex))); //$NON-NLS-1$
+                final StringBuilder content = new StringBuilder();
+                for (final String line : fileLines.get(fileIndex)) {
+                    content.append(line).append('\n');
+                }
+                appendData(sb, content.toString());
+            }
+        }
+        sb.append('\n');
+    }
+
+    private static void appendData(final StringBuilder sb, final String data) {
+        // content is ASCII, so the character count is the byte count
+        sb.append(String.format("data %d\n", Integer.valueOf(data.length()))); //$NON-NLS-1$
+        sb.append(data);
+    }
+
+    /**
+     * Gets or generates a repository with the specified configuration.
+     *
+     * @param fileCount
+     *        The number of files in the repository; must be positive.
+     * @param lineCount
+     *        The number of lines in each file of the initial commit; must not
+     *        be negative.
+     * @param historyDepth
+     *        The number of commits in the repository; must be positive.
+     * @param packLayout
+     *        The layout of the repository object database.
+     *
+     * @return The path to the root of the repository working tree.
+     *
+     * @throws IOException
+     *         If the repository cannot be generated.
+     */
+    public static Path getRepository(final int fileCount, final int lineCount, final int historyDepth,
+            final PackLayout packLayout) throws IOException {
+        assert fileCount > 0;
+        assert lineCount >= 0;
+        assert historyDepth > 0;
+
+        final Path repoPath = getRepositoryDirPath().resolve(String.format("files%d-lines%d-depth%d-%s", //$NON-NLS-1$
+                Integer.valueOf(fileCount), Integer.valueOf(lineCount), Integer.valueOf(historyDepth),
+                packLayout.name().toLowerCase(Locale.ENGLISH)));
+        if (!Files.exists(repoPath.resolve(COMPLETE_MARKER_FILE_NAME))) {
+            deleteRecursively(repoPath);
+            Files.createDirectories(repoPath);
+            new GitRepositoryGenerator(repoPath, fileCount, lineCount, historyDepth, packLayout).generate();
+            Files.createFile(repoPath.resolve(COMPLETE_MARKER_FILE_NAME));
+        }
+        return repoPath;
+    }
+
+    private static Path getRepositoryDirPath() {
+        final String repoDir = System.getProperty("gitdirtygutter.benchmark.repoDir"); //$NON-NLS-1$
+        return (repoDir != null) ? Paths.get(repoDir)
+                : Paths.get(System.getProperty("java.io.tmpdir"), "git-dirty-gutter-benchmark-repos"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Gets the repository-relative path of the specified file.
+     *
+     * @param fileIndex
+     *        The zero-based index of the file.
+     *
+     * @return The repository-relative path of the specified file.
+     */
+    public static String getRepoRelativeFilePath(final int fileIndex) {
+        final int filesPerDir = 100;
+        return String.format("dir%d/file%d.txt", //$NON-NLS-1$
+                Integer.valueOf(fileIndex / filesPerDir), Integer.valueOf(fileIndex));
+    }
+
+    private static void deleteRecursively(final Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                for (final Path child : children) {
+                    deleteRecursively(child);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+
+    private void generate() throws IOException {
+        runGit(null, "init", "-q"); //$NON-NLS-1$ //$NON-NLS-2$
+        runGit(null, "symbolic-ref", "HEAD", "refs/heads/master"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        final int commitsPerImport = (packLayout == PackLayout.MULTI_PACK) ? COMMITS_PER_PACK : historyDepth;
+        for (int firstCommitIndex = 0; firstCommitIndex < historyDepth; firstCommitIndex += commitsPerImport) {
+            final StringBuilder sb = new StringBuilder();
+            final int lastCommitIndex = Math.min(firstCommitIndex + commitsPerImport, historyDepth);
+            for (int commitIndex = firstCommitIndex; commitIndex < lastCommitIndex; ++commitIndex) {
+                appendCommit(sb, commitIndex, (commitIndex == firstCommitIndex) && (commitIndex > 0));
+            }
+            runGit(sb.toString().getBytes(CHARSET), "fast-import", "--quiet"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        switch (packLayout) {
+            case LOOSE:
+                unpackObjects();
+                break;
+
+            case SINGLE_PACK:
+                runGit(null, "repack", "-a", "-d", "-q"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                break;
+
+            default:
+                break;
+        }
+
+        runGit(null, "reset", "-q", "--hard"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private static byte[] readFully(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        for (int count = inputStream.read(buffer); count != -1; count = inputStream.read(buffer)) {
+            outputStream.write(buffer, 0, count);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private void runGit(final byte[] input, final String... args) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add("git"); //$NON-NLS-1$
+        command.addAll(Arrays.asList(args));
+        final Process process = new ProcessBuilder(command) //
+                .directory(repoPath.toFile()) //
+                .redirectErrorStream(true) //
+                .start();
+        try (OutputStream outputStream = process.getOutputStream()) {
+            if (input != null) {
+                outputStream.write(input);
+            }
+        }
+
+        final String output = new String(readFully(process.getInputStream()), CHARSET);
+        try {
+            final int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException(String.format("%s exited with code %d: %s", //$NON-NLS-1$
+                        command, Integer.valueOf(exitCode), output));
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private void unpackObjects() throws IOException {
+        // objects already present in the repository are not unpacked, so move the packs out first
+        final Path packDirPath = repoPath.resolve(".git").resolve("objects").resolve("pack"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        final Path movedPackDirPath = Files.createTempDirectory(repoPath.getParent(), "packs"); //$NON-NLS-1$
+        try {
+            try (DirectoryStream<Path> packFiles = Files.newDirectoryStream(packDirPath)) {
+                for (final Path packFile : packFiles) {
+                    Files.move(packFile, movedPackDirPath.resolve(packFile.getFileName()));
+                }
+            }
+            try (DirectoryStream<Path> packFiles = Files.newDirectoryStream(movedPackDirPath, "*.pack")) { //$NON-NLS-1$
+                for (final Path packFile : packFiles) {
+                    runGit(Files.readAllBytes(packFile), "unpack-objects", "-q"); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+            }
+        } finally {
+            deleteRecursively(movedPackDirPath);
+        }
+    }
+
+    /**
+     * The layout of a generated repository object database.
+     */
+    public enum PackLayout {
+        /** Every object is stored as a loose object. */
+        LOOSE,
+
+        /** Objects are spread over one pack per batch of commits, as before a garbage collection. */
+        MULTI_PACK,
+
+        /** Every object is stored in a single repacked pack. */
+        SINGLE_PACK
+    }
+}
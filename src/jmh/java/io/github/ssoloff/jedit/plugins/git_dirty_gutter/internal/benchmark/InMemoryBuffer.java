@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.BufferSnapshot;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.IBuffer;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.StringUtils;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A buffer whose content is held in memory and edited by a script rather than
+ * by a user.
+ *
+ * <p>
+ * Like a jEdit buffer, the buffer should be edited only on the event dispatch
+ * thread; it may be read from any thread.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class InMemoryBuffer implements IBuffer {
+    private final Path filePath;
+
+    // all of the following fields are guarded by this
+    private long editSequenceNumber = 0L;
+    private final List<String> lines;
+
+    /**
+     * Initializes a new instance of the {@code InMemoryBuffer} class.
+     *
+     * @param filePath
+     *        The path of the file associated with the buffer.
+     * @param lines
+     *        The initial lines of the buffer; must not be empty.
+     */
+    public InMemoryBuffer(final Path filePath, final List<String> lines) {
+        assert !lines.isEmpty();
+
+        this.filePath = filePath;
+        this.lines = new ArrayList<>(lines);
+    }
+
+    /**
+     * Appends the specified text to the specified line.
+     *
+     * @param lineIndex
+     *        The zero-based index of the line to edit.
+     * @param text
+     *        The text to append.
+     */
+    public synchronized void appendToLine(final int lineIndex, final String text) {
+        lines.set(lineIndex, lines.get(lineIndex) + text);
+        ++editSequenceNumber;
+    }
+
+    @Override
+    public synchronized long getEditSequenceNumber() {
+        return editSequenceNumber;
+    }
+
+    @Override
+    public String getEncoding() {
+        return "UTF-8"; //$NON-NLS-1$
+    }
+
+    @Override
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Gets the number of lines in the buffer.
+     *
+     * @return The number of lines in the buffer.
+     */
+    public synchronized int getLineCount() {
+        return lines.size();
+    }
+
+    @Override
+    public synchronized BufferSnapshot getSnapshot() {
+        return BufferSnapshot.fromText(StringUtils.joinLinesWithImplicitFinalLine(lines), editSequenceNumber);
+    }
+
+    /**
+     * Inserts an empty line after the specified line.
+     *
+     * @param lineIndex
+     *        The zero-based index of the line after which to insert the new
+     *        line.
+     */
+    public synchronized void insertLineAfter(final int lineIndex) {
+        lines.add(lineIndex + 1, ""); //$NON-NLS-1$
+        ++editSequenceNumber;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic file content for benchmarks.
+ */
+public final class SyntheticFiles {
+    private static final int MAX_LINE_LENGTH = 80;
+
+    private SyntheticFiles() {
+    }
+
+    /**
+     * Creates a copy of the specified lines in which a fraction of the lines
+     * have been changed, inserted, or removed.
+     *
+     * @param lines
+     *        The lines to edit; they are not modified.
+     * @param editDensity
+     *        The probability that an edit is made at any given line; must be
+     *        between zero and one inclusive.
+     * @param seed
+     *        The seed of the random number generator used to make the edits.
+     *
+     * @return The edited lines.
+     */
+    public static List<String> editLines(final List<String> lines, final double editDensity, final long seed) {
+        assert (editDensity >= 0.0) && (editDensity <= 1.0);
+
+        final Random random = new Random(seed);
+        final List<String> editedLines = new ArrayList<>(lines.size());
+        for (final String line : lines) {
+            if (random.nextDouble() >= editDensity) {
+                editedLines.add(line);
+                continue;
+            }
+
+            final int editTypeCount = 3;
+            switch (random.nextInt(editTypeCount)) {
+                case 0: // change
+                    editedLines.add(newLine(random));
+                    break;
+
+                case 1: // insert
+                    editedLines.add(line);
+                    editedLines.add(newLine(random));
+                    break;
+
+                default: // remove
+                    break;
+            }
+        }
+        return editedLines;
+    }
+
+    private static String newLine(final Random random) {
+        final int length = random.nextInt(MAX_LINE_LENGTH);
+        final StringBuilder sb = new StringBuilder(length);
+        for (int index = 0; index < length; ++index) {
+            sb.append((char) ('a' + random.nextInt('z' - 'a' + 1)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Creates the specified number of lines of random content.
+     *
+     * @param lineCount
+     *        The number of lines to create; must not be negative.
+     * @param seed
+     *        The seed of the random number generator used to create the
+     *        content.
+     *
+     * @return The new lines.
+     */
+    public static List<String> newLines(final int lineCount, final long seed) {
+        assert lineCount >= 0;
+
+        final Random random = new Random(seed);
+        final List<String> lines = new ArrayList<>(lineCount);
+        for (int index = 0; index < lineCount; ++index) {
+            lines.add(newLine(random));
+        }
+        return lines;
+    }
+}
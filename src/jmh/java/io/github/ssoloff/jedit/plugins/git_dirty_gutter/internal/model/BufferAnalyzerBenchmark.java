@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark.SyntheticFiles;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.StringUtils;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunnerResult;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link BufferAnalyzer}.
+ *
+ * <p>
+ * Git is replaced by a stub that answers each command from memory, so the
+ * benchmarks measure the cost of reading, splitting, and diffing the content
+ * rather than the cost of running Git.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+public class BufferAnalyzerBenchmark {
+    private static final String BLOB_ID = "28573fea3903ca83e973ae9d05d5d32942d1589f"; //$NON-NLS-1$
+    private static final Path FILE_PATH = Paths.get("/repo/file"); //$NON-NLS-1$
+    private static final String REPO_RELATIVE_FILE_PATH = "file"; //$NON-NLS-1$
+
+    @Param({ "1000", "10000", "100000" })
+    public int lineCount;
+
+    @Param({ "0.001", "0.01", "0.1" })
+    public double editDensity;
+
+    @Param({ "false", "true" })
+    public boolean headBlobCacheEnabled;
+
+    private BufferAnalyzer bufferAnalyzer;
+    private BufferSnapshot snapshot;
+
+    /**
+     * Creates a patch between the HEAD revision and the current state of the
+     * buffer.
+     *
+     * @return The patch.
+     *
+     * @throws InterruptedException
+     *         If interrupted while creating the patch.
+     */
+    @Benchmark
+    public HunkTable createPatchBetweenHeadRevisionAndSnapshot() throws InterruptedException {
+        return bufferAnalyzer.createPatchBetweenHeadRevisionAndSnapshot(snapshot);
+    }
+
+    private static IBuffer newBuffer(final BufferSnapshot snapshot) {
+        return new IBuffer() {
+            @Override
+            public long getEditSequenceNumber() {
+                return snapshot.getEditSequenceNumber();
+            }
+
+            @Override
+            public String getEncoding() {
+                return "UTF-8"; //$NON-NLS-1$
+            }
+
+            @Override
+            public Path getFilePath() {
+                return FILE_PATH;
+            }
+
+            @Override
+            public BufferSnapshot getSnapshot() {
+                return snapshot;
+            }
+        };
+    }
+
+    private static IGitRunnerFactory newGitRunnerFactory(final String headRevisionContent) {
+        return new IGitRunnerFactory() {
+            @Override
+            public IGitRunner createGitRunner(final Path workingDirPath) {
+                return new IGitRunner() {
+                    @Override
+                    public GitRunnerResult run(final Writer outWriter, final String... programArgs)
+                            throws IOException {
+                        final List<String> args = Arrays.asList(programArgs);
+                        if (args.get(0).equals("ls-tree")) { //$NON-NLS-1$
+                            if (args.contains("--name-only")) { //$NON-NLS-1$
+                                outWriter.write(REPO_RELATIVE_FILE_PATH + "\n"); //$NON-NLS-1$
+                            } else if (args.contains("-l")) { //$NON-NLS-1$
+                                outWriter.write(String.format("100644 blob %s %7d\t%s\n", //$NON-NLS-1$
+                                        BLOB_ID, Integer.valueOf(headRevisionContent.length()),
+                                        REPO_RELATIVE_FILE_PATH));
+                            } else {
+                                outWriter.write(String.format("100644 blob %s\t%s\n", //$NON-NLS-1$
+                                        BLOB_ID, REPO_RELATIVE_FILE_PATH));
+                            }
+                        } else if (args.get(0).equals("rev-parse")) { //$NON-NLS-1$
+                            outWriter.write(BLOB_ID + "\n"); //$NON-NLS-1$
+                        } else {
+                            outWriter.write(headRevisionContent);
+                        }
+                        return new GitRunnerResult(workingDirPath, args, 0);
+                    }
+
+                    @Override
+                    public GitRunnerResult run(final OutputStream outStream, final String... programArgs) {
+                        throw new UnsupportedOperationException(
+                                "unsupported Git command: " + Arrays.toString(programArgs)); //$NON-NLS-1$
+                    }
+                };
+            }
+        };
+    }
+
+    private static ILog newLog() {
+        return new ILog() {
+            @Override
+            public void logDebug(final Object source, final String message) {
+                // do nothing
+            }
+
+            @Override
+            public void logError(final Object source, final String message, final Throwable t) {
+                throw new AssertionError(message, t);
+            }
+
+            @Override
+            public void logWarning(final Object source, final String message, final Throwable t) {
+                // do nothing
+            }
+        };
+    }
+
+    /**
+     * Creates the buffer analyzer.
+     */
+    @Setup
+    public void setup() {
+        final List<String> headRevisionLines = SyntheticFiles.newLines(lineCount, 1L);
+        final List<String> currentLines = SyntheticFiles.editLines(headRevisionLines, editDensity, 2L);
+        snapshot = BufferSnapshot.fromText(StringUtils.joinLinesWithImplicitFinalLine(currentLines), 0L);
+        final HeadBlobCache headBlobCache = headBlobCacheEnabled ? new HeadBlobCache(Long.MAX_VALUE) : null;
+        bufferAnalyzer = new BufferAnalyzer(newBuffer(snapshot),
+                newGitRunnerFactory(StringUtils.joinLinesWithImplicitFinalLine(headRevisionLines)), newLog(),
+                headBlobCache);
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import difflib.ChangeDelta;
+import difflib.Chunk;
+import difflib.DeleteDelta;
+import difflib.Delta;
+import difflib.DiffUtils;
+import difflib.InsertDelta;
+import difflib.Patch;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.StringUtils;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the diff engines available to {@link BufferAnalyzer} against the
+ * code churn recorded in the history of a local repository.
+ *
+ * <p>
+ * Each file modified by a non-merge commit is replayed as a refresh: the
+ * content of the file in the parent commit is the HEAD revision and its
+ * content in the commit is the buffer. Each operation diffs one such file
+ * change, cycling through all of them. The {@code deltas} and {@code diffs}
+ * counters report the number of deltas produced; run with the {@code gc}
+ * profiler to report allocations per operation.
+ * </p>
+ *
+ * <p>
+ * When the benchmark is set up, the dirty marks produced by each engine are
+ * compared with those produced by the engine used by {@code BufferAnalyzer}
+ * and any differences are printed. Engines may legitimately align changes
+ * differently, so differences are reported rather than treated as failures.
+ * </p>
+ *
+ * <p>
+ * The repository is the current directory unless specified using the
+ * {@code gitdirtygutter.benchmark.historyRepo} system property. At most 500
+ * commits are replayed unless specified using the
+ * {@code gitdirtygutter.benchmark.historyMaxCommits} system property.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+public class DiffEngineHistoryBenchmark {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final int MAX_FILE_SIZE_IN_BYTES = 1024 * 1024;
+
+    @Param({ "DIFF_UTILS_MYERS", "JGIT_MYERS", "JGIT_HISTOGRAM" })
+    public Engine engine;
+
+    private final List<FileChange> fileChanges = new ArrayList<>();
+    private int nextFileChangeIndex = 0;
+
+    private void checkDirtyMarks() {
+        int differingFileChangeCount = 0;
+        long differingLineCount = 0L;
+        for (final FileChange fileChange : fileChanges) {
+            final PatchAnalyzer expectedPatchAnalyzer = new PatchAnalyzer(
+                    Engine.DIFF_UTILS_MYERS.diff(fileChange.originalLines, fileChange.revisedLines));
+            final PatchAnalyzer actualPatchAnalyzer = new PatchAnalyzer(
+                    engine.diff(fileChange.originalLines, fileChange.revisedLines));
+            int fileChangeDifferingLineCount = 0;
+            for (int lineIndex = 0; lineIndex < fileChange.revisedLines.size(); ++lineIndex) {
+                if (expectedPatchAnalyzer.getDirtyMarkForLine(lineIndex) != actualPatchAnalyzer
+                        .getDirtyMarkForLine(lineIndex)) {
+                    ++fileChangeDifferingLineCount;
+                }
+            }
+            if (fileChangeDifferingLineCount > 0) {
+                ++differingFileChangeCount;
+                differingLineCount += fileChangeDifferingLineCount;
+            }
+        }
+
+        System.out.printf("%n%s: %d of %d file changes (%d lines) marked differently from %s%n", //$NON-NLS-1$
+                engine, Integer.valueOf(differingFileChangeCount), Integer.valueOf(fileChanges.size()),
+                Long.valueOf(differingLineCount), Engine.DIFF_UTILS_MYERS);
+    }
+
+    /**
+     * Diffs the next file change.
+     *
+     * @param counters
+     *        The counters of diffs and deltas.
+     *
+     * @return The patch between the two revisions of the file.
+     */
+    @Benchmark
+    public Patch diff(final Counters counters) {
+        final FileChange fileChange = fileChanges.get(nextFileChangeIndex);
+        nextFileChangeIndex = (nextFileChangeIndex + 1) % fileChanges.size();
+        final Patch patch = engine.diff(fileChange.originalLines, fileChange.revisedLines);
+        counters.deltas += patch.getDeltas().size();
+        ++counters.diffs;
+        return patch;
+    }
+
+    private static String readBlob(final ObjectReader objectReader, final DiffEntry.Side side,
+            final DiffEntry diffEntry) throws Exception {
+        final byte[] content = objectReader.open(diffEntry.getId(side).toObjectId(), Constants.OBJ_BLOB)
+                .getCachedBytes(MAX_FILE_SIZE_IN_BYTES);
+        return RawText.isBinary(content) ? null : new String(content, CHARSET);
+    }
+
+    private void readFileChanges(final Repository repository, final int maxCommitCount) throws Exception {
+        try (RevWalk revWalk = new RevWalk(repository);
+                DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+                ObjectReader objectReader = repository.newObjectReader()) {
+            diffFormatter.setRepository(repository);
+            revWalk.markStart(revWalk.parseCommit(repository.resolve(Constants.HEAD)));
+            int commitCount = 0;
+            for (final RevCommit commit : revWalk) {
+                if (commitCount++ >= maxCommitCount) {
+                    break;
+                } else if (commit.getParentCount() != 1) {
+                    continue;
+                }
+
+                final RevCommit parentCommit = revWalk.parseCommit(commit.getParent(0));
+                for (final DiffEntry diffEntry : diffFormatter.scan(parentCommit.getTree(), commit.getTree())) {
+                    if (diffEntry.getChangeType() != DiffEntry.ChangeType.MODIFY) {
+                        continue;
+                    }
+
+                    try {
+                        final String originalContent = readBlob(objectReader, DiffEntry.Side.OLD, diffEntry);
+                        final String revisedContent = readBlob(objectReader, DiffEntry.Side.NEW, diffEntry);
+                        if ((originalContent != null) && (revisedContent != null)) {
+                            // split the lines as the HEAD revision and the buffer are split by a refresh
+                            fileChanges.add(new FileChange(
+                                    StringUtils.splitLinesWithExplicitFinalLine(originalContent),
+                                    BufferSnapshot.fromText(revisedContent, 0L).getLines()));
+                        }
+                    } catch (final org.eclipse.jgit.errors.LargeObjectException e) {
+                        // skip files too large to be typical buffers
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the file changes from the repository history and compares the
+     * dirty marks produced by the engine with those of the reference engine.
+     *
+     * @throws Exception
+     *         If the repository history cannot be read.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final File repoDir = new File(System.getProperty("gitdirtygutter.benchmark.historyRepo", ".")); //$NON-NLS-1$ //$NON-NLS-2$
+        final int maxCommitCount = Integer
+                .parseInt(System.getProperty("gitdirtygutter.benchmark.historyMaxCommits", "500")); //$NON-NLS-1$ //$NON-NLS-2$
+        try (Repository repository = new FileRepositoryBuilder().findGitDir(repoDir.getAbsoluteFile()).build()) {
+            readFileChanges(repository, maxCommitCount);
+        }
+        if (fileChanges.isEmpty()) {
+            throw new IllegalStateException("no modified text files found in history of " + repoDir); //$NON-NLS-1$
+        }
+
+        if (engine != Engine.DIFF_UTILS_MYERS) {
+            checkDirtyMarks();
+        }
+    }
+
+    /**
+     * The counters reported with each benchmark result.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        /** The number of deltas produced. */
+        public long deltas;
+
+        /** The number of file changes diffed. */
+        public long diffs;
+
+        /**
+         * Resets the counters before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            deltas = 0L;
+            diffs = 0L;
+        }
+    }
+
+    /**
+     * The diff engines.
+     */
+    public enum Engine {
+        /**
+         * The Myers implementation of java-diff-utils used by
+         * {@code BufferAnalyzer}.
+         */
+        DIFF_UTILS_MYERS {
+            @Override
+            Patch diff(final List<String> originalLines, final List<String> revisedLines) {
+                return DiffUtils.diff(originalLines, revisedLines);
+            }
+        },
+
+        /**
+         * The Myers implementation of JGit.
+         */
+        JGIT_MYERS {
+            @Override
+            Patch diff(final List<String> originalLines, final List<String> revisedLines) {
+                return diffWithJGit(DiffAlgorithm.SupportedAlgorithm.MYERS, originalLines, revisedLines);
+            }
+        },
+
+        /**
+         * The histogram implementation of JGit, as used by
+         * {@code git diff --histogram}.
+         */
+        JGIT_HISTOGRAM {
+            @Override
+            Patch diff(final List<String> originalLines, final List<String> revisedLines) {
+                return diffWithJGit(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM, originalLines, revisedLines);
+            }
+        };
+
+        private static final LineSequenceComparator LINE_SEQUENCE_COMPARATOR = new LineSequenceComparator();
+
+        abstract Patch diff(List<String> originalLines, List<String> revisedLines);
+
+        private static Patch diffWithJGit(final DiffAlgorithm.SupportedAlgorithm algorithm,
+                final List<String> originalLines, final List<String> revisedLines) {
+            final Patch patch = new Patch();
+            for (final Edit edit : DiffAlgorithm.getAlgorithm(algorithm).diff(LINE_SEQUENCE_COMPARATOR,
+                    new LineSequence(originalLines), new LineSequence(revisedLines))) {
+                final Chunk original = new Chunk(edit.getBeginA(),
+                        originalLines.subList(edit.getBeginA(), edit.getEndA()));
+                final Chunk revised = new Chunk(edit.getBeginB(),
+                        revisedLines.subList(edit.getBeginB(), edit.getEndB()));
+                final Delta delta;
+                if (edit.getType() == Edit.Type.INSERT) {
+                    delta = new InsertDelta(original, revised);
+                } else if (edit.getType() == Edit.Type.DELETE) {
+                    delta = new DeleteDelta(original, revised);
+                } else {
+                    delta = new ChangeDelta(original, revised);
+                }
+                patch.addDelta(delta);
+            }
+            return patch;
+        }
+    }
+
+    /**
+     * The two revisions of a file modified by a commit.
+     */
+    private static final class FileChange {
+        final List<String> originalLines;
+        final List<String> revisedLines;
+
+        FileChange(final List<String> originalLines, final List<String> revisedLines) {
+            this.originalLines = originalLines;
+            this.revisedLines = revisedLines;
+        }
+    }
+
+    /**
+     * A sequence of lines that can be diffed by JGit.
+     */
+    private static final class LineSequence extends Sequence {
+        final List<String> lines;
+
+        LineSequence(final List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int size() {
+            return lines.size();
+        }
+    }
+
+    /**
+     * Compares the lines of two line sequences.
+     */
+    private static final class LineSequenceComparator extends SequenceComparator<LineSequence> {
+        @Override
+        public boolean equals(final LineSequence a, final int ai, final LineSequence b, final int bi) {
+            return a.lines.get(ai).equals(b.lines.get(bi));
+        }
+
+        @Override
+        public int hash(final LineSequence seq, final int ptr) {
+            return seq.lines.get(ptr).hashCode();
+        }
+    }
+}
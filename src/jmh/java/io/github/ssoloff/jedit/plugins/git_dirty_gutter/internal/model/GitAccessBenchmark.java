@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark.GitRepositoryGenerator;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.IProcessRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.ProcessRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitBatchObjectReader;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitObject;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunnerResult;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunner;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the strategies for reading the HEAD revision of a file from a Git
+ * repository.
+ *
+ * <p>
+ * Each operation is one refresh: the HEAD revision of a file chosen at random
+ * from a generated repository is located and read. Latency percentiles are
+ * reported by the sample time mode. The average time mode also reports the
+ * number of Git processes started through the {@code processSpawns} and
+ * {@code refreshes} counters; their ratio is the number of process spawns per
+ * refresh.
+ * </p>
+ */
+@BenchmarkMode({ Mode.SampleTime, Mode.AverageTime })
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class GitAccessBenchmark {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final int LINE_COUNT = 200;
+
+    @Param({ "100", "1000" })
+    public int fileCount;
+
+    @Param({ "1", "100" })
+    public int historyDepth;
+
+    @Param({ "LOOSE", "SINGLE_PACK", "MULTI_PACK" })
+    public GitRepositoryGenerator.PackLayout packLayout;
+
+    @Param({ "SHOW", "LS_TREE_CAT_FILE", "BATCH_CAT_FILE", "IN_PROCESS" })
+    public Strategy strategy;
+
+    private final AtomicLong processSpawnCount = new AtomicLong();
+    private final Random random = new Random(1L);
+    private IHeadRevisionReader reader;
+    private Path repoPath;
+
+    /**
+     * Reads the HEAD revision of a file chosen at random.
+     *
+     * @param counters
+     *        The counters of refreshes and process spawns.
+     *
+     * @return The content of the HEAD revision of the file.
+     *
+     * @throws Exception
+     *         If the HEAD revision cannot be read.
+     */
+    @Benchmark
+    public String refresh(final Counters counters) throws Exception {
+        final Path filePath = repoPath.resolve(GitRepositoryGenerator.getRepoRelativeFilePath(random.nextInt(fileCount)));
+        final long processSpawnCountBefore = processSpawnCount.get();
+        final String content = reader.readHeadRevision(filePath);
+        counters.processSpawns += processSpawnCount.get() - processSpawnCountBefore;
+        ++counters.refreshes;
+        return content;
+    }
+
+    /**
+     * Generates the repository and creates the reader for the strategy.
+     *
+     * @throws Exception
+     *         If the repository cannot be generated or the reader cannot be
+     *         created.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        repoPath = GitRepositoryGenerator.getRepository(fileCount, LINE_COUNT, historyDepth, packLayout);
+        reader = strategy.createReader(repoPath, new CountingProcessRunner(new ProcessRunner(), processSpawnCount));
+        if (reader.readHeadRevision(repoPath.resolve(GitRepositoryGenerator.getRepoRelativeFilePath(0))) == null) {
+            throw new IllegalStateException("strategy failed to read HEAD revision"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Closes the reader for the strategy.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reader.close();
+    }
+
+    private static Path getGitProgramPath() {
+        return Paths.get("git"); //$NON-NLS-1$
+    }
+
+    /**
+     * The counters reported with each benchmark result.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        /** The number of Git processes started. */
+        public long processSpawns;
+
+        /** The number of refreshes. */
+        public long refreshes;
+
+        /**
+         * Resets the counters before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            processSpawns = 0L;
+            refreshes = 0L;
+        }
+    }
+
+    /**
+     * A process runner that counts the processes it starts.
+     */
+    private static final class CountingProcessRunner implements IProcessRunner {
+        private final AtomicLong processSpawnCount;
+        private final IProcessRunner processRunner;
+
+        CountingProcessRunner(final IProcessRunner processRunner, final AtomicLong processSpawnCount) {
+            this.processRunner = processRunner;
+            this.processSpawnCount = processSpawnCount;
+        }
+
+        @Override
+        public int run(final Writer outWriter, final Writer errWriter, final Path workingDirPath,
+                final String... command) throws IOException, InterruptedException {
+            processSpawnCount.incrementAndGet();
+            return processRunner.run(outWriter, errWriter, workingDirPath, command);
+        }
+
+        @Override
+        public int run(final OutputStream outStream, final Writer errWriter, final Path workingDirPath,
+                final String... command) throws IOException, InterruptedException {
+            processSpawnCount.incrementAndGet();
+            return processRunner.run(outStream, errWriter, workingDirPath, command);
+        }
+    }
+
+    /**
+     * Reads the HEAD revision of a file.
+     */
+    interface IHeadRevisionReader extends AutoCloseable {
+        /**
+         * Releases the resources held by the reader without throwing a
+         * checked exception.
+         */
+        @Override
+        void close();
+
+        /**
+         * Reads the HEAD revision of the specified file.
+         *
+         * @param filePath
+         *        The path to the file.
+         *
+         * @return The content of the HEAD revision of the file or {@code null}
+         *         if the file is not present at the HEAD revision.
+         *
+         * @throws Exception
+         *         If the HEAD revision cannot be read.
+         */
+        String readHeadRevision(Path filePath) throws Exception;
+    }
+
+    /**
+     * The strategies for reading the HEAD revision of a file.
+     */
+    public enum Strategy {
+        /**
+         * Starts one Git process per command and reads the file with
+         * {@code git show}, as refreshes did before the HEAD blob cache.
+         */
+        SHOW {
+            @Override
+            IHeadRevisionReader createReader(final Path repoPath, final IProcessRunner processRunner) {
+                return new GitCommandsReader(processRunner) {
+                    @Override
+                    String readHeadRevision(final IGitRunner gitRunner, final Path filePath) throws Exception {
+                        // the file was listed once to check that it is present and once more to resolve its
+                        // repository-relative path
+                        final String repoRelativePath = runGit(gitRunner, "ls-tree", "--full-name", //$NON-NLS-1$ //$NON-NLS-2$
+                                "--name-only", "HEAD", filePath.toString()).trim(); //$NON-NLS-1$ //$NON-NLS-2$
+                        if (repoRelativePath.isEmpty()) {
+                            return null;
+                        }
+                        runGit(gitRunner, "ls-tree", "--full-name", "--name-only", "HEAD", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                                filePath.toString());
+                        return runGit(gitRunner, "show", "HEAD:" + repoRelativePath); //$NON-NLS-1$ //$NON-NLS-2$
+                    }
+                };
+            }
+        },
+
+        /**
+         * Starts one Git process per command, locates the blob with
+         * {@code git ls-tree}, and reads it with {@code git cat-file}, as
+         * refreshes do when the blob is not cached.
+         */
+        LS_TREE_CAT_FILE {
+            @Override
+            IHeadRevisionReader createReader(final Path repoPath, final IProcessRunner processRunner) {
+                return new GitCommandsReader(processRunner) {
+                    @Override
+                    String readHeadRevision(final IGitRunner gitRunner, final Path filePath) throws Exception {
+                        final GitCommands gitCommands = new GitCommands(gitRunner);
+                        final String blobId = gitCommands.getBlobIdAtHeadRevision(filePath);
+                        if (blobId == null) {
+                            return null;
+                        }
+                        final StringWriter writer = new StringWriter();
+                        gitCommands.readBlobContent(blobId, writer);
+                        return writer.toString();
+                    }
+                };
+            }
+        },
+
+        /**
+         * Reads every file through a single {@code git cat-file --batch}
+         * process, as the session pre-warm does.
+         */
+        BATCH_CAT_FILE {
+            @Override
+            IHeadRevisionReader createReader(final Path repoPath, final IProcessRunner processRunner)
+                    throws IOException {
+                final GitBatchObjectReader objectReader = new GitBatchObjectReader(repoPath, getGitProgramPath());
+                return new IHeadRevisionReader() {
+                    @Override
+                    public void close() {
+                        objectReader.close();
+                    }
+
+                    @Override
+                    public String readHeadRevision(final Path filePath) throws Exception {
+                        final GitObject object = objectReader.read("HEAD:" //$NON-NLS-1$
+                                + repoPath.relativize(filePath).toString().replace('\\', '/'));
+                        return (object != null) ? new String(object.getContent(), CHARSET) : null;
+                    }
+                };
+            }
+        },
+
+        /**
+         * Reads every file in process with JGit without starting a Git
+         * process.
+         */
+        IN_PROCESS {
+            @Override
+            IHeadRevisionReader createReader(final Path repoPath, final IProcessRunner processRunner)
+                    throws IOException {
+                final Repository repository = new FileRepositoryBuilder()
+                        .setGitDir(repoPath.resolve(Constants.DOT_GIT).toFile()).build();
+                return new IHeadRevisionReader() {
+                    @Override
+                    public void close() {
+                        repository.close();
+                    }
+
+                    @Override
+                    public String readHeadRevision(final Path filePath) throws Exception {
+                        final ObjectId treeId = repository.resolve("HEAD^{tree}"); //$NON-NLS-1$
+                        try (TreeWalk treeWalk = TreeWalk.forPath(repository,
+                                repoPath.relativize(filePath).toString().replace('\\', '/'), treeId)) {
+                            if (treeWalk == null) {
+                                return null;
+                            }
+                            final byte[] content = repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB)
+                                    .getBytes();
+                            return new String(content, CHARSET);
+                        }
+                    }
+                };
+            }
+        };
+
+        abstract IHeadRevisionReader createReader(Path repoPath, IProcessRunner processRunner) throws IOException;
+    }
+
+    /**
+     * Base class for strategies that run one Git process per command.
+     */
+    private abstract static class GitCommandsReader implements IHeadRevisionReader {
+        private final IProcessRunner processRunner;
+
+        GitCommandsReader(final IProcessRunner processRunner) {
+            this.processRunner = processRunner;
+        }
+
+        @Override
+        public void close() {
+            // do nothing
+        }
+
+        @Override
+        public String readHeadRevision(final Path filePath) throws Exception {
+            return readHeadRevision(new GitRunner(processRunner, filePath.getParent(), getGitProgramPath()), filePath);
+        }
+
+        abstract String readHeadRevision(IGitRunner gitRunner, Path filePath) throws Exception;
+
+        static String runGit(final IGitRunner gitRunner, final String... programArgs) throws Exception {
+            final StringWriter outWriter = new StringWriter();
+            final GitRunnerResult result = gitRunner.run(outWriter, programArgs);
+            if (result.getExitCode() != 0) {
+                throw new IOException(String.format("Git exited with code %d", //$NON-NLS-1$
+                        Integer.valueOf(result.getExitCode())));
+            }
+            return outWriter.toString();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import difflib.DiffUtils;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark.SyntheticFiles;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link PatchAnalyzer}.
+ *
+ * <p>
+ * The number of deltas in the analyzed patch is controlled by the file size and
+ * the edit density.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+public class PatchAnalyzerBenchmark {
+    private static final int VISIBLE_LINE_COUNT = 60;
+
+    @Param({ "1000", "10000", "100000" })
+    public int lineCount;
+
+    @Param({ "0.001", "0.01", "0.1" })
+    public double editDensity;
+
+    private int nextLineIndex = 0;
+    private PatchAnalyzer patchAnalyzer;
+    private int revisedLineCount;
+
+    /**
+     * Gets the dirty mark of a single line, as when a single gutter line is
+     * repainted.
+     *
+     * @return The dirty mark of the line.
+     */
+    @Benchmark
+    public DirtyMarkType getDirtyMarkForLine() {
+        final int lineIndex = nextLineIndex;
+        nextLineIndex = (lineIndex + 1) % revisedLineCount;
+        return patchAnalyzer.getDirtyMarkForLine(lineIndex);
+    }
+
+    /**
+     * Gets the dirty marks of a screenful of consecutive lines, as when the
+     * whole gutter is repainted.
+     *
+     * @param blackhole
+     *        The sink for the dirty marks.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VISIBLE_LINE_COUNT)
+    public void getDirtyMarksForVisibleLines(final Blackhole blackhole) {
+        final int firstLineIndex = nextLineIndex;
+        nextLineIndex = (firstLineIndex + VISIBLE_LINE_COUNT) % (revisedLineCount - VISIBLE_LINE_COUNT);
+        for (int lineIndex = firstLineIndex; lineIndex < (firstLineIndex + VISIBLE_LINE_COUNT); ++lineIndex) {
+            blackhole.consume(patchAnalyzer.getDirtyMarkForLine(lineIndex));
+        }
+    }
+
+    /**
+     * Creates the patch to analyze.
+     */
+    @Setup
+    public void setup() {
+        final List<String> originalLines = SyntheticFiles.newLines(lineCount, 1L);
+        final List<String> revisedLines = SyntheticFiles.editLines(originalLines, editDensity, 2L);
+        patchAnalyzer = new PatchAnalyzer(DiffUtils.diff(originalLines, revisedLines));
+        revisedLineCount = revisedLines.size();
+    }
+}
@@ -0,0 +1,611 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark.FakeGitRunnerFactory;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark.GitRepositoryGenerator;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark.InMemoryBuffer;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark.SyntheticFiles;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobCache;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobSpiller;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.IBuffer;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.ILog;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.HeapPressureMonitor;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.RefreshScheduler;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.StringUtils;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.Suppliers;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.ProcessRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitException;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunnerResult;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Simulates many buffers of a single repository being edited concurrently
+ * without running jEdit.
+ *
+ * <p>
+ * Each simulated buffer is an {@link InMemoryBuffer} driven by a real
+ * {@link GitBufferHandler}, so the simulation exercises the same refresh
+ * scheduling, Git access, diffing and patch publication as the plugin. Buffers
+ * are typed into at a constant rate on the event dispatch thread, and the
+ * visible buffers are repainted after each published patch. Git is either a
+ * generated local repository or an in-memory stand-in with an injected
+ * latency.
+ * </p>
+ *
+ * <p>
+ * After a warm-up period, the simulator measures the process CPU time, the
+ * number of Git processes spawned, the threads used and the distribution of
+ * the time between an edit and the repaint of its dirty marks, and prints a
+ * report to standard output.
+ * </p>
+ *
+ * <p>
+ * The simulation is configured using {@code --name=value} arguments; see
+ * {@link Options} for the supported names and their defaults.
+ * </p>
+ */
+public final class LoadSimulator {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final String NAME = "LoadSimulator"; //$NON-NLS-1$
+
+    private final List<InMemoryBuffer> buffers = new ArrayList<>();
+    private final AtomicLong editCount = new AtomicLong();
+    private final CountingGitRunnerFactory gitRunnerFactory;
+    private final List<GitBufferHandler> handlers = new ArrayList<>();
+    private final HeadBlobCache headBlobCache;
+    @Nullable
+    private final HeadBlobSpiller headBlobSpiller;
+    private final HeapPressureMonitor heapPressureMonitor;
+    private final Options options;
+    private final RefreshScheduler refreshScheduler;
+    private final AdaptivePollInterval repositoryPollInterval;
+
+    private LoadSimulator(final Options options) throws IOException {
+        this.options = options;
+        headBlobCache = new HeadBlobCache(options.getInt("headBlobCacheSize", 32 * 1024 * 1024), //$NON-NLS-1$
+                options.getBoolean("internHeadBlobLines", false), //$NON-NLS-1$
+                options.getInt("headBlobCacheCompressedSize", 8 * 1024 * 1024)); //$NON-NLS-1$
+        final int headBlobSpillThreshold = options.getInt("headBlobSpillThreshold", 0); //$NON-NLS-1$
+        headBlobSpiller = (headBlobSpillThreshold > 0)
+                ? new HeadBlobSpiller(Files.createTempDirectory(NAME), headBlobSpillThreshold) : null;
+        heapPressureMonitor = new HeapPressureMonitor(options.getInt("heapPressureThreshold", 85)); //$NON-NLS-1$
+        refreshScheduler = new RefreshScheduler(NAME, options.getInt("threads", //$NON-NLS-1$
+                Math.min(Runtime.getRuntime().availableProcessors(), 4)),
+                options.getInt("maxRefreshDelay", 500), //$NON-NLS-1$
+                options.getInt("maxRefreshStaleness", 1000), //$NON-NLS-1$
+                options.getBoolean("virtualThreads", false)); //$NON-NLS-1$
+        repositoryPollInterval = new AdaptivePollInterval(
+                Suppliers.forObject(Integer.valueOf(getRepositoryPollTimeInMilliseconds())),
+                options.getInt("maxRepositoryPollTime", 60000), Suppliers.forObject(Boolean.TRUE)); //$NON-NLS-1$
+        gitRunnerFactory = new CountingGitRunnerFactory(createBuffers());
+    }
+
+    private IGitRunnerFactory createBuffers() throws IOException {
+        final int bufferCount = options.getInt("buffers", 200); //$NON-NLS-1$
+        final int lineCount = options.getInt("lines", 1000); //$NON-NLS-1$
+        final long seed = options.getInt("seed", 0); //$NON-NLS-1$
+        if (isRealGit()) {
+            final Path repoPath = GitRepositoryGenerator.getRepository(bufferCount, lineCount, 1,
+                    GitRepositoryGenerator.PackLayout.SINGLE_PACK);
+            for (int index = 0; index < bufferCount; ++index) {
+                final Path filePath = repoPath.resolve(GitRepositoryGenerator.getRepoRelativeFilePath(index));
+                buffers.add(new InMemoryBuffer(filePath, Files.readAllLines(filePath, CHARSET)));
+            }
+            return new IGitRunnerFactory() {
+                @Override
+                public IGitRunner createGitRunner(final Path workingDirPath) {
+                    return new GitRunner(new ProcessRunner(), workingDirPath, Paths.get("git")); //$NON-NLS-1$
+                }
+            };
+        }
+
+        final Path repoPath = Paths.get(System.getProperty("java.io.tmpdir"), "simulated-repo"); //$NON-NLS-1$ //$NON-NLS-2$
+        final Map<String, String> headContentsByRepoRelativePath = new HashMap<>();
+        for (int index = 0; index < bufferCount; ++index) {
+            final String repoRelativePath = GitRepositoryGenerator.getRepoRelativeFilePath(index);
+            final List<String> lines = SyntheticFiles.newLines(lineCount, seed + index);
+            headContentsByRepoRelativePath.put(repoRelativePath, StringUtils.joinLinesWithImplicitFinalLine(lines));
+            buffers.add(new InMemoryBuffer(repoPath.resolve(repoRelativePath), lines));
+        }
+        return new FakeGitRunnerFactory(repoPath, headContentsByRepoRelativePath,
+                TimeUnit.MILLISECONDS.toMicros(options.getInt("gitLatency", 20)), //$NON-NLS-1$
+                TimeUnit.MILLISECONDS.toMicros(options.getInt("gitLatencyJitter", 10))); //$NON-NLS-1$
+    }
+
+    private IGitBufferHandlerContext createContext(final IBuffer buffer) {
+        final IDirtyMarkPainterSpecificationFactoryContext dirtyMarkPainterSpecificationFactoryContext = new IDirtyMarkPainterSpecificationFactoryContext() {
+            @Override
+            public Color getAddedDirtyMarkColor() {
+                return Color.GREEN;
+            }
+
+            @Override
+            public Color getChangedDirtyMarkColor() {
+                return Color.ORANGE;
+            }
+
+            @Override
+            public Color getRemovedDirtyMarkColor() {
+                return Color.RED;
+            }
+        };
+        final ILog log = new ILog() {
+            @Override
+            public void logDebug(final Object source, final String message) {
+                // do nothing
+            }
+
+            @Override
+            public void logError(final Object source, final String message, final Throwable t) {
+                System.err.println(message);
+                t.printStackTrace();
+            }
+
+            @Override
+            public void logWarning(final Object source, final String message, final Throwable t) {
+                System.err.println(message);
+                t.printStackTrace();
+            }
+        };
+        return new IGitBufferHandlerContext() {
+            @Override
+            public int getBackgroundBufferIdleTimeInMilliseconds() {
+                return options.getInt("backgroundBufferIdleTime", 15 * 60 * 1000); //$NON-NLS-1$
+            }
+
+            @Override
+            public IBuffer getBuffer() {
+                return buffer;
+            }
+
+            @Override
+            public IDirtyMarkPainterSpecificationFactoryContext getDirtyMarkPainterSpecificationFactoryContext() {
+                return dirtyMarkPainterSpecificationFactoryContext;
+            }
+
+            @Override
+            public IGitRunnerFactory getGitRunnerFactory() {
+                return gitRunnerFactory;
+            }
+
+            @Override
+            public HeadBlobCache getHeadBlobCache() {
+                return headBlobCache;
+            }
+
+            @Nullable
+            @Override
+            public HeadBlobSpiller getHeadBlobSpiller() {
+                return headBlobSpiller;
+            }
+
+            @Override
+            public HeapPressureMonitor getHeapPressureMonitor() {
+                return heapPressureMonitor;
+            }
+
+            @Override
+            public ILog getLog() {
+                return log;
+            }
+
+            @Override
+            public RefreshScheduler getRefreshScheduler() {
+                return refreshScheduler;
+            }
+
+            @Override
+            public AdaptivePollInterval getRepositoryPollInterval(final Path repoRootPath) {
+                // all buffers belong to the same repository
+                return repositoryPollInterval;
+            }
+
+            @Override
+            public int getRepositoryPollTimeInMilliseconds() {
+                return LoadSimulator.this.getRepositoryPollTimeInMilliseconds();
+            }
+        };
+    }
+
+    private int getRepositoryPollTimeInMilliseconds() {
+        return options.getInt("repositoryPollTime", 5000); //$NON-NLS-1$
+    }
+
+    private boolean isRealGit() {
+        return options.getString("git", "fake").equals("real"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    /**
+     * Runs the load simulator.
+     *
+     * @param args
+     *        The simulation options as {@code --name=value} arguments.
+     *
+     * @throws Exception
+     *         If the simulation fails.
+     */
+    public static void main(final String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+        final LoadSimulator simulator = new LoadSimulator(Options.parse(args));
+        System.out.print(simulator.run());
+        System.exit(0);
+    }
+
+    private String run() throws InterruptedException, InvocationTargetException, IOException {
+        final int visibleBufferCount = Math.min(options.getInt("visibleBuffers", 4), buffers.size()); //$NON-NLS-1$
+        final int typingBufferCount = Math.min(options.getInt("typingBuffers", 1), visibleBufferCount); //$NON-NLS-1$
+        final int keystrokesPerSecond = options.getInt("keystrokesPerSecond", 8); //$NON-NLS-1$
+        final double newlineProbability = options.getDouble("newlineProbability", 0.05); //$NON-NLS-1$
+        final long warmupInSeconds = options.getInt("warmup", 10); //$NON-NLS-1$
+        final long durationInSeconds = options.getInt("duration", 30); //$NON-NLS-1$
+
+        heapPressureMonitor.start();
+        startHandlers(visibleBufferCount);
+        final ScheduledExecutorService typist = startTyping(typingBufferCount, keystrokesPerSecond,
+                newlineProbability);
+
+        TimeUnit.SECONDS.sleep(warmupInSeconds);
+        final Measurement measurement = new Measurement();
+        TimeUnit.SECONDS.sleep(durationInSeconds);
+        final String report = measurement.report(String.format(Locale.ENGLISH,
+                "%d buffers (%d visible, %d typing at %d keystrokes/s), %s Git, %s refresh threads, %d s%n", //$NON-NLS-1$
+                Integer.valueOf(buffers.size()), Integer.valueOf(visibleBufferCount),
+                Integer.valueOf(typingBufferCount), Integer.valueOf(keystrokesPerSecond),
+                isRealGit() ? "real" : "fake", //$NON-NLS-1$ //$NON-NLS-2$
+                refreshScheduler.isUsingVirtualThreads() ? "virtual" : "platform", //$NON-NLS-1$ //$NON-NLS-2$
+                Long.valueOf(durationInSeconds)));
+
+        typist.shutdownNow();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                for (final GitBufferHandler handler : handlers) {
+                    handler.stop();
+                }
+            }
+        });
+        refreshScheduler.shutdown();
+        heapPressureMonitor.stop();
+        if (headBlobSpiller != null) {
+            headBlobSpiller.deleteSpillFiles();
+        }
+        return report;
+    }
+
+    private void startHandlers(final int visibleBufferCount) throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                for (int index = 0; index < buffers.size(); ++index) {
+                    final GitBufferHandler handler = new GitBufferHandler(createContext(buffers.get(index)));
+                    final boolean visible = index < visibleBufferCount;
+                    if (visible) {
+                        handler.addListener(new IGitBufferHandlerListener() {
+                            @Override
+                            public void patchUpdated() {
+                                // simulate the repaint of the gutter that follows a patch update
+                                SwingUtilities.invokeLater(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        handler.getDirtyMarkPainterSpecificationForLine(0);
+                                    }
+                                });
+                            }
+                        });
+                    }
+                    handler.setVisible(visible);
+                    handler.start();
+                    handlers.add(handler);
+                }
+            }
+        });
+    }
+
+    private ScheduledExecutorService startTyping(final int typingBufferCount, final int keystrokesPerSecond,
+            final double newlineProbability) {
+        final ScheduledExecutorService typist = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, NAME + "-typist"); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final Random random = new Random(options.getInt("seed", 0)); // confined to the event dispatch thread //$NON-NLS-1$
+        final long periodInMicroseconds = TimeUnit.SECONDS.toMicros(1L) / keystrokesPerSecond;
+        for (int index = 0; index < typingBufferCount; ++index) {
+            final InMemoryBuffer buffer = buffers.get(index);
+            final GitBufferHandler handler = handlers.get(index);
+            final int[] caretLineIndex = { buffer.getLineCount() / 2 };
+            final Runnable keystroke = new Runnable() {
+                @Override
+                public void run() {
+                    if (random.nextDouble() < newlineProbability) {
+                        buffer.insertLineAfter(caretLineIndex[0]);
+                        handler.contentInserted(caretLineIndex[0], 1);
+                        ++caretLineIndex[0];
+                    } else {
+                        buffer.appendToLine(caretLineIndex[0], String.valueOf((char) ('a' + random.nextInt(26))));
+                        handler.contentInserted(caretLineIndex[0], 0);
+                    }
+                    editCount.incrementAndGet();
+                }
+            };
+            typist.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    SwingUtilities.invokeLater(keystroke);
+                }
+            }, (periodInMicroseconds * index) / typingBufferCount, periodInMicroseconds, TimeUnit.MICROSECONDS);
+        }
+        return typist;
+    }
+
+    private static final class CountingGitRunnerFactory implements IGitRunnerFactory {
+        private final IGitRunnerFactory gitRunnerFactory;
+        private final ConcurrentHashMap<String, AtomicLong> runCountsBySubcommand = new ConcurrentHashMap<>();
+        private final Set<String> threadNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        CountingGitRunnerFactory(final IGitRunnerFactory gitRunnerFactory) {
+            this.gitRunnerFactory = gitRunnerFactory;
+        }
+
+        private void countRun(final String... programArgs) {
+            threadNames.add(Thread.currentThread().getName());
+            final AtomicLong runCount = new AtomicLong();
+            final AtomicLong existingRunCount = runCountsBySubcommand.putIfAbsent(programArgs[0], runCount);
+            ((existingRunCount != null) ? existingRunCount : runCount).incrementAndGet();
+        }
+
+        @Override
+        public IGitRunner createGitRunner(final Path workingDirPath) {
+            final IGitRunner gitRunner = gitRunnerFactory.createGitRunner(workingDirPath);
+            return new IGitRunner() {
+                @Override
+                public GitRunnerResult run(final OutputStream outStream, final String... programArgs)
+                        throws GitException, IOException, InterruptedException {
+                    countRun(programArgs);
+                    return gitRunner.run(outStream, programArgs);
+                }
+
+                @Override
+                public GitRunnerResult run(final Writer outWriter, final String... programArgs)
+                        throws GitException, IOException, InterruptedException {
+                    countRun(programArgs);
+                    return gitRunner.run(outWriter, programArgs);
+                }
+            };
+        }
+
+        SortedMap<String, Long> getRunCountsBySubcommand() {
+            final SortedMap<String, Long> runCountsBySubcommand = new TreeMap<>();
+            for (final Map.Entry<String, AtomicLong> entry : this.runCountsBySubcommand.entrySet()) {
+                runCountsBySubcommand.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+            }
+            return runCountsBySubcommand;
+        }
+
+        int getThreadCount() {
+            return threadNames.size();
+        }
+
+        void reset() {
+            runCountsBySubcommand.clear();
+            threadNames.clear();
+        }
+    }
+
+    /**
+     * The state of the process at the start of the measurement period.
+     */
+    private final class Measurement {
+        private final long startCpuTimeInNanoseconds;
+        private final long startEditCount;
+        private final long startThreadCount;
+        private final long startTimeInNanoseconds;
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        Measurement() {
+            MetricsRegistry.getDefault().resetAll();
+            gitRunnerFactory.reset();
+            threadMXBean.resetPeakThreadCount();
+            startCpuTimeInNanoseconds = getProcessCpuTimeInNanoseconds();
+            startEditCount = editCount.get();
+            startThreadCount = threadMXBean.getTotalStartedThreadCount();
+            startTimeInNanoseconds = System.nanoTime();
+        }
+
+        private long getProcessCpuTimeInNanoseconds() {
+            final OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
+            return (operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean)
+                    ? ((com.sun.management.OperatingSystemMXBean) operatingSystemMXBean).getProcessCpuTime()
+                    : -1L;
+        }
+
+        String report(final String description) {
+            final long elapsedTimeInNanoseconds = System.nanoTime() - startTimeInNanoseconds;
+            final long cpuTimeInNanoseconds = getProcessCpuTimeInNanoseconds() - startCpuTimeInNanoseconds;
+            final SortedMap<String, Long> runCountsBySubcommand = gitRunnerFactory.getRunCountsBySubcommand();
+            long runCount = 0L;
+            for (final Long subcommandRunCount : runCountsBySubcommand.values()) {
+                runCount += subcommandRunCount.longValue();
+            }
+
+            final StringBuilder report = new StringBuilder();
+            report.append(description);
+            report.append(String.format(Locale.ENGLISH, "edits: %d%n", //$NON-NLS-1$
+                    Long.valueOf(editCount.get() - startEditCount)));
+            report.append(String.format(Locale.ENGLISH,
+                    "process CPU time: %d ms (%.1f%% of one core; excludes Git processes)%n", //$NON-NLS-1$
+                    Long.valueOf(TimeUnit.NANOSECONDS.toMillis(cpuTimeInNanoseconds)),
+                    Double.valueOf((100.0 * cpuTimeInNanoseconds) / elapsedTimeInNanoseconds)));
+            report.append(String.format(Locale.ENGLISH, "Git processes: %d (%.1f/s) %s%n", //$NON-NLS-1$
+                    Long.valueOf(runCount),
+                    Double.valueOf((runCount * 1.0e9) / elapsedTimeInNanoseconds), runCountsBySubcommand));
+            report.append(String.format(Locale.ENGLISH,
+                    "threads: peak live %d, started %d, ran Git %d%n", //$NON-NLS-1$
+                    Integer.valueOf(threadMXBean.getPeakThreadCount()),
+                    Long.valueOf(threadMXBean.getTotalStartedThreadCount() - startThreadCount),
+                    Integer.valueOf(gitRunnerFactory.getThreadCount())));
+            report.append(String.format(Locale.ENGLISH,
+                    "HEAD blob cache: %d blobs, %d characters (%d shared), %d interned lines%n", //$NON-NLS-1$
+                    Integer.valueOf(headBlobCache.getBlobCount()), Long.valueOf(headBlobCache.getSizeInCharacters()),
+                    Long.valueOf(headBlobCache.getSharedSizeInCharacters()),
+                    Integer.valueOf(headBlobCache.getInternedLineCount())));
+            report.append(String.format(Locale.ENGLISH,
+                    "compressed HEAD blob cache: %d blobs, %d bytes (%d%% compression ratio)%n", //$NON-NLS-1$
+                    Integer.valueOf(headBlobCache.getCompressedBlobCount()),
+                    Long.valueOf(headBlobCache.getCompressedSizeInBytes()),
+                    Long.valueOf(headBlobCache.getCompressionRatioPercent())));
+            report.append(MetricsRegistry.getDefault().dump());
+            return report.toString();
+        }
+    }
+
+    /**
+     * The options of the simulation.
+     *
+     * <p>
+     * The following options are supported:
+     * </p>
+     *
+     * <dl>
+     * <dt>{@code buffers} (200)</dt>
+     * <dd>The number of buffers, all in the same repository.</dd>
+     * <dt>{@code lines} (1000)</dt>
+     * <dd>The number of lines in each buffer.</dd>
+     * <dt>{@code visibleBuffers} (4)</dt>
+     * <dd>The number of buffers that are visible and repainted.</dd>
+     * <dt>{@code typingBuffers} (1)</dt>
+     * <dd>The number of visible buffers that are typed into.</dd>
+     * <dt>{@code keystrokesPerSecond} (8)</dt>
+     * <dd>The rate at which each typing buffer is typed into.</dd>
+     * <dt>{@code newlineProbability} (0.05)</dt>
+     * <dd>The probability that a keystroke inserts a new line.</dd>
+     * <dt>{@code warmup} (10)</dt>
+     * <dd>The time (in seconds) to run before measuring.</dd>
+     * <dt>{@code duration} (30)</dt>
+     * <dd>The time (in seconds) to measure.</dd>
+     * <dt>{@code git} ({@code fake})</dt>
+     * <dd>{@code real} to run Git against a generated repository;
+     * {@code fake} to answer Git commands from memory.</dd>
+     * <dt>{@code gitLatency} (20) and {@code gitLatencyJitter} (10)</dt>
+     * <dd>The latency (in milliseconds) injected into each fake Git
+     * command.</dd>
+     * <dt>{@code threads} (the number of processors, at most 4)</dt>
+     * <dd>The maximum number of concurrent refreshes.</dd>
+     * <dt>{@code virtualThreads} ({@code false})</dt>
+     * <dd>Whether refreshes prefer virtual threads.</dd>
+     * <dt>{@code maxRefreshDelay} (500), {@code maxRefreshStaleness} (1000),
+     * {@code repositoryPollTime} (5000) and {@code maxRepositoryPollTime}
+     * (60000)</dt>
+     * <dd>The refresh timing (in milliseconds), as in the plugin options.</dd>
+     * <dt>{@code headBlobCacheSize} (33554432)</dt>
+     * <dd>The capacity (in characters) of the HEAD blob cache.</dd>
+     * <dt>{@code headBlobCacheCompressedSize} (8388608)</dt>
+     * <dd>The capacity (in bytes) of the compressed tier of the HEAD blob
+     * cache.</dd>
+     * <dt>{@code headBlobSpillThreshold} (0)</dt>
+     * <dd>The size (in characters) HEAD blobs must exceed to be spilled to
+     * memory-mapped files; zero to keep all HEAD blobs on the heap.</dd>
+     * <dt>{@code internHeadBlobLines} ({@code false})</dt>
+     * <dd>Whether the HEAD blob cache interns lines.</dd>
+     * <dt>{@code backgroundBufferIdleTime} (900000)</dt>
+     * <dd>The time (in milliseconds) a buffer must be hidden before its state
+     * is released.</dd>
+     * <dt>{@code heapPressureThreshold} (85)</dt>
+     * <dd>The tenured heap usage (in percent) after a garbage collection at
+     * which hidden buffers release their state.</dd>
+     * <dt>{@code seed} (0)</dt>
+     * <dd>The seed of the generated content and edits.</dd>
+     * </dl>
+     */
+    private static final class Options {
+        private final Map<String, String> values;
+
+        private Options(final Map<String, String> values) {
+            this.values = values;
+        }
+
+        boolean getBoolean(final String name, final boolean defaultValue) {
+            return Boolean.parseBoolean(getString(name, String.valueOf(defaultValue)));
+        }
+
+        double getDouble(final String name, final double defaultValue) {
+            return Double.parseDouble(getString(name, String.valueOf(defaultValue)));
+        }
+
+        int getInt(final String name, final int defaultValue) {
+            return Integer.parseInt(getString(name, String.valueOf(defaultValue)));
+        }
+
+        String getString(final String name, final String defaultValue) {
+            final String value = values.get(name);
+            return (value != null) ? value : defaultValue;
+        }
+
+        static Options parse(final String[] args) {
+            final Map<String, String> values = new HashMap<>();
+            for (final String arg : args) {
+                final int separatorIndex = arg.indexOf('=');
+                if (!arg.startsWith("--") || (separatorIndex < 0)) { //$NON-NLS-1$
+                    throw new IllegalArgumentException("expected --name=value but was: " + arg); //$NON-NLS-1$
+                }
+                values.put(arg.substring(2, separatorIndex), arg.substring(separatorIndex + 1));
+            }
+            return new Options(values);
+        }
+    }
+}
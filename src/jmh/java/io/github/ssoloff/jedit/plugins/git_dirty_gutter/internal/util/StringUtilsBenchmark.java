@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.benchmark.SyntheticFiles;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link StringUtils}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+public class StringUtilsBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    public int lineCount;
+
+    private List<String> lines;
+    private String text;
+
+    /**
+     * Joins lines with an explicit final line.
+     *
+     * @return The joined lines.
+     */
+    @Benchmark
+    public String joinLinesWithExplicitFinalLine() {
+        return StringUtils.joinLinesWithExplicitFinalLine(lines);
+    }
+
+    /**
+     * Joins lines with an implicit final line.
+     *
+     * @return The joined lines.
+     */
+    @Benchmark
+    public String joinLinesWithImplicitFinalLine() {
+        return StringUtils.joinLinesWithImplicitFinalLine(lines);
+    }
+
+    /**
+     * Creates the lines and text to join and split.
+     */
+    @Setup
+    public void setup() {
+        lines = SyntheticFiles.newLines(lineCount, 1L);
+        text = StringUtils.joinLinesWithImplicitFinalLine(lines);
+    }
+
+    /**
+     * Splits text into lines with an explicit final line.
+     *
+     * @return The split lines.
+     */
+    @Benchmark
+    public List<String> splitLinesWithExplicitFinalLine() {
+        return StringUtils.splitLinesWithExplicitFinalLine(text);
+    }
+
+    /**
+     * Splits text into lines with an implicit final line.
+     *
+     * @return The split lines.
+     */
+    @Benchmark
+    public List<String> splitLinesWithImplicitFinalLine() {
+        return StringUtils.splitLinesWithImplicitFinalLine(text);
+    }
+}
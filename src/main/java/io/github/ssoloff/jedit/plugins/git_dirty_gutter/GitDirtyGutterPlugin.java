@@ -18,6 +18,7 @@
 
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter;
 
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui.PluginServices;
 import org.gjt.sp.jedit.EditPlugin;
 
 /**
@@ -25,5 +26,13 @@ import org.gjt.sp.jedit.EditPlugin;
  * modified since the last Git commit.
  */
 public final class GitDirtyGutterPlugin extends EditPlugin {
-    // do nothing
+    @Override
+    public void start() {
+        PluginServices.start();
+    }
+
+    @Override
+    public void stop() {
+        PluginServices.dispose();
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+/**
+ * The identifier and size of a Git blob, as listed by {@code git ls-tree -l}.
+ */
+final class BlobDescriptor {
+    private final String id;
+    private final long sizeInBytes;
+
+    /**
+     * Initializes a new instance of the {@code BlobDescriptor} class.
+     *
+     * @param id
+     *        The SHA-1 identifier of the blob.
+     * @param sizeInBytes
+     *        The size (in bytes) of the blob content; must not be negative.
+     */
+    BlobDescriptor(final String id, final long sizeInBytes) {
+        assert sizeInBytes >= 0L;
+
+        this.id = id;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Gets the SHA-1 identifier of the blob.
+     *
+     * @return The SHA-1 identifier of the blob.
+     */
+    String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the size of the blob content.
+     *
+     * @return The size (in bytes) of the blob content.
+     */
+    long getSizeInBytes() {
+        return sizeInBytes;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Provides methods for determining whether text is identical to the content of
+ * a Git blob without reading the blob.
+ *
+ * <p>
+ * The encoded size of the text is compared to the size of the blob first,
+ * which rules out most modified text without encoding it. Text of the same
+ * size is hashed as a Git blob and compared to the blob identifier.
+ * </p>
+ */
+final class BlobMatcher {
+    private static final int ENCODE_BUFFER_SIZE = 8192;
+
+    private BlobMatcher() {
+    }
+
+    private static boolean digestEncodedText(final CharBuffer text, final Charset charset, final long sizeInBytes,
+            final MessageDigest digest) throws CharacterCodingException {
+        final CharsetEncoder encoder = charset.newEncoder();
+        final ByteBuffer bytes = ByteBuffer.allocate(ENCODE_BUFFER_SIZE);
+        long encodedSizeInBytes = 0L;
+        boolean endOfInput = false;
+        while (true) {
+            final CoderResult result = endOfInput ? encoder.flush(bytes) : encoder.encode(text, bytes, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+
+            bytes.flip();
+            encodedSizeInBytes += bytes.remaining();
+            if (encodedSizeInBytes > sizeInBytes) {
+                return false;
+            }
+            digest.update(bytes);
+            bytes.clear();
+
+            if (result.isUnderflow()) {
+                if (endOfInput) {
+                    return encodedSizeInBytes == sizeInBytes;
+                }
+                endOfInput = true;
+            }
+        }
+    }
+
+    /**
+     * Gets the size of the specified text when encoded with the specified
+     * character set, if it can be computed without encoding the text.
+     *
+     * <p>
+     * The size can be computed for UTF-8 and for single-byte character sets.
+     * </p>
+     *
+     * @param text
+     *        The text; its position is not changed.
+     * @param charset
+     *        The character set.
+     *
+     * @return The size (in bytes) of the encoded text or -1 if it cannot be
+     *         computed without encoding the text.
+     */
+    static long getEncodedSizeInBytes(final CharBuffer text, final Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            long sizeInBytes = 0L;
+            final int limit = text.limit();
+            for (int index = text.position(); index < limit; ++index) {
+                final char ch = text.get(index);
+                if (ch < 0x80) {
+                    sizeInBytes += 1;
+                } else if (ch < 0x800) {
+                    sizeInBytes += 2;
+                } else if (Character.isHighSurrogate(ch) && ((index + 1) < limit)
+                        && Character.isLowSurrogate(text.get(index + 1))) {
+                    sizeInBytes += 4;
+                    ++index;
+                } else {
+                    sizeInBytes += 3;
+                }
+            }
+            return sizeInBytes;
+        }
+
+        if (charset.newEncoder().maxBytesPerChar() == 1.0F) {
+            return text.remaining();
+        }
+
+        return -1L;
+    }
+
+    /**
+     * Indicates the specified text, when encoded with the specified character
+     * set, is identical to the content of the specified blob.
+     *
+     * @param text
+     *        The text; its position is not changed.
+     * @param charset
+     *        The character set with which the blob content was encoded.
+     * @param blob
+     *        The blob.
+     *
+     * @return {@code true} if the encoded text is identical to the content of
+     *         the blob; {@code false} if it differs or if its size cannot be
+     *         computed without encoding it.
+     */
+    static boolean isIdenticalToBlob(final CharBuffer text, final Charset charset, final BlobDescriptor blob) {
+        final long sizeInBytes = blob.getSizeInBytes();
+        if (getEncodedSizeInBytes(text, charset) != sizeInBytes) {
+            return false;
+        }
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+            digest.update(String.format("blob %d\0", Long.valueOf(sizeInBytes)) //$NON-NLS-1$
+                    .getBytes(StandardCharsets.US_ASCII));
+            if (!digestEncodedText(text.duplicate(), charset, sizeInBytes, digest)) {
+                return false;
+            }
+            return toHexString(digest.digest()).equals(blob.getId());
+        } catch (final CharacterCodingException e) {
+            // unmappable text cannot be identical to the blob content
+            return false;
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String toHexString(final byte[] bytes) {
+        final char[] hexDigits = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+        final StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (final byte b : bytes) {
+            sb.append(hexDigits[(b >> 4) & 0xF]).append(hexDigits[b & 0xF]);
+        }
+        return sb.toString();
+    }
+}
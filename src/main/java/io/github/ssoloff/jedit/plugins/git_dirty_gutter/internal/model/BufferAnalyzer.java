@@ -19,26 +19,70 @@
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
 
 import difflib.DiffUtils;
-import difflib.Patch;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.FlightRecorder;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.StringUtils;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.PhaseTrace;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitException;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.StringWriter;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.jdt.annotation.Nullable;
 
 import lcm.XSymbolSubst;
 
 /**
  * Provides various types of analysis for a buffer.
+ *
+ * <p>
+ * The time taken to diff the buffer against its HEAD revision is recorded in
+ * the default {@link MetricsRegistry} by file size (for example,
+ * {@code diff.under10kLines}), and the hits and misses of the HEAD revision
+ * cache are counted ({@code headBlobCache.hits} and
+ * {@code headBlobCache.misses}), as are the HEAD revisions spilled to a
+ * memory-mapped file because they are too large to keep on the heap
+ * ({@code headBlobSpiller.spills}). Diffs skipped because the buffer is
+ * identical to its HEAD revision are counted ({@code diff.skippedUnmodified}).
+ * </p>
+ *
+ * <p>
+ * Each diff is also recorded as a {@link DiffEvent} when that event is enabled
+ * in a Java Flight Recorder recording.
+ * </p>
  */
 public final class BufferAnalyzer {
+    private static final String[] DIFF_METRIC_NAMES = {
+        "diff.under1kLines", //$NON-NLS-1$
+        "diff.under10kLines", //$NON-NLS-1$
+        "diff.under100kLines", //$NON-NLS-1$
+        "diff.over100kLines", //$NON-NLS-1$
+    };
+    private static final String DIFF_ENGINE = "java-diff-utils (Myers)"; //$NON-NLS-1$
+    // probes whether the event type is enabled so that no event is allocated for each diff while it is not
+    private static final IDiffEvent DIFF_EVENT_PROBE = FlightRecorder.isAvailable() ? new DiffEvent()
+            : IDiffEvent.DISABLED;
+    private static final String ISABELLE_ENCODING = "UTF-8-Isabelle"; //$NON-NLS-1$
+    private static final long MAX_CONTENT_CAPACITY = Integer.MAX_VALUE - 8;
+
     private final IBuffer buffer;
+    private volatile boolean disposed = false;
     private final IGitRunnerFactory gitRunnerFactory;
+    @Nullable
+    private final HeadBlobCache headBlobCache;
+    @Nullable
+    private volatile String headBlobId = null;
+    @Nullable
+    private final HeadBlobSpiller headBlobSpiller;
     private final ILog log;
+    private final AtomicReference<SpilledHeadBlob> spilledHeadBlobRef = new AtomicReference<>();
 
     /**
      * Initializes a new instance of the {@code BufferAnalyzer} class.
@@ -51,11 +95,67 @@ public final class BufferAnalyzer {
      *        The application log.
      */
     public BufferAnalyzer(final IBuffer buffer, final IGitRunnerFactory gitRunnerFactory, final ILog log) {
+        this(buffer, gitRunnerFactory, log, null);
+    }
+
+    /**
+     * Initializes a new instance of the {@code BufferAnalyzer} class that
+     * shares the content of HEAD revisions through the specified cache.
+     *
+     * @param buffer
+     *        The buffer to analyze.
+     * @param gitRunnerFactory
+     *        The factory used to create Git runners.
+     * @param log
+     *        The application log.
+     * @param headBlobCache
+     *        The cache of HEAD revision content or {@code null} if HEAD
+     *        revision content should always be read from Git.
+     */
+    public BufferAnalyzer(final IBuffer buffer, final IGitRunnerFactory gitRunnerFactory, final ILog log,
+            @Nullable final HeadBlobCache headBlobCache) {
+        this(buffer, gitRunnerFactory, log, headBlobCache, null);
+    }
+
+    /**
+     * Initializes a new instance of the {@code BufferAnalyzer} class that
+     * shares the content of HEAD revisions through the specified cache and
+     * keeps HEAD revisions too large for the heap in memory-mapped files.
+     *
+     * <p>
+     * At most one spilled HEAD revision is mapped by the analyzer at a time; it
+     * is unmapped when the analyzer is disposed or releases its HEAD revision.
+     * Spilled HEAD revisions are not added to the cache.
+     * </p>
+     *
+     * @param buffer
+     *        The buffer to analyze.
+     * @param gitRunnerFactory
+     *        The factory used to create Git runners.
+     * @param log
+     *        The application log.
+     * @param headBlobCache
+     *        The cache of HEAD revision content or {@code null} if HEAD
+     *        revision content should always be read from Git.
+     * @param headBlobSpiller
+     *        The spiller of large HEAD revision content or {@code null} if HEAD
+     *        revision content should always be kept on the heap.
+     */
+    public BufferAnalyzer(final IBuffer buffer, final IGitRunnerFactory gitRunnerFactory, final ILog log,
+            @Nullable final HeadBlobCache headBlobCache, @Nullable final HeadBlobSpiller headBlobSpiller) {
         this.buffer = buffer;
         this.gitRunnerFactory = gitRunnerFactory;
+        this.headBlobCache = headBlobCache;
+        this.headBlobSpiller = headBlobSpiller;
         this.log = log;
     }
 
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
     private GitCommands createGitCommands() throws IOException {
         final Path filePath = buffer.getFilePath();
         final Path workingDirPath = filePath.getParent();
@@ -69,100 +169,393 @@ public final class BufferAnalyzer {
      * Creates a patch between the HEAD revision of the file associated with the
      * buffer and the current state of the buffer.
      *
-     * @return The patch between the HEAD revision of the file associated with
-     *         the buffer and the current state of the buffer.
+     * @return The hunk table of the patch between the HEAD revision of the
+     *         file associated with the buffer and the current state of the
+     *         buffer.
      *
      * @throws InterruptedException
      *         If interrupted while waiting for the task to complete.
      */
-    public Patch createPatchBetweenHeadRevisionAndCurrentState() throws InterruptedException {
-        if (isFilePresentAtHeadRevision()) {
+    public HunkTable createPatchBetweenHeadRevisionAndCurrentState() throws InterruptedException {
+        return createPatchBetweenHeadRevisionAndSnapshot(buffer.getSnapshot());
+    }
+
+    /**
+     * Creates a patch between the HEAD revision of the file associated with the
+     * buffer and the specified snapshot of the buffer.
+     *
+     * <p>
+     * The thread's interrupted status is checked between each step so that the
+     * operation can be abandoned promptly when its result is no longer wanted.
+     * </p>
+     *
+     * @param snapshot
+     *        The snapshot of the buffer.
+     *
+     * @return The hunk table of the patch between the HEAD revision of the
+     *         file associated with the buffer and the specified snapshot of
+     *         the buffer.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for the task to complete.
+     */
+    public HunkTable createPatchBetweenHeadRevisionAndSnapshot(final BufferSnapshot snapshot)
+            throws InterruptedException {
+        return createPatchBetweenHeadRevisionAndSnapshot(snapshot, null);
+    }
+
+    /**
+     * Creates a patch between the HEAD revision of the file associated with the
+     * buffer and the specified snapshot of the buffer, marking the phases of
+     * the operation in the specified trace.
+     *
+     * <p>
+     * The end of the {@code git} phase is marked when the HEAD revision has
+     * been read, and the end of the {@code diff} phase is marked when the
+     * patch has been computed.
+     * </p>
+     *
+     * <p>
+     * If the size of the encoded snapshot equals the size of the HEAD
+     * revision, the snapshot is hashed as a Git blob; when the hash matches
+     * the HEAD revision, an empty patch is returned without reading the HEAD
+     * revision or diffing.
+     * </p>
+     *
+     * @param snapshot
+     *        The snapshot of the buffer.
+     * @param trace
+     *        The trace in which to mark the phases of the operation or
+     *        {@code null} if the operation is not traced.
+     *
+     * @return The hunk table of the patch between the HEAD revision of the
+     *         file associated with the buffer and the specified snapshot of
+     *         the buffer.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for the task to complete.
+     */
+    public HunkTable createPatchBetweenHeadRevisionAndSnapshot(final BufferSnapshot snapshot,
+            @Nullable final PhaseTrace trace) throws InterruptedException {
+        try {
+            final GitCommands gitCommands = createGitCommands();
+            final BlobDescriptor headBlob = gitCommands.getBlobAtHeadRevision(buffer.getFilePath());
+            if (headBlob == null) {
+                log.logDebug(this, String.format("file not present at HEAD revision (%s)", buffer.getFilePath())); //$NON-NLS-1$
+                return HunkTable.EMPTY;
+            }
+            if (isSnapshotIdenticalToBlob(snapshot, headBlob)) {
+                MetricsRegistry.getDefault().counter("diff.skippedUnmodified").increment(); //$NON-NLS-1$
+                if (trace != null) {
+                    trace.mark("git"); //$NON-NLS-1$
+                }
+                return HunkTable.EMPTY;
+            }
+            final List<String> headRevisionLines = getHeadRevisionLines(gitCommands, headBlob);
+            checkInterrupted();
+            if (trace != null) {
+                trace.mark("git"); //$NON-NLS-1$
+            }
+            final List<String> currentLines = snapshot.getLines();
+            checkInterrupted();
+            final IDiffEvent event = newDiffEvent();
+            event.begin();
+            final long startTime = System.nanoTime();
+            // only the positions and sizes of the hunks are kept so that the
+            // lines copied into the chunks of the patch can be collected
+            final HunkTable patch = HunkTable.fromPatch(DiffUtils.diff(headRevisionLines, currentLines));
+            MetricsRegistry.getDefault()
+                    .histogram(getDiffMetricName(Math.max(headRevisionLines.size(), currentLines.size())))
+                    .recordSince(startTime);
+            if (trace != null) {
+                trace.mark("diff"); //$NON-NLS-1$
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                final String filePath = buffer.getFilePath().toString();
+                assert filePath != null;
+                event.commit(patch.getHunkCount(), DIFF_ENGINE, filePath, headRevisionLines.size(),
+                        currentLines.size(), (trace != null) ? trace.getId() : 0L);
+            }
+            return patch;
+        } catch (final ClosedByInterruptException | InterruptedIOException e) {
+            throw newInterruptedException(e);
+        } catch (final GitException | IOException e) {
+            log.logError(this,
+                    String.format("failed to create patch between HEAD revision of file and current state (%s)", //$NON-NLS-1$
+                            buffer.getFilePath()),
+                    e);
+        }
+
+        return HunkTable.EMPTY;
+    }
+
+    private void closeSpilledHeadBlob(@Nullable final SpilledHeadBlob spilledHeadBlob) {
+        if (spilledHeadBlob != null) {
             try {
-                return DiffUtils.diff(getHeadRevisionLines(), getCurrentLines());
-            } catch (final GitException | IOException e) {
-                log.logError(this,
-                        String.format("failed to create patch between HEAD revision of file and current state (%s)", //$NON-NLS-1$
-                                buffer.getFilePath()),
-                        e);
+                spilledHeadBlob.blob.close();
+            } catch (final IOException e) {
+                log.logError(this, String.format("failed to close spilled HEAD revision of file (%s)", //$NON-NLS-1$
+                        buffer.getFilePath()), e);
             }
         }
+    }
 
-        return new Patch();
+    /**
+     * Releases the resources held by the analyzer.
+     *
+     * <p>
+     * This method should be invoked when the buffer is closed. Any spilled HEAD
+     * revision is unmapped and deleted, including one read by an analysis
+     * still in progress. This method is thread-safe.
+     * </p>
+     */
+    public void dispose() {
+        disposed = true;
+        closeSpilledHeadBlob(spilledHeadBlobRef.getAndSet(null));
     }
 
-    private String getCommitRefAtHeadRevision() throws GitException, IOException, InterruptedException {
-        final GitCommands gitCommands = createGitCommands();
-        final Path repoRelativeFilePath = gitCommands.getRepoRelativeFilePathAtHeadRevision(buffer.getFilePath());
-        return gitCommands.getCommitRefAtHeadRevision(repoRelativeFilePath);
+    @Nullable
+    private String getBlobIdAtHeadRevision() throws GitException, IOException, InterruptedException {
+        return createGitCommands().getBlobIdAtHeadRevision(buffer.getFilePath());
     }
 
-    private List<String> getCurrentLines() {
-        return buffer.getLines();
+    private static String getDiffMetricName(final int lineCount) {
+        int bucketIndex = 0;
+        for (int bound = 1000; (lineCount >= bound) && (bucketIndex < (DIFF_METRIC_NAMES.length - 1)); bound *= 10) {
+            ++bucketIndex;
+        }
+        return DIFF_METRIC_NAMES[bucketIndex];
     }
 
-    private List<String> getHeadRevisionLines() throws GitException, IOException, InterruptedException {
-        final GitCommands gitCommands = createGitCommands();
-        final Path repoRelativeFilePath = gitCommands.getRepoRelativeFilePathAtHeadRevision(buffer.getFilePath());
-        final StringWriter headRevisionFileWriter = new StringWriter();
-        gitCommands.readFileContentAtHeadRevision(repoRelativeFilePath, headRevisionFileWriter);
+    @Nullable
+    private static Charset getCharset(final String encoding) {
+        try {
+            return Charset.isSupported(encoding) ? Charset.forName(encoding) : null;
+        } catch (final IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    private static int getContentCapacity(final BlobDescriptor blob) {
+        // decoding never yields more characters than bytes, but a line feed
+        // is appended to content that does not end with one
+        return (int) Math.min(blob.getSizeInBytes() + 1L, MAX_CONTENT_CAPACITY);
+    }
+
+    private String getHeadRevisionContent(final GitCommands gitCommands, final BlobDescriptor headBlob)
+            throws GitException, IOException, InterruptedException {
+        final HeadBlobCache cache = headBlobCache;
+        if (cache == null) {
+            final StringWriter headRevisionFileWriter = new StringWriter(getContentCapacity(headBlob));
+            gitCommands.readBlobContent(headBlob.getId(), headRevisionFileWriter);
+            return headRevisionFileWriter.toString();
+        }
+
+        final String blobId = headBlob.getId();
+        headBlobId = blobId;
+        final String content = cache.get(blobId);
+        if (content != null) {
+            MetricsRegistry.getDefault().counter("headBlobCache.hits").increment(); //$NON-NLS-1$
+            return content;
+        }
+        return readHeadBlobContent(gitCommands, cache, headBlob);
+    }
 
+    private List<String> getHeadRevisionLines(final GitCommands gitCommands, final BlobDescriptor headBlob)
+            throws GitException, IOException, InterruptedException {
         // we only want to do xsymbol translation if this is an Isabelle buffer
-        if (buffer.getEncoding().equals("UTF-8-Isabelle")) {
-            final StringBuffer xsymb = XSymbolSubst.xsymbolToUnicodeBuffer(headRevisionFileWriter.getBuffer().toString());
+        if (buffer.getEncoding().equals(ISABELLE_ENCODING)) {
+            final StringBuffer xsymb = XSymbolSubst
+                    .xsymbolToUnicodeBuffer(getHeadRevisionContent(gitCommands, headBlob));
             return StringUtils.splitLinesWithExplicitFinalLine(xsymb);
-        } else {
-            return StringUtils.splitLinesWithExplicitFinalLine(headRevisionFileWriter.getBuffer());
         }
+
+        final HeadBlobCache cache = headBlobCache;
+        final HeadBlobSpiller spiller = headBlobSpiller;
+        if ((cache == null) && (spiller == null)) {
+            return StringUtils.splitLinesWithExplicitFinalLine(getHeadRevisionContent(gitCommands, headBlob));
+        }
+
+        // avoid re-splitting the cached content, which may already be stored
+        // as (interned) lines
+        final String blobId = headBlob.getId();
+        headBlobId = blobId;
+        final List<String> spilledLines = readSpilledHeadBlobLines(blobId);
+        if (spilledLines != null) {
+            return spilledLines;
+        }
+        if (cache != null) {
+            final List<String> lines = cache.getLines(blobId);
+            if (lines != null) {
+                MetricsRegistry.getDefault().counter("headBlobCache.hits").increment(); //$NON-NLS-1$
+                return lines;
+            }
+        }
+        if (spiller == null) {
+            assert cache != null;
+            final String content = readHeadBlobContent(gitCommands, cache, headBlob);
+            final List<String> cachedLines = cache.getLines(blobId);
+            return (cachedLines != null) ? cachedLines : StringUtils.splitLinesWithExplicitFinalLine(content);
+        }
+        return readHeadBlobLines(gitCommands, cache, spiller, headBlob);
     }
 
     /**
-     * Indicates the HEAD revision commit reference of the file associated with
-     * the buffer differs from the specified commit reference.
+     * Indicates the HEAD revision blob identifier of the file associated with
+     * the buffer differs from the specified blob identifier.
      *
-     * @param commitRefRef
-     *        On input, specifies the commit reference to which the HEAD
-     *        revision commit reference is to be compared. On output, receives
-     *        the current HEAD revision commit reference.
+     * @param blobIdRef
+     *        On input, specifies the blob identifier to which the HEAD
+     *        revision blob identifier is to be compared. On output, receives
+     *        the current HEAD revision blob identifier or {@code null} if the
+     *        file is not present at the HEAD revision.
      *
-     * @return {@code true} if the HEAD revision commit reference of the file
-     *         associated with the buffer differs from the specified commit
-     *         reference; otherwise {@code false}.
+     * @return {@code true} if the HEAD revision blob identifier of the file
+     *         associated with the buffer differs from the specified blob
+     *         identifier; otherwise {@code false}.
      *
      * @throws InterruptedException
      *         If interrupted while waiting for the task to complete.
      */
-    public boolean hasHeadRevisionChanged(final AtomicReference<String> commitRefRef) throws InterruptedException {
-        if (isFilePresentAtHeadRevision()) {
-            try {
-                final String previousCommitRef = commitRefRef.get();
-                final String currentCommitRef = getCommitRefAtHeadRevision();
-                if (!Objects.equals(previousCommitRef, currentCommitRef)) {
-                    commitRefRef.set(currentCommitRef);
-                    return true;
-                }
-            } catch (final GitException | IOException e) {
-                log.logError(this, String.format("failed to determine if HEAD revision of file has changed (%s)", //$NON-NLS-1$
-                        buffer.getFilePath()), e);
+    public boolean hasHeadRevisionChanged(final AtomicReference<String> blobIdRef) throws InterruptedException {
+        try {
+            final String previousBlobId = blobIdRef.get();
+            final String currentBlobId = getBlobIdAtHeadRevision();
+            if (!Objects.equals(previousBlobId, currentBlobId)) {
+                blobIdRef.set(currentBlobId);
+                return true;
             }
+        } catch (final ClosedByInterruptException | InterruptedIOException e) {
+            throw newInterruptedException(e);
+        } catch (final GitException | IOException e) {
+            log.logError(this, String.format("failed to determine if HEAD revision of file has changed (%s)", //$NON-NLS-1$
+                    buffer.getFilePath()), e);
         }
 
         return false;
     }
 
-    private boolean isFilePresentAtHeadRevision() throws InterruptedException {
+    private boolean isSnapshotIdenticalToBlob(final BufferSnapshot snapshot, final BlobDescriptor blob) {
+        final String encoding = buffer.getEncoding();
+        if (encoding.equals(ISABELLE_ENCODING)) {
+            return false;
+        }
+
+        final Charset charset = getCharset(encoding);
+        return (charset != null) && BlobMatcher.isIdenticalToBlob(snapshot.getText(), charset, blob);
+    }
+
+    private static IDiffEvent newDiffEvent() {
+        return DIFF_EVENT_PROBE.isEnabled() ? new DiffEvent() : IDiffEvent.DISABLED;
+    }
+
+    private static InterruptedException newInterruptedException(final IOException cause) {
+        // an interrupt during I/O closes the channel or stream rather than throwing InterruptedException
+        Thread.interrupted();
+        final InterruptedException e = new InterruptedException();
+        e.initCause(cause);
+        return e;
+    }
+
+    /**
+     * Evicts the HEAD revision content most recently read by this analyzer
+     * from the uncompressed tier of the HEAD revision cache.
+     *
+     * <p>
+     * This method should be invoked when the buffer is unlikely to be analyzed
+     * again soon. The next time the buffer is analyzed, the content is inflated
+     * from the compressed tier of the cache, if it is still there, or read from
+     * Git again. A spilled HEAD revision is unmapped and deleted, so it will
+     * be read from Git again. This method is thread-safe.
+     * </p>
+     */
+    public void releaseHeadRevision() {
+        closeSpilledHeadBlob(spilledHeadBlobRef.getAndSet(null));
+        final HeadBlobCache cache = headBlobCache;
+        final String blobId = headBlobId;
+        if ((cache != null) && (blobId != null)) {
+            cache.evict(blobId);
+            headBlobId = null;
+        }
+    }
+
+    private static String readHeadBlobContent(final GitCommands gitCommands, final HeadBlobCache cache,
+            final BlobDescriptor blob) throws GitException, IOException, InterruptedException {
+        MetricsRegistry.getDefault().counter("headBlobCache.misses").increment(); //$NON-NLS-1$
+        final StringWriter blobWriter = new StringWriter(getContentCapacity(blob));
+        gitCommands.readBlobContent(blob.getId(), blobWriter);
+        final String content = blobWriter.toString();
+        cache.put(blob.getId(), content);
+        return content;
+    }
+
+    private List<String> readHeadBlobLines(final GitCommands gitCommands, @Nullable final HeadBlobCache cache,
+            final HeadBlobSpiller spiller, final BlobDescriptor headBlob)
+            throws GitException, IOException, InterruptedException {
+        if (cache != null) {
+            MetricsRegistry.getDefault().counter("headBlobCache.misses").increment(); //$NON-NLS-1$
+        }
+        final String blobId = headBlob.getId();
+        final SpillingWriter blobWriter = spiller.newWriter(getContentCapacity(headBlob));
+        final Path spillFilePath;
         try {
-            final GitCommands gitCommands = createGitCommands();
-            if (!gitCommands.isFilePresentAtHeadRevision(buffer.getFilePath())) {
-                log.logDebug(this, String.format("file not present at HEAD revision (%s)", buffer.getFilePath())); //$NON-NLS-1$
-                return false;
+            gitCommands.readBlobContent(blobId, blobWriter);
+            blobWriter.close();
+            spillFilePath = blobWriter.getSpillFilePath();
+        } catch (final GitException | IOException | InterruptedException | RuntimeException e) {
+            blobWriter.discard();
+            throw e;
+        }
+
+        if (spillFilePath == null) {
+            final String content = blobWriter.toString();
+            if (cache != null) {
+                cache.put(blobId, content);
+                final List<String> cachedLines = cache.getLines(blobId);
+                if (cachedLines != null) {
+                    return cachedLines;
+                }
             }
-        } catch (final GitException | IOException e) {
-            log.logError(this,
-                    String.format("failed to determine if file present at HEAD revision (%s)", buffer.getFilePath()), //$NON-NLS-1$
-                    e);
-            return false;
+            return StringUtils.splitLinesWithExplicitFinalLine(content);
+        }
+
+        final MappedBlob blob;
+        try {
+            blob = MappedBlob.map(spillFilePath);
+        } catch (final IOException e) {
+            blobWriter.discard();
+            throw e;
+        }
+        MetricsRegistry.getDefault().counter("headBlobSpiller.spills").increment(); //$NON-NLS-1$
+        final List<String> lines = blob.readLines();
+        assert lines != null;
+        closeSpilledHeadBlob(spilledHeadBlobRef.getAndSet(new SpilledHeadBlob(blobId, blob)));
+        if (disposed) {
+            // the analyzer was disposed while the HEAD revision was being read
+            closeSpilledHeadBlob(spilledHeadBlobRef.getAndSet(null));
+        }
+        return lines;
+    }
+
+    @Nullable
+    private List<String> readSpilledHeadBlobLines(final String blobId) {
+        final SpilledHeadBlob spilledHeadBlob = spilledHeadBlobRef.get();
+        if ((spilledHeadBlob == null) || !spilledHeadBlob.blobId.equals(blobId)) {
+            return null;
         }
+        // null if the blob was closed concurrently, in which case it is read
+        // from Git again
+        return spilledHeadBlob.blob.readLines();
+    }
 
-        return true;
+    private static final class SpilledHeadBlob {
+        final MappedBlob blob;
+        final String blobId;
+
+        SpilledHeadBlob(final String blobId, final MappedBlob blob) {
+            this.blob = blob;
+            this.blobId = blobId;
+        }
     }
 }
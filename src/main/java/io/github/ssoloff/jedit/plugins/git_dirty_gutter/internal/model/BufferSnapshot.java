@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the text of a buffer.
+ *
+ * <p>
+ * The text is stored in a single character array together with the offset at
+ * which each line starts, so taking a snapshot requires a single copy of the
+ * buffer text regardless of the number of lines. Lines are separated by a
+ * single newline character, which is not part of the line.
+ * </p>
+ *
+ * <p>
+ * Each snapshot is tagged with the edit sequence number of the buffer at the
+ * time the snapshot was taken. The edit sequence number increases with each
+ * edit of the buffer, so it can be used to determine whether a snapshot is
+ * stale.
+ * </p>
+ */
+public final class BufferSnapshot {
+    private final long editSequenceNumber;
+    private final int[] lineStartOffsets;
+    private final char[] text;
+
+    /**
+     * Initializes a new instance of the {@code BufferSnapshot} class.
+     *
+     * <p>
+     * The snapshot takes ownership of the specified arrays; they must not be
+     * modified by the caller after this constructor returns.
+     * </p>
+     *
+     * @param text
+     *        The buffer text.
+     * @param lineStartOffsets
+     *        The offset within {@code text} at which each line starts followed
+     *        by one more than the length of {@code text}; must contain at least
+     *        two elements.
+     * @param editSequenceNumber
+     *        The edit sequence number of the buffer at the time the snapshot
+     *        was taken.
+     */
+    public BufferSnapshot(final char[] text, final int[] lineStartOffsets, final long editSequenceNumber) {
+        assert lineStartOffsets.length >= 2;
+        assert lineStartOffsets[lineStartOffsets.length - 1] == (text.length + 1);
+
+        this.editSequenceNumber = editSequenceNumber;
+        this.lineStartOffsets = lineStartOffsets;
+        this.text = text;
+    }
+
+    /**
+     * Creates a new snapshot of the specified text.
+     *
+     * @param text
+     *        The buffer text; lines must be separated by a single newline
+     *        character.
+     * @param editSequenceNumber
+     *        The edit sequence number of the buffer at the time the snapshot
+     *        was taken.
+     *
+     * @return A new snapshot of the specified text.
+     */
+    public static BufferSnapshot fromText(final CharSequence text, final long editSequenceNumber) {
+        final int length = text.length();
+        final char[] chars = new char[length];
+        int[] lineStartOffsets = new int[16];
+        int lineCount = 1;
+        for (int offset = 0; offset < length; ++offset) {
+            final char ch = text.charAt(offset);
+            chars[offset] = ch;
+            if (ch == '\n') {
+                if (lineCount == lineStartOffsets.length) {
+                    lineStartOffsets = Arrays.copyOf(lineStartOffsets, lineCount * 2);
+                }
+                lineStartOffsets[lineCount++] = offset + 1;
+            }
+        }
+
+        lineStartOffsets = Arrays.copyOf(lineStartOffsets, lineCount + 1);
+        lineStartOffsets[lineCount] = length + 1;
+        return new BufferSnapshot(chars, lineStartOffsets, editSequenceNumber);
+    }
+
+    /**
+     * Gets the text of the snapshot.
+     *
+     * @return A read-only view of the text of the snapshot; lines are separated
+     *         by a single newline character.
+     */
+    public CharBuffer getText() {
+        return CharBuffer.wrap(text).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the edit sequence number of the buffer at the time the snapshot was
+     * taken.
+     *
+     * @return The edit sequence number of the buffer at the time the snapshot
+     *         was taken.
+     */
+    public long getEditSequenceNumber() {
+        return editSequenceNumber;
+    }
+
+    /**
+     * Gets the text of the specified line.
+     *
+     * @param lineIndex
+     *        The zero-based index of the line.
+     *
+     * @return The text of the specified line without its terminating newline.
+     */
+    public String getLine(final int lineIndex) {
+        final int startOffset = lineStartOffsets[lineIndex];
+        final int endOffset = lineStartOffsets[lineIndex + 1] - 1;
+        return new String(text, startOffset, endOffset - startOffset);
+    }
+
+    /**
+     * Gets the number of lines in the snapshot.
+     *
+     * @return The number of lines in the snapshot; always at least one.
+     */
+    public int getLineCount() {
+        return lineStartOffsets.length - 1;
+    }
+
+    /**
+     * Gets the lines of text in the snapshot.
+     *
+     * <p>
+     * A new list of new strings is created on each invocation.
+     * </p>
+     *
+     * @return The lines of text in the snapshot.
+     */
+    public List<String> getLines() {
+        final int lineCount = getLineCount();
+        final List<String> lines = new ArrayList<>(lineCount);
+        for (int lineIndex = 0; lineIndex < lineCount; ++lineIndex) {
+            lines.add(getLine(lineIndex));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A Java Flight Recorder event that records the computation of a patch between
+ * the HEAD revision of a file and the current state of its buffer.
+ *
+ * <p>
+ * The event is disabled by default; it is enabled by the JFR settings profile
+ * shipped with the plugin. This class must only be instantiated when
+ * {@link io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.FlightRecorder#isAvailable()}
+ * returns {@code true}.
+ * </p>
+ */
+@Category({ "jEdit", "Git DirtyGutter" })
+@Description("A diff between the HEAD revision of a file and its buffer")
+@Enabled(false)
+@Label("Diff")
+@Name("io.github.ssoloff.jedit.plugins.git_dirty_gutter.Diff")
+@StackTrace(false)
+final class DiffEvent extends Event implements IDiffEvent {
+    @Description("The number of deltas in the patch")
+    @Label("Delta Count")
+    int deltaCount;
+
+    @Description("The diff algorithm used to compute the patch")
+    @Label("Engine")
+    @Nullable
+    String engine;
+
+    @Description("The path of the file associated with the buffer")
+    @Label("File Path")
+    @Nullable
+    String filePath;
+
+    @Description("The number of lines in the HEAD revision of the file")
+    @Label("Original Line Count")
+    int originalLineCount;
+
+    @Description("The number of lines in the buffer")
+    @Label("Revised Line Count")
+    int revisedLineCount;
+
+    @Description("The identifier of the edit latency trace served by the diff or zero if not traced")
+    @Label("Trace Id")
+    long traceId;
+
+    @Override
+    public void commit(final int deltaCount, final String engine, final String filePath,
+            final int originalLineCount, final int revisedLineCount, final long traceId) {
+        this.deltaCount = deltaCount;
+        this.engine = engine;
+        this.filePath = filePath;
+        this.originalLineCount = originalLineCount;
+        this.revisedLineCount = revisedLineCount;
+        this.traceId = traceId;
+        commit();
+    }
+}
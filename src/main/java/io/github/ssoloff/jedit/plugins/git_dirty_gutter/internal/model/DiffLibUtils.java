@@ -28,36 +28,6 @@ final class DiffLibUtils {
     private DiffLibUtils() {
     }
 
-    /**
-     * Methods that enhance the functionality of the {@link difflib.Chunk} class
-     * for instances that represent the addition or change of content.
-     */
-    static final class AddOrChangeChunk {
-        private AddOrChangeChunk() {
-        }
-
-        /**
-         * Indicates the specified add or change chunk includes the specified
-         * line.
-         *
-         * @param chunk
-         *        The add or change chunk to examine.
-         * @param lineIndex
-         *        The zero-based index of the line to test for membership in the
-         *        specified chunk; must not be negative.
-         *
-         * @return {@code true} if the specified add or change chunk includes
-         *         the specified line; otherwise {@code false}.
-         */
-        static boolean isLineIncluded(final difflib.Chunk chunk, final int lineIndex) {
-            assert lineIndex >= 0;
-
-            final int chunkFirstLineIndex = chunk.getPosition();
-            final int chunkLastLineIndex = (chunkFirstLineIndex + chunk.getLines().size()) - 1;
-            return (lineIndex >= chunkFirstLineIndex) && (lineIndex <= chunkLastLineIndex);
-        }
-    }
-
     /**
      * Methods that enhance the functionality of the {@link difflib.Delta}
      * class.
@@ -154,34 +124,6 @@ final class DiffLibUtils {
         }
     }
 
-    /**
-     * Methods that enhance the functionality of the {@link difflib.Chunk} class
-     * for instances that represent the removal of content.
-     */
-    static final class RemoveChunk {
-        private RemoveChunk() {
-        }
-
-        /**
-         * Indicates the specified remove chunk includes the specified line.
-         *
-         * @param chunk
-         *        The remove chunk to examine.
-         * @param lineIndex
-         *        The zero-based index of the line to test for membership in the
-         *        specified chunk; must not be negative.
-         *
-         * @return {@code true} if the specified remove chunk includes the
-         *         specified line; otherwise {@code false}.
-         */
-        static boolean isLineIncluded(final difflib.Chunk chunk, final int lineIndex) {
-            assert lineIndex >= 0;
-
-            final int chunkFirstLineIndex = chunk.getPosition();
-            return (lineIndex == chunkFirstLineIndex) && chunk.getLines().isEmpty();
-        }
-    }
-
     /**
      * Methods that enhance the functionality of the {@link difflib.Delta} class
      * for instances that represent the removal of content.
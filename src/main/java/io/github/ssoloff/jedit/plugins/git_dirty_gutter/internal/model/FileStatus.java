@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The status of a dirty file within a Git repository working tree, as
+ * reported by {@code git status} and {@code git diff --numstat}.
+ *
+ * <p>
+ * Instances of this class are immutable.
+ * </p>
+ */
+public final class FileStatus {
+    /** The line count reported when the number of lines is unknown. */
+    public static final int UNKNOWN_LINE_COUNT = -1;
+
+    private final int addedLineCount;
+    private final Kind kind;
+    private final int removedLineCount;
+
+    /**
+     * Initializes a new instance of the {@code FileStatus} class.
+     *
+     * @param kind
+     *        The kind of change made to the file.
+     * @param addedLineCount
+     *        The number of lines added to the file since the HEAD revision or
+     *        {@link #UNKNOWN_LINE_COUNT} if unknown.
+     * @param removedLineCount
+     *        The number of lines removed from the file since the HEAD revision
+     *        or {@link #UNKNOWN_LINE_COUNT} if unknown.
+     */
+    FileStatus(final Kind kind, final int addedLineCount, final int removedLineCount) {
+        assert addedLineCount >= UNKNOWN_LINE_COUNT;
+        assert removedLineCount >= UNKNOWN_LINE_COUNT;
+
+        this.addedLineCount = addedLineCount;
+        this.kind = kind;
+        this.removedLineCount = removedLineCount;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (!(obj instanceof FileStatus)) {
+            return false;
+        }
+
+        final FileStatus other = (FileStatus) obj;
+        return (addedLineCount == other.addedLineCount) && (kind == other.kind)
+                && (removedLineCount == other.removedLineCount);
+    }
+
+    /**
+     * Gets the number of lines added to the file since the HEAD revision.
+     *
+     * @return The number of lines added to the file since the HEAD revision or
+     *         {@link #UNKNOWN_LINE_COUNT} if unknown (for example, if the file
+     *         is binary or untracked).
+     */
+    public int getAddedLineCount() {
+        return addedLineCount;
+    }
+
+    /**
+     * Gets the kind of change made to the file.
+     *
+     * @return The kind of change made to the file.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the number of lines removed from the file since the HEAD revision.
+     *
+     * @return The number of lines removed from the file since the HEAD
+     *         revision or {@link #UNKNOWN_LINE_COUNT} if unknown (for example,
+     *         if the file is binary or untracked).
+     */
+    public int getRemovedLineCount() {
+        return removedLineCount;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        return (((prime * addedLineCount) + kind.hashCode()) * prime) + removedLineCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FileStatus[kind=%s, addedLineCount=%d, removedLineCount=%d]", //$NON-NLS-1$
+                kind, addedLineCount, removedLineCount);
+    }
+
+    /**
+     * Creates a copy of this status with the specified line counts.
+     *
+     * @param newAddedLineCount
+     *        The number of lines added to the file since the HEAD revision or
+     *        {@link #UNKNOWN_LINE_COUNT} if unknown.
+     * @param newRemovedLineCount
+     *        The number of lines removed from the file since the HEAD revision
+     *        or {@link #UNKNOWN_LINE_COUNT} if unknown.
+     *
+     * @return A copy of this status with the specified line counts.
+     */
+    FileStatus withLineCounts(final int newAddedLineCount, final int newRemovedLineCount) {
+        return new FileStatus(kind, newAddedLineCount, newRemovedLineCount);
+    }
+
+    /**
+     * The kind of change made to a file since the HEAD revision.
+     */
+    public enum Kind {
+        /** The file was added to the index. */
+        ADDED,
+
+        /** The file was deleted from the index or the working tree. */
+        DELETED,
+
+        /** The file was modified in the index or the working tree. */
+        MODIFIED,
+
+        /** The file was renamed or copied in the index. */
+        RENAMED,
+
+        /** The file has unresolved merge conflicts. */
+        UNMERGED,
+
+        /** The file is not tracked by Git. */
+        UNTRACKED;
+    }
+}
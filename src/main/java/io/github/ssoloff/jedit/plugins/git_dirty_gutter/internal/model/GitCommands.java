@@ -22,17 +22,28 @@ import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.StringUtil
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitException;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunnerResult;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunner;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * A facade for running various custom Git commands required by the model.
  */
 final class GitCommands {
+    private static final int GIT_FATAL_EXIT_CODE = 128;
+    private static final String LITERAL_PATHSPEC_PREFIX = ":(literal)"; //$NON-NLS-1$
+    private static final String NUL = "\0"; //$NON-NLS-1$
+    private static final String PATHSPEC_SEPARATOR = "--"; //$NON-NLS-1$
+
     private final IGitRunner gitRunner;
 
     /**
@@ -45,6 +56,15 @@ final class GitCommands {
         this.gitRunner = gitRunner;
     }
 
+    private static void addPathspecs(final List<String> programArgs, final Collection<String> names) {
+        if (!names.isEmpty()) {
+            programArgs.add(PATHSPEC_SEPARATOR);
+            for (final String name : names) {
+                programArgs.add(LITERAL_PATHSPEC_PREFIX + name);
+            }
+        }
+    }
+
     private static GitException createUnexpectedGitExitCodeException(final GitRunnerResult result) {
         return newGitExceptionBuilder(result) //
                 .withMessageSummary("unexpected Git exit code") //$NON-NLS-1$
@@ -61,15 +81,21 @@ final class GitCommands {
     }
 
     /**
-     * Gets the SHA-1 commit reference for the specified file at the HEAD
-     * revision.
+     * Gets the identifier and size of the blob for the specified file at the
+     * HEAD revision.
      *
-     * @param repoRelativeFilePath
-     *        The repository-relative path of the file whose commit reference is
-     *        desired.
+     * <p>
+     * Git must look up the size of the blob, so this method is more expensive
+     * than {@link #getBlobIdAtHeadRevision(Path)} and should only be used when
+     * the blob content is about to be read.
+     * </p>
      *
-     * @return The SHA-1 commit reference for the specified file at the HEAD
-     *         revision.
+     * @param filePath
+     *        The path to the file whose blob is desired.
+     *
+     * @return The identifier and size of the blob for the specified file at
+     *         the HEAD revision or {@code null} if the file does not exist at
+     *         the HEAD revision.
      *
      * @throws GitException
      *         If the Git process exits with an error.
@@ -78,37 +104,59 @@ final class GitCommands {
      * @throws InterruptedException
      *         If interrupted while waiting for the Git process to exit.
      */
-    String getCommitRefAtHeadRevision(final Path repoRelativeFilePath)
-            throws GitException, IOException, InterruptedException {
+    @Nullable
+    BlobDescriptor getBlobAtHeadRevision(final Path filePath) throws GitException, IOException, InterruptedException {
         final StringWriter outWriter = new StringWriter();
         final String[] programArgs = { //
-            "rev-parse", //$NON-NLS-1$
-            String.format("HEAD:%s", repoRelativeFilePath) //$NON-NLS-1$
+            "ls-tree", //$NON-NLS-1$
+            "--full-name", //$NON-NLS-1$
+            "-l", //$NON-NLS-1$
+            "HEAD", //$NON-NLS-1$
+            filePath.toString() //
         };
-        final GitRunnerResult result = gitRunner.run(outWriter, programArgs);
-        if (result.getExitCode() != 0) {
-            throw createUnexpectedGitExitCodeException(result);
+        final GitRunnerResult result = runLsTree(outWriter, programArgs);
+        if (result == null) {
+            return null;
         }
 
         final List<String> lines = StringUtils.splitLinesWithImplicitFinalLine(outWriter.getBuffer());
-        if (lines.size() != 1) {
+        if (lines.isEmpty()) {
+            return null;
+        } else if (lines.size() != 1) {
             throw createUnexpectedGitOutputException(result, lines);
         }
 
-        final String commitRef = lines.get(0);
-        assert commitRef != null;
-        return commitRef;
+        // <mode> SP <type> SP <object-id> SP+ <size> TAB <path>
+        final String[] fields = lines.get(0).split("[ \\t]+", 5); //$NON-NLS-1$
+        final int fieldCount = 5;
+        if ((fields.length != fieldCount) || !fields[1].equals("blob")) { //$NON-NLS-1$
+            throw createUnexpectedGitOutputException(result, lines);
+        }
+
+        final String blobId = fields[2];
+        assert blobId != null;
+        final long sizeInBytes;
+        try {
+            sizeInBytes = Long.parseLong(fields[3]);
+        } catch (final NumberFormatException e) {
+            throw createUnexpectedGitOutputException(result, lines);
+        }
+        if (sizeInBytes < 0L) {
+            throw createUnexpectedGitOutputException(result, lines);
+        }
+        return new BlobDescriptor(blobId, sizeInBytes);
     }
 
     /**
-     * Gets the repository-relative path of the specified file at the HEAD
+     * Gets the SHA-1 identifier of the blob for the specified file at the HEAD
      * revision.
      *
      * @param filePath
-     *        The path to the file whose repository-relative path is desired.
+     *        The path to the file whose blob identifier is desired.
      *
-     * @return The repository-relative path of the specified file at the HEAD
-     *         revision.
+     * @return The SHA-1 identifier of the blob for the specified file at the
+     *         HEAD revision or {@code null} if the file does not exist at the
+     *         HEAD revision.
      *
      * @throws GitException
      *         If the Git process exits with an error.
@@ -117,75 +165,73 @@ final class GitCommands {
      * @throws InterruptedException
      *         If interrupted while waiting for the Git process to exit.
      */
-    Path getRepoRelativeFilePathAtHeadRevision(final Path filePath)
-            throws GitException, IOException, InterruptedException {
+    @Nullable
+    String getBlobIdAtHeadRevision(final Path filePath) throws GitException, IOException, InterruptedException {
         final StringWriter outWriter = new StringWriter();
         final String[] programArgs = { //
             "ls-tree", //$NON-NLS-1$
             "--full-name", //$NON-NLS-1$
-            "--name-only", //$NON-NLS-1$
             "HEAD", //$NON-NLS-1$
             filePath.toString() //
         };
-        final GitRunnerResult result = gitRunner.run(outWriter, programArgs);
-        if (result.getExitCode() != 0) {
-            throw createUnexpectedGitExitCodeException(result);
+        final GitRunnerResult result = runLsTree(outWriter, programArgs);
+        if (result == null) {
+            return null;
         }
 
         final List<String> lines = StringUtils.splitLinesWithImplicitFinalLine(outWriter.getBuffer());
-        if (lines.size() != 1) {
+        if (lines.isEmpty()) {
+            return null;
+        } else if (lines.size() != 1) {
             throw createUnexpectedGitOutputException(result, lines);
         }
 
-        return Paths.get(lines.get(0));
+        // <mode> SP <type> SP <object-id> TAB <path>
+        final String[] fields = lines.get(0).split("[ \\t]", 4); //$NON-NLS-1$
+        final int fieldCount = 4;
+        if ((fields.length != fieldCount) || !fields[1].equals("blob")) { //$NON-NLS-1$
+            throw createUnexpectedGitOutputException(result, lines);
+        }
+
+        final String blobId = fields[2];
+        assert blobId != null;
+        return blobId;
     }
 
     /**
-     * Indicates the specified file exists at the HEAD revision.
+     * Gets the status of the dirty files in the working tree.
      *
-     * @param filePath
-     *        The path to the file whose existence at the HEAD revision is to be
-     *        determined.
+     * <p>
+     * The status is obtained from a single
+     * {@code git status --porcelain=v2 -z} and the line counts from a single
+     * {@code git diff --numstat -z HEAD}. Neither command takes the optional
+     * index lock, so the status may be gathered in the background without
+     * interfering with other Git processes. The Git runner must run in the
+     * root of the working tree.
+     * </p>
      *
-     * @return {@code true} if the specified file exists at the HEAD revision;
-     *         otherwise {@code false}.
+     * @param names
+     *        The repository-relative names of the files whose status is
+     *        desired or an empty collection if the status of all files is
+     *        desired.
+     *
+     * @return The status of each dirty file (including untracked files but
+     *         excluding ignored files) keyed by its repository-relative name.
      *
      * @throws GitException
-     *         If the Git process exits with an unexpected error.
+     *         If the Git process exits with an error.
      * @throws IOException
      *         If an error occurs while processing the Git process output.
      * @throws InterruptedException
      *         If interrupted while waiting for the Git process to exit.
      */
-    boolean isFilePresentAtHeadRevision(final Path filePath) throws GitException, IOException, InterruptedException {
-        final StringWriter outWriter = new StringWriter();
-        final String[] programArgs = { //
-            "ls-tree", //$NON-NLS-1$
-            "--full-name", //$NON-NLS-1$
-            "--name-only", //$NON-NLS-1$
-            "HEAD", //$NON-NLS-1$
-            filePath.toString() //
-        };
-        try {
-            final GitRunnerResult result = gitRunner.run(outWriter, programArgs);
-            if (result.getExitCode() != 0) {
-                return false;
-            }
-        } catch (final GitException e) {
-            final int gitFatalExitCode = 128;
-            final Integer exitCode = e.getExitCode();
-            if ((exitCode != null) && (exitCode.intValue() == gitFatalExitCode)) {
-                return false;
-            }
-            throw e;
-        }
-
-        final List<String> lines = StringUtils.splitLinesWithImplicitFinalLine(outWriter.getBuffer());
-        if (lines.size() != 1) {
-            return false;
+    Map<String, FileStatus> getWorkingTreeStatus(final Collection<String> names)
+            throws GitException, IOException, InterruptedException {
+        final Map<String, FileStatus> fileStatuses = readStatus(names);
+        if (!fileStatuses.isEmpty()) {
+            readLineCounts(names, fileStatuses);
         }
-
-        return true;
+        return fileStatuses;
     }
 
     private static GitException.Builder newGitExceptionBuilder(final GitRunnerResult result) {
@@ -194,15 +240,37 @@ final class GitCommands {
                 .withCommand(result.getCommand());
     }
 
+    private static int parseLineCount(final String str) {
+        // binary files are reported with a line count of "-"
+        if ("-".equals(str)) { //$NON-NLS-1$
+            return FileStatus.UNKNOWN_LINE_COUNT;
+        }
+        final int lineCount = Integer.parseInt(str);
+        if (lineCount < 0) {
+            throw new NumberFormatException(str);
+        }
+        return lineCount;
+    }
+
+    private static FileStatus.Kind parseOrdinaryChangeKind(final String xy) {
+        final char indexStatus = xy.charAt(0);
+        final char workingTreeStatus = xy.charAt(1);
+        if (indexStatus == 'A') {
+            return FileStatus.Kind.ADDED;
+        } else if ((indexStatus == 'D') || (workingTreeStatus == 'D')) {
+            return FileStatus.Kind.DELETED;
+        }
+        return FileStatus.Kind.MODIFIED;
+    }
+
     /**
-     * Reads the content of the specified file at the HEAD revision and sends it
-     * to the specified writer.
+     * Reads the content of the specified blob and sends it to the specified
+     * writer.
      *
-     * @param repoRelativeFilePath
-     *        The repository-relative path of the file whose content is to be
-     *        read.
+     * @param blobId
+     *        The SHA-1 identifier of the blob whose content is to be read.
      * @param writer
-     *        The writer that will receive the file content.
+     *        The writer that will receive the blob content.
      *
      * @throws GitException
      *         If the Git process exits with an error.
@@ -211,15 +279,175 @@ final class GitCommands {
      * @throws InterruptedException
      *         If interrupted while waiting for the Git process to exit.
      */
-    void readFileContentAtHeadRevision(final Path repoRelativeFilePath, final Writer writer)
+    void readBlobContent(final String blobId, final Writer writer)
             throws GitException, IOException, InterruptedException {
         final String[] programArgs = { //
-            "show", //$NON-NLS-1$
-            String.format("HEAD:%s", repoRelativeFilePath) //$NON-NLS-1$
+            "cat-file", //$NON-NLS-1$
+            "blob", //$NON-NLS-1$
+            blobId //
         };
         final GitRunnerResult result = gitRunner.run(writer, programArgs);
         if (result.getExitCode() != 0) {
             throw createUnexpectedGitExitCodeException(result);
         }
     }
+
+    private void readLineCounts(final Collection<String> names, final Map<String, FileStatus> fileStatuses)
+            throws GitException, IOException, InterruptedException {
+        final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+        final List<String> programArgs = new ArrayList<>();
+        programArgs.add("--no-optional-locks"); //$NON-NLS-1$
+        programArgs.add("diff"); //$NON-NLS-1$
+        programArgs.add("--numstat"); //$NON-NLS-1$
+        programArgs.add("-z"); //$NON-NLS-1$
+        programArgs.add("--no-renames"); //$NON-NLS-1$
+        programArgs.add("HEAD"); //$NON-NLS-1$
+        addPathspecs(programArgs, names);
+        final GitRunnerResult result;
+        try {
+            result = gitRunner.run(outStream, programArgs.toArray(new String[programArgs.size()]));
+        } catch (final GitException e) {
+            // the line counts are unknown until the first commit is made
+            final Integer exitCode = e.getExitCode();
+            if ((exitCode != null) && (exitCode.intValue() == GIT_FATAL_EXIT_CODE)) {
+                return;
+            }
+            throw e;
+        }
+        if (result.getExitCode() == GIT_FATAL_EXIT_CODE) {
+            return;
+        } else if (result.getExitCode() != 0) {
+            throw createUnexpectedGitExitCodeException(result);
+        }
+
+        // <added> TAB <removed> TAB <path> NUL
+        for (final String record : splitNulTerminatedRecords(outStream)) {
+            final String[] fields = record.split("\t", 3); //$NON-NLS-1$
+            final int fieldCount = 3;
+            if (fields.length != fieldCount) {
+                throw createUnexpectedGitOutputException(result, StringUtils.splitLinesWithImplicitFinalLine(record));
+            }
+
+            final FileStatus fileStatus = fileStatuses.get(fields[2]);
+            if (fileStatus != null) {
+                try {
+                    fileStatuses.put(fields[2],
+                            fileStatus.withLineCounts(parseLineCount(fields[0]), parseLineCount(fields[1])));
+                } catch (final NumberFormatException e) {
+                    throw createUnexpectedGitOutputException(result,
+                            StringUtils.splitLinesWithImplicitFinalLine(record));
+                }
+            }
+        }
+    }
+
+    private Map<String, FileStatus> readStatus(final Collection<String> names)
+            throws GitException, IOException, InterruptedException {
+        final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+        final List<String> programArgs = new ArrayList<>();
+        programArgs.add("--no-optional-locks"); //$NON-NLS-1$
+        programArgs.add("status"); //$NON-NLS-1$
+        programArgs.add("--porcelain=v2"); //$NON-NLS-1$
+        programArgs.add("-z"); //$NON-NLS-1$
+        programArgs.add("--untracked-files=all"); //$NON-NLS-1$
+        addPathspecs(programArgs, names);
+        final GitRunnerResult result = gitRunner.run(outStream,
+                programArgs.toArray(new String[programArgs.size()]));
+        if (result.getExitCode() != 0) {
+            throw createUnexpectedGitExitCodeException(result);
+        }
+
+        final Map<String, FileStatus> fileStatuses = new HashMap<>();
+        final List<String> records = splitNulTerminatedRecords(outStream);
+        for (int recordIndex = 0; recordIndex < records.size(); ++recordIndex) {
+            final String record = records.get(recordIndex);
+            final char entryType = record.charAt(0);
+            final int fieldCount;
+            switch (entryType) {
+            case '1':
+                // 1 SP <XY> SP <sub> SP <mH> SP <mI> SP <mW> SP <hH> SP <hI> SP <path>
+                fieldCount = 9;
+                break;
+
+            case '2':
+                // 2 SP <XY> SP <sub> SP <mH> SP <mI> SP <mW> SP <hH> SP <hI> SP <X><score> SP <path> NUL
+                // <origPath>
+                fieldCount = 10;
+                break;
+
+            case 'u':
+                // u SP <XY> SP <sub> SP <m1> SP <m2> SP <m3> SP <mW> SP <h1> SP <h2> SP <h3> SP <path>
+                fieldCount = 11;
+                break;
+
+            case '?':
+                // ? SP <path>
+                fieldCount = 2;
+                break;
+
+            case '!':
+            case '#':
+                continue;
+
+            default:
+                throw createUnexpectedGitOutputException(result, StringUtils.splitLinesWithImplicitFinalLine(record));
+            }
+
+            final String[] fields = record.split(" ", fieldCount); //$NON-NLS-1$
+            if ((fields.length != fieldCount) || ((fieldCount > 2) && (fields[1].length() != 2))) {
+                throw createUnexpectedGitOutputException(result, StringUtils.splitLinesWithImplicitFinalLine(record));
+            }
+
+            final FileStatus.Kind kind;
+            if (entryType == '1') {
+                kind = parseOrdinaryChangeKind(fields[1]);
+            } else if (entryType == '2') {
+                // skip the original path, which is reported as a separate record
+                ++recordIndex;
+                kind = FileStatus.Kind.RENAMED;
+            } else if (entryType == 'u') {
+                kind = FileStatus.Kind.UNMERGED;
+            } else {
+                kind = FileStatus.Kind.UNTRACKED;
+            }
+
+            final String name = fields[fieldCount - 1];
+            assert name != null;
+            fileStatuses.put(name,
+                    new FileStatus(kind, FileStatus.UNKNOWN_LINE_COUNT, FileStatus.UNKNOWN_LINE_COUNT));
+        }
+        return fileStatuses;
+    }
+
+    // returns null if there is no HEAD revision or the file is outside the repository
+    @Nullable
+    private GitRunnerResult runLsTree(final Writer outWriter, final String[] programArgs)
+            throws GitException, IOException, InterruptedException {
+        final GitRunnerResult result;
+        try {
+            result = gitRunner.run(outWriter, programArgs);
+        } catch (final GitException e) {
+            final Integer exitCode = e.getExitCode();
+            if ((exitCode != null) && (exitCode.intValue() == GIT_FATAL_EXIT_CODE)) {
+                return null;
+            }
+            throw e;
+        }
+        if (result.getExitCode() == GIT_FATAL_EXIT_CODE) {
+            return null;
+        } else if (result.getExitCode() != 0) {
+            throw createUnexpectedGitExitCodeException(result);
+        }
+        return result;
+    }
+
+    private static List<String> splitNulTerminatedRecords(final ByteArrayOutputStream output) {
+        final List<String> records = new ArrayList<>();
+        for (final String record : new String(output.toByteArray(), Charset.defaultCharset()).split(NUL)) {
+            if (!record.isEmpty()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
 }
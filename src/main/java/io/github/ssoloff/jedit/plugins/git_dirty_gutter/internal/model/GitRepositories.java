@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Provides methods for locating Git repositories.
+ */
+public final class GitRepositories {
+    private static final String GIT_DIR_NAME = ".git"; //$NON-NLS-1$
+
+    private GitRepositories() {
+    }
+
+    /**
+     * Finds the root of the working tree that contains the specified file.
+     *
+     * <p>
+     * The file system is searched upwards from the file for a {@code .git}
+     * directory (or, for linked working trees and submodules, a {@code .git}
+     * file) without running Git.
+     * </p>
+     *
+     * @param filePath
+     *        The path to the file.
+     *
+     * @return The path to the root of the working tree that contains the file
+     *         or {@code null} if the file is not within a working tree.
+     */
+    @Nullable
+    public static Path findWorkingTreeRootPath(final Path filePath) {
+        for (Path dirPath = filePath.toAbsolutePath().getParent(); dirPath != null; dirPath = dirPath.getParent()) {
+            if (Files.exists(dirPath.resolve(GIT_DIR_NAME))) {
+                return dirPath;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,570 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.StringUtils;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.WeakInterner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A cache of the content of the Git blobs at the HEAD revision of the files
+ * associated with buffers.
+ *
+ * <p>
+ * The cache is keyed by blob identifier. Because a blob identifier is a hash
+ * of the blob content, an entry never becomes stale; a new HEAD revision of a
+ * file simply has a different identifier. The least recently used entries are
+ * evicted when the total size of the cached content exceeds the maximum size.
+ * The cache may also be trimmed below its maximum size, for example, when the
+ * heap is under pressure.
+ * </p>
+ *
+ * <p>
+ * The cache may optionally keep evicted content in a compressed tier with its
+ * own maximum size (in bytes), so that content evicted from the uncompressed
+ * tier need not be read from Git again. Compressed content is inflated and
+ * moved back to the uncompressed tier when it is accessed. Content is
+ * compressed by the thread that evicts it, outside of the cache lock, and the
+ * time taken to inflate content is recorded in the default
+ * {@link MetricsRegistry} ({@code headBlobCache.inflate}).
+ * </p>
+ *
+ * <p>
+ * The cache may optionally intern the lines of the cached content, in which
+ * case each blob is stored as its lines, and equal lines across all cached
+ * blobs (for example, braces, imports and license headers) share a single
+ * instance. The interned lines are only weakly pooled, so evicting a blob
+ * releases the lines no other cached blob shares. Storing a blob as lines has
+ * a per-line overhead, so interning only saves memory when enough lines are
+ * shared; {@link #getSharedSizeInCharacters()} reports how much content is
+ * shared.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class HeadBlobCache {
+    private static final int DEFLATE_BUFFER_SIZE = 8192;
+
+    private final Map<String, CompressedEntry> compressedEntriesByBlobId = new LinkedHashMap<>(16, 0.75F, true);
+    private long compressedSizeInBytes = 0L;
+    private final Map<String, Entry> entriesByBlobId = new LinkedHashMap<>(16, 0.75F, true);
+    private long inflatedSizeInBytes = 0L;
+    @Nullable
+    private final WeakInterner<String> lineInterner;
+    private final long maxCompressedSizeInBytes;
+    private final long maxSizeInCharacters;
+    private long sharedSizeInCharacters = 0L;
+    private long sizeInCharacters = 0L;
+
+    /**
+     * Initializes a new instance of the {@code HeadBlobCache} class that does
+     * not intern lines or compress evicted content.
+     *
+     * @param maxSizeInCharacters
+     *        The maximum total size (in characters) of the cached content; must
+     *        not be negative.
+     */
+    public HeadBlobCache(final long maxSizeInCharacters) {
+        this(maxSizeInCharacters, false);
+    }
+
+    /**
+     * Initializes a new instance of the {@code HeadBlobCache} class that does
+     * not compress evicted content.
+     *
+     * @param maxSizeInCharacters
+     *        The maximum total size (in characters) of the cached content; must
+     *        not be negative.
+     * @param internLines
+     *        {@code true} if equal lines across all cached blobs should share a
+     *        single instance; otherwise {@code false}.
+     */
+    public HeadBlobCache(final long maxSizeInCharacters, final boolean internLines) {
+        this(maxSizeInCharacters, internLines, 0L);
+    }
+
+    /**
+     * Initializes a new instance of the {@code HeadBlobCache} class.
+     *
+     * @param maxSizeInCharacters
+     *        The maximum total size (in characters) of the uncompressed cached
+     *        content; must not be negative.
+     * @param internLines
+     *        {@code true} if equal lines across all cached blobs should share a
+     *        single instance; otherwise {@code false}.
+     * @param maxCompressedSizeInBytes
+     *        The maximum total size (in bytes) of the compressed cached
+     *        content; must not be negative. Zero disables the compressed tier.
+     */
+    public HeadBlobCache(final long maxSizeInCharacters, final boolean internLines,
+            final long maxCompressedSizeInBytes) {
+        assert maxSizeInCharacters >= 0L;
+        assert maxCompressedSizeInBytes >= 0L;
+
+        this.lineInterner = internLines ? new WeakInterner<String>() : null;
+        this.maxCompressedSizeInBytes = maxCompressedSizeInBytes;
+        this.maxSizeInCharacters = maxSizeInCharacters;
+    }
+
+    private void addCompressedSize(final CompressedEntry compressedEntry) {
+        compressedSizeInBytes += compressedEntry.bytes.length;
+        inflatedSizeInBytes += compressedEntry.inflatedSizeInBytes;
+    }
+
+    private void addSize(final Entry entry) {
+        sizeInCharacters += entry.sizeInCharacters;
+        sharedSizeInCharacters += entry.sharedSizeInCharacters;
+    }
+
+    private void compress(final Map<String, Entry> evictedEntriesByBlobId) {
+        if (maxCompressedSizeInBytes == 0L) {
+            return;
+        }
+
+        // the least recently used entries are compressed first so they are
+        // also evicted first from the compressed tier
+        for (final Map.Entry<String, Entry> evictedEntry : evictedEntriesByBlobId.entrySet()) {
+            final CompressedEntry compressedEntry = deflate(evictedEntry.getValue().getContent());
+            if (compressedEntry.bytes.length > maxCompressedSizeInBytes) {
+                continue;
+            }
+
+            synchronized (this) {
+                final String blobId = evictedEntry.getKey();
+                if (!entriesByBlobId.containsKey(blobId)) {
+                    removeCompressedEntry(blobId);
+                    compressedEntriesByBlobId.put(blobId, compressedEntry);
+                    addCompressedSize(compressedEntry);
+                    evictCompressedToSize(maxCompressedSizeInBytes);
+                }
+            }
+        }
+    }
+
+    private Entry createEntry(final String content) {
+        final WeakInterner<String> interner = lineInterner;
+        if (interner == null) {
+            return new Entry(content, null, content.length(), 0L);
+        }
+
+        final String[] lines = StringUtils.splitLinesWithExplicitFinalLine(content).toArray(new String[0]);
+        long sharedSize = 0L;
+        for (int index = 0; index < lines.length; ++index) {
+            final String line = lines[index];
+            final String internedLine = interner.intern(line);
+            if (internedLine != line) {
+                sharedSize += line.length() + 1;
+                lines[index] = internedLine;
+            }
+        }
+        return new Entry(null, lines, content.length(), sharedSize);
+    }
+
+    private static CompressedEntry deflate(final String content) {
+        final byte[] input = content.getBytes(StandardCharsets.UTF_8);
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 4);
+            final byte[] buffer = new byte[DEFLATE_BUFFER_SIZE];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return new CompressedEntry(output.toByteArray(), input.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Evicts the content of the specified blob from the uncompressed tier.
+     *
+     * <p>
+     * If the compressed tier is enabled, the content is moved to it;
+     * otherwise, the content is no longer cached.
+     * </p>
+     *
+     * @param blobId
+     *        The SHA-1 blob identifier.
+     */
+    public void evict(final String blobId) {
+        final Entry entry;
+        synchronized (this) {
+            entry = entriesByBlobId.remove(blobId);
+            if (entry == null) {
+                return;
+            }
+            removeSize(entry);
+        }
+        compress(Collections.singletonMap(blobId, entry));
+    }
+
+    private void evictCompressedToSize(final long targetSizeInBytes) {
+        final Iterator<CompressedEntry> iterator = compressedEntriesByBlobId.values().iterator();
+        while (compressedSizeInBytes > targetSizeInBytes) {
+            removeCompressedSize(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private Map<String, Entry> evictToSize(final long targetSizeInCharacters) {
+        final Map<String, Entry> evictedEntriesByBlobId = new LinkedHashMap<>();
+        final Iterator<Map.Entry<String, Entry>> iterator = entriesByBlobId.entrySet().iterator();
+        while (sizeInCharacters > targetSizeInCharacters) {
+            final Map.Entry<String, Entry> evictedEntry = iterator.next();
+            removeSize(evictedEntry.getValue());
+            evictedEntriesByBlobId.put(evictedEntry.getKey(), evictedEntry.getValue());
+            iterator.remove();
+        }
+        return evictedEntriesByBlobId;
+    }
+
+    /**
+     * Gets the content of the specified blob.
+     *
+     * @param blobId
+     *        The SHA-1 blob identifier.
+     *
+     * @return The normalized content of the specified blob or {@code null} if
+     *         the blob is not cached.
+     */
+    @Nullable
+    public String get(final String blobId) {
+        final Entry entry = getEntry(blobId);
+        return (entry != null) ? entry.getContent() : null;
+    }
+
+    /**
+     * Gets the number of cached blobs in the uncompressed tier.
+     *
+     * @return The number of cached blobs in the uncompressed tier.
+     */
+    public synchronized int getBlobCount() {
+        return entriesByBlobId.size();
+    }
+
+    /**
+     * Gets the number of cached blobs in the compressed tier.
+     *
+     * @return The number of cached blobs in the compressed tier.
+     */
+    public synchronized int getCompressedBlobCount() {
+        return compressedEntriesByBlobId.size();
+    }
+
+    /**
+     * Gets the total size of the compressed cached content.
+     *
+     * @return The total size (in bytes) of the compressed cached content.
+     */
+    public synchronized long getCompressedSizeInBytes() {
+        return compressedSizeInBytes;
+    }
+
+    /**
+     * Gets the compression ratio achieved by the compressed tier.
+     *
+     * @return The ratio of the size of the compressed content before and
+     *         after compression as a percentage (for example, 400 for a ratio
+     *         of 4:1) or zero if the compressed tier is empty.
+     */
+    public synchronized long getCompressionRatioPercent() {
+        return (compressedSizeInBytes > 0L) ? ((100L * inflatedSizeInBytes) / compressedSizeInBytes) : 0L;
+    }
+
+    @Nullable
+    private Entry getEntry(final String blobId) {
+        final CompressedEntry compressedEntry;
+        synchronized (this) {
+            final Entry entry = entriesByBlobId.get(blobId);
+            if (entry != null) {
+                return entry;
+            }
+
+            compressedEntry = compressedEntriesByBlobId.remove(blobId);
+            if (compressedEntry == null) {
+                return null;
+            }
+            removeCompressedSize(compressedEntry);
+        }
+        return putEntry(blobId, inflate(compressedEntry));
+    }
+
+    /**
+     * Gets the number of distinct interned lines shared by the cached blobs.
+     *
+     * @return The number of distinct interned lines or zero if the cache does
+     *         not intern lines.
+     */
+    public int getInternedLineCount() {
+        final WeakInterner<String> interner = lineInterner;
+        return (interner != null) ? interner.getSize() : 0;
+    }
+
+    /**
+     * Gets the lines of the specified blob.
+     *
+     * <p>
+     * The lines are split with an explicitly-specified final line (see
+     * {@link StringUtils#splitLinesWithExplicitFinalLine}). When the cache
+     * interns lines, the lines are returned without copying or splitting the
+     * cached content.
+     * </p>
+     *
+     * @param blobId
+     *        The SHA-1 blob identifier.
+     *
+     * @return An unmodifiable collection of the lines of the specified blob or
+     *         {@code null} if the blob is not cached.
+     */
+    @Nullable
+    public List<String> getLines(final String blobId) {
+        final Entry entry = getEntry(blobId);
+        return (entry != null) ? entry.getLines() : null;
+    }
+
+    /**
+     * Gets the maximum size of the content of a single cached blob.
+     *
+     * @return The maximum size (in characters) of the content of a single
+     *         cached blob; larger content is never cached.
+     */
+    public long getMaxBlobSizeInCharacters() {
+        return maxSizeInCharacters;
+    }
+
+    /**
+     * Gets the total size of the cached content held by interned lines that
+     * were already in use when their blob was cached.
+     *
+     * <p>
+     * This is an estimate of the content the cache would otherwise hold in
+     * duplicate lines.
+     * </p>
+     *
+     * @return The total size (in characters) of the shared cached content or
+     *         zero if the cache does not intern lines.
+     */
+    public synchronized long getSharedSizeInCharacters() {
+        return sharedSizeInCharacters;
+    }
+
+    /**
+     * Gets the total size of the uncompressed cached content.
+     *
+     * @return The total size (in characters) of the uncompressed cached
+     *         content.
+     */
+    public synchronized long getSizeInCharacters() {
+        return sizeInCharacters;
+    }
+
+    private static String inflate(final CompressedEntry compressedEntry) {
+        final long startTime = System.nanoTime();
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressedEntry.bytes);
+            final byte[] output = new byte[compressedEntry.inflatedSizeInBytes];
+            int length = 0;
+            while (!inflater.finished()) {
+                length += inflater.inflate(output, length, output.length - length);
+            }
+            assert length == output.length;
+            return new String(output, StandardCharsets.UTF_8);
+        } catch (final DataFormatException e) {
+            // the content was compressed by this class
+            throw new IllegalStateException(e);
+        } finally {
+            inflater.end();
+            MetricsRegistry.getDefault().histogram("headBlobCache.inflate").recordSince(startTime); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Normalizes the specified blob content to the form produced by reading
+     * the blob line by line.
+     *
+     * <p>
+     * Every line, including the last, is terminated by a single line feed.
+     * Content read in bulk must be normalized before it is cached so that it
+     * produces the same patch as content read line by line.
+     * </p>
+     *
+     * @param content
+     *        The raw blob content.
+     *
+     * @return The normalized blob content.
+     */
+    public static String normalizeContent(final CharSequence content) {
+        return StringUtils.joinLinesWithImplicitFinalLine(StringUtils.splitLinesWithImplicitFinalLine(content));
+    }
+
+    /**
+     * Adds the content of the specified blob to the cache.
+     *
+     * <p>
+     * Content larger than the maximum size of the uncompressed tier is not
+     * cached.
+     * </p>
+     *
+     * @param blobId
+     *        The SHA-1 blob identifier.
+     * @param content
+     *        The normalized content of the blob.
+     */
+    public void put(final String blobId, final String content) {
+        if (content.length() > maxSizeInCharacters) {
+            return;
+        }
+
+        putEntry(blobId, content);
+    }
+
+    private Entry putEntry(final String blobId, final String content) {
+        final Entry entry = createEntry(content);
+        final Map<String, Entry> evictedEntriesByBlobId;
+        synchronized (this) {
+            final Entry oldEntry = entriesByBlobId.put(blobId, entry);
+            if (oldEntry != null) {
+                removeSize(oldEntry);
+            }
+            addSize(entry);
+            removeCompressedEntry(blobId);
+            evictedEntriesByBlobId = evictToSize(maxSizeInCharacters);
+        }
+        compress(evictedEntriesByBlobId);
+        return entry;
+    }
+
+    private void removeCompressedEntry(final String blobId) {
+        final CompressedEntry compressedEntry = compressedEntriesByBlobId.remove(blobId);
+        if (compressedEntry != null) {
+            removeCompressedSize(compressedEntry);
+        }
+    }
+
+    private void removeCompressedSize(final CompressedEntry compressedEntry) {
+        compressedSizeInBytes -= compressedEntry.bytes.length;
+        inflatedSizeInBytes -= compressedEntry.inflatedSizeInBytes;
+    }
+
+    private void removeSize(final Entry entry) {
+        sizeInCharacters -= entry.sizeInCharacters;
+        sharedSizeInCharacters -= entry.sharedSizeInCharacters;
+    }
+
+    /**
+     * Evicts the least recently used blobs from the compressed tier until the
+     * total size of the compressed content does not exceed the specified
+     * size.
+     *
+     * @param sizeInBytes
+     *        The size (in bytes) to which the compressed content is to be
+     *        trimmed; must not be negative.
+     */
+    public synchronized void trimCompressedToSize(final long sizeInBytes) {
+        assert sizeInBytes >= 0L;
+
+        evictCompressedToSize(sizeInBytes);
+    }
+
+    /**
+     * Evicts the least recently used blobs from the uncompressed tier until
+     * the total size of the uncompressed content does not exceed the specified
+     * size.
+     *
+     * <p>
+     * The maximum size of the cache is unchanged, so the cache may grow again.
+     * If the compressed tier is enabled, the evicted content is moved to it.
+     * </p>
+     *
+     * @param sizeInCharacters
+     *        The size (in characters) to which the uncompressed content is to
+     *        be trimmed; must not be negative.
+     */
+    public void trimToSize(final long sizeInCharacters) {
+        assert sizeInCharacters >= 0L;
+
+        final Map<String, Entry> evictedEntriesByBlobId;
+        synchronized (this) {
+            evictedEntriesByBlobId = evictToSize(sizeInCharacters);
+        }
+        compress(evictedEntriesByBlobId);
+    }
+
+    private static final class CompressedEntry {
+        final byte[] bytes;
+        final int inflatedSizeInBytes;
+
+        CompressedEntry(final byte[] bytes, final int inflatedSizeInBytes) {
+            this.bytes = bytes;
+            this.inflatedSizeInBytes = inflatedSizeInBytes;
+        }
+    }
+
+    private static final class Entry {
+        @Nullable
+        final String content;
+        @Nullable
+        final String[] lines;
+        final long sharedSizeInCharacters;
+        final long sizeInCharacters;
+
+        Entry(@Nullable final String content, @Nullable final String[] lines, final long sizeInCharacters,
+                final long sharedSizeInCharacters) {
+            this.content = content;
+            this.lines = lines;
+            this.sharedSizeInCharacters = sharedSizeInCharacters;
+            this.sizeInCharacters = sizeInCharacters;
+        }
+
+        String getContent() {
+            final String entryContent = content;
+            if (entryContent != null) {
+                return entryContent;
+            }
+            return StringUtils.joinLinesWithExplicitFinalLine(getLines());
+        }
+
+        List<String> getLines() {
+            final String[] entryLines = lines;
+            if (entryLines == null) {
+                final String entryContent = content;
+                assert entryContent != null;
+                return Collections.unmodifiableList(StringUtils.splitLinesWithExplicitFinalLine(entryContent));
+            }
+            return Collections.unmodifiableList(Arrays.asList(entryLines));
+        }
+    }
+}
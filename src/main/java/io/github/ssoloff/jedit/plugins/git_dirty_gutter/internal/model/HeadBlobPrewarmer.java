@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitBatchObjectReader;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitException;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Fills a {@link HeadBlobCache} with the HEAD revisions of a set of files,
+ * typically the buffers restored with an editor session.
+ *
+ * <p>
+ * The files are grouped by repository, and the HEAD revisions of all files
+ * within a repository are read through a single
+ * {@code git cat-file --batch} process. The HEAD revisions of the visible
+ * files are read before those of any other file so that their dirty marks
+ * can be displayed as soon as possible. Repositories are processed in
+ * parallel on a bounded pool of threads.
+ * </p>
+ */
+public final class HeadBlobPrewarmer {
+    private static final String BLOB_TYPE = "blob"; //$NON-NLS-1$
+
+    private final HeadBlobCache headBlobCache;
+    private final ISupplier<Path> gitProgramPathSupplier;
+    private final ILog log;
+    private final long maxBlobSizeInBytes;
+    private final int threadCount;
+
+    /**
+     * Initializes a new instance of the {@code HeadBlobPrewarmer} class.
+     *
+     * @param headBlobCache
+     *        The cache to fill.
+     * @param headBlobSpiller
+     *        The spiller of HEAD revision content too large to keep on the heap
+     *        or {@code null} if spilling is disabled; HEAD revisions that would
+     *        be spilled are not read.
+     * @param gitProgramPathSupplier
+     *        The supplier of the Git program path.
+     * @param log
+     *        The application log.
+     * @param threadCount
+     *        The maximum number of repositories to process concurrently; must
+     *        be positive.
+     */
+    public HeadBlobPrewarmer(final HeadBlobCache headBlobCache, @Nullable final HeadBlobSpiller headBlobSpiller,
+            final ISupplier<Path> gitProgramPathSupplier, final ILog log, final int threadCount) {
+        assert threadCount > 0;
+
+        this.headBlobCache = headBlobCache;
+        this.gitProgramPathSupplier = gitProgramPathSupplier;
+        this.log = log;
+        this.maxBlobSizeInBytes = getMaxBlobSizeInBytes(headBlobCache, headBlobSpiller);
+        this.threadCount = threadCount;
+    }
+
+    private void addToRepositories(final Map<Path, Repository> repositories, final Collection<Path> filePaths,
+            final boolean visible) {
+        for (final Path filePath : filePaths) {
+            final Path repoRootPath = GitRepositories.findWorkingTreeRootPath(filePath);
+            if (repoRootPath == null) {
+                continue;
+            }
+
+            Repository repository = repositories.get(repoRootPath);
+            if (repository == null) {
+                repository = new Repository(repoRootPath);
+                repositories.put(repoRootPath, repository);
+            }
+            (visible ? repository.visibleFilePaths : repository.otherFilePaths).add(filePath);
+        }
+    }
+
+    private static long getElapsedTimeInMilliseconds(final long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    private static long getMaxBlobSizeInBytes(final HeadBlobCache headBlobCache,
+            @Nullable final HeadBlobSpiller headBlobSpiller) {
+        // a blob has at least as many bytes as characters in any charset that may be the default
+        final long maxBlobSizeInCharacters = headBlobCache.getMaxBlobSizeInCharacters();
+        return (headBlobSpiller != null)
+                ? Math.min(maxBlobSizeInCharacters, headBlobSpiller.getThresholdInCharacters())
+                : maxBlobSizeInCharacters;
+    }
+
+    private Map<Path, Repository> groupByRepository(final Collection<Path> visibleFilePaths,
+            final Collection<Path> otherFilePaths) {
+        final Map<Path, Repository> repositories = new LinkedHashMap<>();
+        addToRepositories(repositories, visibleFilePaths, true);
+        addToRepositories(repositories, otherFilePaths, false);
+        return repositories;
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        return new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable,
+                        String.format("GitDirtyGutter-prewarm-%d", threadCount.incrementAndGet())); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Reads the HEAD revisions of the specified files into the cache.
+     *
+     * <p>
+     * This method blocks until all HEAD revisions have been read. Files that
+     * are not within a Git repository or that are not present at the HEAD
+     * revision are ignored, as are HEAD revisions too large to be cached or
+     * that would be spilled; their content is skipped without being read into
+     * memory. The time taken to read the HEAD revisions of the visible files,
+     * which bounds the time until their dirty marks can be displayed, is
+     * logged.
+     * </p>
+     *
+     * @param visibleFilePaths
+     *        The paths to the files that are visible; their HEAD revisions are
+     *        read first.
+     * @param otherFilePaths
+     *        The paths to all other files.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for the HEAD revisions to be read.
+     */
+    public void prewarm(final Collection<Path> visibleFilePaths, final Collection<Path> otherFilePaths)
+            throws InterruptedException {
+        final long startTime = System.nanoTime();
+        final Collection<Repository> repositories = groupByRepository(visibleFilePaths, otherFilePaths).values();
+        if (repositories.isEmpty()) {
+            return;
+        }
+
+        final CountDownLatch visibleLatch = new CountDownLatch(repositories.size());
+        final CountDownLatch allLatch = new CountDownLatch(repositories.size());
+        final ExecutorService executor = Executors
+                .newFixedThreadPool(Math.min(threadCount, repositories.size()), newThreadFactory());
+        try {
+            // the pool runs tasks in submission order, so all visible files are read first
+            for (final Repository repository : repositories) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            readHeadBlobs(repository, repository.visibleFilePaths);
+                        } finally {
+                            repository.taskCompleted();
+                            visibleLatch.countDown();
+                        }
+                    }
+                });
+            }
+            for (final Repository repository : repositories) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            readHeadBlobs(repository, repository.otherFilePaths);
+                        } finally {
+                            repository.taskCompleted();
+                            allLatch.countDown();
+                        }
+                    }
+                });
+            }
+
+            visibleLatch.await();
+            log.logDebug(this, String.format("read HEAD revisions of %d visible buffer(s) in %d ms", //$NON-NLS-1$
+                    Integer.valueOf(visibleFilePaths.size()), Long.valueOf(getElapsedTimeInMilliseconds(startTime))));
+            allLatch.await();
+            log.logDebug(this,
+                    String.format("read HEAD revisions of %d buffer(s) in %d repositories in %d ms", //$NON-NLS-1$
+                            Integer.valueOf(visibleFilePaths.size() + otherFilePaths.size()),
+                            Integer.valueOf(repositories.size()),
+                            Long.valueOf(getElapsedTimeInMilliseconds(startTime))));
+        } finally {
+            executor.shutdownNow();
+            for (final Repository repository : repositories) {
+                repository.close();
+            }
+        }
+    }
+
+    private void readHeadBlobs(final Repository repository, final List<Path> filePaths) {
+        try {
+            for (final Path filePath : filePaths) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                final String objectName = String.format("HEAD:%s", //$NON-NLS-1$
+                        repository.rootPath.relativize(filePath.toAbsolutePath()).toString().replace(File.separatorChar,
+                                '/'));
+                if ((objectName.indexOf('\n') != -1) || (objectName.indexOf('\r') != -1)) {
+                    continue;
+                }
+
+                final GitObject object = repository.getObjectReader().read(objectName, maxBlobSizeInBytes);
+                if ((object != null) && object.getType().equals(BLOB_TYPE)) {
+                    final String content = new String(object.getContent(), Charset.defaultCharset());
+                    headBlobCache.put(object.getObjectId(), HeadBlobCache.normalizeContent(content));
+                }
+            }
+        } catch (final GitException | IOException e) {
+            log.logWarning(this, String.format("failed to read HEAD revisions in repository (%s)", //$NON-NLS-1$
+                    repository.rootPath), e);
+        }
+    }
+
+    /**
+     * The files within a single repository.
+     */
+    private final class Repository {
+        private static final int TASK_COUNT = 2;
+
+        final List<Path> otherFilePaths = new ArrayList<>();
+        final Path rootPath;
+        final List<Path> visibleFilePaths = new ArrayList<>();
+
+        @Nullable
+        private GitBatchObjectReader objectReader = null;
+        private boolean closed = false;
+        private int pendingTaskCount = TASK_COUNT;
+
+        Repository(final Path rootPath) {
+            this.rootPath = rootPath;
+        }
+
+        synchronized void close() {
+            closed = true;
+            final GitBatchObjectReader reader = objectReader;
+            if (reader != null) {
+                reader.close();
+                objectReader = null;
+            }
+        }
+
+        synchronized GitBatchObjectReader getObjectReader() throws IOException {
+            GitBatchObjectReader reader = objectReader;
+            if (reader == null) {
+                if (closed) {
+                    throw new IOException("object reader closed"); //$NON-NLS-1$
+                }
+                reader = new GitBatchObjectReader(rootPath, gitProgramPathSupplier.get());
+                objectReader = reader;
+            }
+            return reader;
+        }
+
+        synchronized void taskCompleted() {
+            if (--pendingTaskCount == 0) {
+                close();
+            }
+        }
+    }
+}
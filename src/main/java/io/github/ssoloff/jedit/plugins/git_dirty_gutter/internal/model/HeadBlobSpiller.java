@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Decides which HEAD revision content is too large to keep on the heap and
+ * owns the directory of the files to which that content is spilled.
+ *
+ * <p>
+ * Content larger than the threshold is written once to a spill file, which is
+ * memory-mapped by the buffer that read it until the buffer is closed or
+ * releases its state.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class HeadBlobSpiller {
+    private final Path directoryPath;
+    private final long thresholdInCharacters;
+
+    /**
+     * Initializes a new instance of the {@code HeadBlobSpiller} class.
+     *
+     * @param directoryPath
+     *        The path to the directory owned by the plugin in which spill files
+     *        are created.
+     * @param thresholdInCharacters
+     *        The size (in characters) HEAD revision content must exceed to be
+     *        spilled; must not be negative.
+     */
+    public HeadBlobSpiller(final Path directoryPath, final long thresholdInCharacters) {
+        assert thresholdInCharacters >= 0L;
+
+        this.directoryPath = directoryPath;
+        this.thresholdInCharacters = thresholdInCharacters;
+    }
+
+    /**
+     * Deletes the spill directory and any spill files remaining in it.
+     *
+     * <p>
+     * This method should be invoked after all buffers have been closed.
+     * </p>
+     *
+     * @throws IOException
+     *         If the spill directory cannot be deleted.
+     */
+    public void deleteSpillFiles() throws IOException {
+        if (!Files.isDirectory(directoryPath)) {
+            return;
+        }
+
+        try (final DirectoryStream<Path> filePaths = Files.newDirectoryStream(directoryPath)) {
+            for (final Path filePath : filePaths) {
+                Files.deleteIfExists(filePath);
+            }
+        }
+        Files.deleteIfExists(directoryPath);
+    }
+
+    /**
+     * Gets the path to the directory in which spill files are created.
+     *
+     * @return The path to the directory in which spill files are created.
+     */
+    public Path getDirectoryPath() {
+        return directoryPath;
+    }
+
+    /**
+     * Gets the size HEAD revision content must exceed to be spilled.
+     *
+     * @return The size (in characters) HEAD revision content must exceed to
+     *         be spilled.
+     */
+    public long getThresholdInCharacters() {
+        return thresholdInCharacters;
+    }
+
+    /**
+     * Creates a writer that receives HEAD revision content and spills it if it
+     * exceeds the threshold.
+     *
+     * @param expectedSizeInCharacters
+     *        The maximum size (in characters) of the content, as derived from
+     *        the size of the blob; must not be negative.
+     *
+     * @return A new writer that receives HEAD revision content.
+     */
+    SpillingWriter newWriter(final int expectedSizeInCharacters) {
+        return new SpillingWriter(directoryPath, thresholdInCharacters, expectedSizeInCharacters);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import difflib.Delta;
+import difflib.Patch;
+import java.util.Arrays;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * An immutable table of the hunks of a patch.
+ *
+ * <p>
+ * Each hunk records only the position and size of its original and revised
+ * chunks, so, unlike a {@link Patch}, a hunk table does not retain the content
+ * of either revision; its size is proportional to the number of hunks rather
+ * than the number of lines. A hunk with an empty original chunk represents
+ * added content, a hunk with an empty revised chunk represents removed
+ * content, and any other hunk represents changed content.
+ * </p>
+ *
+ * <p>
+ * Hunks are ordered by the position of their original chunk.
+ * </p>
+ */
+public final class HunkTable {
+    /** The hunk table that contains no hunks. */
+    public static final HunkTable EMPTY = new HunkTable(new int[0]);
+
+    private static final int FIELD_COUNT = 4;
+    private static final int ORIGINAL_POSITION = 0;
+    private static final int ORIGINAL_SIZE = 1;
+    private static final int REVISED_POSITION = 2;
+    private static final int REVISED_SIZE = 3;
+
+    private final int[] hunks;
+
+    private HunkTable(final int[] hunks) {
+        this.hunks = hunks;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (!(obj instanceof HunkTable)) {
+            return false;
+        }
+
+        return Arrays.equals(hunks, ((HunkTable) obj).hunks);
+    }
+
+    /**
+     * Creates a hunk table from the specified patch.
+     *
+     * @param patch
+     *        The patch.
+     *
+     * @return A new hunk table that describes the specified patch.
+     *
+     * @throws IllegalArgumentException
+     *         If {@code patch} contains any context lines.
+     */
+    public static HunkTable fromPatch(final Patch patch) {
+        if (DiffLibUtils.Patch.isContextLinePresent(patch)) {
+            throw new IllegalArgumentException("patch must not contain any context lines"); //$NON-NLS-1$
+        }
+
+        final Builder builder = new Builder();
+        for (final Delta delta : patch.getDeltas()) {
+            builder.addHunk(delta.getOriginal().getPosition(), delta.getOriginal().size(),
+                    delta.getRevised().getPosition(), delta.getRevised().size());
+        }
+        return builder.build();
+    }
+
+    private int get(final int hunkIndex, final int field) {
+        return hunks[(hunkIndex * FIELD_COUNT) + field];
+    }
+
+    /**
+     * Gets the number of hunks in the table.
+     *
+     * @return The number of hunks in the table.
+     */
+    public int getHunkCount() {
+        return hunks.length / FIELD_COUNT;
+    }
+
+    /**
+     * Gets the zero-based position of the original chunk of the specified
+     * hunk.
+     *
+     * @param hunkIndex
+     *        The zero-based index of the hunk.
+     *
+     * @return The zero-based position of the original chunk of the hunk.
+     */
+    public int getOriginalPosition(final int hunkIndex) {
+        return get(hunkIndex, ORIGINAL_POSITION);
+    }
+
+    /**
+     * Gets the number of lines in the original chunk of the specified hunk.
+     *
+     * @param hunkIndex
+     *        The zero-based index of the hunk.
+     *
+     * @return The number of lines in the original chunk of the hunk.
+     */
+    public int getOriginalSize(final int hunkIndex) {
+        return get(hunkIndex, ORIGINAL_SIZE);
+    }
+
+    /**
+     * Gets the zero-based position of the revised chunk of the specified hunk.
+     *
+     * @param hunkIndex
+     *        The zero-based index of the hunk.
+     *
+     * @return The zero-based position of the revised chunk of the hunk.
+     */
+    public int getRevisedPosition(final int hunkIndex) {
+        return get(hunkIndex, REVISED_POSITION);
+    }
+
+    /**
+     * Gets the number of lines in the revised chunk of the specified hunk.
+     *
+     * @param hunkIndex
+     *        The zero-based index of the hunk.
+     *
+     * @return The number of lines in the revised chunk of the hunk.
+     */
+    public int getRevisedSize(final int hunkIndex) {
+        return get(hunkIndex, REVISED_SIZE);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(hunks);
+    }
+
+    boolean isContentAdded(final int hunkIndex) {
+        return (getOriginalSize(hunkIndex) == 0) && (getRevisedSize(hunkIndex) > 0);
+    }
+
+    boolean isContentChanged(final int hunkIndex) {
+        return (getOriginalSize(hunkIndex) > 0) && (getRevisedSize(hunkIndex) > 0);
+    }
+
+    boolean isContentRemoved(final int hunkIndex) {
+        return (getOriginalSize(hunkIndex) > 0) && (getRevisedSize(hunkIndex) == 0);
+    }
+
+    /**
+     * Indicates the revised chunk of the specified hunk includes the specified
+     * line.
+     *
+     * <p>
+     * An empty revised chunk, which marks removed content, includes only the
+     * line at its position.
+     * </p>
+     *
+     * @param hunkIndex
+     *        The zero-based index of the hunk.
+     * @param lineIndex
+     *        The zero-based index of the line.
+     *
+     * @return {@code true} if the revised chunk of the hunk includes the line;
+     *         otherwise {@code false}.
+     */
+    boolean isRevisedLineIncluded(final int hunkIndex, final int lineIndex) {
+        final int position = getRevisedPosition(hunkIndex);
+        final int size = getRevisedSize(hunkIndex);
+        return (size == 0) ? (lineIndex == position) : ((lineIndex >= position) && (lineIndex < (position + size)));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("HunkTable["); //$NON-NLS-1$
+        for (int hunkIndex = 0; hunkIndex < getHunkCount(); ++hunkIndex) {
+            if (hunkIndex > 0) {
+                sb.append(", "); //$NON-NLS-1$
+            }
+            sb.append(String.format("-%d,%d +%d,%d", //$NON-NLS-1$
+                    Integer.valueOf(getOriginalPosition(hunkIndex)), Integer.valueOf(getOriginalSize(hunkIndex)),
+                    Integer.valueOf(getRevisedPosition(hunkIndex)), Integer.valueOf(getRevisedSize(hunkIndex))));
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Builds a hunk table.
+     *
+     * <p>
+     * This class is not thread-safe.
+     * </p>
+     */
+    public static final class Builder {
+        private int[] hunks = new int[FIELD_COUNT * 4];
+        private int size = 0;
+
+        /**
+         * Adds a hunk to the table.
+         *
+         * @param originalPosition
+         *        The zero-based position of the original chunk; must not be
+         *        negative.
+         * @param originalSize
+         *        The number of lines in the original chunk; must not be
+         *        negative.
+         * @param revisedPosition
+         *        The zero-based position of the revised chunk; must not be
+         *        negative.
+         * @param revisedSize
+         *        The number of lines in the revised chunk; must not be
+         *        negative.
+         *
+         * @return This builder.
+         */
+        public Builder addHunk(final int originalPosition, final int originalSize, final int revisedPosition,
+                final int revisedSize) {
+            assert originalPosition >= 0;
+            assert originalSize >= 0;
+            assert revisedPosition >= 0;
+            assert revisedSize >= 0;
+
+            if ((size + FIELD_COUNT) > hunks.length) {
+                hunks = Arrays.copyOf(hunks, hunks.length * 2);
+            }
+
+            // keep the hunks ordered by original position; hunks with the same
+            // original position remain in the order in which they were added
+            int index = size;
+            while ((index > 0) && (hunks[(index - FIELD_COUNT) + ORIGINAL_POSITION] > originalPosition)) {
+                index -= FIELD_COUNT;
+            }
+            System.arraycopy(hunks, index, hunks, index + FIELD_COUNT, size - index);
+            hunks[index + ORIGINAL_POSITION] = originalPosition;
+            hunks[index + ORIGINAL_SIZE] = originalSize;
+            hunks[index + REVISED_POSITION] = revisedPosition;
+            hunks[index + REVISED_SIZE] = revisedSize;
+            size += FIELD_COUNT;
+            return this;
+        }
+
+        /**
+         * Builds the hunk table.
+         *
+         * @return A new hunk table that contains the hunks added to this
+         *         builder.
+         */
+        public HunkTable build() {
+            return (size == 0) ? EMPTY : new HunkTable(Arrays.copyOf(hunks, size));
+        }
+    }
+}
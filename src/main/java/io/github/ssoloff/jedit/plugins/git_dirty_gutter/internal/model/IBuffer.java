@@ -19,7 +19,6 @@
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
 
 import java.nio.file.Path;
-import java.util.List;
 
 /**
  * A jEdit buffer.
@@ -33,16 +32,34 @@ public interface IBuffer {
     Path getFilePath();
 
     /**
-     * Gets the lines of text in the buffer.
+     * Gets the encoding of the text in the buffer.
      *
-     * @return The lines of text in the buffer.
+     * @return The encoding.
      */
-    List<String> getLines();
+    String getEncoding();
 
     /**
-     * Gets the encoding of the text in the buffer.
+     * Gets the edit sequence number of the buffer.
      *
-     * @return The encoding.
+     * <p>
+     * The edit sequence number increases each time the buffer is edited. This
+     * method may be invoked on any thread.
+     * </p>
+     *
+     * @return The edit sequence number of the buffer.
      */
-    String getEncoding();
+    long getEditSequenceNumber();
+
+    /**
+     * Takes a snapshot of the text in the buffer.
+     *
+     * <p>
+     * The snapshot is consistent with the edit sequence number it is tagged
+     * with even if the buffer is being edited concurrently. This method may be
+     * invoked on any thread.
+     * </p>
+     *
+     * @return A snapshot of the text in the buffer.
+     */
+    BufferSnapshot getSnapshot();
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+/**
+ * A diff between the HEAD revision of a file and its buffer as recorded by
+ * Java Flight Recorder.
+ *
+ * <p>
+ * On runtimes without the JFR API, the {@link #DISABLED} event is used.
+ * </p>
+ */
+interface IDiffEvent {
+    /** An event that is never recorded. */
+    IDiffEvent DISABLED = new IDiffEvent() {
+        @Override
+        public void begin() {
+            // do nothing
+        }
+
+        @Override
+        public void commit(final int deltaCount, final String engine, final String filePath,
+                final int originalLineCount, final int revisedLineCount, final long traceId) {
+            // do nothing
+        }
+
+        @Override
+        public void end() {
+            // do nothing
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public boolean shouldCommit() {
+            return false;
+        }
+    };
+
+    /**
+     * Starts timing the event.
+     */
+    void begin();
+
+    /**
+     * Records the event.
+     *
+     * @param deltaCount
+     *        The number of deltas in the patch.
+     * @param engine
+     *        The diff algorithm used to compute the patch.
+     * @param filePath
+     *        The path of the file associated with the buffer.
+     * @param originalLineCount
+     *        The number of lines in the HEAD revision of the file.
+     * @param revisedLineCount
+     *        The number of lines in the buffer.
+     * @param traceId
+     *        The identifier of the edit latency trace served by the diff or
+     *        zero if not traced.
+     */
+    void commit(int deltaCount, String engine, String filePath, int originalLineCount, int revisedLineCount,
+            long traceId);
+
+    /**
+     * Stops timing the event.
+     */
+    void end();
+
+    /**
+     * Indicates the event is enabled.
+     *
+     * @return {@code true} if the event is enabled; otherwise {@code false}.
+     */
+    boolean isEnabled();
+
+    /**
+     * Indicates the event is enabled and meets its recording threshold.
+     *
+     * @return {@code true} if the event should be recorded; otherwise
+     *         {@code false}.
+     */
+    boolean shouldCommit();
+}
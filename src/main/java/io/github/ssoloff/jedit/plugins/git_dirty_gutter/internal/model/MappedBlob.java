@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The content of a Git blob held in a memory-mapped file rather than on the
+ * heap.
+ *
+ * <p>
+ * The file must contain UTF-8 encoded lines, each terminated by a line feed.
+ * The lines are located through an index of line offsets, so only the index is
+ * kept on the heap. Closing the blob unmaps and deletes the file; the mapping
+ * is released immediately on runtimes that allow it and otherwise when it is
+ * garbage collected.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe. A blob may be closed while its
+ * lines are being read by another thread.
+ * </p>
+ */
+final class MappedBlob implements Closeable {
+    private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+
+    @Nullable
+    private MappedByteBuffer buffer;
+    private final Path filePath;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int[] lineStartOffsets;
+
+    private MappedBlob(final Path filePath, final MappedByteBuffer buffer, final int[] lineStartOffsets) {
+        this.buffer = buffer;
+        this.filePath = filePath;
+        this.lineStartOffsets = lineStartOffsets;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            final MappedByteBuffer mappedBuffer = buffer;
+            if (mappedBuffer != null) {
+                buffer = null;
+                unmap(mappedBuffer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Files.deleteIfExists(filePath);
+    }
+
+    /**
+     * Gets the number of lines in the blob.
+     *
+     * @return The number of lines in the blob, including the empty final line
+     *         that follows the final line feed.
+     */
+    int getLineCount() {
+        return lineStartOffsets.length - 1;
+    }
+
+    private static int[] indexLines(final ByteBuffer buffer) {
+        final int size = buffer.limit();
+        if (size == 0) {
+            return new int[] {
+                0
+            };
+        }
+
+        int lineFeedCount = 0;
+        for (int offset = 0; offset < size; ++offset) {
+            if (buffer.get(offset) == '\n') {
+                ++lineFeedCount;
+            }
+        }
+
+        // the final entry is the start offset of a virtual line following the
+        // final line so the end of every line is one before the next start
+        final int[] lineStartOffsets = new int[lineFeedCount + 2];
+        int lineIndex = 1;
+        for (int offset = 0; offset < size; ++offset) {
+            if (buffer.get(offset) == '\n') {
+                lineStartOffsets[lineIndex++] = offset + 1;
+            }
+        }
+        lineStartOffsets[lineIndex] = size + 1;
+        return lineStartOffsets;
+    }
+
+    /**
+     * Maps the specified file into memory.
+     *
+     * @param filePath
+     *        The path to the file containing the blob content; the file is
+     *        deleted when the blob is closed.
+     *
+     * @return The mapped blob.
+     *
+     * @throws IOException
+     *         If the file cannot be mapped.
+     */
+    static MappedBlob map(final Path filePath) throws IOException {
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("file too large to map (%s)", filePath)); //$NON-NLS-1$
+            }
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            return new MappedBlob(filePath, buffer, indexLines(buffer));
+        }
+    }
+
+    /**
+     * Decodes the lines of the blob.
+     *
+     * <p>
+     * The lines are split with an explicitly-specified final line, as by
+     * {@code StringUtils#splitLinesWithExplicitFinalLine}.
+     * </p>
+     *
+     * @return A new collection of the lines of the blob or {@code null} if the
+     *         blob has been closed.
+     */
+    @Nullable
+    List<String> readLines() {
+        lock.readLock().lock();
+        try {
+            final MappedByteBuffer mappedBuffer = buffer;
+            if (mappedBuffer == null) {
+                return null;
+            }
+
+            final ByteBuffer view = mappedBuffer.duplicate();
+            final int lineCount = getLineCount();
+            final List<String> lines = new ArrayList<>(lineCount);
+            byte[] lineBytes = new byte[INITIAL_LINE_BUFFER_SIZE];
+            for (int lineIndex = 0; lineIndex < lineCount; ++lineIndex) {
+                final int startOffset = lineStartOffsets[lineIndex];
+                final int length = lineStartOffsets[lineIndex + 1] - 1 - startOffset;
+                if (length > lineBytes.length) {
+                    lineBytes = new byte[Math.max(length, 2 * lineBytes.length)];
+                }
+                view.position(startOffset);
+                view.get(lineBytes, 0, length);
+                lines.add(new String(lineBytes, 0, length, StandardCharsets.UTF_8));
+            }
+            return lines;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void unmap(final MappedByteBuffer mappedBuffer) {
+        // the mapping can only be released explicitly through an internal API,
+        // which is accessed reflectively because it is not available on all
+        // runtimes
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe"); //$NON-NLS-1$
+            final Field unsafeField = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+            unsafeField.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class) //$NON-NLS-1$
+                    .invoke(unsafeField.get(null), mappedBuffer);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // the mapping is released when it is garbage collected
+        }
+    }
+}
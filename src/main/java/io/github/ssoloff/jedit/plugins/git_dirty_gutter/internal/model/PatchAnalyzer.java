@@ -18,8 +18,6 @@
 
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
 
-import difflib.Chunk;
-import difflib.Delta;
 import difflib.Patch;
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -33,59 +31,42 @@ import org.eclipse.jdt.annotation.Nullable;
  * </p>
  */
 public final class PatchAnalyzer {
-    private final Patch patch;
+    private static final int NO_HUNK = -1;
+
+    private final HunkTable hunkTable;
 
     /**
      * Initializes a new instance of the {@code PatchAnalyzer} class.
      *
-     * @param patch
-     *        The patch to analyze.
-     *
-     * @throws IllegalArgumentException
-     *         If {@code patch} contains any context lines.
+     * @param hunkTable
+     *        The hunk table of the patch to analyze.
      */
-    public PatchAnalyzer(final Patch patch) {
-        if (DiffLibUtils.Patch.isContextLinePresent(patch)) {
-            throw new IllegalArgumentException("patch must not contain any context lines"); //$NON-NLS-1$
-        }
-
-        this.patch = patch;
+    public PatchAnalyzer(final HunkTable hunkTable) {
+        this.hunkTable = hunkTable;
     }
 
     /**
-     * Gets the delta associated with the specified line.
+     * Initializes a new instance of the {@code PatchAnalyzer} class.
      *
-     * @param lineIndex
-     *        The zero-based index of the line whose delta is desired; must not
-     *        be negative.
+     * @param patch
+     *        The patch to analyze.
      *
-     * @return The delta associated with the specified line or {@code null} if
-     *         none.
+     * @throws IllegalArgumentException
+     *         If {@code patch} contains any context lines.
      */
-    @Nullable
-    private Delta getDeltaForLine(final int lineIndex) {
-        assert lineIndex >= 0;
-
-        for (final Delta delta : patch.getDeltas()) {
-            final Chunk chunk = delta.getRevised();
-            if (DiffLibUtils.RemoveChunk.isLineIncluded(chunk, lineIndex)
-                    || DiffLibUtils.AddOrChangeChunk.isLineIncluded(chunk, lineIndex)) {
-                return delta;
-            }
-        }
-
-        return null;
+    public PatchAnalyzer(final Patch patch) {
+        this(HunkTable.fromPatch(patch));
     }
 
     @Nullable
     private DirtyMarkType getAddedOrChangedDirtyMarkForLine(final int lineIndex) {
         assert lineIndex >= 0;
 
-        final Delta deltaForThisLine = getDeltaForLine(lineIndex);
-        if (deltaForThisLine != null) {
-            if (DiffLibUtils.Delta.isContentAdded(deltaForThisLine)) {
+        final int hunkIndexForThisLine = getHunkIndexForLine(lineIndex);
+        if (hunkIndexForThisLine != NO_HUNK) {
+            if (hunkTable.isContentAdded(hunkIndexForThisLine)) {
                 return DirtyMarkType.ADDED;
-            } else if (DiffLibUtils.Delta.isContentChanged(deltaForThisLine)) {
+            } else if (hunkTable.isContentChanged(hunkIndexForThisLine)) {
                 return DirtyMarkType.CHANGED;
             }
         }
@@ -122,20 +103,42 @@ public final class PatchAnalyzer {
         return DirtyMarkType.UNCHANGED;
     }
 
+    /**
+     * Gets the index of the hunk associated with the specified line.
+     *
+     * @param lineIndex
+     *        The zero-based index of the line whose hunk is desired; must not
+     *        be negative.
+     *
+     * @return The index of the hunk associated with the specified line or
+     *         {@link #NO_HUNK} if none.
+     */
+    private int getHunkIndexForLine(final int lineIndex) {
+        assert lineIndex >= 0;
+
+        for (int hunkIndex = 0; hunkIndex < hunkTable.getHunkCount(); ++hunkIndex) {
+            if (hunkTable.isRevisedLineIncluded(hunkIndex, lineIndex)) {
+                return hunkIndex;
+            }
+        }
+
+        return NO_HUNK;
+    }
+
     @Nullable
     private DirtyMarkType getRemovedDirtyMarkForLine(final int lineIndex) {
         assert lineIndex >= 0;
 
         boolean contentRemovedAboveThisLine = false;
-        final Delta deltaForThisLine = getDeltaForLine(lineIndex);
-        if (deltaForThisLine != null) {
-            contentRemovedAboveThisLine = DiffLibUtils.Delta.isContentRemoved(deltaForThisLine);
+        final int hunkIndexForThisLine = getHunkIndexForLine(lineIndex);
+        if (hunkIndexForThisLine != NO_HUNK) {
+            contentRemovedAboveThisLine = hunkTable.isContentRemoved(hunkIndexForThisLine);
         }
 
         boolean contentRemovedBelowThisLine = false;
-        final Delta deltaForNextLine = getDeltaForLine(lineIndex + 1);
-        if (deltaForNextLine != null) {
-            final boolean contentRemovedAboveNextLine = DiffLibUtils.Delta.isContentRemoved(deltaForNextLine);
+        final int hunkIndexForNextLine = getHunkIndexForLine(lineIndex + 1);
+        if (hunkIndexForNextLine != NO_HUNK) {
+            final boolean contentRemovedAboveNextLine = hunkTable.isContentRemoved(hunkIndexForNextLine);
             contentRemovedBelowThisLine = contentRemovedAboveNextLine;
         }
 
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+/**
+ * Provides methods for optimistically remapping a patch after the buffer it
+ * describes has been edited.
+ *
+ * <p>
+ * The remapped patch is only an approximation of the patch that would be
+ * produced by diffing the edited buffer against the HEAD revision. It is
+ * intended to be displayed until the exact patch has been computed in the
+ * background.
+ * </p>
+ */
+public final class PatchRemapper {
+    private PatchRemapper() {
+    }
+
+    private static int getOriginalPositionForRevisedLine(final HunkTable patch, final int lineIndex) {
+        int originalLineIndex = lineIndex;
+        for (int hunkIndex = 0; hunkIndex < patch.getHunkCount(); ++hunkIndex) {
+            final int revisedSize = patch.getRevisedSize(hunkIndex);
+            if ((patch.getRevisedPosition(hunkIndex) + revisedSize) <= lineIndex) {
+                originalLineIndex += patch.getOriginalSize(hunkIndex) - revisedSize;
+            }
+        }
+        return Math.max(originalLineIndex, 0);
+    }
+
+    /**
+     * Remaps the specified patch after lines have been inserted into the
+     * buffer.
+     *
+     * <p>
+     * Lines following the insertion point are shifted down by the number of
+     * inserted lines. The inserted lines are provisionally marked as added
+     * unless they fall within an existing added or changed chunk, in which
+     * case that chunk is extended to cover them.
+     * </p>
+     *
+     * @param patch
+     *        The patch to remap.
+     * @param startLine
+     *        The zero-based index of the line at which the insertion began;
+     *        must not be negative.
+     * @param numLines
+     *        The number of lines inserted; must not be negative.
+     *
+     * @return The remapped patch.
+     */
+    public static HunkTable remapForInsertedLines(final HunkTable patch, final int startLine, final int numLines) {
+        assert startLine >= 0;
+        assert numLines >= 0;
+
+        if (numLines == 0) {
+            return patch;
+        }
+
+        final HunkTable.Builder builder = new HunkTable.Builder();
+        boolean insertedLinesIncluded = false;
+        for (int hunkIndex = 0; hunkIndex < patch.getHunkCount(); ++hunkIndex) {
+            final int position = patch.getRevisedPosition(hunkIndex);
+            final int size = patch.getRevisedSize(hunkIndex);
+            final int newPosition;
+            final int newSize;
+            if ((size > 0) && (position <= startLine) && (startLine < (position + size))) {
+                newPosition = position;
+                newSize = size + numLines;
+                insertedLinesIncluded = true;
+            } else if (position > startLine) {
+                newPosition = position + numLines;
+                newSize = size;
+            } else {
+                newPosition = position;
+                newSize = size;
+            }
+            builder.addHunk(patch.getOriginalPosition(hunkIndex), patch.getOriginalSize(hunkIndex), newPosition,
+                    newSize);
+        }
+
+        if (!insertedLinesIncluded) {
+            final int firstInsertedLine = startLine + 1;
+            builder.addHunk(getOriginalPositionForRevisedLine(patch, firstInsertedLine), 0, firstInsertedLine,
+                    numLines);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Remaps the specified patch after lines have been removed from the
+     * buffer.
+     *
+     * <p>
+     * Lines following the removed lines are shifted up by the number of removed
+     * lines. Chunks that overlap the removed lines are truncated. If any of
+     * the removed lines were not provisionally or previously marked as added,
+     * the removal is provisionally marked below the first line of the removal.
+     * </p>
+     *
+     * @param patch
+     *        The patch to remap.
+     * @param startLine
+     *        The zero-based index of the line at which the removal began; must
+     *        not be negative.
+     * @param numLines
+     *        The number of lines removed; must not be negative.
+     *
+     * @return The remapped patch.
+     */
+    public static HunkTable remapForRemovedLines(final HunkTable patch, final int startLine, final int numLines) {
+        assert startLine >= 0;
+        assert numLines >= 0;
+
+        if (numLines == 0) {
+            return patch;
+        }
+
+        final int firstRemovedLine = startLine + 1;
+        final int lastRemovedLine = startLine + numLines;
+        final HunkTable.Builder builder = new HunkTable.Builder();
+        int removedAddedLineCount = 0;
+        int removedDeltaLineCount = 0;
+        boolean firstRemovedLineCovered = false;
+        for (int hunkIndex = 0; hunkIndex < patch.getHunkCount(); ++hunkIndex) {
+            final int position = patch.getRevisedPosition(hunkIndex);
+            final int size = patch.getRevisedSize(hunkIndex);
+            final int newPosition;
+            if (position < firstRemovedLine) {
+                newPosition = position;
+            } else if (position > lastRemovedLine) {
+                newPosition = position - numLines;
+            } else {
+                newPosition = firstRemovedLine;
+            }
+
+            final int overlap = Math.max(0,
+                    (Math.min(position + size - 1, lastRemovedLine) - Math.max(position, firstRemovedLine)) + 1);
+            if (patch.isContentAdded(hunkIndex)) {
+                removedAddedLineCount += overlap;
+            }
+            removedDeltaLineCount += overlap;
+
+            final int newSize = size - overlap;
+            if ((size > 0) && (newSize == 0)) {
+                continue;
+            }
+
+            if ((newPosition <= firstRemovedLine) && (firstRemovedLine < (newPosition + Math.max(newSize, 1)))) {
+                firstRemovedLineCovered = true;
+            }
+
+            builder.addHunk(patch.getOriginalPosition(hunkIndex), patch.getOriginalSize(hunkIndex), newPosition,
+                    newSize);
+        }
+
+        final boolean unchangedLinesRemoved = removedDeltaLineCount < numLines;
+        final boolean changedLinesRemoved = (removedDeltaLineCount - removedAddedLineCount) > 0;
+        if ((unchangedLinesRemoved || changedLinesRemoved) && !firstRemovedLineCovered) {
+            final int removedLineCount = numLines - removedAddedLineCount;
+            builder.addHunk(getOriginalPositionForRevisedLine(patch, firstRemovedLine), removedLineCount,
+                    firstRemovedLine, 0);
+        }
+
+        return builder.build();
+    }
+}
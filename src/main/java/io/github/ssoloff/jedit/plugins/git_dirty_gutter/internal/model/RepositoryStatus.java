@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A snapshot of the dirty files within a Git repository working tree.
+ *
+ * <p>
+ * The status of any file can be queried in constant time. The totals over
+ * all dirty files are computed once when the snapshot is created. Instances
+ * of this class are immutable.
+ * </p>
+ */
+public final class RepositoryStatus {
+    private static final char GIT_PATH_SEPARATOR = '/';
+
+    private final int addedLineCount;
+    private final Map<String, FileStatus> fileStatuses;
+    private final int removedLineCount;
+    private final Path repoRootPath;
+
+    /**
+     * Initializes a new instance of the {@code RepositoryStatus} class.
+     *
+     * @param repoRootPath
+     *        The path to the root of the repository working tree.
+     * @param fileStatuses
+     *        The status of each dirty file keyed by its repository-relative
+     *        name, as reported by Git; the map is owned by the new instance.
+     */
+    RepositoryStatus(final Path repoRootPath, final Map<String, FileStatus> fileStatuses) {
+        this.fileStatuses = fileStatuses;
+        this.repoRootPath = repoRootPath;
+
+        int totalAddedLineCount = 0;
+        int totalRemovedLineCount = 0;
+        for (final FileStatus fileStatus : fileStatuses.values()) {
+            totalAddedLineCount += Math.max(fileStatus.getAddedLineCount(), 0);
+            totalRemovedLineCount += Math.max(fileStatus.getRemovedLineCount(), 0);
+        }
+        addedLineCount = totalAddedLineCount;
+        removedLineCount = totalRemovedLineCount;
+    }
+
+    /**
+     * Creates a status of the specified repository in which no file is dirty.
+     *
+     * @param repoRootPath
+     *        The path to the root of the repository working tree.
+     *
+     * @return A status of the specified repository in which no file is dirty.
+     */
+    static RepositoryStatus empty(final Path repoRootPath) {
+        return new RepositoryStatus(repoRootPath, new HashMap<String, FileStatus>());
+    }
+
+    /**
+     * Gets the total number of lines added to the dirty files since the HEAD
+     * revision.
+     *
+     * @return The total number of lines added to the dirty files since the
+     *         HEAD revision; files whose line counts are unknown are not
+     *         included.
+     */
+    public int getAddedLineCount() {
+        return addedLineCount;
+    }
+
+    /**
+     * Gets the number of dirty files.
+     *
+     * @return The number of dirty files, including untracked files.
+     */
+    public int getDirtyFileCount() {
+        return fileStatuses.size();
+    }
+
+    /**
+     * Gets the paths of the dirty files.
+     *
+     * @return The paths of the dirty files, including untracked files.
+     */
+    public Collection<Path> getDirtyFilePaths() {
+        final List<Path> filePaths = new ArrayList<>(fileStatuses.size());
+        for (final String name : fileStatuses.keySet()) {
+            filePaths.add(repoRootPath.resolve(name));
+        }
+        return filePaths;
+    }
+
+    /**
+     * Gets the status of the specified file.
+     *
+     * @param filePath
+     *        The path to the file whose status is desired.
+     *
+     * @return The status of the specified file or {@code null} if the file is
+     *         clean, ignored, or not within the repository working tree.
+     */
+    @Nullable
+    public FileStatus getFileStatus(final Path filePath) {
+        final String name = getRepoRelativeName(repoRootPath, filePath);
+        return (name != null) ? fileStatuses.get(name) : null;
+    }
+
+    /**
+     * Gets the status of each dirty file.
+     *
+     * @return An unmodifiable map of the status of each dirty file keyed by
+     *         its repository-relative name.
+     */
+    Map<String, FileStatus> getFileStatuses() {
+        return Collections.unmodifiableMap(fileStatuses);
+    }
+
+    /**
+     * Gets the total number of lines removed from the dirty files since the
+     * HEAD revision.
+     *
+     * @return The total number of lines removed from the dirty files since the
+     *         HEAD revision; files whose line counts are unknown are not
+     *         included.
+     */
+    public int getRemovedLineCount() {
+        return removedLineCount;
+    }
+
+    /**
+     * Gets the name of the specified file relative to the specified
+     * repository root in the form reported by Git.
+     *
+     * @param repoRootPath
+     *        The path to the root of the repository working tree.
+     * @param filePath
+     *        The path to the file.
+     *
+     * @return The repository-relative name of the file using {@code /} as the
+     *         separator or {@code null} if the file is not within the
+     *         repository working tree.
+     */
+    @Nullable
+    static String getRepoRelativeName(final Path repoRootPath, final Path filePath) {
+        final Path absoluteFilePath = filePath.toAbsolutePath().normalize();
+        if (!absoluteFilePath.startsWith(repoRootPath) || absoluteFilePath.equals(repoRootPath)) {
+            return null;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        for (final Path element : repoRootPath.relativize(absoluteFilePath)) {
+            if (sb.length() > 0) {
+                sb.append(GIT_PATH_SEPARATOR);
+            }
+            sb.append(element.toString());
+        }
+        final String name = sb.toString();
+        assert name != null;
+        return name;
+    }
+
+    /**
+     * Gets the path to the root of the repository working tree.
+     *
+     * @return The path to the root of the repository working tree.
+     */
+    public Path getRepoRootPath() {
+        return repoRootPath;
+    }
+
+    /**
+     * Creates a copy of this status in which the status of the specified files
+     * has been replaced.
+     *
+     * @param refreshedNames
+     *        The repository-relative names of the files whose status was
+     *        refreshed.
+     * @param refreshedFileStatuses
+     *        The refreshed status of each of the specified files that is
+     *        dirty keyed by its repository-relative name; files that are not
+     *        present are clean.
+     *
+     * @return A copy of this status in which the status of the specified
+     *         files has been replaced.
+     */
+    RepositoryStatus withFileStatuses(final Collection<String> refreshedNames,
+            final Map<String, FileStatus> refreshedFileStatuses) {
+        final Map<String, FileStatus> newFileStatuses = new HashMap<>(fileStatuses);
+        newFileStatuses.keySet().removeAll(refreshedNames);
+        newFileStatuses.putAll(refreshedFileStatuses);
+        return new RepositoryStatus(repoRootPath, newFileStatuses);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitException;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Maintains the status of the dirty files within a Git repository working
+ * tree, including files that are not open in any buffer.
+ *
+ * <p>
+ * The status of the whole working tree is read with one
+ * {@code git status --porcelain=v2 -z} and one
+ * {@code git diff --numstat -z HEAD}. Afterwards, individual files may be
+ * invalidated (for example, when a buffer is saved) so that the next refresh
+ * runs the same two commands restricted to those files only. The latest
+ * status is published as an immutable {@link RepositoryStatus}, so readers
+ * never block and may query any file in constant time.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class RepositoryStatusIndex {
+    private static final int MAX_INCREMENTAL_REFRESH_FILE_COUNT = 64;
+
+    private boolean fullRefreshPending = true; // guarded by this
+    private final IGitRunnerFactory gitRunnerFactory;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ILog log;
+    private final Set<String> pendingNames = new HashSet<>(); // guarded by this
+    private final Object refreshLock = new Object();
+    private final Path repoRootPath;
+    private volatile RepositoryStatus status;
+
+    /**
+     * Initializes a new instance of the {@code RepositoryStatusIndex} class.
+     *
+     * <p>
+     * No file is reported as dirty until the index is first refreshed.
+     * </p>
+     *
+     * @param repoRootPath
+     *        The path to the root of the repository working tree.
+     * @param gitRunnerFactory
+     *        The Git runner factory.
+     * @param log
+     *        The application log.
+     */
+    public RepositoryStatusIndex(final Path repoRootPath, final IGitRunnerFactory gitRunnerFactory,
+            final ILog log) {
+        this.gitRunnerFactory = gitRunnerFactory;
+        this.log = log;
+        this.repoRootPath = repoRootPath;
+        status = RepositoryStatus.empty(repoRootPath);
+    }
+
+    /**
+     * Adds a listener that is notified whenever the status changes.
+     *
+     * <p>
+     * The listener is invoked on the thread that refreshed the index.
+     * </p>
+     *
+     * @param listener
+     *        The listener to add.
+     */
+    public void addListener(final Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gets the path to the root of the repository working tree.
+     *
+     * @return The path to the root of the repository working tree.
+     */
+    public Path getRepoRootPath() {
+        return repoRootPath;
+    }
+
+    /**
+     * Gets the status of the repository as of the most recent refresh.
+     *
+     * @return The status of the repository as of the most recent refresh.
+     */
+    public RepositoryStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Invalidates the status of all files so that the next refresh reads the
+     * status of the whole working tree.
+     */
+    public synchronized void invalidate() {
+        fullRefreshPending = true;
+        pendingNames.clear();
+    }
+
+    /**
+     * Invalidates the status of the specified file so that the next refresh
+     * reads its status.
+     *
+     * @param filePath
+     *        The path to the file whose status is to be invalidated; files
+     *        that are not within the repository working tree are ignored.
+     */
+    public void invalidateFile(final Path filePath) {
+        final String name = RepositoryStatus.getRepoRelativeName(repoRootPath, filePath);
+        if (name == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (fullRefreshPending) {
+                return;
+            }
+
+            pendingNames.add(name);
+            if (pendingNames.size() > MAX_INCREMENTAL_REFRESH_FILE_COUNT) {
+                invalidate();
+            }
+        }
+    }
+
+    private void notifyListeners() {
+        for (final Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Reads the status of the invalidated files.
+     *
+     * <p>
+     * If the status of all files was invalidated, the status of the whole
+     * working tree is read; otherwise only the status of the individual files
+     * that were invalidated is read. If nothing was invalidated, Git is not
+     * run at all. If Git fails, the error is logged and the status of all
+     * files is invalidated so that the next refresh starts over.
+     * </p>
+     *
+     * @return {@code true} if the status changed; otherwise {@code false}.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for Git to exit.
+     */
+    public boolean refresh() throws InterruptedException {
+        synchronized (refreshLock) {
+            final boolean fullRefresh;
+            final Collection<String> names;
+            synchronized (this) {
+                if (!fullRefreshPending && pendingNames.isEmpty()) {
+                    return false;
+                }
+
+                fullRefresh = fullRefreshPending;
+                names = fullRefresh ? Collections.<String>emptyList() : new ArrayList<>(pendingNames);
+                fullRefreshPending = false;
+                pendingNames.clear();
+            }
+
+            boolean refreshed = false;
+            try {
+                final long startTime = System.nanoTime();
+                final GitCommands gitCommands = new GitCommands(gitRunnerFactory.createGitRunner(repoRootPath));
+                final Map<String, FileStatus> fileStatuses = gitCommands.getWorkingTreeStatus(names);
+                MetricsRegistry.getDefault()
+                        .histogram(fullRefresh ? "repositoryStatus.fullRefresh" //$NON-NLS-1$
+                                : "repositoryStatus.incrementalRefresh") //$NON-NLS-1$
+                        .recordSince(startTime);
+                refreshed = true;
+
+                final RepositoryStatus oldStatus = status;
+                final RepositoryStatus newStatus = fullRefresh ? new RepositoryStatus(repoRootPath, fileStatuses)
+                        : oldStatus.withFileStatuses(names, fileStatuses);
+                if (newStatus.getFileStatuses().equals(oldStatus.getFileStatuses())) {
+                    return false;
+                }
+
+                status = newStatus;
+            } catch (final GitException | IOException e) {
+                log.logError(this,
+                        String.format("failed to read status of repository (%s)", repoRootPath), e); //$NON-NLS-1$
+                return false;
+            } finally {
+                if (!refreshed) {
+                    invalidate();
+                }
+            }
+        }
+
+        notifyListeners();
+        return true;
+    }
+
+    /**
+     * Removes a listener that was previously added.
+     *
+     * @param listener
+     *        The listener to remove.
+     */
+    public void removeListener(final Runnable listener) {
+        listeners.remove(listener);
+    }
+}
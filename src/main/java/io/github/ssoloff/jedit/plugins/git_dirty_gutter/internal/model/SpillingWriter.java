@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A writer that keeps the content written to it in memory until its size
+ * exceeds a threshold, after which all content is written to a new spill file
+ * encoded as UTF-8.
+ *
+ * <p>
+ * When the maximum size of the content is known in advance, the in-memory
+ * buffer is allocated once at that size, and content whose maximum size
+ * exceeds the threshold is written to the spill file from the start.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+final class SpillingWriter extends Writer {
+    private final StringBuilder content;
+    private final Path directoryPath;
+    private final boolean spillFirstWrite;
+    @Nullable
+    private Writer spillFileWriter = null;
+    @Nullable
+    private Path spillFilePath = null;
+    private final long thresholdInCharacters;
+
+    /**
+     * Initializes a new instance of the {@code SpillingWriter} class.
+     *
+     * @param directoryPath
+     *        The path to the directory in which the spill file is created.
+     * @param thresholdInCharacters
+     *        The size (in characters) the content must exceed to be written to
+     *        a spill file; must not be negative.
+     */
+    SpillingWriter(final Path directoryPath, final long thresholdInCharacters) {
+        assert thresholdInCharacters >= 0L;
+
+        this.content = new StringBuilder();
+        this.directoryPath = directoryPath;
+        this.spillFirstWrite = false;
+        this.thresholdInCharacters = thresholdInCharacters;
+    }
+
+    /**
+     * Initializes a new instance of the {@code SpillingWriter} class for
+     * content of a known maximum size.
+     *
+     * @param directoryPath
+     *        The path to the directory in which the spill file is created.
+     * @param thresholdInCharacters
+     *        The size (in characters) the content must exceed to be written to
+     *        a spill file; must not be negative.
+     * @param expectedSizeInCharacters
+     *        The maximum size (in characters) of the content; must not be
+     *        negative.
+     */
+    SpillingWriter(final Path directoryPath, final long thresholdInCharacters, final int expectedSizeInCharacters) {
+        assert thresholdInCharacters >= 0L;
+        assert expectedSizeInCharacters >= 0;
+
+        this.spillFirstWrite = expectedSizeInCharacters > thresholdInCharacters;
+        this.content = new StringBuilder(spillFirstWrite ? 0 : expectedSizeInCharacters);
+        this.directoryPath = directoryPath;
+        this.thresholdInCharacters = thresholdInCharacters;
+    }
+
+    @Override
+    public void close() throws IOException {
+        final Writer writer = spillFileWriter;
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Closes the writer and deletes the spill file, if any.
+     *
+     * <p>
+     * This method should be invoked when the content will not be used, for
+     * example, because writing it failed.
+     * </p>
+     */
+    void discard() {
+        try {
+            close();
+            final Path filePath = spillFilePath;
+            if (filePath != null) {
+                Files.deleteIfExists(filePath);
+            }
+        } catch (final IOException e) {
+            // the spill file will be deleted with its directory
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        final Writer writer = spillFileWriter;
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Gets the path to the spill file.
+     *
+     * @return The path to the spill file or {@code null} if the content has
+     *         not exceeded the threshold.
+     */
+    @Nullable
+    Path getSpillFilePath() {
+        return spillFilePath;
+    }
+
+    private Writer spill() throws IOException {
+        final Path filePath = Files.createTempFile(directoryPath, "head-", ".blob"); //$NON-NLS-1$ //$NON-NLS-2$
+        spillFilePath = filePath;
+        final Writer writer = new BufferedWriter(Files.newBufferedWriter(filePath, StandardCharsets.UTF_8));
+        spillFileWriter = writer;
+        writer.append(content);
+        content.setLength(0);
+        content.trimToSize();
+        return writer;
+    }
+
+    /**
+     * Gets the content written to the writer.
+     *
+     * @return The content written to the writer; empty if the content has been
+     *         written to a spill file.
+     */
+    @Override
+    public String toString() {
+        return content.toString();
+    }
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        Writer writer = spillFileWriter;
+        if ((writer == null) && (spillFirstWrite || ((content.length() + (long) len) > thresholdInCharacters))) {
+            writer = spill();
+        }
+
+        if (writer != null) {
+            writer.write(cbuf, off, len);
+        } else {
+            content.append(cbuf, off, len);
+        }
+    }
+}
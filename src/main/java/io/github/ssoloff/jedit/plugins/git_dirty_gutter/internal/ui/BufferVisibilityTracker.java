@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.SwingUtilities;
+import org.eclipse.jdt.annotation.Nullable;
+import org.gjt.sp.jedit.Buffer;
+import org.gjt.sp.jedit.EBComponent;
+import org.gjt.sp.jedit.EBMessage;
+import org.gjt.sp.jedit.EditPane;
+import org.gjt.sp.jedit.View;
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.msg.EditPaneUpdate;
+import org.gjt.sp.jedit.msg.ViewUpdate;
+
+/**
+ * Tracks which buffers are shown in at least one edit pane and notifies
+ * listeners when a buffer is shown or hidden.
+ *
+ * <p>
+ * The tracker must be added to the EditBus to receive edit pane and view
+ * events. The methods of this class must be invoked on the event dispatch
+ * thread.
+ * </p>
+ */
+final class BufferVisibilityTracker implements EBComponent {
+    private final Map<Buffer, IBufferVisibilityListener> listeners = new HashMap<>();
+    private Set<Buffer> visibleBuffers = new HashSet<>();
+
+    /**
+     * Adds a listener for changes to the visibility of the specified buffer.
+     *
+     * <p>
+     * Any listener previously added for the buffer is replaced.
+     * </p>
+     *
+     * @param buffer
+     *        The buffer whose visibility is to be tracked.
+     * @param listener
+     *        The listener to add.
+     *
+     * @return {@code true} if the buffer is currently shown in at least one
+     *         edit pane; otherwise {@code false}.
+     */
+    boolean addListener(final Buffer buffer, final IBufferVisibilityListener listener) {
+        assert SwingUtilities.isEventDispatchThread();
+
+        listeners.put(buffer, listener);
+        visibleBuffers = getVisibleBuffers();
+        return visibleBuffers.contains(buffer);
+    }
+
+    /**
+     * Gets the buffers that are currently shown in at least one edit pane.
+     *
+     * @return The buffers that are currently shown in at least one edit pane.
+     */
+    static Set<Buffer> getVisibleBuffers() {
+        assert SwingUtilities.isEventDispatchThread();
+
+        return getVisibleBuffers(null, null);
+    }
+
+    private static Set<Buffer> getVisibleBuffers(@Nullable final View closingView,
+            @Nullable final EditPane closingEditPane) {
+        final Set<Buffer> buffers = new HashSet<>();
+        final View[] views = jEdit.getViews();
+        if (views == null) {
+            return buffers;
+        }
+
+        for (final View view : views) {
+            if (view == closingView) {
+                continue;
+            }
+
+            for (final EditPane editPane : view.getEditPanes()) {
+                final Buffer buffer = editPane.getBuffer();
+                if ((editPane != closingEditPane) && (buffer != null)) {
+                    buffers.add(buffer);
+                }
+            }
+        }
+        return buffers;
+    }
+
+    @Override
+    public void handleMessage(final EBMessage message) {
+        if (message instanceof EditPaneUpdate) {
+            final EditPaneUpdate editPaneUpdate = (EditPaneUpdate) message;
+            final Object what = editPaneUpdate.getWhat();
+            if (what == EditPaneUpdate.DESTROYED) {
+                update(null, editPaneUpdate.getEditPane());
+            } else if ((what == EditPaneUpdate.CREATED) || (what == EditPaneUpdate.BUFFER_CHANGED)) {
+                update(null, null);
+            }
+        } else if (message instanceof ViewUpdate) {
+            final ViewUpdate viewUpdate = (ViewUpdate) message;
+            final Object what = viewUpdate.getWhat();
+            if (what == ViewUpdate.CLOSED) {
+                update(viewUpdate.getView(), null);
+            } else if ((what == ViewUpdate.CREATED) || (what == ViewUpdate.EDIT_PANE_CHANGED)) {
+                update(null, null);
+            }
+        }
+    }
+
+    /**
+     * Removes the listener for changes to the visibility of the specified
+     * buffer.
+     *
+     * @param buffer
+     *        The buffer whose visibility is no longer to be tracked.
+     */
+    void removeListener(final Buffer buffer) {
+        assert SwingUtilities.isEventDispatchThread();
+
+        listeners.remove(buffer);
+    }
+
+    private void update(@Nullable final View closingView, @Nullable final EditPane closingEditPane) {
+        assert SwingUtilities.isEventDispatchThread();
+
+        final Set<Buffer> oldVisibleBuffers = visibleBuffers;
+        final Set<Buffer> newVisibleBuffers = getVisibleBuffers(closingView, closingEditPane);
+        visibleBuffers = newVisibleBuffers;
+
+        // copy listeners because a listener may detach its buffer
+        for (final Map.Entry<Buffer, IBufferVisibilityListener> entry : new HashMap<>(listeners).entrySet()) {
+            final boolean visible = newVisibleBuffers.contains(entry.getKey());
+            if (visible != oldVisibleBuffers.contains(entry.getKey())) {
+                entry.getValue().bufferVisibilityChanged(visible);
+            }
+        }
+    }
+}
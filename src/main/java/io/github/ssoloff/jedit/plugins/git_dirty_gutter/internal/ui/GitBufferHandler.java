@@ -18,35 +18,100 @@
 
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
 
-import difflib.Patch;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.BufferAnalyzer;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.BufferSnapshot;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.DirtyMarkType;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.GitRepositories;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HunkTable;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.PatchAnalyzer;
-import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AutoResetEvent;
-import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.ProcessRunner;
-import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunner;
-import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunner;
-import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.PatchRemapper;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.FlightRecorder;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.HeapPressureMonitor;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.IRefreshTask;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.RefreshScheduler;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.PhaseTrace;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.SwingUtilities;
-import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * Provides the underlying implementation of {@code BufferHandler} for the Git
  * dirty line provider.
+ *
+ * <p>
+ * The latency from an edit to the first repaint of the gutter with the exact
+ * patch that includes the edit is traced (see {@link PhaseTrace}) and recorded
+ * in the default {@link MetricsRegistry} as {@code editLatency.total} and a
+ * breakdown by phase:
+ * </p>
+ *
+ * <ul>
+ * <li>{@code editLatency.queueWait}: debouncing the edit and waiting for a
+ * refresh thread;</li>
+ * <li>{@code editLatency.snapshot}: taking a snapshot of the buffer;</li>
+ * <li>{@code editLatency.git}: reading the HEAD revision;</li>
+ * <li>{@code editLatency.diff}: computing the patch;</li>
+ * <li>{@code editLatency.edtHandOff}: waiting for the event dispatch thread;
+ * and</li>
+ * <li>{@code editLatency.paint}: waiting for the gutter to be repainted.</li>
+ * </ul>
+ *
+ * <p>
+ * A burst of edits served by the same refresh is traced from its first edit.
+ * </p>
+ *
+ * <p>
+ * While the buffer is visible, its patch and HEAD revision content are always
+ * retained. Once the buffer has been hidden for the background idle time, or
+ * immediately if it is hidden when the heap is under pressure, they are
+ * released and rebuilt by a refresh when the buffer is shown again. Released
+ * buffers are counted in the default {@link MetricsRegistry}
+ * ({@code bufferState.released}).
+ * </p>
  */
 @SuppressWarnings("PMD.TooManyMethods")
 final class GitBufferHandler {
+    // probes whether the event type is enabled so that no event is allocated for each patch while it is not
+    private static final IPatchPublishedEvent PATCH_PUBLISHED_EVENT_PROBE = FlightRecorder.isAvailable()
+            ? new PatchPublishedEvent() : IPatchPublishedEvent.DISABLED;
+
     private final DirtyMarkPainterSpecificationFactory dirtyMarkPainterSpecificationFactory;
     private final IGitBufferHandlerContext context;
+    private final Runnable heapPressureListener = new Runnable() {
+        @Override
+        public void run() {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (!visible && (patchWorkerRegistration != null)) {
+                        releaseState();
+                    }
+                }
+            });
+        }
+    };
+    private final HeapPressureMonitor heapPressureMonitor;
+    private final Timer idleTimer;
     private final List<IGitBufferHandlerListener> listeners = new ArrayList<>();
-    private Patch patch = new Patch();
+    private HunkTable patch = HunkTable.EMPTY;
+    private PatchAnalyzer patchAnalyzer = new PatchAnalyzer(patch);
+    @Nullable
+    private PhaseTrace paintTrace = null;
     private final PatchWorker patchWorker = new PatchWorker();
+    @Nullable
+    private RefreshScheduler.Registration patchWorkerRegistration = null;
+    private boolean stateReleased = false;
+    private boolean visible = true;
 
     /**
      * Initializes a new instance of the {@code GitBufferHandler} class.
@@ -60,6 +125,16 @@ final class GitBufferHandler {
         this.context = context;
         this.dirtyMarkPainterSpecificationFactory = new DirtyMarkPainterSpecificationFactory(
                 context.getDirtyMarkPainterSpecificationFactoryContext());
+        this.heapPressureMonitor = context.getHeapPressureMonitor();
+        this.idleTimer = new Timer(context.getBackgroundBufferIdleTimeInMilliseconds(), new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent event) {
+                if (!visible && (patchWorkerRegistration != null)) {
+                    releaseState();
+                }
+            }
+        });
+        this.idleTimer.setRepeats(false);
     }
 
     /**
@@ -74,8 +149,55 @@ final class GitBufferHandler {
         listeners.add(listener);
     }
 
+    /**
+     * Invoked when lines have been inserted into the buffer.
+     *
+     * <p>
+     * The current patch is optimistically remapped to account for the inserted
+     * lines, and a patch update is requested to replace it with the exact
+     * patch. Any patch update in progress is abandoned.
+     * </p>
+     *
+     * @param startLine
+     *        The zero-based index of the line at which the insertion began.
+     * @param numLines
+     *        The number of lines inserted.
+     */
+    void contentInserted(final int startLine, final int numLines) {
+        assert SwingUtilities.isEventDispatchThread();
+
+        if (numLines > 0) {
+            setPatch(PatchRemapper.remapForInsertedLines(patch, startLine, numLines), false, null);
+        }
+        patchWorker.traceEdit();
+        supersedePatch();
+    }
+
+    /**
+     * Invoked when lines have been removed from the buffer.
+     *
+     * <p>
+     * The current patch is optimistically remapped to account for the removed
+     * lines, and a patch update is requested to replace it with the exact
+     * patch. Any patch update in progress is abandoned.
+     * </p>
+     *
+     * @param startLine
+     *        The zero-based index of the line at which the removal began.
+     * @param numLines
+     *        The number of lines removed.
+     */
+    void contentRemoved(final int startLine, final int numLines) {
+        assert SwingUtilities.isEventDispatchThread();
+
+        if (numLines > 0) {
+            setPatch(PatchRemapper.remapForRemovedLines(patch, startLine, numLines), false, null);
+        }
+        patchWorker.traceEdit();
+        supersedePatch();
+    }
+
     private DirtyMarkType getDirtyMarkForLine(final int lineIndex) {
-        final PatchAnalyzer patchAnalyzer = new PatchAnalyzer(patch);
         return patchAnalyzer.getDirtyMarkForLine(lineIndex);
     }
 
@@ -91,16 +213,49 @@ final class GitBufferHandler {
     DirtyMarkPainterSpecification getDirtyMarkPainterSpecificationForLine(final int lineIndex) {
         assert SwingUtilities.isEventDispatchThread();
 
+        final PhaseTrace trace = paintTrace;
+        if (trace != null) {
+            paintTrace = null;
+            trace.mark("paint"); //$NON-NLS-1$
+            trace.complete();
+        }
+
         final DirtyMarkType dirtyMarkType = getDirtyMarkForLine(lineIndex);
         return dirtyMarkPainterSpecificationFactory.createDirtyMarkPainterSpecification(dirtyMarkType);
     }
 
+    private static IPatchPublishedEvent newPatchPublishedEvent() {
+        return PATCH_PUBLISHED_EVENT_PROBE.isEnabled() ? new PatchPublishedEvent() : IPatchPublishedEvent.DISABLED;
+    }
+
     private void raisePatchUpdatedEvent() {
         for (final IGitBufferHandlerListener listener : listeners) {
             listener.patchUpdated();
         }
     }
 
+    // releases the patch and HEAD revision content of the buffer until it is shown again
+    private void releaseState() {
+        assert SwingUtilities.isEventDispatchThread();
+
+        idleTimer.stop();
+        if (stateReleased) {
+            return;
+        }
+
+        stateReleased = true;
+        patch = HunkTable.EMPTY;
+        patchAnalyzer = new PatchAnalyzer(patch);
+        patchWorker.releaseHeadRevision();
+        MetricsRegistry.getDefault().counter("bufferState.released").increment(); //$NON-NLS-1$
+
+        // the request is deferred until the buffer is shown again
+        final RefreshScheduler.Registration registration = patchWorkerRegistration;
+        if (registration != null) {
+            registration.requestRefresh();
+        }
+    }
+
     /**
      * Removes the specified listener from the buffer handler.
      *
@@ -113,11 +268,60 @@ final class GitBufferHandler {
         listeners.remove(listener);
     }
 
-    private void setPatch(final Patch patch) {
+    private void setPatch(final HunkTable patch, final boolean exact, @Nullable final PhaseTrace trace) {
         assert SwingUtilities.isEventDispatchThread();
 
+        final IPatchPublishedEvent event = newPatchPublishedEvent();
+        event.begin();
         this.patch = patch;
+        patchAnalyzer = new PatchAnalyzer(patch);
+        if (paintTrace == null) {
+            // an unpainted trace started earlier and is served by this patch
+            paintTrace = trace;
+        }
         raisePatchUpdatedEvent();
+        event.end();
+        if (event.shouldCommit()) {
+            final String filePath = context.getBuffer().getFilePath().toString();
+            assert filePath != null;
+            event.commit(patch.getHunkCount(), exact, filePath, (trace != null) ? trace.getId() : 0L);
+        }
+    }
+
+    /**
+     * Sets whether the buffer is shown in at least one edit pane.
+     *
+     * <p>
+     * While the buffer is hidden, the repository is not polled and patch
+     * updates are deferred. When the buffer is shown again, the patch is
+     * brought up to date immediately, which also rebuilds any state released
+     * while the buffer was hidden.
+     * </p>
+     *
+     * @param visible
+     *        {@code true} if the buffer is shown in at least one edit pane;
+     *        otherwise {@code false}.
+     */
+    void setVisible(final boolean visible) {
+        assert SwingUtilities.isEventDispatchThread();
+
+        this.visible = visible;
+        if (!visible) {
+            // the gutter is not painted while the buffer is hidden
+            paintTrace = null;
+            idleTimer.restart();
+        } else {
+            idleTimer.stop();
+            stateReleased = false;
+        }
+        final RefreshScheduler.Registration registration = patchWorkerRegistration;
+        if (registration != null) {
+            if (visible) {
+                registration.resume();
+            } else {
+                registration.suspend();
+            }
+        }
     }
 
     /**
@@ -131,11 +335,22 @@ final class GitBufferHandler {
         assert SwingUtilities.isEventDispatchThread();
 
         startPatchWorker();
+        heapPressureMonitor.addListener(heapPressureListener);
         updatePatch();
     }
 
     private void startPatchWorker() {
-        patchWorker.execute();
+        final RefreshScheduler.Registration registration = context.getRefreshScheduler().register(patchWorker,
+                new ISupplier<Integer>() {
+                    @Override
+                    public Integer get() {
+                        return Integer.valueOf(patchWorker.getPollTimeInMilliseconds());
+                    }
+                });
+        if (!visible) {
+            registration.suspend();
+        }
+        patchWorkerRegistration = registration;
     }
 
     /**
@@ -148,11 +363,25 @@ final class GitBufferHandler {
     void stop() {
         assert SwingUtilities.isEventDispatchThread();
 
+        heapPressureMonitor.removeListener(heapPressureListener);
+        idleTimer.stop();
         stopPatchWorker();
+        patchWorker.stop();
     }
 
     private void stopPatchWorker() {
-        patchWorker.cancel(true);
+        final RefreshScheduler.Registration registration = patchWorkerRegistration;
+        if (registration != null) {
+            registration.cancel();
+            patchWorkerRegistration = null;
+        }
+    }
+
+    private void supersedePatch() {
+        final RefreshScheduler.Registration registration = patchWorkerRegistration;
+        if (registration != null) {
+            registration.supersede();
+        }
     }
 
     /**
@@ -166,61 +395,250 @@ final class GitBufferHandler {
     void updatePatch() {
         assert SwingUtilities.isEventDispatchThread();
 
-        patchWorker.updatePatch();
+        final RefreshScheduler.Registration registration = patchWorkerRegistration;
+        if (registration != null) {
+            registration.requestRefresh();
+        }
     }
 
     /**
-     * A background task that is responsible for updating the patch associated
-     * with the buffer when requested or when a change in the repository is
-     * detected.
+     * A task run by the shared refresh scheduler that is responsible for
+     * updating the patch associated with the buffer when requested or when a
+     * change in the repository is detected.
+     *
+     * <p>
+     * The scheduler never runs the task concurrently with itself, so its state
+     * need not be synchronized.
+     * </p>
+     *
+     * <p>
+     * Each patch is tagged with the edit sequence number of the buffer snapshot
+     * from which it was created. A patch created from a snapshot that has since
+     * been edited is discarded because the optimistically-remapped patch is a
+     * better approximation; a newer update will already have been requested.
+     * The number of patches applied and discarded are counted in the default
+     * {@link MetricsRegistry} ({@code patches.published} and
+     * {@code patches.discarded}).
+     * </p>
+     *
+     * <p>
+     * The repository is polled using the poll interval shared by all buffers
+     * within the same repository. Each poll reports its outcome and Git
+     * latency to the shared interval, and a reset of the shared interval
+     * reschedules the next poll.
+     * </p>
      */
     @SuppressWarnings("synthetic-access")
-    private final class PatchWorker extends SwingWorker<Void, Patch> {
-        private final AutoResetEvent updatePatchEvent = new AutoResetEvent();
+    private final class PatchWorker implements IRefreshTask {
+        @Nullable
+        private volatile BufferAnalyzer bufferAnalyzer = null;
+        private final AtomicReference<String> blobIdRef = new AtomicReference<>();
+        private final AtomicReference<PhaseTrace> editTraceRef = new AtomicReference<>();
+        private final AtomicReference<PendingPatch> pendingPatchRef = new AtomicReference<>();
+        @Nullable
+        private volatile AdaptivePollInterval pollInterval = null;
+        private final Runnable pollRescheduler = new Runnable() {
+            @Override
+            public void run() {
+                final RefreshScheduler.Registration registration = patchWorkerRegistration;
+                if (registration != null) {
+                    registration.reschedulePoll();
+                }
+            }
+        };
+        private volatile boolean stopped = false;
+        private final Runnable pendingPatchProcessor = new Runnable() {
+            @Override
+            public void run() {
+                process();
+            }
+        };
 
         PatchWorker() {
             // do nothing
         }
 
         private BufferAnalyzer createBufferAnalyzer() {
-            final IGitRunnerFactory gitRunnerFactory = new IGitRunnerFactory() {
-                @Override
-                public IGitRunner createGitRunner(final Path workingDirPath) {
-                    return new GitRunner(new ProcessRunner(), workingDirPath, context.getGitProgramPathSupplier());
+            return new BufferAnalyzer(context.getBuffer(), context.getGitRunnerFactory(), context.getLog(),
+                    context.getHeadBlobCache(), context.getHeadBlobSpiller());
+        }
+
+        private AdaptivePollInterval getPollInterval() {
+            AdaptivePollInterval interval = pollInterval;
+            if (interval == null) {
+                final Path filePath = context.getBuffer().getFilePath();
+                // files outside of a working tree are polled independently
+                final Path repoRootPath = GitRepositories.findWorkingTreeRootPath(filePath);
+                interval = context.getRepositoryPollInterval((repoRootPath != null) ? repoRootPath : filePath);
+                interval.addResetListener(pollRescheduler);
+                pollInterval = interval;
+                if (stopped) {
+                    interval.removeResetListener(pollRescheduler);
                 }
-            };
-            return new BufferAnalyzer(context.getBuffer(), gitRunnerFactory, context.getLog());
+            }
+            return interval;
         }
 
-        @Nullable
-        @Override
-        protected Void doInBackground() throws InterruptedException {
-            final BufferAnalyzer bufferAnalyzer = createBufferAnalyzer();
-            final AtomicReference<String> commitRefRef = new AtomicReference<>();
+        int getPollTimeInMilliseconds() {
+            final AdaptivePollInterval interval = pollInterval;
+            return (interval != null) ? interval.getPollTimeInMilliseconds()
+                    : context.getRepositoryPollTimeInMilliseconds();
+        }
+
+        private BufferAnalyzer getBufferAnalyzer() {
+            BufferAnalyzer analyzer = bufferAnalyzer;
+            if (analyzer == null) {
+                analyzer = createBufferAnalyzer();
+                bufferAnalyzer = analyzer;
+                if (stopped) {
+                    analyzer.dispose();
+                }
+            }
+            return analyzer;
+        }
+
+        private void countDiscardedPatch() {
+            MetricsRegistry.getDefault().counter("patches.discarded").increment(); //$NON-NLS-1$
+        }
+
+        private void process() {
+            assert SwingUtilities.isEventDispatchThread();
+
+            final PendingPatch latestPatch = pendingPatchRef.getAndSet(null);
+            if (latestPatch == null) {
+                return;
+            }
+
+            final PhaseTrace trace = latestPatch.trace;
+            if ((patchWorkerRegistration != null) && !latestPatch.isStale()) {
+                if (trace != null) {
+                    trace.mark("edtHandOff"); //$NON-NLS-1$
+                }
+                setPatch(latestPatch.patch, true, trace);
+                MetricsRegistry.getDefault().counter("patches.published").increment(); //$NON-NLS-1$
+            } else {
+                countDiscardedPatch();
+                restoreEditTrace(trace);
+            }
+        }
+
+        private void publish(final PendingPatch pendingPatch) {
+            // discard all but the latest patch if multiple patches pending; the
+            // latest patch also serves the edits traced by a discarded patch,
+            // whose trace started earlier
             while (true) {
-                if (isPatchUpdatePending() || bufferAnalyzer.hasHeadRevisionChanged(commitRefRef)) {
-                    publish(bufferAnalyzer.createPatchBetweenHeadRevisionAndCurrentState());
+                final PendingPatch previousPatch = pendingPatchRef.get();
+                final PhaseTrace previousTrace = (previousPatch != null) ? previousPatch.trace : null;
+                final PendingPatch latestPatch = (previousTrace != null)
+                        ? new PendingPatch(pendingPatch.patch, pendingPatch.editSequenceNumber, previousTrace)
+                        : pendingPatch;
+                if (pendingPatchRef.compareAndSet(previousPatch, latestPatch)) {
+                    if (previousPatch == null) {
+                        SwingUtilities.invokeLater(pendingPatchProcessor);
+                    } else {
+                        countDiscardedPatch();
+                    }
+                    return;
                 }
             }
         }
 
-        private boolean isPatchUpdatePending() throws InterruptedException {
-            return updatePatchEvent.await(context.getRepositoryPollTimeInMilliseconds(), TimeUnit.MILLISECONDS);
+        void releaseHeadRevision() {
+            final BufferAnalyzer analyzer = bufferAnalyzer;
+            if (analyzer != null) {
+                analyzer.releaseHeadRevision();
+            }
+        }
+
+        private boolean hasHeadRevisionChanged(final BufferAnalyzer analyzer) throws InterruptedException {
+            final AdaptivePollInterval interval = getPollInterval();
+            final long startTime = System.nanoTime();
+            final boolean changed = analyzer.hasHeadRevisionChanged(blobIdRef);
+            interval.recordPoll(changed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return changed;
+        }
+
+        private void restoreEditTrace(@Nullable final PhaseTrace trace) {
+            // the restored trace started before any trace created since it was
+            // taken, so it replaces them
+            if (trace != null) {
+                editTraceRef.set(trace);
+            }
         }
 
         @Override
-        protected void process(final List<Patch> patches) {
-            final int patchCount = patches.size();
-            if (patchCount > 0) {
-                // discard all but the latest patch if multiple patches pending
-                final Patch latestPatch = patches.get(patchCount - 1);
-                assert latestPatch != null;
-                setPatch(latestPatch);
+        public void run(final boolean refreshRequested) throws InterruptedException {
+            final BufferAnalyzer analyzer = getBufferAnalyzer();
+            if (refreshRequested || hasHeadRevisionChanged(analyzer)) {
+                final PhaseTrace trace = editTraceRef.getAndSet(null);
+                boolean published = false;
+                try {
+                    if (trace != null) {
+                        trace.mark("queueWait"); //$NON-NLS-1$
+                    }
+                    final BufferSnapshot snapshot = context.getBuffer().getSnapshot();
+                    if (trace != null) {
+                        trace.mark("snapshot"); //$NON-NLS-1$
+                    }
+                    final PendingPatch pendingPatch = new PendingPatch(
+                            analyzer.createPatchBetweenHeadRevisionAndSnapshot(snapshot, trace),
+                            snapshot.getEditSequenceNumber(), trace);
+                    if (!pendingPatch.isStale()) {
+                        publish(pendingPatch);
+                        published = true;
+                    } else {
+                        countDiscardedPatch();
+                    }
+                } finally {
+                    if (!published) {
+                        restoreEditTrace(trace);
+                    }
+                }
             }
         }
 
-        void updatePatch() {
-            updatePatchEvent.signal();
+        void stop() {
+            stopped = true;
+            editTraceRef.set(null);
+            final AdaptivePollInterval interval = pollInterval;
+            if (interval != null) {
+                interval.removeResetListener(pollRescheduler);
+            }
+            final BufferAnalyzer analyzer = bufferAnalyzer;
+            if (analyzer != null) {
+                analyzer.dispose();
+            }
+        }
+
+        void traceEdit() {
+            assert SwingUtilities.isEventDispatchThread();
+
+            // a burst of edits is traced from its first edit
+            if (editTraceRef.get() == null) {
+                editTraceRef.compareAndSet(null,
+                        new PhaseTrace(MetricsRegistry.getDefault(), "editLatency")); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * A patch waiting to be applied to the buffer handler.
+     */
+    @SuppressWarnings("synthetic-access")
+    private final class PendingPatch {
+        final long editSequenceNumber;
+        final HunkTable patch;
+        @Nullable
+        final PhaseTrace trace;
+
+        PendingPatch(final HunkTable patch, final long editSequenceNumber, @Nullable final PhaseTrace trace) {
+            this.editSequenceNumber = editSequenceNumber;
+            this.patch = patch;
+            this.trace = trace;
+        }
+
+        boolean isStale() {
+            return editSequenceNumber != context.getBuffer().getEditSequenceNumber();
         }
     }
 }
@@ -33,10 +33,30 @@ import org.gjt.sp.jedit.buffer.JEditBuffer;
  * {@link GitBufferHandler} that uses the plugin's domain model and the jEdit
  * domain model.
  * </p>
+ *
+ * <p>
+ * The underlying buffer handler is started lazily, when the gutter of the
+ * buffer is first painted or the buffer is first shown in an edit pane, so
+ * that buffers loaded but never viewed (for example, when restoring a large
+ * session) do not cause any Git processes to be run.
+ * </p>
  */
 final class GitBufferHandlerAdapter extends BufferAdapter implements BufferHandler {
+    private final Buffer buffer;
     private final GitBufferHandler bufferHandler;
+    private final GitBufferHandlerContext context;
+    private boolean bufferHandlerStarted = false;
     private final IGitBufferHandlerListener bufferHandlerListener = new GitBufferHandlerListener();
+    private final IBufferVisibilityListener bufferVisibilityListener = new IBufferVisibilityListener() {
+        @Override
+        public void bufferVisibilityChanged(final boolean visible) {
+            bufferHandler.setVisible(visible);
+            if (visible) {
+                startBufferHandler();
+            }
+        }
+    };
+    private boolean started = false;
 
     /**
      * Initializes a new instance of the {@code GitBufferHandlerAdapter} class.
@@ -45,7 +65,9 @@ final class GitBufferHandlerAdapter extends BufferAdapter implements BufferHandl
      *        The associated buffer.
      */
     GitBufferHandlerAdapter(final Buffer buffer) {
-        bufferHandler = new GitBufferHandler(new GitBufferHandlerContext(buffer));
+        this.buffer = buffer;
+        context = new GitBufferHandlerContext(buffer);
+        bufferHandler = new GitBufferHandler(context);
     }
 
     @Override
@@ -56,18 +78,25 @@ final class GitBufferHandlerAdapter extends BufferAdapter implements BufferHandl
     @Override
     public void contentInserted(final JEditBuffer buffer, final int startLine, final int offset, final int numLines,
             final int length) {
-        bufferHandler.updatePatch();
+        context.bufferEdited();
+        if (bufferHandlerStarted) {
+            bufferHandler.contentInserted(startLine, numLines);
+        }
     }
 
     @Override
     public void contentRemoved(final JEditBuffer buffer, final int startLine, final int offset, final int numLines,
             final int length) {
-        bufferHandler.updatePatch();
+        context.bufferEdited();
+        if (bufferHandlerStarted) {
+            bufferHandler.contentRemoved(startLine, numLines);
+        }
     }
 
     @Nullable
     @Override
     public DirtyMarkPainter getDirtyMarkPainter(final Buffer buffer, final int lineIndex) {
+        startBufferHandler();
         final DirtyMarkPainterSpecification dirtyMarkPainterSpecification = bufferHandler
                 .getDirtyMarkPainterSpecificationForLine(lineIndex);
         return DirtyMarkPainterFactory.createDirtyMarkPainter(dirtyMarkPainterSpecification);
@@ -75,15 +104,29 @@ final class GitBufferHandlerAdapter extends BufferAdapter implements BufferHandl
 
     @Override
     public void start() {
+        started = true;
         bufferHandler.addListener(bufferHandlerListener);
-        bufferHandler.start();
+        bufferHandler.setVisible(
+                PluginServices.getBufferVisibilityTracker().addListener(buffer, bufferVisibilityListener));
+    }
+
+    private void startBufferHandler() {
+        if (started && !bufferHandlerStarted) {
+            bufferHandlerStarted = true;
+            bufferHandler.start();
+        }
     }
 
     /**
      * Invoked when the handler has been detached from the buffer.
      */
     void stop() {
-        bufferHandler.stop();
+        started = false;
+        PluginServices.getBufferVisibilityTracker().removeListener(buffer);
+        if (bufferHandlerStarted) {
+            bufferHandlerStarted = false;
+            bufferHandler.stop();
+        }
         bufferHandler.removeListener(bufferHandlerListener);
     }
 }
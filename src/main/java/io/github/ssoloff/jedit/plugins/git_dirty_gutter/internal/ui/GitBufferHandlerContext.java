@@ -19,14 +19,25 @@
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
 
 import git.GitPlugin;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.BufferSnapshot;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobCache;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobSpiller;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.IBuffer;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.ILog;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.HeapPressureMonitor;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.RefreshScheduler;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.ProcessRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.GitRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunner;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
 import java.awt.Color;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.text.Segment;
+import org.eclipse.jdt.annotation.Nullable;
 import org.gjt.sp.jedit.Buffer;
 import org.gjt.sp.util.Log;
 
@@ -37,10 +48,10 @@ import org.gjt.sp.util.Log;
 final class GitBufferHandlerContext implements IGitBufferHandlerContext {
     @SuppressWarnings("checkstyle:linelength")
     private static final IDirtyMarkPainterSpecificationFactoryContext DIRTY_MARK_PAINTER_SPECIFICATION_FACTORY_CONTEXT = createDirtyMarkPainterSpecificationFactoryContext();
-    private static final ISupplier<Path> GIT_PROGRAM_PATH_SUPPLIER = createGitProgramPathSupplier();
+    private static final IGitRunnerFactory GIT_RUNNER_FACTORY = createGitRunnerFactory(createGitProgramPathSupplier());
     private static final ILog LOG = createLog();
 
-    private final IBuffer bufferAdapter;
+    private final JEditBufferAdapter bufferAdapter;
 
     /**
      * Initializes a new instance of the {@code GitBufferHandlerContext} class.
@@ -49,32 +60,19 @@ final class GitBufferHandlerContext implements IGitBufferHandlerContext {
      *        The jEdit buffer associated with the context.
      */
     GitBufferHandlerContext(final Buffer buffer) {
-        this.bufferAdapter = createBufferAdapter(buffer);
+        this.bufferAdapter = new JEditBufferAdapter(buffer);
     }
 
-    private static IBuffer createBufferAdapter(final Buffer buffer) {
-        return new IBuffer() {
-            @Override
-            public List<String> getLines() {
-                final int lineCount = buffer.getLineCount();
-                final List<String> lines = new ArrayList<>(lineCount);
-                for (int lineIndex = 0; lineIndex < lineCount; ++lineIndex) {
-                    lines.add(buffer.getLineText(lineIndex));
-                }
-                return lines;
-            }
-
-            @Override
-            public Path getFilePath() {
-                return Paths.get(buffer.getPath());
-            }
-
-            @Override
-            public String getEncoding() {
-                return buffer.getStringProperty(buffer.ENCODING);
-            }
-
-        };
+    /**
+     * Invoked when the buffer has been edited.
+     *
+     * <p>
+     * This method must be invoked while the buffer write lock is held so that
+     * the edit sequence number is consistent with the buffer text.
+     * </p>
+     */
+    void bufferEdited() {
+        bufferAdapter.bufferEdited();
     }
 
     private static IDirtyMarkPainterSpecificationFactoryContext createDirtyMarkPainterSpecificationFactoryContext() {
@@ -96,7 +94,12 @@ final class GitBufferHandlerContext implements IGitBufferHandlerContext {
         };
     }
 
-    private static ISupplier<Path> createGitProgramPathSupplier() {
+    /**
+     * Creates the supplier of the Git program path.
+     *
+     * @return The supplier of the Git program path.
+     */
+    static ISupplier<Path> createGitProgramPathSupplier() {
         return new ISupplier<Path>() {
             @Override
             public Path get() {
@@ -105,7 +108,29 @@ final class GitBufferHandlerContext implements IGitBufferHandlerContext {
         };
     }
 
-    private static ILog createLog() {
+    /**
+     * Creates a Git runner factory.
+     *
+     * @param gitProgramPathSupplier
+     *        The supplier of the Git program path.
+     *
+     * @return A new Git runner factory.
+     */
+    static IGitRunnerFactory createGitRunnerFactory(final ISupplier<Path> gitProgramPathSupplier) {
+        return new IGitRunnerFactory() {
+            @Override
+            public IGitRunner createGitRunner(final Path workingDirPath) {
+                return new GitRunner(new ProcessRunner(), workingDirPath, gitProgramPathSupplier);
+            }
+        };
+    }
+
+    /**
+     * Creates the application log.
+     *
+     * @return The application log.
+     */
+    static ILog createLog() {
         return new ILog() {
             @Override
             public void logDebug(final Object source, final String message) {
@@ -124,6 +149,11 @@ final class GitBufferHandlerContext implements IGitBufferHandlerContext {
         };
     }
 
+    @Override
+    public int getBackgroundBufferIdleTimeInMilliseconds() {
+        return Properties.getBackgroundBufferIdleTimeInMilliseconds();
+    }
+
     @Override
     public IBuffer getBuffer() {
         return bufferAdapter;
@@ -135,8 +165,24 @@ final class GitBufferHandlerContext implements IGitBufferHandlerContext {
     }
 
     @Override
-    public ISupplier<Path> getGitProgramPathSupplier() {
-        return GIT_PROGRAM_PATH_SUPPLIER;
+    public IGitRunnerFactory getGitRunnerFactory() {
+        return GIT_RUNNER_FACTORY;
+    }
+
+    @Override
+    public HeadBlobCache getHeadBlobCache() {
+        return PluginServices.getHeadBlobCache();
+    }
+
+    @Nullable
+    @Override
+    public HeadBlobSpiller getHeadBlobSpiller() {
+        return PluginServices.getHeadBlobSpiller();
+    }
+
+    @Override
+    public HeapPressureMonitor getHeapPressureMonitor() {
+        return PluginServices.getHeapPressureMonitor();
     }
 
     @Override
@@ -144,8 +190,72 @@ final class GitBufferHandlerContext implements IGitBufferHandlerContext {
         return LOG;
     }
 
+    @Override
+    public RefreshScheduler getRefreshScheduler() {
+        return PluginServices.getRefreshScheduler();
+    }
+
+    @Override
+    public AdaptivePollInterval getRepositoryPollInterval(final Path repoRootPath) {
+        return PluginServices.getRepositoryPollInterval(repoRootPath);
+    }
+
     @Override
     public int getRepositoryPollTimeInMilliseconds() {
         return Properties.getRepositoryPollTimeInMilliseconds();
     }
+
+    /**
+     * Adapts a jEdit buffer to the plugin's buffer model.
+     */
+    private static final class JEditBufferAdapter implements IBuffer {
+        private final Buffer buffer;
+        private final AtomicLong editSequenceNumber = new AtomicLong();
+
+        JEditBufferAdapter(final Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void bufferEdited() {
+            editSequenceNumber.incrementAndGet();
+        }
+
+        @Override
+        public long getEditSequenceNumber() {
+            return editSequenceNumber.get();
+        }
+
+        @Override
+        public String getEncoding() {
+            return buffer.getStringProperty(Buffer.ENCODING);
+        }
+
+        @Override
+        public Path getFilePath() {
+            return Paths.get(buffer.getPath());
+        }
+
+        @Override
+        public BufferSnapshot getSnapshot() {
+            buffer.readLock();
+            try {
+                final int length = buffer.getLength();
+                final Segment segment = new Segment();
+                buffer.getText(0, length, segment);
+                final char[] text = new char[length];
+                System.arraycopy(segment.array, segment.offset, text, 0, length);
+
+                final int lineCount = buffer.getLineCount();
+                final int[] lineStartOffsets = new int[lineCount + 1];
+                for (int lineIndex = 0; lineIndex < lineCount; ++lineIndex) {
+                    lineStartOffsets[lineIndex] = buffer.getLineStartOffset(lineIndex);
+                }
+                lineStartOffsets[lineCount] = length + 1;
+
+                return new BufferSnapshot(text, lineStartOffsets, editSequenceNumber.get());
+            } finally {
+                buffer.readUnlock();
+            }
+        }
+    }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+/**
+ * A listener of events raised by {@link BufferVisibilityTracker}.
+ */
+interface IBufferVisibilityListener {
+    /**
+     * Invoked when the buffer has been shown in or hidden from all edit panes.
+     *
+     * @param visible
+     *        {@code true} if the buffer is now shown in at least one edit
+     *        pane; {@code false} if the buffer is no longer shown in any edit
+     *        pane.
+     */
+    void bufferVisibilityChanged(boolean visible);
+}
@@ -18,10 +18,16 @@
 
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
 
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobCache;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobSpiller;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.IBuffer;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.ILog;
-import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.HeapPressureMonitor;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.RefreshScheduler;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
 import java.nio.file.Path;
+import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * The execution context for an instance of {@code GitBufferHandler}.
@@ -32,6 +38,15 @@ import java.nio.file.Path;
  * </p>
  */
 interface IGitBufferHandlerContext {
+    /**
+     * Gets the time (in milliseconds) a buffer must be hidden before its state
+     * is released.
+     *
+     * @return The time (in milliseconds) a buffer must be hidden before its
+     *         state is released.
+     */
+    int getBackgroundBufferIdleTimeInMilliseconds();
+
     /**
      * Gets the buffer.
      *
@@ -49,11 +64,37 @@ interface IGitBufferHandlerContext {
     IDirtyMarkPainterSpecificationFactoryContext getDirtyMarkPainterSpecificationFactoryContext();
 
     /**
-     * Gets the supplier of the Git program path.
+     * Gets the factory used to create Git runners.
+     *
+     * @return The factory used to create Git runners.
+     */
+    IGitRunnerFactory getGitRunnerFactory();
+
+    /**
+     * Gets the cache of HEAD revision content shared by all buffers.
+     *
+     * @return The cache of HEAD revision content shared by all buffers.
+     */
+    HeadBlobCache getHeadBlobCache();
+
+    /**
+     * Gets the spiller of HEAD revision content too large to keep on the heap.
+     *
+     * @return The spiller of HEAD revision content too large to keep on the
+     *         heap or {@code null} if HEAD revision content is always kept on
+     *         the heap.
+     */
+    @Nullable
+    HeadBlobSpiller getHeadBlobSpiller();
+
+    /**
+     * Gets the monitor that notifies all buffers when the heap is under
+     * pressure.
      *
-     * @return The supplier of the Git program path.
+     * @return The monitor that notifies all buffers when the heap is under
+     *         pressure.
      */
-    ISupplier<Path> getGitProgramPathSupplier();
+    HeapPressureMonitor getHeapPressureMonitor();
 
     /**
      * Gets the log.
@@ -62,10 +103,33 @@ interface IGitBufferHandlerContext {
      */
     ILog getLog();
 
+    /**
+     * Gets the scheduler used to refresh the buffer patch.
+     *
+     * @return The scheduler used to refresh the buffer patch.
+     */
+    RefreshScheduler getRefreshScheduler();
+
+    /**
+     * Gets the poll interval shared by all buffers within the specified Git
+     * repository.
+     *
+     * @param repoRootPath
+     *        The path to the root of the repository working tree.
+     *
+     * @return The poll interval of the specified Git repository.
+     */
+    AdaptivePollInterval getRepositoryPollInterval(Path repoRootPath);
+
     /**
      * Gets the time (in milliseconds) between polling the Git repository for
      * new commits.
      *
+     * <p>
+     * This time is used until the repository containing the buffer has been
+     * located.
+     * </p>
+     *
      * @return The time (in milliseconds) between polling the Git repository for
      *         new commits.
      */
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+/**
+ * The publication of a new patch to the dirty gutter of a buffer as recorded
+ * by Java Flight Recorder.
+ *
+ * <p>
+ * On runtimes without the JFR API, the {@link #DISABLED} event is used.
+ * </p>
+ */
+interface IPatchPublishedEvent {
+    /** An event that is never recorded. */
+    IPatchPublishedEvent DISABLED = new IPatchPublishedEvent() {
+        @Override
+        public void begin() {
+            // do nothing
+        }
+
+        @Override
+        public void commit(final int deltaCount, final boolean exact, final String filePath, final long traceId) {
+            // do nothing
+        }
+
+        @Override
+        public void end() {
+            // do nothing
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public boolean shouldCommit() {
+            return false;
+        }
+    };
+
+    /**
+     * Starts timing the event.
+     */
+    void begin();
+
+    /**
+     * Records the event.
+     *
+     * @param deltaCount
+     *        The number of deltas in the patch.
+     * @param exact
+     *        {@code true} if the patch was computed by Git; {@code false} if
+     *        it was optimistically remapped after an edit.
+     * @param filePath
+     *        The path of the file associated with the buffer.
+     * @param traceId
+     *        The identifier of the edit latency trace served by the patch or
+     *        zero if not traced.
+     */
+    void commit(int deltaCount, boolean exact, String filePath, long traceId);
+
+    /**
+     * Stops timing the event.
+     */
+    void end();
+
+    /**
+     * Indicates the event is enabled.
+     *
+     * @return {@code true} if the event is enabled; otherwise {@code false}.
+     */
+    boolean isEnabled();
+
+    /**
+     * Indicates the event is enabled and meets its recording threshold.
+     *
+     * @return {@code true} if the event should be recorded; otherwise
+     *         {@code false}.
+     */
+    boolean shouldCommit();
+}
@@ -18,6 +18,7 @@
 
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
 
+import java.text.MessageFormat;
 import org.gjt.sp.jedit.jEdit;
 
 /**
@@ -33,6 +34,10 @@ final class Messages {
         return (message != null) ? message : name;
     }
 
+    private static String getMessage(final String name, final Object... args) {
+        return MessageFormat.format(getMessage(name), args);
+    }
+
     static String option_addedDirtyMarkColorLabel_text() {
         return getMessage("messages.GitDirtyGutterPlugin.option_addedDirtyMarkColorLabel_text"); //$NON-NLS-1$
     }
@@ -44,4 +49,13 @@ final class Messages {
     static String option_removedDirtyMarkColorLabel_text() {
         return getMessage("messages.GitDirtyGutterPlugin.option_removedDirtyMarkColorLabel_text"); //$NON-NLS-1$
     }
+
+    static String statusWidget_text(final int dirtyFileCount, final int addedLineCount, final int removedLineCount) {
+        return getMessage("messages.GitDirtyGutterPlugin.statusWidget_text", //$NON-NLS-1$
+                Integer.valueOf(dirtyFileCount), Integer.valueOf(addedLineCount), Integer.valueOf(removedLineCount));
+    }
+
+    static String statusWidget_toolTipText(final Object repoRootPath) {
+        return getMessage("messages.GitDirtyGutterPlugin.statusWidget_toolTipText", repoRootPath); //$NON-NLS-1$
+    }
 }
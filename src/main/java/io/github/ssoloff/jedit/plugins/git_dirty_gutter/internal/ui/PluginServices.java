@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobCache;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobPrewarmer;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobSpiller;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.RepositoryStatusIndex;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.HeapPressureMonitor;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.RefreshScheduler;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.swing.SwingUtilities;
+import org.eclipse.jdt.annotation.Nullable;
+import org.gjt.sp.jedit.EditBus;
+
+/**
+ * Provides access to the services shared by all buffers for the lifetime of
+ * the plugin.
+ *
+ * <p>
+ * Services are created on first use and disposed when the plugin is stopped.
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class PluginServices {
+    private static final String NAME = "GitDirtyGutter"; //$NON-NLS-1$
+
+    @Nullable
+    private static BufferVisibilityTracker bufferVisibilityTracker = null;
+    @Nullable
+    private static HeadBlobCache headBlobCache = null;
+    @Nullable
+    private static HeadBlobSpiller headBlobSpiller = null;
+    private static boolean headBlobSpillerCreated = false;
+    @Nullable
+    private static HeapPressureMonitor heapPressureMonitor = null;
+    @Nullable
+    private static RefreshScheduler refreshScheduler = null;
+    @Nullable
+    private static RepositoryPollIntervals repositoryPollIntervals = null;
+    @Nullable
+    private static RepositoryStatusIndexes repositoryStatusIndexes = null;
+    @Nullable
+    private static SessionPrewarmer sessionPrewarmer = null;
+
+    private PluginServices() {
+    }
+
+    /**
+     * Gets the tracker of which buffers are shown in an edit pane.
+     *
+     * @return The tracker of which buffers are shown in an edit pane.
+     */
+    static synchronized BufferVisibilityTracker getBufferVisibilityTracker() {
+        BufferVisibilityTracker tracker = bufferVisibilityTracker;
+        if (tracker == null) {
+            tracker = new BufferVisibilityTracker();
+            EditBus.addToBus(tracker);
+            bufferVisibilityTracker = tracker;
+        }
+        return tracker;
+    }
+
+    /**
+     * Gets the cache of HEAD revision content shared by all buffers.
+     *
+     * @return The cache of HEAD revision content shared by all buffers.
+     */
+    static synchronized HeadBlobCache getHeadBlobCache() {
+        HeadBlobCache cache = headBlobCache;
+        if (cache == null) {
+            cache = new HeadBlobCache(Properties.getHeadBlobCacheSizeInCharacters(),
+                    Properties.isInternHeadBlobLines(), Properties.getHeadBlobCacheCompressedSizeInBytes());
+            headBlobCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Gets the spiller of HEAD revision content too large to keep on the heap.
+     *
+     * <p>
+     * The spill files are created in a temporary directory owned by the plugin,
+     * which is deleted when the plugin is stopped.
+     * </p>
+     *
+     * @return The spiller of HEAD revision content too large to keep on the
+     *         heap or {@code null} if spilling is disabled or the spill
+     *         directory cannot be created.
+     */
+    @Nullable
+    static synchronized HeadBlobSpiller getHeadBlobSpiller() {
+        if (!headBlobSpillerCreated) {
+            headBlobSpillerCreated = true;
+            final long thresholdInCharacters = Properties.getHeadBlobSpillThresholdInCharacters();
+            if (thresholdInCharacters > 0L) {
+                try {
+                    headBlobSpiller = new HeadBlobSpiller(Files.createTempDirectory("GitDirtyGutter"), //$NON-NLS-1$
+                            thresholdInCharacters);
+                } catch (final IOException e) {
+                    GitBufferHandlerContext.createLog().logError(PluginServices.class,
+                            "failed to create HEAD revision spill directory", e); //$NON-NLS-1$
+                }
+            }
+        }
+        return headBlobSpiller;
+    }
+
+    /**
+     * Gets the monitor that notifies all buffers when the heap is under
+     * pressure.
+     *
+     * <p>
+     * Under heap pressure, the least recently used half of each tier of the
+     * HEAD revision cache is evicted.
+     * </p>
+     *
+     * @return The monitor that notifies all buffers when the heap is under
+     *         pressure.
+     */
+    static synchronized HeapPressureMonitor getHeapPressureMonitor() {
+        HeapPressureMonitor monitor = heapPressureMonitor;
+        if (monitor == null) {
+            monitor = new HeapPressureMonitor(Properties.getHeapPressureThresholdPercent());
+            monitor.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    final HeadBlobCache cache;
+                    synchronized (PluginServices.class) {
+                        cache = headBlobCache;
+                    }
+                    if (cache != null) {
+                        cache.trimCompressedToSize(cache.getCompressedSizeInBytes() / 2L);
+                        cache.trimToSize(cache.getSizeInCharacters() / 2L);
+                    }
+                }
+            });
+            monitor.start();
+            heapPressureMonitor = monitor;
+        }
+        return monitor;
+    }
+
+    /**
+     * Gets the scheduler used to refresh the patches of all buffers.
+     *
+     * @return The scheduler used to refresh the patches of all buffers.
+     */
+    static synchronized RefreshScheduler getRefreshScheduler() {
+        RefreshScheduler scheduler = refreshScheduler;
+        if (scheduler == null) {
+            scheduler = new RefreshScheduler(NAME, Properties.getRefreshThreadCount(),
+                    Properties.getMaxRefreshDelayInMilliseconds(), Properties.getMaxRefreshStalenessInMilliseconds(),
+                    Properties.isUseVirtualThreads());
+            refreshScheduler = scheduler;
+        }
+        return scheduler;
+    }
+
+    /**
+     * Gets the poll interval of the specified Git repository.
+     *
+     * @param repoRootPath
+     *        The path to the root of the repository working tree.
+     *
+     * @return The poll interval of the specified Git repository.
+     */
+    static synchronized AdaptivePollInterval getRepositoryPollInterval(final Path repoRootPath) {
+        RepositoryPollIntervals pollIntervals = repositoryPollIntervals;
+        if (pollIntervals == null) {
+            pollIntervals = new RepositoryPollIntervals();
+            pollIntervals.start();
+            repositoryPollIntervals = pollIntervals;
+        }
+        return pollIntervals.getPollInterval(repoRootPath);
+    }
+
+    /**
+     * Gets the status index of the Git repository that contains the specified
+     * file.
+     *
+     * <p>
+     * The status of a repository is tracked while at least one of its files is
+     * open in a buffer. Tracking starts on first use, after which this method
+     * may be used, for example, to decorate the files of a project with their
+     * status. This method must be invoked on the event dispatch thread.
+     * </p>
+     *
+     * @param filePath
+     *        The path to the file.
+     *
+     * @return The status index of the Git repository that contains the
+     *         specified file or {@code null} if the file is not within a
+     *         repository that contains at least one open buffer.
+     */
+    @Nullable
+    public static RepositoryStatusIndex getRepositoryStatusIndex(final Path filePath) {
+        return getRepositoryStatusIndexes().getIndex(filePath);
+    }
+
+    /**
+     * Gets the status indexes of the Git repositories that contain at least
+     * one open buffer.
+     *
+     * <p>
+     * This method must be invoked on the event dispatch thread.
+     * </p>
+     *
+     * @return The status indexes of the Git repositories that contain at least
+     *         one open buffer.
+     */
+    static synchronized RepositoryStatusIndexes getRepositoryStatusIndexes() {
+        assert SwingUtilities.isEventDispatchThread();
+
+        RepositoryStatusIndexes indexes = repositoryStatusIndexes;
+        if (indexes == null) {
+            final IGitRunnerFactory gitRunnerFactory = GitBufferHandlerContext
+                    .createGitRunnerFactory(GitBufferHandlerContext.createGitProgramPathSupplier());
+            indexes = new RepositoryStatusIndexes(gitRunnerFactory, GitBufferHandlerContext.createLog());
+            EditBus.addToBus(indexes);
+            indexes.start();
+            repositoryStatusIndexes = indexes;
+        }
+        return indexes;
+    }
+
+    private static void registerCacheGauge(final MetricsRegistry metrics, final String name,
+            final IHeadBlobCacheAccessor accessor) {
+        metrics.registerGauge(name, new ISupplier<Long>() {
+            @Override
+            public Long get() {
+                synchronized (PluginServices.class) {
+                    final HeadBlobCache cache = headBlobCache;
+                    return Long.valueOf((cache != null) ? accessor.get(cache) : 0L);
+                }
+            }
+        });
+    }
+
+    private static void registerMetrics() {
+        final MetricsRegistry metrics = MetricsRegistry.getDefault();
+        registerSchedulerGauge(metrics, "scheduler.queuedTasks", new IRefreshSchedulerAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final RefreshScheduler scheduler) {
+                return scheduler.getQueuedTaskCount();
+            }
+        });
+        registerSchedulerGauge(metrics, "scheduler.runningTasks", new IRefreshSchedulerAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final RefreshScheduler scheduler) {
+                return scheduler.getRunningTaskCount();
+            }
+        });
+        registerCacheGauge(metrics, "headBlobCache.blobCount", new IHeadBlobCacheAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final HeadBlobCache cache) {
+                return cache.getBlobCount();
+            }
+        });
+        registerCacheGauge(metrics, "headBlobCache.sizeInCharacters", new IHeadBlobCacheAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final HeadBlobCache cache) {
+                return cache.getSizeInCharacters();
+            }
+        });
+        registerCacheGauge(metrics, "headBlobCache.compressedBlobCount", new IHeadBlobCacheAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final HeadBlobCache cache) {
+                return cache.getCompressedBlobCount();
+            }
+        });
+        registerCacheGauge(metrics, "headBlobCache.compressedSizeInBytes", new IHeadBlobCacheAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final HeadBlobCache cache) {
+                return cache.getCompressedSizeInBytes();
+            }
+        });
+        registerCacheGauge(metrics, "headBlobCache.compressionRatioPercent", new IHeadBlobCacheAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final HeadBlobCache cache) {
+                return cache.getCompressionRatioPercent();
+            }
+        });
+        registerCacheGauge(metrics, "headBlobCache.internedLines", new IHeadBlobCacheAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final HeadBlobCache cache) {
+                return cache.getInternedLineCount();
+            }
+        });
+        registerCacheGauge(metrics, "headBlobCache.sharedSizeInCharacters", new IHeadBlobCacheAccessor() { //$NON-NLS-1$
+            @Override
+            public long get(final HeadBlobCache cache) {
+                return cache.getSharedSizeInCharacters();
+            }
+        });
+        metrics.registerGauge("headBlobCache.hitRatePercent", new ISupplier<Long>() { //$NON-NLS-1$
+            @Override
+            public Long get() {
+                final long hits = metrics.counter("headBlobCache.hits").getCount(); //$NON-NLS-1$
+                final long lookups = hits + metrics.counter("headBlobCache.misses").getCount(); //$NON-NLS-1$
+                return Long.valueOf((lookups > 0L) ? ((100L * hits) / lookups) : 0L);
+            }
+        });
+        metrics.registerMBeans(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    private static void registerSchedulerGauge(final MetricsRegistry metrics, final String name,
+            final IRefreshSchedulerAccessor accessor) {
+        metrics.registerGauge(name, new ISupplier<Long>() {
+            @Override
+            public Long get() {
+                synchronized (PluginServices.class) {
+                    final RefreshScheduler scheduler = refreshScheduler;
+                    return Long.valueOf((scheduler != null) ? accessor.get(scheduler) : 0L);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts the services that run for the lifetime of the plugin.
+     *
+     * <p>
+     * This method should be invoked when the plugin is started. The plugin's
+     * metrics are registered as MBeans with the platform MBean server, and the
+     * heap is monitored for pressure. If enabled, the HEAD revisions of the
+     * buffers restored with the editor session are read in the background,
+     * visible buffers first.
+     * </p>
+     */
+    public static void start() {
+        registerMetrics();
+        getHeapPressureMonitor();
+
+        if (!Properties.isPrewarmSessionBuffers()) {
+            return;
+        }
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                final SessionPrewarmer prewarmer;
+                synchronized (PluginServices.class) {
+                    if (sessionPrewarmer != null) {
+                        return;
+                    }
+                    prewarmer = new SessionPrewarmer(new HeadBlobPrewarmer(getHeadBlobCache(), getHeadBlobSpiller(),
+                            GitBufferHandlerContext.createGitProgramPathSupplier(),
+                            GitBufferHandlerContext.createLog(), Properties.getRefreshThreadCount()));
+                    sessionPrewarmer = prewarmer;
+                }
+                prewarmer.start();
+            }
+        });
+    }
+
+    /**
+     * Disposes all shared services.
+     *
+     * <p>
+     * This method should be invoked when the plugin is stopped.
+     * </p>
+     */
+    public static synchronized void dispose() {
+        final SessionPrewarmer prewarmer = sessionPrewarmer;
+        if (prewarmer != null) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    prewarmer.stop();
+                }
+            });
+            sessionPrewarmer = null;
+        }
+
+        final BufferVisibilityTracker tracker = bufferVisibilityTracker;
+        if (tracker != null) {
+            EditBus.removeFromBus(tracker);
+            bufferVisibilityTracker = null;
+        }
+
+        final RepositoryStatusIndexes indexes = repositoryStatusIndexes;
+        if (indexes != null) {
+            EditBus.removeFromBus(indexes);
+            indexes.stop();
+            repositoryStatusIndexes = null;
+        }
+
+        final HeapPressureMonitor monitor = heapPressureMonitor;
+        if (monitor != null) {
+            monitor.stop();
+            heapPressureMonitor = null;
+        }
+
+        final RefreshScheduler scheduler = refreshScheduler;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            refreshScheduler = null;
+        }
+
+        final RepositoryPollIntervals pollIntervals = repositoryPollIntervals;
+        if (pollIntervals != null) {
+            pollIntervals.stop();
+            repositoryPollIntervals = null;
+        }
+
+        headBlobCache = null;
+
+        final HeadBlobSpiller spiller = headBlobSpiller;
+        if (spiller != null) {
+            try {
+                spiller.deleteSpillFiles();
+            } catch (final IOException e) {
+                GitBufferHandlerContext.createLog().logError(PluginServices.class,
+                        "failed to delete HEAD revision spill directory", e); //$NON-NLS-1$
+            }
+            headBlobSpiller = null;
+        }
+        headBlobSpillerCreated = false;
+
+        MetricsRegistry.getDefault().unregisterMBeans();
+    }
+
+    private interface IHeadBlobCacheAccessor {
+        long get(HeadBlobCache cache);
+    }
+
+    private interface IRefreshSchedulerAccessor {
+        long get(RefreshScheduler scheduler);
+    }
+}
@@ -31,10 +31,30 @@ import org.gjt.sp.jedit.jEdit;
 final class Properties {
     private static final String PROP_PREFIX = "io.github.ssoloff.jedit.plugins.git_dirty_gutter.GitDirtyGutterPlugin."; //$NON-NLS-1$
     private static final String PROP_ADDED_DIRTY_MARK_COLOR = PROP_PREFIX + "addedDirtyMarkColor"; //$NON-NLS-1$
+    private static final String PROP_BACKGROUND_BUFFER_IDLE_TIME_IN_MILLISECONDS = PROP_PREFIX
+            + "backgroundBufferIdleTimeInMilliseconds"; //$NON-NLS-1$
     private static final String PROP_CHANGED_DIRTY_MARK_COLOR = PROP_PREFIX + "changedDirtyMarkColor"; //$NON-NLS-1$
+    private static final String PROP_HEAD_BLOB_CACHE_COMPRESSED_SIZE_IN_BYTES = PROP_PREFIX
+            + "headBlobCacheCompressedSizeInBytes"; //$NON-NLS-1$
+    private static final String PROP_HEAD_BLOB_CACHE_SIZE_IN_CHARACTERS = PROP_PREFIX
+            + "headBlobCacheSizeInCharacters"; //$NON-NLS-1$
+    private static final String PROP_HEAD_BLOB_SPILL_THRESHOLD_IN_CHARACTERS = PROP_PREFIX
+            + "headBlobSpillThresholdInCharacters"; //$NON-NLS-1$
+    private static final String PROP_HEAP_PRESSURE_THRESHOLD_PERCENT = PROP_PREFIX
+            + "heapPressureThresholdPercent"; //$NON-NLS-1$
+    private static final String PROP_INTERN_HEAD_BLOB_LINES = PROP_PREFIX + "internHeadBlobLines"; //$NON-NLS-1$
+    private static final String PROP_MAX_REFRESH_DELAY_IN_MILLISECONDS = PROP_PREFIX
+            + "maxRefreshDelayInMilliseconds"; //$NON-NLS-1$
+    private static final String PROP_MAX_REFRESH_STALENESS_IN_MILLISECONDS = PROP_PREFIX
+            + "maxRefreshStalenessInMilliseconds"; //$NON-NLS-1$
+    private static final String PROP_MAX_REPOSITORY_POLL_TIME_IN_MILLISECONDS = PROP_PREFIX
+            + "maxRepositoryPollTimeInMilliseconds"; //$NON-NLS-1$
+    private static final String PROP_PREWARM_SESSION_BUFFERS = PROP_PREFIX + "prewarmSessionBuffers"; //$NON-NLS-1$
+    private static final String PROP_REFRESH_THREAD_COUNT = PROP_PREFIX + "refreshThreadCount"; //$NON-NLS-1$
     private static final String PROP_REMOVED_DIRTY_MARK_COLOR = PROP_PREFIX + "removedDirtyMarkColor"; //$NON-NLS-1$
     private static final String PROP_REPOSITORY_POLL_TIME_IN_MILLISECONDS = PROP_PREFIX
             + "repositoryPollTimeInMilliseconds"; //$NON-NLS-1$
+    private static final String PROP_USE_VIRTUAL_THREADS = PROP_PREFIX + "useVirtualThreads"; //$NON-NLS-1$
 
     private Properties() {
     }
@@ -48,6 +68,19 @@ final class Properties {
         return jEdit.getColorProperty(PROP_ADDED_DIRTY_MARK_COLOR, Color.GREEN);
     }
 
+    /**
+     * Gets the time (in milliseconds) a buffer must be hidden before its patch
+     * and HEAD revision content are released.
+     *
+     * @return The time (in milliseconds) a buffer must be hidden before its
+     *         state is released.
+     */
+    static int getBackgroundBufferIdleTimeInMilliseconds() {
+        final int defaultBackgroundBufferIdleTimeInMilliseconds = 15 * 60 * 1000;
+        return Math.max(jEdit.getIntegerProperty(PROP_BACKGROUND_BUFFER_IDLE_TIME_IN_MILLISECONDS,
+                defaultBackgroundBufferIdleTimeInMilliseconds), 0);
+    }
+
     /**
      * Gets the color used for changed dirty marks.
      *
@@ -57,6 +90,112 @@ final class Properties {
         return jEdit.getColorProperty(PROP_CHANGED_DIRTY_MARK_COLOR, Color.ORANGE);
     }
 
+    /**
+     * Gets the maximum total size (in bytes) of the compressed HEAD revision
+     * content evicted from the cache shared by all buffers.
+     *
+     * @return The maximum total size (in bytes) of the compressed HEAD
+     *         revision content or zero if evicted content is not compressed.
+     */
+    static int getHeadBlobCacheCompressedSizeInBytes() {
+        final int defaultHeadBlobCacheCompressedSizeInBytes = 8 * 1024 * 1024;
+        return Math.max(jEdit.getIntegerProperty(PROP_HEAD_BLOB_CACHE_COMPRESSED_SIZE_IN_BYTES,
+                defaultHeadBlobCacheCompressedSizeInBytes), 0);
+    }
+
+    /**
+     * Gets the maximum total size (in characters) of the cached HEAD revision
+     * content shared by all buffers.
+     *
+     * @return The maximum total size (in characters) of the cached HEAD
+     *         revision content.
+     */
+    static int getHeadBlobCacheSizeInCharacters() {
+        final int defaultHeadBlobCacheSizeInCharacters = 16 * 1024 * 1024;
+        return Math.max(jEdit.getIntegerProperty(PROP_HEAD_BLOB_CACHE_SIZE_IN_CHARACTERS,
+                defaultHeadBlobCacheSizeInCharacters), 0);
+    }
+
+    /**
+     * Gets the size (in characters) HEAD revision content must exceed to be
+     * kept in a memory-mapped file rather than on the heap.
+     *
+     * @return The size (in characters) HEAD revision content must exceed to be
+     *         kept in a memory-mapped file or zero if HEAD revision content is
+     *         always kept on the heap.
+     */
+    static long getHeadBlobSpillThresholdInCharacters() {
+        final int defaultHeadBlobSpillThresholdInCharacters = 4 * 1024 * 1024;
+        return Math.max(jEdit.getIntegerProperty(PROP_HEAD_BLOB_SPILL_THRESHOLD_IN_CHARACTERS,
+                defaultHeadBlobSpillThresholdInCharacters), 0);
+    }
+
+    /**
+     * Gets the percentage of the maximum size of the tenured heap that its
+     * usage after a garbage collection must exceed for the plugin to release
+     * its caches.
+     *
+     * @return The heap usage percentage at which the plugin releases its
+     *         caches.
+     */
+    static int getHeapPressureThresholdPercent() {
+        final int defaultHeapPressureThresholdPercent = 85;
+        return Math.min(Math.max(jEdit.getIntegerProperty(PROP_HEAP_PRESSURE_THRESHOLD_PERCENT,
+                defaultHeapPressureThresholdPercent), 1), 100);
+    }
+
+    /**
+     * Gets the maximum time (in milliseconds) a buffer refresh is delayed after
+     * the most recent edit.
+     *
+     * @return The maximum time (in milliseconds) a buffer refresh is delayed
+     *         after the most recent edit.
+     */
+    static int getMaxRefreshDelayInMilliseconds() {
+        final int defaultMaxRefreshDelayInMilliseconds = 500;
+        return Math.max(jEdit.getIntegerProperty(PROP_MAX_REFRESH_DELAY_IN_MILLISECONDS,
+                defaultMaxRefreshDelayInMilliseconds), 0);
+    }
+
+    /**
+     * Gets the maximum time (in milliseconds) a buffer refresh is delayed after
+     * the first edit it reflects.
+     *
+     * @return The maximum time (in milliseconds) a buffer refresh is delayed
+     *         after the first edit it reflects.
+     */
+    static int getMaxRefreshStalenessInMilliseconds() {
+        final int defaultMaxRefreshStalenessInMilliseconds = 1000;
+        return Math.max(jEdit.getIntegerProperty(PROP_MAX_REFRESH_STALENESS_IN_MILLISECONDS,
+                defaultMaxRefreshStalenessInMilliseconds), 0);
+    }
+
+    /**
+     * Gets the maximum time (in milliseconds) between polling the Git
+     * repository for new commits while no new commits are detected.
+     *
+     * @return The maximum time (in milliseconds) between polling the Git
+     *         repository for new commits.
+     */
+    static int getMaxRepositoryPollTimeInMilliseconds() {
+        final int defaultMaxRepositoryPollTimeInMilliseconds = 60000;
+        return jEdit.getIntegerProperty(PROP_MAX_REPOSITORY_POLL_TIME_IN_MILLISECONDS,
+                defaultMaxRepositoryPollTimeInMilliseconds);
+    }
+
+    /**
+     * Gets the maximum number of buffer refreshes that may run concurrently.
+     *
+     * @return The maximum number of buffer refreshes that may run
+     *         concurrently.
+     */
+    static int getRefreshThreadCount() {
+        final int maxDefaultRefreshThreadCount = 4;
+        final int defaultRefreshThreadCount = Math.min(Runtime.getRuntime().availableProcessors(),
+                maxDefaultRefreshThreadCount);
+        return Math.max(jEdit.getIntegerProperty(PROP_REFRESH_THREAD_COUNT, defaultRefreshThreadCount), 1);
+    }
+
     /**
      * Gets the color used for removed dirty marks.
      *
@@ -79,6 +218,39 @@ final class Properties {
                 defaultRepositoryPollTimeInMilliseconds);
     }
 
+    /**
+     * Indicates equal lines across all cached HEAD revisions should share a
+     * single instance.
+     *
+     * @return {@code true} if equal lines across all cached HEAD revisions
+     *         should share a single instance; otherwise {@code false}.
+     */
+    static boolean isInternHeadBlobLines() {
+        return jEdit.getBooleanProperty(PROP_INTERN_HEAD_BLOB_LINES, false);
+    }
+
+    /**
+     * Indicates the HEAD revisions of the buffers restored with the editor
+     * session should be read when the plugin is started.
+     *
+     * @return {@code true} if the HEAD revisions of the session buffers should
+     *         be read when the plugin is started; otherwise {@code false}.
+     */
+    static boolean isPrewarmSessionBuffers() {
+        return jEdit.getBooleanProperty(PROP_PREWARM_SESSION_BUFFERS, true);
+    }
+
+    /**
+     * Indicates buffer refreshes should be run on virtual threads when
+     * supported by the Java runtime.
+     *
+     * @return {@code true} if buffer refreshes should be run on virtual threads
+     *         when supported by the Java runtime; otherwise {@code false}.
+     */
+    static boolean isUseVirtualThreads() {
+        return jEdit.getBooleanProperty(PROP_USE_VIRTUAL_THREADS, true);
+    }
+
     /**
      * Sets the color used for added dirty marks.
      *
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+import java.awt.KeyboardFocusManager;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provides the poll interval of each Git repository and tracks whether the
+ * application is focused.
+ *
+ * <p>
+ * All buffers within the same repository share the same poll interval. When
+ * the application regains focus, the poll interval of every repository is
+ * reset.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+final class RepositoryPollIntervals {
+    private static final String ACTIVE_WINDOW_PROPERTY_NAME = "activeWindow"; //$NON-NLS-1$
+
+    private final PropertyChangeListener activeWindowListener = new PropertyChangeListener() {
+        @Override
+        public void propertyChange(final PropertyChangeEvent event) {
+            setApplicationFocused(event.getNewValue() != null);
+        }
+    };
+    private volatile boolean applicationFocused = true;
+    private final ISupplier<Integer> basePollTimeInMillisecondsSupplier = new ISupplier<Integer>() {
+        @Override
+        public Integer get() {
+            return Integer.valueOf(Properties.getRepositoryPollTimeInMilliseconds());
+        }
+    };
+    private final ISupplier<Boolean> focusedSupplier = new ISupplier<Boolean>() {
+        @Override
+        public Boolean get() {
+            return Boolean.valueOf(applicationFocused);
+        }
+    };
+    private final Map<Path, AdaptivePollInterval> pollIntervals = new HashMap<>(); // guarded by this
+
+    /**
+     * Starts tracking whether the application is focused.
+     */
+    void start() {
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addPropertyChangeListener(ACTIVE_WINDOW_PROPERTY_NAME,
+                activeWindowListener);
+    }
+
+    /**
+     * Stops tracking whether the application is focused.
+     */
+    void stop() {
+        KeyboardFocusManager.getCurrentKeyboardFocusManager()
+                .removePropertyChangeListener(ACTIVE_WINDOW_PROPERTY_NAME, activeWindowListener);
+    }
+
+    /**
+     * Gets the poll interval of the specified repository.
+     *
+     * @param repoRootPath
+     *        The path to the root of the repository working tree.
+     *
+     * @return The poll interval of the specified repository.
+     */
+    synchronized AdaptivePollInterval getPollInterval(final Path repoRootPath) {
+        AdaptivePollInterval pollInterval = pollIntervals.get(repoRootPath);
+        if (pollInterval == null) {
+            pollInterval = new AdaptivePollInterval(basePollTimeInMillisecondsSupplier,
+                    Properties.getMaxRepositoryPollTimeInMilliseconds(), focusedSupplier);
+            pollIntervals.put(repoRootPath, pollInterval);
+        }
+        return pollInterval;
+    }
+
+    private void setApplicationFocused(final boolean focused) {
+        final boolean focusRegained = focused && !applicationFocused;
+        applicationFocused = focused;
+        if (focusRegained) {
+            final List<AdaptivePollInterval> pollIntervalsToReset;
+            synchronized (this) {
+                pollIntervalsToReset = new ArrayList<>(pollIntervals.values());
+            }
+            for (final AdaptivePollInterval pollInterval : pollIntervalsToReset) {
+                pollInterval.reset();
+            }
+        }
+    }
+}
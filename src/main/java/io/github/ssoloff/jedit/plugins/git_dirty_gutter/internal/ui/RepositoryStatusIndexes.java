@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.GitRepositories;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.ILog;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.RepositoryStatusIndex;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.AdaptivePollInterval;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.IRefreshTask;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.RefreshScheduler;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git.IGitRunnerFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.eclipse.jdt.annotation.Nullable;
+import org.gjt.sp.jedit.Buffer;
+import org.gjt.sp.jedit.EBComponent;
+import org.gjt.sp.jedit.EBMessage;
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.msg.BufferUpdate;
+
+/**
+ * Maintains a {@link RepositoryStatusIndex} for each Git repository that
+ * contains at least one open buffer.
+ *
+ * <p>
+ * The indexes must be added to the EditBus to track buffers as they are opened,
+ * saved, and closed. Each index is refreshed by the shared
+ * {@link RefreshScheduler}:
+ * </p>
+ *
+ * <ul>
+ * <li>When a buffer is saved, only the status of its file is read.</li>
+ * <li>When the repository poll interval is reset (for example, because a
+ * buffer detected that HEAD moved or the application regained focus) and each
+ * time the poll interval elapses, the status of the whole working tree is
+ * read.</li>
+ * </ul>
+ *
+ * <p>
+ * Reading the whole working tree on each poll is the only way to detect
+ * changes made outside the editor to files that are not open. Each poll is
+ * recorded in the repository poll interval, so polls back off while the
+ * working tree is unchanged or Git is slow, and a detected change resets the
+ * interval for every buffer in the repository.
+ * </p>
+ *
+ * <p>
+ * Listeners are notified on the event dispatch thread whenever the status of
+ * any repository changes. The methods of this class are thread-safe.
+ * </p>
+ */
+final class RepositoryStatusIndexes implements EBComponent {
+    private final Map<Buffer, Path> bufferRepoRootPaths = new HashMap<>(); // guarded by this
+    private final IGitRunnerFactory gitRunnerFactory;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ILog log;
+    private final Map<Path, TrackedRepository> repositories = new HashMap<>(); // guarded by this
+    private final Runnable statusChangeNotifier = new Runnable() {
+        @Override
+        public void run() {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    for (final Runnable listener : listeners) {
+                        listener.run();
+                    }
+                }
+            });
+        }
+    };
+
+    /**
+     * Initializes a new instance of the {@code RepositoryStatusIndexes} class.
+     *
+     * @param gitRunnerFactory
+     *        The Git runner factory.
+     * @param log
+     *        The application log.
+     */
+    RepositoryStatusIndexes(final IGitRunnerFactory gitRunnerFactory, final ILog log) {
+        this.gitRunnerFactory = gitRunnerFactory;
+        this.log = log;
+    }
+
+    private void addBuffer(final Buffer buffer) {
+        if (buffer.isUntitled()) {
+            return;
+        }
+
+        final Path repoRootPath = GitRepositories.findWorkingTreeRootPath(Paths.get(buffer.getPath()));
+        if (repoRootPath == null) {
+            return;
+        }
+
+        // acquire the shared services before locking this object to preserve the lock order
+        final RefreshScheduler refreshScheduler = PluginServices.getRefreshScheduler();
+        final AdaptivePollInterval pollInterval = PluginServices.getRepositoryPollInterval(repoRootPath);
+        synchronized (this) {
+            if (bufferRepoRootPaths.containsKey(buffer)) {
+                return;
+            }
+
+            TrackedRepository repository = repositories.get(repoRootPath);
+            if (repository == null) {
+                repository = new TrackedRepository(repoRootPath, refreshScheduler, pollInterval);
+                repositories.put(repoRootPath, repository);
+            }
+            ++repository.bufferCount;
+            bufferRepoRootPaths.put(buffer, repoRootPath);
+        }
+    }
+
+    /**
+     * Adds a listener that is notified on the event dispatch thread whenever
+     * the status of any repository changes.
+     *
+     * @param listener
+     *        The listener to add.
+     */
+    void addListener(final Runnable listener) {
+        listeners.add(listener);
+    }
+
+    private void bufferSaved(final Buffer buffer) {
+        final Path filePath = Paths.get(buffer.getPath());
+        final Path oldRepoRootPath;
+        synchronized (this) {
+            oldRepoRootPath = bufferRepoRootPaths.get(buffer);
+        }
+        if ((oldRepoRootPath == null) || !filePath.toAbsolutePath().startsWith(oldRepoRootPath)) {
+            // the buffer may have been saved into a different repository
+            removeBuffer(buffer);
+            addBuffer(buffer);
+        }
+
+        synchronized (this) {
+            final Path repoRootPath = bufferRepoRootPaths.get(buffer);
+            if (repoRootPath != null) {
+                final TrackedRepository repository = repositories.get(repoRootPath);
+                assert repository != null;
+                repository.index.invalidateFile(filePath);
+                repository.registration.requestRefresh();
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the repository that contains the file associated with
+     * the specified buffer.
+     *
+     * <p>
+     * Unlike {@link #getIndex(Path)}, this method does not access the file
+     * system, so it may be invoked on the event dispatch thread.
+     * </p>
+     *
+     * @param buffer
+     *        The buffer.
+     *
+     * @return The index of the repository that contains the file associated
+     *         with the specified buffer or {@code null} if the buffer is not
+     *         tracked.
+     */
+    @Nullable
+    synchronized RepositoryStatusIndex getIndex(final Buffer buffer) {
+        final Path repoRootPath = bufferRepoRootPaths.get(buffer);
+        if (repoRootPath == null) {
+            return null;
+        }
+
+        final TrackedRepository repository = repositories.get(repoRootPath);
+        return (repository != null) ? repository.index : null;
+    }
+
+    /**
+     * Gets the index of the repository that contains the specified file.
+     *
+     * @param filePath
+     *        The path to the file.
+     *
+     * @return The index of the repository that contains the specified file or
+     *         {@code null} if the file is not within a repository that
+     *         contains at least one open buffer.
+     */
+    @Nullable
+    RepositoryStatusIndex getIndex(final Path filePath) {
+        final Path repoRootPath = GitRepositories.findWorkingTreeRootPath(filePath);
+        if (repoRootPath == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            final TrackedRepository repository = repositories.get(repoRootPath);
+            return (repository != null) ? repository.index : null;
+        }
+    }
+
+    @Override
+    public void handleMessage(final EBMessage message) {
+        if (message instanceof BufferUpdate) {
+            final BufferUpdate bufferUpdate = (BufferUpdate) message;
+            final Object what = bufferUpdate.getWhat();
+            final Buffer buffer = bufferUpdate.getBuffer();
+            if ((what == BufferUpdate.CREATED) || (what == BufferUpdate.LOADED)) {
+                addBuffer(buffer);
+            } else if (what == BufferUpdate.SAVED) {
+                bufferSaved(buffer);
+            } else if (what == BufferUpdate.CLOSED) {
+                removeBuffer(buffer);
+            }
+        }
+    }
+
+    private synchronized void removeBuffer(final Buffer buffer) {
+        final Path repoRootPath = bufferRepoRootPaths.remove(buffer);
+        if (repoRootPath == null) {
+            return;
+        }
+
+        final TrackedRepository repository = repositories.get(repoRootPath);
+        assert repository != null;
+        if (--repository.bufferCount == 0) {
+            repositories.remove(repoRootPath);
+            repository.stop();
+            statusChangeNotifier.run();
+        }
+    }
+
+    /**
+     * Removes a listener that was previously added.
+     *
+     * @param listener
+     *        The listener to remove.
+     */
+    void removeListener(final Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts tracking the buffers that are already open.
+     *
+     * <p>
+     * This method must be invoked on the event dispatch thread.
+     * </p>
+     */
+    void start() {
+        assert SwingUtilities.isEventDispatchThread();
+
+        final Buffer[] buffers = jEdit.getBuffers();
+        if (buffers != null) {
+            for (final Buffer buffer : buffers) {
+                addBuffer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Stops refreshing all indexes.
+     */
+    synchronized void stop() {
+        for (final TrackedRepository repository : new ArrayList<>(repositories.values())) {
+            repository.stop();
+        }
+        repositories.clear();
+        bufferRepoRootPaths.clear();
+    }
+
+    private final class TrackedRepository {
+        int bufferCount = 0;
+        final RepositoryStatusIndex index;
+        final AdaptivePollInterval pollInterval;
+        private volatile boolean recordingPoll = false;
+        final RefreshScheduler.Registration registration;
+        private final Runnable resetListener = new Runnable() {
+            @Override
+            public void run() {
+                // a reset caused by a poll of this repository follows a full
+                // refresh, so the index is already up to date
+                if (!recordingPoll) {
+                    index.invalidate();
+                    registration.requestRefresh();
+                }
+            }
+        };
+
+        TrackedRepository(final Path repoRootPath, final RefreshScheduler refreshScheduler,
+                final AdaptivePollInterval pollInterval) {
+            index = new RepositoryStatusIndex(repoRootPath, gitRunnerFactory, log);
+            index.addListener(statusChangeNotifier);
+            this.pollInterval = pollInterval;
+            registration = refreshScheduler.register(new IRefreshTask() {
+                @Override
+                public void run(final boolean refreshRequested) throws InterruptedException {
+                    if (refreshRequested) {
+                        index.refresh();
+                    } else {
+                        poll();
+                    }
+                }
+            }, new ISupplier<Integer>() {
+                @Override
+                public Integer get() {
+                    return Integer.valueOf(pollInterval.getPollTimeInMilliseconds());
+                }
+            });
+            pollInterval.addResetListener(resetListener);
+            registration.requestRefresh();
+        }
+
+        private void poll() throws InterruptedException {
+            index.invalidate();
+            final long startTime = System.nanoTime();
+            final boolean changed = index.refresh();
+            recordingPoll = true;
+            try {
+                pollInterval.recordPoll(changed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            } finally {
+                recordingPoll = false;
+            }
+        }
+
+        void stop() {
+            pollInterval.removeResetListener(resetListener);
+            registration.cancel();
+            index.removeListener(statusChangeNotifier);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.RepositoryStatus;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.RepositoryStatusIndex;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
+import org.eclipse.jdt.annotation.Nullable;
+import org.gjt.sp.jedit.Buffer;
+import org.gjt.sp.jedit.View;
+import org.gjt.sp.jedit.gui.statusbar.StatusWidgetFactory;
+import org.gjt.sp.jedit.gui.statusbar.Widget;
+
+/**
+ * Implementation of {@link StatusWidgetFactory} that creates a status bar
+ * widget summarizing the dirty files in the Git repository of the current
+ * buffer.
+ */
+public final class RepositoryStatusWidgetFactory implements StatusWidgetFactory {
+    @Override
+    public Widget getWidget(final View view) {
+        return new RepositoryStatusWidget(view);
+    }
+
+    private static final class RepositoryStatusWidget implements Widget {
+        private final JLabel label = new JLabel();
+        @Nullable
+        private RepositoryStatusIndexes registeredIndexes = null;
+        private final Runnable statusChangeListener = new Runnable() {
+            @Override
+            public void run() {
+                update();
+            }
+        };
+        private final View view;
+
+        RepositoryStatusWidget(final View view) {
+            this.view = view;
+
+            // only listen for status changes while the widget is shown in a status bar
+            label.addAncestorListener(new AncestorListener() {
+                @Override
+                public void ancestorAdded(final AncestorEvent event) {
+                    if (registeredIndexes == null) {
+                        final RepositoryStatusIndexes indexes = PluginServices.getRepositoryStatusIndexes();
+                        indexes.addListener(statusChangeListener);
+                        registeredIndexes = indexes;
+                    }
+                    update();
+                }
+
+                @Override
+                public void ancestorMoved(final AncestorEvent event) {
+                    // do nothing
+                }
+
+                @Override
+                public void ancestorRemoved(final AncestorEvent event) {
+                    final RepositoryStatusIndexes indexes = registeredIndexes;
+                    if (indexes != null) {
+                        indexes.removeListener(statusChangeListener);
+                        registeredIndexes = null;
+                    }
+                }
+            });
+        }
+
+        @Override
+        public JComponent getComponent() {
+            return label;
+        }
+
+        @Override
+        public void propertiesChanged() {
+            // do nothing
+        }
+
+        @Override
+        public void update() {
+            final Buffer buffer = view.getBuffer();
+            final RepositoryStatusIndex index = (buffer != null)
+                    ? PluginServices.getRepositoryStatusIndexes().getIndex(buffer) : null;
+            if (index == null) {
+                label.setText(""); //$NON-NLS-1$
+                label.setToolTipText(null);
+                return;
+            }
+
+            final RepositoryStatus status = index.getStatus();
+            label.setText(Messages.statusWidget_text(status.getDirtyFileCount(), status.getAddedLineCount(),
+                    status.getRemovedLineCount()));
+            label.setToolTipText(Messages.statusWidget_toolTipText(status.getRepoRootPath()));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.ui;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.HeadBlobPrewarmer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.swing.SwingUtilities;
+import org.eclipse.jdt.annotation.Nullable;
+import org.gjt.sp.jedit.Buffer;
+import org.gjt.sp.jedit.EBComponent;
+import org.gjt.sp.jedit.EBMessage;
+import org.gjt.sp.jedit.EditBus;
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.msg.EditorStarted;
+
+/**
+ * Reads the HEAD revisions of the buffers restored with the editor session in
+ * the background so that their dirty marks can be displayed without waiting
+ * for Git.
+ *
+ * <p>
+ * The HEAD revisions are read once the editor has started, or immediately if
+ * the plugin is started after the editor. The methods of this class must be
+ * invoked on the event dispatch thread.
+ * </p>
+ */
+final class SessionPrewarmer implements EBComponent {
+    private final HeadBlobPrewarmer headBlobPrewarmer;
+    private boolean started = false;
+    @Nullable
+    private Thread thread = null;
+
+    /**
+     * Initializes a new instance of the {@code SessionPrewarmer} class.
+     *
+     * @param headBlobPrewarmer
+     *        The prewarmer used to read the HEAD revisions.
+     */
+    SessionPrewarmer(final HeadBlobPrewarmer headBlobPrewarmer) {
+        this.headBlobPrewarmer = headBlobPrewarmer;
+    }
+
+    @Override
+    public void handleMessage(final EBMessage message) {
+        if (message instanceof EditorStarted) {
+            prewarm();
+        }
+    }
+
+    private void prewarm() {
+        assert SwingUtilities.isEventDispatchThread();
+
+        if (started) {
+            return;
+        }
+        started = true;
+        EditBus.removeFromBus(this);
+
+        final Buffer[] buffers = jEdit.getBuffers();
+        if (buffers == null) {
+            return;
+        }
+
+        final Set<Buffer> visibleBuffers = BufferVisibilityTracker.getVisibleBuffers();
+        final List<Path> visibleFilePaths = new ArrayList<>();
+        final List<Path> otherFilePaths = new ArrayList<>();
+        for (final Buffer buffer : buffers) {
+            if (!buffer.isUntitled()) {
+                final Path filePath = Paths.get(buffer.getPath());
+                (visibleBuffers.contains(buffer) ? visibleFilePaths : otherFilePaths).add(filePath);
+            }
+        }
+
+        final Thread prewarmThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    headBlobPrewarmer.prewarm(visibleFilePaths, otherFilePaths);
+                } catch (final InterruptedException e) {
+                    // plugin stopped; abandon the remaining HEAD revisions
+                }
+            }
+        }, "GitDirtyGutter-prewarm"); //$NON-NLS-1$
+        prewarmThread.setDaemon(true);
+        prewarmThread.start();
+        thread = prewarmThread;
+    }
+
+    /**
+     * Starts reading the HEAD revisions of the session buffers once the editor
+     * has started.
+     */
+    void start() {
+        assert SwingUtilities.isEventDispatchThread();
+
+        if (jEdit.isStartupDone()) {
+            prewarm();
+        } else {
+            EditBus.addToBus(this);
+        }
+    }
+
+    /**
+     * Stops reading the HEAD revisions of the session buffers.
+     */
+    void stop() {
+        assert SwingUtilities.isEventDispatchThread();
+
+        EditBus.removeFromBus(this);
+        started = true;
+
+        final Thread prewarmThread = thread;
+        if (prewarmThread != null) {
+            prewarmThread.interrupt();
+            thread = null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+/**
+ * Computes how long to delay an operation after a burst of requests based on
+ * the measured cost of the most recent operations.
+ *
+ * <p>
+ * The delay is proportional to the average cost of the most recent operations,
+ * so cheap operations run almost immediately while expensive operations wait
+ * for a burst of requests to end. The delay never exceeds a maximum, and an
+ * operation is never delayed beyond a maximum staleness measured from the
+ * first request it serves.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public final class AdaptiveDebouncer {
+    private static final int COST_FACTOR = 2;
+    private static final int SAMPLE_COUNT = 5;
+
+    private final long[] costs = new long[SAMPLE_COUNT];
+    private int costCount = 0;
+    private int nextCostIndex = 0;
+    private final long maxDelayInMilliseconds;
+    private final long maxStalenessInMilliseconds;
+
+    /**
+     * Initializes a new instance of the {@code AdaptiveDebouncer} class.
+     *
+     * @param maxDelayInMilliseconds
+     *        The maximum delay (in milliseconds) after the most recent request;
+     *        must not be negative.
+     * @param maxStalenessInMilliseconds
+     *        The maximum delay (in milliseconds) after the first request; must
+     *        not be negative.
+     */
+    public AdaptiveDebouncer(final long maxDelayInMilliseconds, final long maxStalenessInMilliseconds) {
+        assert maxDelayInMilliseconds >= 0;
+        assert maxStalenessInMilliseconds >= 0;
+
+        this.maxDelayInMilliseconds = maxDelayInMilliseconds;
+        this.maxStalenessInMilliseconds = maxStalenessInMilliseconds;
+    }
+
+    /**
+     * Gets the average cost of the most recent operations.
+     *
+     * @return The average cost (in milliseconds) of the most recent operations
+     *         or zero if no operations have been recorded.
+     */
+    public long getAverageCostInMilliseconds() {
+        if (costCount == 0) {
+            return 0L;
+        }
+
+        long totalCost = 0L;
+        for (int index = 0; index < costCount; ++index) {
+            totalCost += costs[index];
+        }
+        return totalCost / costCount;
+    }
+
+    /**
+     * Gets the time to delay the operation.
+     *
+     * @param elapsedTimeInMilliseconds
+     *        The time (in milliseconds) that has elapsed since the first
+     *        request served by the pending operation.
+     *
+     * @return The time (in milliseconds) to delay the operation.
+     */
+    public long getDelayInMilliseconds(final long elapsedTimeInMilliseconds) {
+        final long delay = Math.min(COST_FACTOR * getAverageCostInMilliseconds(), maxDelayInMilliseconds);
+        final long remainingStaleness = Math.max(maxStalenessInMilliseconds - elapsedTimeInMilliseconds, 0L);
+        return Math.min(delay, remainingStaleness);
+    }
+
+    /**
+     * Records the cost of an operation.
+     *
+     * @param costInMilliseconds
+     *        The cost (in milliseconds) of the operation.
+     */
+    public void recordCost(final long costInMilliseconds) {
+        costs[nextCostIndex] = Math.max(costInMilliseconds, 0L);
+        nextCostIndex = (nextCostIndex + 1) % SAMPLE_COUNT;
+        costCount = Math.min(costCount + 1, SAMPLE_COUNT);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the time between polls of a Git repository.
+ *
+ * <p>
+ * The poll time backs off exponentially while no change is detected in the
+ * repository: each poll is scheduled after a fixed fraction of the time that
+ * has elapsed since the last change (or since the application regained focus),
+ * so the interval between polls grows geometrically. The back off is steeper
+ * while the application is not focused. The poll time is never less than the
+ * base poll time nor less than a multiple of the measured Git latency, and it
+ * never exceeds the maximum poll time.
+ * </p>
+ *
+ * <p>
+ * The poll time snaps back to the base poll time when a change is detected or
+ * the interval is reset, at which point the reset listeners are notified so
+ * that they can reschedule polls already waiting on a longer interval.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class AdaptivePollInterval {
+    private static final int FOCUSED_BACKOFF_DIVISOR = 2;
+    private static final int LATENCY_FACTOR = 20;
+    private static final int LATENCY_SMOOTHING_FACTOR = 4;
+
+    private final ISupplier<Integer> basePollTimeInMillisecondsSupplier;
+    private final ISupplier<Boolean> focusedSupplier;
+    private final int maxPollTimeInMilliseconds;
+    private final ISupplier<Long> nanoTimeSupplier;
+    private final List<Runnable> resetListeners = new CopyOnWriteArrayList<>();
+
+    // all of the following fields are guarded by this
+    private long averageLatencyInMilliseconds = 0L;
+    private long lastResetTimeInNanoseconds;
+
+    /**
+     * Initializes a new instance of the {@code AdaptivePollInterval} class.
+     *
+     * @param basePollTimeInMillisecondsSupplier
+     *        The supplier of the minimum time (in milliseconds) between polls.
+     * @param maxPollTimeInMilliseconds
+     *        The maximum time (in milliseconds) between polls.
+     * @param focusedSupplier
+     *        The supplier of a value that indicates whether the application is
+     *        focused.
+     */
+    public AdaptivePollInterval(final ISupplier<Integer> basePollTimeInMillisecondsSupplier,
+            final int maxPollTimeInMilliseconds, final ISupplier<Boolean> focusedSupplier) {
+        this(basePollTimeInMillisecondsSupplier, maxPollTimeInMilliseconds, focusedSupplier, new ISupplier<Long>() {
+            @Override
+            public Long get() {
+                return Long.valueOf(System.nanoTime());
+            }
+        });
+    }
+
+    AdaptivePollInterval(final ISupplier<Integer> basePollTimeInMillisecondsSupplier,
+            final int maxPollTimeInMilliseconds, final ISupplier<Boolean> focusedSupplier,
+            final ISupplier<Long> nanoTimeSupplier) {
+        this.basePollTimeInMillisecondsSupplier = basePollTimeInMillisecondsSupplier;
+        this.focusedSupplier = focusedSupplier;
+        this.maxPollTimeInMilliseconds = maxPollTimeInMilliseconds;
+        this.nanoTimeSupplier = nanoTimeSupplier;
+        lastResetTimeInNanoseconds = nanoTimeSupplier.get().longValue();
+    }
+
+    /**
+     * Adds a listener that is notified when the interval is reset.
+     *
+     * @param listener
+     *        The listener to add.
+     */
+    public void addResetListener(final Runnable listener) {
+        resetListeners.add(listener);
+    }
+
+    /**
+     * Gets the time to wait before the next poll.
+     *
+     * @return The time (in milliseconds) to wait before the next poll.
+     */
+    public synchronized int getPollTimeInMilliseconds() {
+        final int basePollTime = basePollTimeInMillisecondsSupplier.get().intValue();
+        final long unchangedTime = TimeUnit.NANOSECONDS
+                .toMillis(nanoTimeSupplier.get().longValue() - lastResetTimeInNanoseconds);
+        final long backoffPollTime = focusedSupplier.get().booleanValue()
+                ? (unchangedTime / FOCUSED_BACKOFF_DIVISOR)
+                : unchangedTime;
+        final long latencyPollTime = LATENCY_FACTOR * averageLatencyInMilliseconds;
+        final long pollTime = Math.max(basePollTime, Math.max(backoffPollTime, latencyPollTime));
+        return (int) Math.min(pollTime, Math.max(maxPollTimeInMilliseconds, basePollTime));
+    }
+
+    /**
+     * Records the outcome of a poll.
+     *
+     * @param changeDetected
+     *        {@code true} if the poll detected a change in the repository;
+     *        otherwise {@code false}.
+     * @param latencyInMilliseconds
+     *        The time (in milliseconds) spent running Git during the poll.
+     */
+    public void recordPoll(final boolean changeDetected, final long latencyInMilliseconds) {
+        synchronized (this) {
+            averageLatencyInMilliseconds = ((averageLatencyInMilliseconds * (LATENCY_SMOOTHING_FACTOR - 1))
+                    + Math.max(latencyInMilliseconds, 0L)) / LATENCY_SMOOTHING_FACTOR;
+        }
+
+        if (changeDetected) {
+            reset();
+        }
+    }
+
+    /**
+     * Removes a listener that is notified when the interval is reset.
+     *
+     * @param listener
+     *        The listener to remove.
+     */
+    public void removeResetListener(final Runnable listener) {
+        resetListeners.remove(listener);
+    }
+
+    /**
+     * Resets the poll time to the base poll time and notifies the reset
+     * listeners.
+     */
+    public void reset() {
+        synchronized (this) {
+            lastResetTimeInNanoseconds = nanoTimeSupplier.get().longValue();
+        }
+
+        for (final Runnable listener : resetListeners) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+/**
+ * Provides access to Java Flight Recorder on Java runtimes that support it.
+ *
+ * <p>
+ * The plugin is compiled for runtimes that predate the JFR API, so the
+ * classes that extend {@code jdk.jfr.Event} must only be instantiated after
+ * {@link #isAvailable()} has confirmed that the API is present. Each event is
+ * accessed through an interface that has a no-op implementation for other
+ * runtimes.
+ * </p>
+ */
+public final class FlightRecorder {
+    private static final boolean AVAILABLE = isEventClassPresent();
+
+    private FlightRecorder() {
+    }
+
+    /**
+     * Indicates the JFR API is available on the current Java runtime.
+     *
+     * @return {@code true} if the JFR API is available on the current Java
+     *         runtime; otherwise {@code false}.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    private static boolean isEventClassPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorder.class.getClassLoader()); //$NON-NLS-1$
+            return true;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
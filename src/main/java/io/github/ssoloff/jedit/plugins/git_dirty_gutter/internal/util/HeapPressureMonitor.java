@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * Notifies listeners when the heap is under pressure so they may release
+ * state that can be rebuilt on demand.
+ *
+ * <p>
+ * The heap is considered to be under pressure when the usage of a tenured heap
+ * memory pool after a garbage collection exceeds a threshold percentage of its
+ * maximum size. The monitor sets the collection usage threshold of those pools
+ * while it is started, so it should not be used alongside other code that sets
+ * them. Each notification is counted in the default {@link MetricsRegistry}
+ * ({@code heapPressure.notifications}).
+ * </p>
+ *
+ * <p>
+ * Listeners are invoked on a JMX notification thread and must be thread-safe.
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class HeapPressureMonitor {
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final NotificationListener notificationListener = new NotificationListener() {
+        @Override
+        public void handleNotification(final Notification notification, final Object handback) {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                notifyListeners();
+            }
+        }
+    };
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private boolean started = false;
+    private final int thresholdPercent;
+
+    /**
+     * Initializes a new instance of the {@code HeapPressureMonitor} class.
+     *
+     * @param thresholdPercent
+     *        The percentage of the maximum size of a tenured heap memory pool
+     *        that its usage after a garbage collection must exceed for the heap
+     *        to be considered under pressure; must be between 1 and 100.
+     */
+    public HeapPressureMonitor(final int thresholdPercent) {
+        assert (thresholdPercent >= 1) && (thresholdPercent <= 100);
+
+        this.thresholdPercent = thresholdPercent;
+    }
+
+    /**
+     * Adds a listener that is invoked when the heap is under pressure.
+     *
+     * @param listener
+     *        The listener to add.
+     */
+    public void addListener(final Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gets the number of memory pools being monitored.
+     *
+     * @return The number of memory pools being monitored or zero if the
+     *         monitor is stopped.
+     */
+    public synchronized int getMonitoredPoolCount() {
+        return pools.size();
+    }
+
+    /**
+     * Notifies all listeners that the heap is under pressure.
+     *
+     * <p>
+     * This method is invoked when a monitored memory pool exceeds its
+     * threshold, but it may also be invoked directly, for example, to release
+     * state on request.
+     * </p>
+     */
+    public void notifyListeners() {
+        MetricsRegistry.getDefault().counter("heapPressure.notifications").increment(); //$NON-NLS-1$
+        for (final Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Removes a listener that is invoked when the heap is under pressure.
+     *
+     * @param listener
+     *        The listener to remove.
+     */
+    public void removeListener(final Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts monitoring the heap.
+     *
+     * <p>
+     * If the Java runtime does not support collection usage thresholds for any
+     * tenured heap memory pool, listeners are only notified directly.
+     * </p>
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // only tenured pools support usage thresholds
+            final long maxSize = pool.getUsage().getMax();
+            if ((pool.getType() == MemoryType.HEAP) && pool.isUsageThresholdSupported()
+                    && pool.isCollectionUsageThresholdSupported() && (maxSize > 0L)) {
+                pool.setCollectionUsageThreshold((maxSize / 100L) * thresholdPercent);
+                pools.add(pool);
+            }
+        }
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(notificationListener,
+                null, null);
+        started = true;
+    }
+
+    /**
+     * Stops monitoring the heap.
+     */
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+                    .removeNotificationListener(notificationListener);
+        } catch (final ListenerNotFoundException e) {
+            // do nothing
+        }
+        for (final MemoryPoolMXBean pool : pools) {
+            // a threshold of zero disables the threshold
+            pool.setCollectionUsageThreshold(0L);
+        }
+        pools.clear();
+        started = false;
+    }
+}
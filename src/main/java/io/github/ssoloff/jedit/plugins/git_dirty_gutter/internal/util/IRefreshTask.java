@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+/**
+ * A task that is run by a {@link RefreshScheduler}.
+ */
+public interface IRefreshTask {
+    /**
+     * Runs the task.
+     *
+     * @param refreshRequested
+     *        {@code true} if one or more refreshes were explicitly requested
+     *        since the task last ran; {@code false} if the task is being run
+     *        only because the poll time has elapsed.
+     *
+     * @throws InterruptedException
+     *         If interrupted while running the task because its registration
+     *         was cancelled or its result was superseded.
+     */
+    void run(boolean refreshRequested) throws InterruptedException;
+}
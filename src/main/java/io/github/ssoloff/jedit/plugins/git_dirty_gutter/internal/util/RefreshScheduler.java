@@ -0,0 +1,511 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Runs refresh tasks for many clients using a small, bounded pool of threads.
+ *
+ * <p>
+ * Each client registers a task that is run when a refresh is explicitly
+ * requested or when the client's poll time has elapsed since the task last
+ * ran. Requests made while a task is waiting to run are merged, and requests
+ * made while a task is running cause the task to be run exactly once more. A
+ * task is never run concurrently with itself.
+ * </p>
+ *
+ * <p>
+ * Explicitly-requested refreshes are debounced: the task is delayed in
+ * proportion to the measured cost of its recent refreshes so that a burst of
+ * requests results in a single run (see {@link AdaptiveDebouncer}).
+ * </p>
+ *
+ * <p>
+ * A registration may be suspended while its results are of no interest (for
+ * example, while its buffer is not visible). A suspended task is neither
+ * polled nor run for requested refreshes; when it is resumed, it is run once
+ * immediately to catch up.
+ * </p>
+ *
+ * <p>
+ * Tasks spend most of their time blocked on Git processes. When requested and
+ * supported by the Java runtime, each task is run on its own virtual thread
+ * so that blocking costs almost nothing; otherwise, tasks are run on a pool of
+ * platform threads. In either case, the number of tasks running concurrently
+ * is bounded.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class RefreshScheduler {
+    private final long maxRefreshDelayInMilliseconds;
+    private final long maxRefreshStalenessInMilliseconds;
+    private final AtomicInteger queuedTaskCount = new AtomicInteger();
+    private final ExecutorService refreshExecutor;
+    private final Semaphore runPermits;
+    private final int threadCount;
+    private final ScheduledExecutorService timerExecutor;
+    private final boolean usingVirtualThreads;
+
+    /**
+     * Initializes a new instance of the {@code RefreshScheduler} class.
+     *
+     * @param name
+     *        The name of the scheduler; used to name its threads.
+     * @param threadCount
+     *        The maximum number of tasks that may run concurrently; must be
+     *        positive.
+     * @param maxRefreshDelayInMilliseconds
+     *        The maximum time (in milliseconds) a requested refresh is delayed
+     *        after the most recent request; must not be negative.
+     * @param maxRefreshStalenessInMilliseconds
+     *        The maximum time (in milliseconds) a requested refresh is delayed
+     *        after the first request it serves; must not be negative.
+     * @param preferVirtualThreads
+     *        {@code true} if tasks should be run on virtual threads when
+     *        supported by the Java runtime; {@code false} if tasks should
+     *        always be run on platform threads.
+     */
+    public RefreshScheduler(final String name, final int threadCount, final long maxRefreshDelayInMilliseconds,
+            final long maxRefreshStalenessInMilliseconds, final boolean preferVirtualThreads) {
+        assert threadCount > 0;
+
+        this.maxRefreshDelayInMilliseconds = maxRefreshDelayInMilliseconds;
+        this.maxRefreshStalenessInMilliseconds = maxRefreshStalenessInMilliseconds;
+        final String refreshThreadNamePrefix = name + "-refresh"; //$NON-NLS-1$
+        final ExecutorService virtualThreadExecutor = preferVirtualThreads
+                ? VirtualThreads.newThreadPerTaskExecutor(refreshThreadNamePrefix)
+                : null;
+        if (virtualThreadExecutor != null) {
+            refreshExecutor = virtualThreadExecutor;
+            usingVirtualThreads = true;
+        } else {
+            final ThreadPoolExecutor platformThreadExecutor = new ThreadPoolExecutor(threadCount, threadCount, 60L,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), newThreadFactory(refreshThreadNamePrefix));
+            platformThreadExecutor.allowCoreThreadTimeOut(true);
+            refreshExecutor = platformThreadExecutor;
+            usingVirtualThreads = false;
+        }
+        runPermits = new Semaphore(threadCount);
+        this.threadCount = threadCount;
+        timerExecutor = Executors.newSingleThreadScheduledExecutor(newThreadFactory(name + "-timer")); //$NON-NLS-1$
+    }
+
+    private static ThreadFactory newThreadFactory(final String namePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable,
+                        String.format("%s-%d", namePrefix, threadCount.incrementAndGet())); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread on which to run.
+     *
+     * @return The number of tasks waiting for a thread on which to run.
+     */
+    public int getQueuedTaskCount() {
+        return queuedTaskCount.get();
+    }
+
+    /**
+     * Gets the number of tasks that are running.
+     *
+     * @return The number of tasks that are running.
+     */
+    public int getRunningTaskCount() {
+        return threadCount - runPermits.availablePermits();
+    }
+
+    /**
+     * Indicates tasks are run on virtual threads.
+     *
+     * @return {@code true} if tasks are run on virtual threads; {@code false}
+     *         if tasks are run on platform threads.
+     */
+    public boolean isUsingVirtualThreads() {
+        return usingVirtualThreads;
+    }
+
+    /**
+     * Registers a new task with the scheduler.
+     *
+     * <p>
+     * The task is not run until a refresh is requested or the poll time
+     * elapses.
+     * </p>
+     *
+     * @param task
+     *        The task to run.
+     * @param pollTimeInMillisecondsSupplier
+     *        The supplier of the time (in milliseconds) after which the task is
+     *        run if no refresh has been requested.
+     *
+     * @return The registration used to control the task.
+     */
+    public Registration register(final IRefreshTask task, final ISupplier<Integer> pollTimeInMillisecondsSupplier) {
+        final Registration registration = new Registration(task, pollTimeInMillisecondsSupplier,
+                new AdaptiveDebouncer(maxRefreshDelayInMilliseconds, maxRefreshStalenessInMilliseconds));
+        registration.schedulePoll();
+        return registration;
+    }
+
+    /**
+     * Shuts down the scheduler.
+     *
+     * <p>
+     * Running tasks are interrupted, and no further tasks will be run.
+     * </p>
+     */
+    public void shutdown() {
+        timerExecutor.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * The state of a registered task.
+     */
+    private enum State {
+        /** The registration has been cancelled. */
+        CANCELLED,
+
+        /** The task is waiting for a requested refresh to be debounced. */
+        DELAYED,
+
+        /** The task is waiting for the poll time to elapse. */
+        IDLE,
+
+        /** The task is waiting for a thread on which to run. */
+        QUEUED,
+
+        /** The task is running. */
+        RUNNING;
+    }
+
+    /**
+     * The registration of a task with the scheduler.
+     */
+    @SuppressWarnings("synthetic-access")
+    public final class Registration {
+        private final AdaptiveDebouncer debouncer;
+        private final ISupplier<Integer> pollTimeInMillisecondsSupplier;
+        private final IRefreshTask task;
+        private final Runnable taskRunner = new Runnable() {
+            @Override
+            public void run() {
+                runTask();
+            }
+        };
+        private final Runnable timerExpiredHandler = new Runnable() {
+            @Override
+            public void run() {
+                onTimerExpired();
+            }
+        };
+
+        // all of the following fields are guarded by this
+        private long firstRequestTimeInNanoseconds = 0L;
+        private boolean refreshRequested = false;
+        @Nullable
+        private Thread runningThread = null;
+        private State state = State.IDLE;
+        private boolean suspended = false;
+        @Nullable
+        private ScheduledFuture<?> timerFuture = null;
+
+        Registration(final IRefreshTask task, final ISupplier<Integer> pollTimeInMillisecondsSupplier,
+                final AdaptiveDebouncer debouncer) {
+            this.debouncer = debouncer;
+            this.pollTimeInMillisecondsSupplier = pollTimeInMillisecondsSupplier;
+            this.task = task;
+        }
+
+        /**
+         * Cancels the registration.
+         *
+         * <p>
+         * If the task is running, it is interrupted. The task will not be run
+         * again.
+         * </p>
+         */
+        public synchronized void cancel() {
+            state = State.CANCELLED;
+            cancelTimer();
+            final Thread thread = runningThread;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        private void cancelTimer() {
+            assert Thread.holdsLock(this);
+
+            final ScheduledFuture<?> future = timerFuture;
+            if (future != null) {
+                future.cancel(false);
+                timerFuture = null;
+            }
+        }
+
+        private void executeTask() {
+            assert Thread.holdsLock(this);
+
+            cancelTimer();
+            state = State.QUEUED;
+            queuedTaskCount.incrementAndGet();
+            try {
+                refreshExecutor.execute(taskRunner);
+            } catch (final RejectedExecutionException e) {
+                // scheduler has been shut down
+                queuedTaskCount.decrementAndGet();
+                state = State.CANCELLED;
+            }
+        }
+
+        private synchronized void onTimerExpired() {
+            timerFuture = null;
+            if ((state == State.IDLE) || (state == State.DELAYED)) {
+                executeTask();
+            }
+        }
+
+        /**
+         * Requests the task to be run as soon as the debounce delay allows.
+         *
+         * <p>
+         * If the registration is suspended, the request is deferred until the
+         * registration is resumed.
+         * </p>
+         */
+        public synchronized void requestRefresh() {
+            if (!refreshRequested) {
+                refreshRequested = true;
+                firstRequestTimeInNanoseconds = System.nanoTime();
+            }
+
+            if (suspended) {
+                return;
+            }
+
+            if ((state == State.IDLE) || (state == State.DELAYED)) {
+                scheduleRequestedRefresh();
+            }
+        }
+
+        /**
+         * Resumes the registration.
+         *
+         * <p>
+         * If the registration was suspended and the task is not running, the
+         * task is run immediately without being debounced. The task is run
+         * with refresh requested if any refreshes were requested while the
+         * registration was suspended.
+         * </p>
+         */
+        public synchronized void resume() {
+            if (!suspended) {
+                return;
+            }
+
+            suspended = false;
+            if (state == State.IDLE) {
+                executeTask();
+            }
+        }
+
+        /**
+         * Requests the task to be run as soon as the debounce delay allows
+         * and interrupts the task if it is running.
+         *
+         * <p>
+         * This method should be invoked when the result of a running task
+         * would be discarded, for example, because the data on which it
+         * operates has changed. The task is expected to abort as soon as
+         * possible when interrupted.
+         * </p>
+         */
+        public synchronized void supersede() {
+            requestRefresh();
+
+            final Thread thread = runningThread;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Reschedules a waiting poll if the poll time has become shorter than
+         * the time remaining until the poll.
+         *
+         * <p>
+         * This method should be invoked when the value provided by the poll
+         * time supplier decreases.
+         * </p>
+         */
+        public synchronized void reschedulePoll() {
+            final ScheduledFuture<?> future = timerFuture;
+            if ((state != State.IDLE) || suspended || (future == null)) {
+                return;
+            }
+
+            final long pollTime = pollTimeInMillisecondsSupplier.get().longValue();
+            if (pollTime < future.getDelay(TimeUnit.MILLISECONDS)) {
+                scheduleTimer(pollTime);
+            }
+        }
+
+        private void runTask() {
+            try {
+                runPermits.acquire();
+            } catch (final InterruptedException e) {
+                // scheduler has been shut down
+                synchronized (this) {
+                    if (state == State.QUEUED) {
+                        state = State.CANCELLED;
+                    }
+                }
+                return;
+            } finally {
+                queuedTaskCount.decrementAndGet();
+            }
+
+            try {
+                runTaskWithPermit();
+            } finally {
+                runPermits.release();
+            }
+        }
+
+        private void runTaskWithPermit() {
+            final boolean runRefreshRequested;
+            synchronized (this) {
+                if (state != State.QUEUED) {
+                    return;
+                }
+                state = State.RUNNING;
+                runningThread = Thread.currentThread();
+                runRefreshRequested = refreshRequested;
+                refreshRequested = false;
+            }
+
+            final long startTime = System.nanoTime();
+            boolean completed = false;
+            try {
+                task.run(runRefreshRequested);
+                completed = true;
+            } catch (final InterruptedException e) {
+                // cancelled or superseded; the state is updated below
+            } finally {
+                synchronized (this) {
+                    runningThread = null;
+                    if (completed && runRefreshRequested) {
+                        debouncer.recordCost(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                    }
+
+                    if (state == State.RUNNING) {
+                        if (refreshRequested && !suspended) {
+                            scheduleRequestedRefresh();
+                        } else {
+                            state = State.IDLE;
+                            schedulePoll();
+                        }
+                    }
+                }
+                // clear any interrupt delivered after the task completed
+                Thread.interrupted();
+            }
+        }
+
+        synchronized void schedulePoll() {
+            if ((state != State.IDLE) || suspended) {
+                return;
+            }
+
+            scheduleTimer(pollTimeInMillisecondsSupplier.get().longValue());
+        }
+
+        private void scheduleRequestedRefresh() {
+            assert Thread.holdsLock(this);
+
+            final long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstRequestTimeInNanoseconds);
+            final long delay = debouncer.getDelayInMilliseconds(elapsedTime);
+            if (delay == 0L) {
+                executeTask();
+            } else {
+                state = State.DELAYED;
+                scheduleTimer(delay);
+            }
+        }
+
+        private void scheduleTimer(final long delayInMilliseconds) {
+            assert Thread.holdsLock(this);
+
+            cancelTimer();
+            try {
+                timerFuture = timerExecutor.schedule(timerExpiredHandler, delayInMilliseconds, TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException e) {
+                // scheduler has been shut down
+                state = State.CANCELLED;
+            }
+        }
+
+        /**
+         * Suspends the registration.
+         *
+         * <p>
+         * The task is no longer polled, and requested refreshes are deferred
+         * until the registration is resumed. If the task is running, it is
+         * allowed to complete.
+         * </p>
+         */
+        public synchronized void suspend() {
+            if (suspended || (state == State.CANCELLED)) {
+                return;
+            }
+
+            suspended = true;
+            if (state == State.DELAYED) {
+                state = State.IDLE;
+            }
+            if (state == State.IDLE) {
+                cancelTimer();
+            }
+        }
+    }
+}
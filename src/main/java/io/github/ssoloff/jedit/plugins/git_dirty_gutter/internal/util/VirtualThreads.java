@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Provides access to virtual threads on Java runtimes that support them.
+ *
+ * <p>
+ * The plugin is compiled for runtimes that predate virtual threads, so the
+ * virtual thread API is accessed reflectively.
+ * </p>
+ */
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread.
+     *
+     * @param namePrefix
+     *        The prefix of the name of each thread; a sequence number is
+     *        appended to the prefix.
+     *
+     * @return A new executor that runs each task on a new virtual thread or
+     *         {@code null} if the current Java runtime does not support virtual
+     *         threads.
+     */
+    @Nullable
+    public static ExecutorService newThreadPerTaskExecutor(final String namePrefix) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder"); //$NON-NLS-1$
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null); //$NON-NLS-1$
+            final Object namedBuilder = builderClass.getMethod("name", String.class, long.class) //$NON-NLS-1$
+                    .invoke(builder, namePrefix + "-", Long.valueOf(1L)); //$NON-NLS-1$
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory") //$NON-NLS-1$
+                    .invoke(namedBuilder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class) //$NON-NLS-1$
+                    .invoke(null, threadFactory);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // virtual threads not supported (or not enabled) on this runtime
+            return null;
+        }
+    }
+}
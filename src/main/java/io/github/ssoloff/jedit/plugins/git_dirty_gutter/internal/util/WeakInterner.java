@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A pool of canonical instances of equal objects that does not prevent its
+ * instances from being garbage collected.
+ *
+ * <p>
+ * Unlike {@link String#intern()}, an instance is only retained by the pool for
+ * as long as it is strongly reachable from elsewhere, so the pool shrinks as
+ * the objects sharing its instances are discarded.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ *
+ * @param <T>
+ *        The type of the pooled objects; must implement {@code equals} and
+ *        {@code hashCode} in terms of value.
+ */
+public final class WeakInterner<T> {
+    private final Map<T, WeakReference<T>> instances = new WeakHashMap<>();
+
+    /**
+     * Gets the number of canonical instances currently in the pool.
+     *
+     * @return The number of canonical instances currently in the pool.
+     */
+    public synchronized int getSize() {
+        return instances.size();
+    }
+
+    /**
+     * Gets the canonical instance equal to the specified object.
+     *
+     * <p>
+     * If the pool does not contain an instance equal to the specified object,
+     * the specified object becomes the canonical instance.
+     * </p>
+     *
+     * @param obj
+     *        The object to intern.
+     *
+     * @return The canonical instance equal to the specified object.
+     */
+    public synchronized T intern(final T obj) {
+        final WeakReference<T> instanceRef = instances.get(obj);
+        if (instanceRef != null) {
+            final T instance = instanceRef.get();
+            if (instance != null) {
+                return instance;
+            }
+        }
+
+        instances.put(obj, new WeakReference<>(obj));
+        return obj;
+    }
+}
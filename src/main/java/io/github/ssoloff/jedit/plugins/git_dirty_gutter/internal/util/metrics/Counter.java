@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count of events.
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class Counter implements ICounterMXBean {
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Initializes a new instance of the {@code Counter} class.
+     */
+    public Counter() {
+    }
+
+    /**
+     * Adds the specified number of events to the count.
+     *
+     * @param eventCount
+     *        The number of events to add; must not be negative.
+     */
+    public void add(final long eventCount) {
+        assert eventCount >= 0L;
+
+        count.addAndGet(eventCount);
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Adds one event to the count.
+     */
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    @Override
+    public void reset() {
+        count.set(0L);
+    }
+}
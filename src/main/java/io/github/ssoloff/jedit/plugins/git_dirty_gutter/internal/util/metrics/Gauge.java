@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+
+/**
+ * A value that is sampled when it is read.
+ *
+ * <p>
+ * The methods of this class are thread-safe if the value supplier is
+ * thread-safe.
+ * </p>
+ */
+public final class Gauge implements IGaugeMXBean {
+    private final ISupplier<? extends Number> valueSupplier;
+
+    /**
+     * Initializes a new instance of the {@code Gauge} class.
+     *
+     * @param valueSupplier
+     *        The supplier of the current value of the gauge.
+     */
+    public Gauge(final ISupplier<? extends Number> valueSupplier) {
+        this.valueSupplier = valueSupplier;
+    }
+
+    @Override
+    public long getValue() {
+        return valueSupplier.get().longValue();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics;
+
+/**
+ * The management interface of a {@link LatencyHistogram}.
+ */
+public interface ILatencyHistogramMXBean {
+    /**
+     * Gets the number of operations recorded.
+     *
+     * @return The number of operations recorded.
+     */
+    long getCount();
+
+    /**
+     * Gets the longest latency recorded.
+     *
+     * @return The longest latency (in milliseconds) recorded or zero if no
+     *         operations have been recorded.
+     */
+    double getMaxInMilliseconds();
+
+    /**
+     * Gets the mean latency recorded.
+     *
+     * @return The mean latency (in milliseconds) recorded or zero if no
+     *         operations have been recorded.
+     */
+    double getMeanInMilliseconds();
+
+    /**
+     * Gets the estimated median latency.
+     *
+     * @return The estimated median latency (in milliseconds) or zero if no
+     *         operations have been recorded.
+     */
+    double get50thPercentileInMilliseconds();
+
+    /**
+     * Gets the estimated 90th percentile latency.
+     *
+     * @return The estimated 90th percentile latency (in milliseconds) or zero
+     *         if no operations have been recorded.
+     */
+    double get90thPercentileInMilliseconds();
+
+    /**
+     * Gets the estimated 99th percentile latency.
+     *
+     * @return The estimated 99th percentile latency (in milliseconds) or zero
+     *         if no operations have been recorded.
+     */
+    double get99thPercentileInMilliseconds();
+
+    /**
+     * Discards all recorded latencies.
+     */
+    void reset();
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics;
+
+/**
+ * The management interface of a {@link MetricsRegistry}.
+ */
+public interface IMetricsRegistryMXBean {
+    /**
+     * Dumps the current value of every metric in the registry.
+     *
+     * @return A human-readable report of the current value of every metric,
+     *         one metric per line, ordered by metric name.
+     */
+    String dump();
+
+    /**
+     * Resets every counter and latency histogram in the registry.
+     */
+    void resetAll();
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of operation latencies.
+ *
+ * <p>
+ * Latencies are counted in buckets whose bounds grow exponentially from one
+ * microsecond, so a percentile is estimated as the upper bound of the bucket
+ * in which it falls and is never more than twice the true value. The count,
+ * mean, and maximum are exact.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class LatencyHistogram implements ILatencyHistogramMXBean {
+    private static final int BUCKET_COUNT = 40;
+
+    // bucket i counts latencies of less than 2^i microseconds; the last bucket
+    // counts all longer latencies
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong maxInNanoseconds = new AtomicLong();
+    private final AtomicLong totalInNanoseconds = new AtomicLong();
+
+    /**
+     * Initializes a new instance of the {@code LatencyHistogram} class.
+     */
+    public LatencyHistogram() {
+    }
+
+    private static int getBucketIndex(final long latencyInNanoseconds) {
+        final long latencyInMicroseconds = TimeUnit.NANOSECONDS.toMicros(latencyInNanoseconds);
+        final int bucketIndex = Long.SIZE - Long.numberOfLeadingZeros(latencyInMicroseconds);
+        return Math.min(bucketIndex, BUCKET_COUNT - 1);
+    }
+
+    private static double getBucketUpperBoundInMilliseconds(final int bucketIndex) {
+        return (1L << bucketIndex) / 1000.0;
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public double getMaxInMilliseconds() {
+        return toMilliseconds(maxInNanoseconds.get());
+    }
+
+    @Override
+    public double getMeanInMilliseconds() {
+        final long currentCount = count.get();
+        if (currentCount == 0L) {
+            return 0.0;
+        }
+
+        return toMilliseconds(totalInNanoseconds.get()) / currentCount;
+    }
+
+    /**
+     * Gets the estimated latency below which the specified fraction of
+     * recorded latencies fall.
+     *
+     * @param fraction
+     *        The fraction of recorded latencies; must be greater than zero and
+     *        not greater than one.
+     *
+     * @return The estimated latency (in milliseconds) or zero if no operations
+     *         have been recorded.
+     */
+    public double getPercentileInMilliseconds(final double fraction) {
+        assert (fraction > 0.0) && (fraction <= 1.0);
+
+        long totalCount = 0L;
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; ++bucketIndex) {
+            counts[bucketIndex] = bucketCounts.get(bucketIndex);
+            totalCount += counts[bucketIndex];
+        }
+        if (totalCount == 0L) {
+            return 0.0;
+        }
+
+        final long rank = (long) Math.ceil(fraction * totalCount);
+        long cumulativeCount = 0L;
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; ++bucketIndex) {
+            cumulativeCount += counts[bucketIndex];
+            if (cumulativeCount >= rank) {
+                return Math.min(getBucketUpperBoundInMilliseconds(bucketIndex), getMaxInMilliseconds());
+            }
+        }
+        return getMaxInMilliseconds();
+    }
+
+    @Override
+    public double get50thPercentileInMilliseconds() {
+        return getPercentileInMilliseconds(0.50);
+    }
+
+    @Override
+    public double get90thPercentileInMilliseconds() {
+        return getPercentileInMilliseconds(0.90);
+    }
+
+    @Override
+    public double get99thPercentileInMilliseconds() {
+        return getPercentileInMilliseconds(0.99);
+    }
+
+    /**
+     * Records the latency of an operation.
+     *
+     * @param latencyInNanoseconds
+     *        The latency (in nanoseconds) of the operation; negative values are
+     *        recorded as zero.
+     */
+    public void record(final long latencyInNanoseconds) {
+        final long latency = Math.max(latencyInNanoseconds, 0L);
+        bucketCounts.incrementAndGet(getBucketIndex(latency));
+        count.incrementAndGet();
+        totalInNanoseconds.addAndGet(latency);
+
+        long currentMax = maxInNanoseconds.get();
+        while ((latency > currentMax) && !maxInNanoseconds.compareAndSet(currentMax, latency)) {
+            currentMax = maxInNanoseconds.get();
+        }
+    }
+
+    /**
+     * Records the latency of an operation that started at the specified time.
+     *
+     * @param startTimeInNanoseconds
+     *        The time (as reported by {@link System#nanoTime()}) at which the
+     *        operation started.
+     */
+    public void recordSince(final long startTimeInNanoseconds) {
+        record(System.nanoTime() - startTimeInNanoseconds);
+    }
+
+    @Override
+    public void reset() {
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; ++bucketIndex) {
+            bucketCounts.set(bucketIndex, 0L);
+        }
+        count.set(0L);
+        maxInNanoseconds.set(0L);
+        totalInNanoseconds.set(0L);
+    }
+
+    private static double toMilliseconds(final long nanoseconds) {
+        return nanoseconds / 1000000.0;
+    }
+}
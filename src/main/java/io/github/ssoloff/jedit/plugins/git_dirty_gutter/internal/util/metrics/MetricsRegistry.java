@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics;
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A collection of named metrics that may be exposed as MBeans.
+ *
+ * <p>
+ * Metrics are created on first use. Once the registry's MBeans have been
+ * registered with an MBean server, each metric is registered as soon as it is
+ * created, so the metrics can be watched live with a JMX client such as
+ * JConsole. The object name of each metric is of the form
+ * {@code <domain>:type=<type>,name=<name>}, where the type is one of
+ * {@code Counter}, {@code Gauge}, or {@code LatencyHistogram}. The registry
+ * itself is registered as {@code <domain>:type=MetricsRegistry} so that all
+ * metrics can be dumped or reset at once.
+ * </p>
+ *
+ * <p>
+ * Recording a metric is cheap and never fails; problems registering MBeans are
+ * ignored because metrics are only a diagnostic aid.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class MetricsRegistry implements IMetricsRegistryMXBean {
+    /** The domain of the object names of the default registry's MBeans. */
+    public static final String DEFAULT_DOMAIN = "io.github.ssoloff.jedit.plugins.git_dirty_gutter"; //$NON-NLS-1$
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry(DEFAULT_DOMAIN);
+
+    private final String domain;
+
+    // all of the following fields are guarded by this
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final Map<String, Gauge> gauges = new HashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new HashMap<>();
+    @Nullable
+    private MBeanServer mbeanServer = null;
+    private final Set<ObjectName> registeredObjectNames = new LinkedHashSet<>();
+
+    /**
+     * Initializes a new instance of the {@code MetricsRegistry} class.
+     *
+     * @param domain
+     *        The domain of the object names of the registry's MBeans.
+     */
+    public MetricsRegistry(final String domain) {
+        this.domain = domain;
+    }
+
+    /**
+     * Gets the counter with the specified name, creating it if necessary.
+     *
+     * @param name
+     *        The counter name.
+     *
+     * @return The counter with the specified name.
+     */
+    public synchronized Counter counter(final String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter();
+            counters.put(name, counter);
+            registerMBean(counter, "Counter", name); //$NON-NLS-1$
+        }
+        return counter;
+    }
+
+    @Override
+    public synchronized String dump() {
+        final Map<String, String> lines = new TreeMap<>();
+        for (final Map.Entry<String, Counter> entry : counters.entrySet()) {
+            lines.put(entry.getKey(), String.format("%s count=%d", //$NON-NLS-1$
+                    entry.getKey(), Long.valueOf(entry.getValue().getCount())));
+        }
+        for (final Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            lines.put(entry.getKey(), String.format("%s value=%d", //$NON-NLS-1$
+                    entry.getKey(), Long.valueOf(entry.getValue().getValue())));
+        }
+        for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            final LatencyHistogram histogram = entry.getValue();
+            lines.put(entry.getKey(),
+                    String.format("%s count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms", //$NON-NLS-1$
+                            entry.getKey(), Long.valueOf(histogram.getCount()),
+                            Double.valueOf(histogram.getMeanInMilliseconds()),
+                            Double.valueOf(histogram.get50thPercentileInMilliseconds()),
+                            Double.valueOf(histogram.get90thPercentileInMilliseconds()),
+                            Double.valueOf(histogram.get99thPercentileInMilliseconds()),
+                            Double.valueOf(histogram.getMaxInMilliseconds())));
+        }
+
+        final StringBuilder report = new StringBuilder();
+        for (final String line : lines.values()) {
+            report.append(line).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Gets the registry shared by all components of the plugin.
+     *
+     * @return The registry shared by all components of the plugin.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets the object name of the MBean of the specified metric.
+     *
+     * @param type
+     *        The metric type.
+     * @param name
+     *        The metric name.
+     *
+     * @return The object name of the MBean of the specified metric.
+     *
+     * @throws MalformedObjectNameException
+     *         If the domain or metric name cannot be used in an object name.
+     */
+    public ObjectName getObjectName(final String type, final String name) throws MalformedObjectNameException {
+        return new ObjectName(String.format("%s:type=%s,name=%s", domain, type, name)); //$NON-NLS-1$
+    }
+
+    /**
+     * Gets the latency histogram with the specified name, creating it if
+     * necessary.
+     *
+     * @param name
+     *        The histogram name.
+     *
+     * @return The latency histogram with the specified name.
+     */
+    public synchronized LatencyHistogram histogram(final String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(name, histogram);
+            registerMBean(histogram, "LatencyHistogram", name); //$NON-NLS-1$
+        }
+        return histogram;
+    }
+
+    /**
+     * Registers a gauge with the specified name.
+     *
+     * <p>
+     * Any gauge previously registered with the same name is replaced.
+     * </p>
+     *
+     * @param name
+     *        The gauge name.
+     * @param valueSupplier
+     *        The supplier of the current value of the gauge; it must be
+     *        thread-safe.
+     */
+    public synchronized void registerGauge(final String name, final ISupplier<? extends Number> valueSupplier) {
+        final Gauge gauge = new Gauge(valueSupplier);
+        gauges.put(name, gauge);
+        registerMBean(gauge, "Gauge", name); //$NON-NLS-1$
+    }
+
+    private void registerMBean(final Object mbean, final String type, final String name) {
+        try {
+            registerMBean(mbean, getObjectName(type, name));
+        } catch (final MalformedObjectNameException e) {
+            // metrics are only a diagnostic aid
+        }
+    }
+
+    private void registerMBean(final Object mbean, final ObjectName objectName) {
+        assert Thread.holdsLock(this);
+
+        final MBeanServer server = mbeanServer;
+        if (server == null) {
+            return;
+        }
+
+        try {
+            if (server.isRegistered(objectName)) {
+                // left behind by a previous instance of the plugin or replaced
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            registeredObjectNames.add(objectName);
+        } catch (final JMException e) {
+            // metrics are only a diagnostic aid
+        }
+    }
+
+    /**
+     * Registers the MBeans of all present and future metrics with the
+     * specified MBean server.
+     *
+     * <p>
+     * The MBeans are unregistered from any server with which they were
+     * previously registered.
+     * </p>
+     *
+     * @param server
+     *        The MBean server, typically the platform MBean server.
+     */
+    public synchronized void registerMBeans(final MBeanServer server) {
+        unregisterMBeans();
+
+        mbeanServer = server;
+        try {
+            registerMBean(this, new ObjectName(String.format("%s:type=MetricsRegistry", domain))); //$NON-NLS-1$
+        } catch (final MalformedObjectNameException e) {
+            // metrics are only a diagnostic aid
+        }
+        for (final Map.Entry<String, Counter> entry : counters.entrySet()) {
+            registerMBean(entry.getValue(), "Counter", entry.getKey()); //$NON-NLS-1$
+        }
+        for (final Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            registerMBean(entry.getValue(), "Gauge", entry.getKey()); //$NON-NLS-1$
+        }
+        for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            registerMBean(entry.getValue(), "LatencyHistogram", entry.getKey()); //$NON-NLS-1$
+        }
+    }
+
+    @Override
+    public synchronized void resetAll() {
+        for (final Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (final LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Unregisters the MBeans of all metrics from the MBean server with which
+     * they were registered.
+     *
+     * <p>
+     * Metrics continue to be recorded but are no longer registered when they
+     * are created.
+     * </p>
+     */
+    public synchronized void unregisterMBeans() {
+        final MBeanServer server = mbeanServer;
+        if (server == null) {
+            return;
+        }
+
+        for (final ObjectName objectName : registeredObjectNames) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (final JMException e) {
+                // metrics are only a diagnostic aid
+            }
+        }
+        registeredObjectNames.clear();
+        mbeanServer = null;
+    }
+}
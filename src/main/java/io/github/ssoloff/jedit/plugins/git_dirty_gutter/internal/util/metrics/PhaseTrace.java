@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A trace of the latency of a multi-phase operation that may cross threads.
+ *
+ * <p>
+ * The time between successive marks is attributed to the phase named by the
+ * later mark. If a phase is marked more than once (for example, because part
+ * of the operation was abandoned and retried), its durations are summed. When
+ * the trace is completed, the duration of each phase is recorded in the
+ * latency histogram named {@code <name>.<phase>} and the total duration in
+ * the latency histogram named {@code <name>.total}; an abandoned trace that
+ * is never completed records nothing.
+ * </p>
+ *
+ * <p>
+ * Each trace has a unique identifier that may be attached to other
+ * diagnostics (for example, Java Flight Recorder events) to correlate them.
+ * </p>
+ *
+ * <p>
+ * The methods of this class are thread-safe.
+ * </p>
+ */
+public final class PhaseTrace {
+    private static final AtomicLong nextId = new AtomicLong(1L);
+
+    private final long id = nextId.getAndIncrement();
+    private final MetricsRegistry metrics;
+    private final String name;
+    private final long startTimeInNanoseconds = System.nanoTime();
+
+    // all of the following fields are guarded by this
+    private boolean completed = false;
+    private long lastMarkTimeInNanoseconds = startTimeInNanoseconds;
+    private final Map<String, Long> phaseDurationsInNanoseconds = new LinkedHashMap<>();
+
+    /**
+     * Initializes a new instance of the {@code PhaseTrace} class that starts
+     * at the current time.
+     *
+     * @param metrics
+     *        The registry in which the phase latencies are recorded.
+     * @param name
+     *        The trace name; used as the prefix of the histogram names.
+     */
+    public PhaseTrace(final MetricsRegistry metrics, final String name) {
+        this.metrics = metrics;
+        this.name = name;
+    }
+
+    /**
+     * Completes the trace and records the latency of each phase.
+     *
+     * <p>
+     * Marks made after the trace has been completed are ignored, and
+     * completing the trace more than once has no effect.
+     * </p>
+     */
+    public synchronized void complete() {
+        if (completed) {
+            return;
+        }
+
+        completed = true;
+        for (final Map.Entry<String, Long> entry : phaseDurationsInNanoseconds.entrySet()) {
+            metrics.histogram(name + "." + entry.getKey()).record(entry.getValue().longValue()); //$NON-NLS-1$
+        }
+        metrics.histogram(name + ".total").record(lastMarkTimeInNanoseconds - startTimeInNanoseconds); //$NON-NLS-1$
+    }
+
+    /**
+     * Gets the unique identifier of the trace.
+     *
+     * @return The unique identifier of the trace.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Marks the end of the specified phase at the current time.
+     *
+     * @param phase
+     *        The phase name.
+     */
+    public synchronized void mark(final String phase) {
+        if (completed) {
+            return;
+        }
+
+        final long markTime = System.nanoTime();
+        final Long duration = phaseDurationsInNanoseconds.get(phase);
+        final long elapsedTime = markTime - lastMarkTimeInNanoseconds;
+        phaseDurationsInNanoseconds.put(phase,
+                Long.valueOf((duration != null) ? (duration.longValue() + elapsedTime) : elapsedTime));
+        lastMarkTimeInNanoseconds = markTime;
+    }
+}
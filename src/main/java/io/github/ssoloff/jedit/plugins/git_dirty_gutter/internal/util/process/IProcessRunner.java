@@ -19,6 +19,7 @@
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.nio.file.Path;
 
@@ -46,8 +47,42 @@ public interface IProcessRunner {
      * @throws IOException
      *         If an error occurs while running the process.
      * @throws InterruptedException
-     *         If interrupted while waiting for the process to exit.
+     *         If interrupted while waiting for the process to exit; the
+     *         process is destroyed.
      */
     int run(Writer outWriter, Writer errWriter, Path workingDirPath, String... command)
             throws IOException, InterruptedException;
+
+    /**
+     * Runs a new process whose standard output stream is captured as raw
+     * bytes.
+     *
+     * <p>
+     * Unlike {@link #run(Writer, Writer, Path, String...)}, the content of the
+     * standard output stream is neither decoded nor split into lines, so line
+     * breaks and other control characters are preserved.
+     * </p>
+     *
+     * @param outStream
+     *        The stream that will receive the content of the standard output
+     *        stream of the process.
+     * @param errWriter
+     *        The writer that will receive the content of the standard error
+     *        stream of the process.
+     * @param workingDirPath
+     *        The path to the process working directory.
+     * @param command
+     *        The command to run. The first element is the path to the process
+     *        executable. The remaining elements are the process arguments.
+     *
+     * @return The exit code of the process.
+     *
+     * @throws IOException
+     *         If an error occurs while running the process.
+     * @throws InterruptedException
+     *         If interrupted while waiting for the process to exit; the
+     *         process is destroyed.
+     */
+    int run(OutputStream outStream, Writer errWriter, Path workingDirPath, String... command)
+            throws IOException, InterruptedException;
 }
@@ -19,8 +19,12 @@
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process;
 
 import common.io.ProcessExecutor;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -62,14 +66,54 @@ public final class ProcessRunner implements IProcessRunner {
         final LineVisitor visitor = new LineVisitor(outWriter, errWriter);
         processExecutor.addVisitor(visitor);
 
-        processExecutor.start();
-        final int exitCode = processExecutor.waitFor();
+        final Process process = processExecutor.start();
+        final int exitCode;
+        try {
+            exitCode = processExecutor.waitFor();
+        } catch (final InterruptedException e) {
+            // the result is no longer wanted; do not leave the process running
+            if (process != null) {
+                process.destroy();
+            }
+            throw e;
+        }
         if (visitor.exception != null) {
             throw visitor.exception;
         }
         return exitCode;
     }
 
+    @Override
+    public int run(final OutputStream outStream, final Writer errWriter, final Path workingDirPath,
+            final String... command) throws IOException, InterruptedException {
+        // the process executor reads the output line by line, which would alter the line breaks it contains
+        final Process process = new ProcessBuilder(command) //
+                .directory(workingDirPath.toFile()) //
+                .start();
+        final ByteArrayOutputStream errStream = new ByteArrayOutputStream();
+        final StreamPump outPump = new StreamPump(process.getInputStream(), outStream);
+        final StreamPump errPump = new StreamPump(process.getErrorStream(), errStream);
+        outPump.start();
+        errPump.start();
+        final int exitCode;
+        try {
+            exitCode = process.waitFor();
+            outPump.join();
+            errPump.join();
+        } catch (final InterruptedException e) {
+            // the result is no longer wanted; do not leave the process running
+            process.destroy();
+            throw e;
+        }
+        if (outPump.exception != null) {
+            throw outPump.exception;
+        } else if (errPump.exception != null) {
+            throw errPump.exception;
+        }
+        errWriter.write(new String(errStream.toByteArray(), Charset.defaultCharset()));
+        return exitCode;
+    }
+
     /**
      * A line visitor for capturing the content of a process's standard output
      * and standard error streams.
@@ -104,4 +148,59 @@ public final class ProcessRunner implements IProcessRunner {
             return true;
         }
     }
+
+    /**
+     * A thread that copies the content of a process's output stream.
+     */
+    private static final class StreamPump extends Thread {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final InputStream inputStream;
+        private final OutputStream outputStream;
+
+        @Nullable
+        volatile IOException exception = null;
+
+        StreamPump(final InputStream inputStream, final OutputStream outputStream) {
+            super("GitDirtyGutter-process-output"); //$NON-NLS-1$
+            setDaemon(true);
+            this.inputStream = inputStream;
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void run() {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            try {
+                while (true) {
+                    final int count = inputStream.read(buffer);
+                    if (count == -1) {
+                        break;
+                    }
+                    write(buffer, count);
+                }
+            } catch (final IOException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            } finally {
+                try {
+                    inputStream.close();
+                } catch (final IOException e) {
+                    // ignore; all content has been read
+                }
+            }
+        }
+
+        private void write(final byte[] buffer, final int count) {
+            // once the output cannot be written, keep reading so that the process does not block
+            if (exception == null) {
+                try {
+                    outputStream.write(buffer, 0, count);
+                } catch (final IOException e) {
+                    exception = e;
+                }
+            }
+        }
+    }
 }
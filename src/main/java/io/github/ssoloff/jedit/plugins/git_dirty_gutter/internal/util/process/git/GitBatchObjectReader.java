@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Reads objects from a Git repository using a single long-running
+ * {@code git cat-file --batch} process.
+ *
+ * <p>
+ * Reading many objects through one process avoids the cost of starting a Git
+ * process per object. The methods of this class are thread-safe, but objects
+ * are read one at a time.
+ * </p>
+ */
+public final class GitBatchObjectReader implements Closeable {
+    private static final Charset HEADER_CHARSET = StandardCharsets.UTF_8;
+
+    private final List<String> command;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    private final Process process;
+    private final Path workingDirPath;
+
+    /**
+     * Initializes a new instance of the {@code GitBatchObjectReader} class
+     * and starts the Git process.
+     *
+     * @param workingDirPath
+     *        The working directory path of the Git process, typically the root
+     *        of the repository working tree.
+     * @param programPath
+     *        The program path of the Git process to run.
+     *
+     * @throws IOException
+     *         If the Git process cannot be started.
+     */
+    public GitBatchObjectReader(final Path workingDirPath, final Path programPath) throws IOException {
+        this.command = Arrays.asList(programPath.toString(), "cat-file", "--batch"); //$NON-NLS-1$ //$NON-NLS-2$
+        this.workingDirPath = workingDirPath;
+
+        // any error output breaks the protocol and is reported as unexpected output
+        process = new ProcessBuilder(command) //
+                .directory(workingDirPath.toFile()) //
+                .redirectErrorStream(true) //
+                .start();
+        inputStream = new BufferedInputStream(process.getInputStream());
+        outputStream = process.getOutputStream();
+    }
+
+    /**
+     * Stops the Git process.
+     */
+    @Override
+    public void close() {
+        try {
+            outputStream.close();
+        } catch (final IOException e) {
+            // ignore; the process is destroyed below
+        }
+        process.destroy();
+    }
+
+    private GitException createUnexpectedGitOutputException(final String output) {
+        return GitException.newBuilder() //
+                .withMessageSummary("unexpected Git output") //$NON-NLS-1$
+                .withWorkingDirPath(workingDirPath) //
+                .withCommand(command) //
+                .withOutput(output) //
+                .build();
+    }
+
+    /**
+     * Reads the specified object.
+     *
+     * @param objectName
+     *        The name of the object to read in any form accepted by
+     *        {@code git rev-parse} (e.g. {@code HEAD:path/to/file}); must not
+     *        contain a line break.
+     *
+     * @return The object or {@code null} if the object does not exist.
+     *
+     * @throws GitException
+     *         If the Git process produces an unexpected result.
+     * @throws IOException
+     *         If an error occurs while communicating with the Git process.
+     */
+    @Nullable
+    public GitObject read(final String objectName) throws GitException, IOException {
+        return read(objectName, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the specified object if its content does not exceed the specified
+     * size.
+     *
+     * <p>
+     * The content of a larger object is skipped without being buffered.
+     * </p>
+     *
+     * @param objectName
+     *        The name of the object to read in any form accepted by
+     *        {@code git rev-parse} (e.g. {@code HEAD:path/to/file}); must not
+     *        contain a line break.
+     * @param maxSizeInBytes
+     *        The maximum size (in bytes) of the content of the object to read;
+     *        must not be negative.
+     *
+     * @return The object or {@code null} if the object does not exist or its
+     *         content exceeds the maximum size.
+     *
+     * @throws GitException
+     *         If the Git process produces an unexpected result.
+     * @throws IOException
+     *         If an error occurs while communicating with the Git process.
+     */
+    @Nullable
+    public synchronized GitObject read(final String objectName, final long maxSizeInBytes)
+            throws GitException, IOException {
+        assert (objectName.indexOf('\n') == -1) && (objectName.indexOf('\r') == -1);
+        assert maxSizeInBytes >= 0L;
+
+        outputStream.write((objectName + "\n").getBytes(HEADER_CHARSET)); //$NON-NLS-1$
+        outputStream.flush();
+
+        final String header = readHeader();
+        if (header.endsWith(" missing") || header.endsWith(" ambiguous")) { //$NON-NLS-1$ //$NON-NLS-2$
+            return null;
+        }
+
+        // <object-id> SP <type> SP <size>
+        final String[] fields = header.split(" "); //$NON-NLS-1$
+        final int fieldCount = 3;
+        if (fields.length != fieldCount) {
+            throw createUnexpectedGitOutputException(header);
+        }
+        final long size;
+        try {
+            size = Long.parseLong(fields[2]);
+        } catch (final NumberFormatException e) {
+            throw createUnexpectedGitOutputException(header);
+        }
+        if (size < 0L) {
+            throw createUnexpectedGitOutputException(header);
+        }
+
+        if ((size > maxSizeInBytes) || (size > Integer.MAX_VALUE)) {
+            skipContent(header, size);
+            return null;
+        }
+
+        final byte[] content = new byte[(int) size];
+        int offset = 0;
+        while (offset < size) {
+            final int count = inputStream.read(content, offset, content.length - offset);
+            if (count == -1) {
+                throw createUnexpectedGitOutputException(header);
+            }
+            offset += count;
+        }
+        readContentTerminator(header);
+
+        return new GitObject(fields[0], fields[1], content);
+    }
+
+    private void readContentTerminator(final String header) throws GitException, IOException {
+        if (inputStream.read() != '\n') {
+            throw createUnexpectedGitOutputException(header);
+        }
+    }
+
+    private String readHeader() throws GitException, IOException {
+        final ByteArrayOutputStream headerStream = new ByteArrayOutputStream();
+        for (int b = inputStream.read(); b != '\n'; b = inputStream.read()) {
+            if (b == -1) {
+                throw createUnexpectedGitOutputException(new String(headerStream.toByteArray(), HEADER_CHARSET));
+            }
+            headerStream.write(b);
+        }
+        return new String(headerStream.toByteArray(), HEADER_CHARSET);
+    }
+
+    private void skipContent(final String header, final long size) throws GitException, IOException {
+        // the content must still be consumed to keep the process in step with the requests
+        long remaining = size;
+        while (remaining > 0L) {
+            final long count = inputStream.skip(remaining);
+            if (count <= 0L) {
+                if (inputStream.read() == -1) {
+                    throw createUnexpectedGitOutputException(header);
+                }
+                --remaining;
+            } else {
+                remaining -= count;
+            }
+        }
+        readContentTerminator(header);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git;
+
+/**
+ * An object read from a Git repository object database.
+ */
+public final class GitObject {
+    private final byte[] content;
+    private final String objectId;
+    private final String type;
+
+    /**
+     * Initializes a new instance of the {@code GitObject} class.
+     *
+     * @param objectId
+     *        The SHA-1 object identifier.
+     * @param type
+     *        The object type (e.g. {@code blob}).
+     * @param content
+     *        The raw object content; the array is owned by the new instance.
+     */
+    public GitObject(final String objectId, final String type, final byte[] content) {
+        this.content = content;
+        this.objectId = objectId;
+        this.type = type;
+    }
+
+    /**
+     * Gets the raw object content.
+     *
+     * <p>
+     * The returned array must not be modified.
+     * </p>
+     *
+     * @return The raw object content.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the SHA-1 object identifier.
+     *
+     * @return The SHA-1 object identifier.
+     */
+    public String getObjectId() {
+        return objectId;
+    }
+
+    /**
+     * Gets the object type.
+     *
+     * @return The object type (e.g. {@code blob}).
+     */
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A Java Flight Recorder event that records a run of a Git process.
+ *
+ * <p>
+ * The event is disabled by default; it is enabled by the JFR settings profile
+ * shipped with the plugin. This class must only be instantiated when
+ * {@link io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.FlightRecorder#isAvailable()}
+ * returns {@code true}.
+ * </p>
+ */
+@Category({ "jEdit", "Git DirtyGutter" })
+@Description("A run of a Git process")
+@Enabled(false)
+@Label("Git Run")
+@Name("io.github.ssoloff.jedit.plugins.git_dirty_gutter.GitRun")
+@StackTrace(false)
+final class GitRunEvent extends Event implements IGitRunEvent {
+    @Description("The number of characters, or bytes for binary output, written to standard output by the Git process")
+    @Label("Characters Read")
+    long charactersRead;
+
+    @Description("The Git command line")
+    @Label("Command")
+    @Nullable
+    String command;
+
+    @Description("The exit code of the Git process or -1 if it could not be run")
+    @Label("Exit Code")
+    int exitCode;
+
+    @Description("The working directory of the Git process")
+    @Label("Working Directory")
+    @Nullable
+    String workingDirPath;
+
+    @Override
+    public void commit(final long charactersRead, final String command, final int exitCode,
+            final String workingDirPath) {
+        this.charactersRead = charactersRead;
+        this.command = command;
+        this.exitCode = exitCode;
+        this.workingDirPath = workingDirPath;
+        commit();
+    }
+}
@@ -18,10 +18,15 @@
 
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git;
 
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.FlightRecorder;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.Suppliers;
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry;
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.IProcessRunner;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.file.Path;
@@ -31,8 +36,24 @@ import java.util.List;
 
 /**
  * Implementation of {@link IGitRunner}.
+ *
+ * <p>
+ * The latency of each Git process is recorded in the default
+ * {@link MetricsRegistry} by subcommand (for example, {@code git.show}), and
+ * the number of Git processes that report an error is counted by subcommand
+ * (for example, {@code git.show.errors}).
+ * </p>
+ *
+ * <p>
+ * Each run is also recorded as a {@link GitRunEvent} when that event is enabled
+ * in a Java Flight Recorder recording.
+ * </p>
  */
 public final class GitRunner implements IGitRunner {
+    // probes whether the event type is enabled so that no event is allocated for each run while it is not
+    private static final IGitRunEvent GIT_RUN_EVENT_PROBE = FlightRecorder.isAvailable() ? new GitRunEvent()
+            : IGitRunEvent.DISABLED;
+
     private final IProcessRunner processRunner;
     private final ISupplier<Path> programPathSupplier;
     private final Path workingDirPath;
@@ -74,6 +95,26 @@ public final class GitRunner implements IGitRunner {
         this.workingDirPath = workingDirPath;
     }
 
+    private void commitGitRunEvent(final IGitRunEvent event, final List<String> command, final int exitCode,
+            final long outputSize) {
+        event.end();
+        if (event.shouldCommit()) {
+            final StringBuilder commandLine = new StringBuilder();
+            for (final String arg : command) {
+                if (commandLine.length() > 0) {
+                    commandLine.append(' ');
+                }
+                commandLine.append(arg);
+            }
+
+            final String commandLineString = commandLine.toString();
+            assert commandLineString != null;
+            final String workingDirPathString = workingDirPath.toString();
+            assert workingDirPathString != null;
+            event.commit(outputSize, commandLineString, exitCode, workingDirPathString);
+        }
+    }
+
     private static List<String> createCommand(final Path programPath, final List<String> programArgs) {
         final List<String> command = new ArrayList<>(programArgs.size() + 1);
         command.add(programPath.toString());
@@ -91,20 +132,151 @@ public final class GitRunner implements IGitRunner {
                 .build();
     }
 
+    private static String getMetricName(final String... programArgs) {
+        for (final String programArg : programArgs) {
+            if (!programArg.startsWith("-")) { //$NON-NLS-1$
+                return "git." + programArg; //$NON-NLS-1$
+            }
+        }
+        return "git"; //$NON-NLS-1$
+    }
+
+    private static IGitRunEvent newGitRunEvent() {
+        return GIT_RUN_EVENT_PROBE.isEnabled() ? new GitRunEvent() : IGitRunEvent.DISABLED;
+    }
+
+    @Override
+    public GitRunnerResult run(final OutputStream outStream, final String... programArgs)
+            throws GitException, IOException, InterruptedException {
+        final IGitRunEvent event = newGitRunEvent();
+        final CountingOutputStream countingOutStream = event.isEnabled() ? new CountingOutputStream(outStream)
+                : null;
+        return run(event, new IProcessInvocation() {
+            @Override
+            public long getOutputSize() {
+                return (countingOutStream != null) ? countingOutStream.getByteCount() : 0L;
+            }
+
+            @Override
+            public int run(final Writer errWriter, final String[] command) throws IOException, InterruptedException {
+                return processRunner.run((countingOutStream != null) ? countingOutStream : outStream, errWriter,
+                        workingDirPath, command);
+            }
+        }, programArgs);
+    }
+
     @Override
     public GitRunnerResult run(final Writer outWriter, final String... programArgs)
             throws GitException, IOException, InterruptedException {
+        final IGitRunEvent event = newGitRunEvent();
+        final CountingWriter countingWriter = event.isEnabled() ? new CountingWriter(outWriter) : null;
+        return run(event, new IProcessInvocation() {
+            @Override
+            public long getOutputSize() {
+                return (countingWriter != null) ? countingWriter.getCharacterCount() : 0L;
+            }
+
+            @Override
+            public int run(final Writer errWriter, final String[] command) throws IOException, InterruptedException {
+                return processRunner.run((countingWriter != null) ? countingWriter : outWriter, errWriter,
+                        workingDirPath, command);
+            }
+        }, programArgs);
+    }
+
+    private GitRunnerResult run(final IGitRunEvent event, final IProcessInvocation processInvocation,
+            final String... programArgs) throws GitException, IOException, InterruptedException {
         final StringWriter errWriter = new StringWriter();
         final List<String> command = createCommand(programPathSupplier.get(), Arrays.asList(programArgs));
-        final int exitCode = processRunner.run(outWriter, errWriter, workingDirPath,
-                command.toArray(new String[command.size()]));
+        final MetricsRegistry metrics = MetricsRegistry.getDefault();
+        final String metricName = getMetricName(programArgs);
+        event.begin();
+        final long startTime = System.nanoTime();
+        int exitCode = -1;
+        try {
+            exitCode = processInvocation.run(errWriter, command.toArray(new String[command.size()]));
+        } finally {
+            metrics.histogram(metricName).recordSince(startTime);
+            commitGitRunEvent(event, command, exitCode, processInvocation.getOutputSize());
+        }
         final GitRunnerResult result = new GitRunnerResult(workingDirPath, command, exitCode);
 
         final String error = errWriter.toString();
         if (!error.isEmpty()) {
+            metrics.counter(metricName + ".errors").increment(); //$NON-NLS-1$
             throw createGitExitedWithErrorException(result, error);
         }
 
         return result;
     }
+
+    /**
+     * An invocation of the process runner.
+     */
+    private interface IProcessInvocation {
+        long getOutputSize();
+
+        int run(Writer errWriter, String[] command) throws IOException, InterruptedException;
+    }
+
+    /**
+     * An output stream that counts the bytes written to an underlying output
+     * stream.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long byteCount = 0L;
+
+        CountingOutputStream(final OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        long getByteCount() {
+            return byteCount;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            byteCount += len;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            ++byteCount;
+        }
+    }
+
+    /**
+     * A writer that counts the characters written to an underlying writer.
+     */
+    private static final class CountingWriter extends FilterWriter {
+        private long characterCount = 0L;
+
+        CountingWriter(final Writer writer) {
+            super(writer);
+        }
+
+        long getCharacterCount() {
+            return characterCount;
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            super.write(cbuf, off, len);
+            characterCount += len;
+        }
+
+        @Override
+        public void write(final int c) throws IOException {
+            super.write(c);
+            ++characterCount;
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) throws IOException {
+            super.write(str, off, len);
+            characterCount += len;
+        }
+    }
 }
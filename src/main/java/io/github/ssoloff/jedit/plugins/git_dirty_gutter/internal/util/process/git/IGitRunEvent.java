@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git;
+
+/**
+ * A run of a Git process as recorded by Java Flight Recorder.
+ *
+ * <p>
+ * On runtimes without the JFR API, the {@link #DISABLED} event is used.
+ * </p>
+ */
+interface IGitRunEvent {
+    /** An event that is never recorded. */
+    IGitRunEvent DISABLED = new IGitRunEvent() {
+        @Override
+        public void begin() {
+            // do nothing
+        }
+
+        @Override
+        public void commit(final long charactersRead, final String command, final int exitCode,
+                final String workingDirPath) {
+            // do nothing
+        }
+
+        @Override
+        public void end() {
+            // do nothing
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public boolean shouldCommit() {
+            return false;
+        }
+    };
+
+    /**
+     * Starts timing the event.
+     */
+    void begin();
+
+    /**
+     * Records the event.
+     *
+     * @param charactersRead
+     *        The number of characters written to standard output by the Git
+     *        process.
+     * @param command
+     *        The Git command line.
+     * @param exitCode
+     *        The exit code of the Git process or -1 if it could not be run.
+     * @param workingDirPath
+     *        The working directory of the Git process.
+     */
+    void commit(long charactersRead, String command, int exitCode, String workingDirPath);
+
+    /**
+     * Stops timing the event.
+     */
+    void end();
+
+    /**
+     * Indicates the event is enabled.
+     *
+     * @return {@code true} if the event is enabled; otherwise {@code false}.
+     */
+    boolean isEnabled();
+
+    /**
+     * Indicates the event is enabled and meets its recording threshold.
+     *
+     * @return {@code true} if the event should be recorded; otherwise
+     *         {@code false}.
+     */
+    boolean shouldCommit();
+}
@@ -19,6 +19,7 @@
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 /**
@@ -44,4 +45,32 @@ public interface IGitRunner {
      *         If interrupted while waiting for the Git process to exit.
      */
     GitRunnerResult run(Writer outWriter, String... programArgs) throws GitException, IOException, InterruptedException;
+
+    /**
+     * Runs a new Git process whose standard output stream is captured as raw
+     * bytes.
+     *
+     * <p>
+     * This method should be used for commands whose output may contain line
+     * breaks that must be preserved, such as paths in NUL-terminated
+     * ({@code -z}) output.
+     * </p>
+     *
+     * @param outStream
+     *        The stream that will receive the content of the standard output
+     *        stream of the Git process.
+     * @param programArgs
+     *        The arguments to pass to the Git process.
+     *
+     * @return The result of running the Git process.
+     *
+     * @throws GitException
+     *         If the Git process exits with an error.
+     * @throws IOException
+     *         If an error occurs while running the Git process.
+     * @throws InterruptedException
+     *         If interrupted while waiting for the Git process to exit.
+     */
+    GitRunnerResult run(OutputStream outStream, String... programArgs)
+            throws GitException, IOException, InterruptedException;
 }
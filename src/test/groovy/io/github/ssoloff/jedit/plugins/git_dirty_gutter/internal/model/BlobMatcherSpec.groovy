@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import java.nio.CharBuffer
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(BlobMatcher)
+@Title('Unit tests for BlobMatcher')
+class BlobMatcherSpec extends Specification {
+    private static BlobDescriptor newBlob(String content, Charset charset) {
+        def bytes = content.getBytes(charset)
+        def digest = MessageDigest.getInstance('SHA-1')
+        digest.update("blob ${bytes.length}\0".getBytes(StandardCharsets.US_ASCII))
+        new BlobDescriptor(digest.digest(bytes).encodeHex().toString(), bytes.length)
+    }
+
+    def 'it should compute the encoded size of the text without encoding it'() {
+        expect: 'the encoded size of the text'
+        BlobMatcher.getEncodedSizeInBytes(CharBuffer.wrap(text), Charset.forName(charsetName)) == sizeInBytes
+
+        where:
+        text            | charsetName  || sizeInBytes
+        ''              | 'UTF-8'      || 0
+        'abc\n'         | 'UTF-8'      || 4
+        '\u00e9t\u00e9' | 'UTF-8'      || 5
+        '\u2603'        | 'UTF-8'      || 3
+        '\uD83D\uDE00'  | 'UTF-8'      || 4
+        '\u00e9t\u00e9' | 'ISO-8859-1' || 3
+        'abc'           | 'UTF-16'     || -1
+    }
+
+    def 'when text is identical to blob content it should return true'() {
+        given: 'a blob'
+        def charset = Charset.forName(charsetName)
+        def blob = newBlob(text, charset)
+
+        expect: 'the text should be identical to the blob'
+        BlobMatcher.isIdenticalToBlob(CharBuffer.wrap(text), charset, blob)
+
+        where:
+        text                                   | charsetName
+        ''                                     | 'UTF-8'
+        'line1\n\u00e9t\u00e9\n\uD83D\uDE00\n' | 'UTF-8'
+        'x' * 20000                            | 'UTF-8'
+        'line1\n\u00e9t\u00e9\n'               | 'ISO-8859-1'
+    }
+
+    def 'when text differs from blob content it should return false'() {
+        given: 'a blob'
+        def blob = newBlob('line1\nline2\n', StandardCharsets.UTF_8)
+
+        expect: 'the text should not be identical to the blob'
+        !BlobMatcher.isIdenticalToBlob(CharBuffer.wrap(text), StandardCharsets.UTF_8, blob)
+
+        where:
+        text << [
+            'line1\nline2',
+            'line1\nline3\n',
+            'line1\nl\u00efne\n',
+        ]
+    }
+
+    def 'when text cannot be encoded it should return false'() {
+        given: 'a blob of the same size as the encoded text'
+        def blob = new BlobDescriptor('28573fea3903ca83e973ae9d05d5d32942d1589f', 3)
+
+        expect: 'the text should not be identical to the blob'
+        !BlobMatcher.isIdenticalToBlob(CharBuffer.wrap('\uD83D'), StandardCharsets.UTF_8, blob)
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(BufferSnapshot)
+@Title('Unit tests for BufferSnapshot')
+class BufferSnapshotSpec extends Specification {
+    def 'it should split the text into lines'() {
+        given: 'a snapshot of the text'
+        def snapshot = BufferSnapshot.fromText(text, 0)
+
+        expect: 'it should contain the expected lines'
+        snapshot.lineCount == lines.size()
+        snapshot.lines == lines
+
+        where:
+        text             || lines
+        ''               || ['']
+        'line1'          || ['line1']
+        'line1\n'        || ['line1', '']
+        'line1\nline2'   || ['line1', 'line2']
+        '\n\nline3\n'    || ['', '', 'line3', '']
+    }
+
+    def 'it should get individual lines'() {
+        given: 'a snapshot of the text'
+        def snapshot = BufferSnapshot.fromText('line1\nline2\nline3', 0)
+
+        expect: 'it should get each line'
+        snapshot.getLine(0) == 'line1'
+        snapshot.getLine(1) == 'line2'
+        snapshot.getLine(2) == 'line3'
+    }
+
+    def 'it should be tagged with the edit sequence number'() {
+        given: 'a snapshot of the text'
+        def snapshot = BufferSnapshot.fromText('line1', 42)
+
+        expect: 'it should have the edit sequence number'
+        snapshot.editSequenceNumber == 42
+    }
+
+    def 'it should accept line start offsets provided by the buffer'() {
+        given: 'a snapshot of the text with explicit line start offsets'
+        def snapshot = new BufferSnapshot('ab\ncd\n'.toCharArray(), [0, 3, 6, 7] as int[], 1)
+
+        expect: 'it should contain the expected lines'
+        snapshot.lines == ['ab', 'cd', '']
+    }
+}
@@ -32,86 +32,28 @@ class GitCommandsSpecification extends Specification {
 }
 
 @Subject(GitCommands)
-@Title('Unit tests for GitCommands#getCommitRefAtHeadRevision')
-class GitCommands_GetCommitRefAtHeadRevisionSpec extends GitCommandsSpecification {
-    def 'when working directory is inside repo it should return commit ref'() {
-        given: 'a Git runner that exits with code 0 and outputs the commit ref to stdout'
-        def expectedCommitRef = '28573fea3903ca83e973ae9d05d5d32942d1589f'
+@Title('Unit tests for GitCommands#getBlobAtHeadRevision')
+class GitCommands_GetBlobAtHeadRevisionSpec extends GitCommandsSpecification {
+    def 'when file exists on HEAD it should return blob identifier and size'() {
+        given: 'a Git runner that exits with code 0 and outputs the long tree entry to stdout'
+        def expectedBlobId = '28573fea3903ca83e973ae9d05d5d32942d1589f'
         def gitRunner = Stub(IGitRunner) {
             run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write("$expectedCommitRef\n")
+                outWriter.write("100644 blob $expectedBlobId      42\tsubdir/file name\n")
                 newGitRunnerResultWithExitCode(0)
             }
         }
         def gitCommands = new GitCommands(gitRunner)
 
-        when: 'getting the commit ref at the HEAD revision'
-        def commitRef = gitCommands.getCommitRefAtHeadRevision(Paths.get('subdir/file'))
+        when: 'getting the blob at the HEAD revision'
+        def blob = gitCommands.getBlobAtHeadRevision(Paths.get('subdir/file name'))
 
-        then: 'it should be commit ref produced by the Git runner'
-        commitRef == expectedCommitRef
+        then: 'it should be the blob listed by the Git runner'
+        blob.id == expectedBlobId
+        blob.sizeInBytes == 42
     }
 
-    def 'when Git returns an unexpected exit code it should throw an exception'() {
-        given: 'a Git runner that exits with code 1 and outputs the commit ref to stdout'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('28573fea3903ca83e973ae9d05d5d32942d1589f\n')
-                newGitRunnerResultWithExitCode(1)
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-
-        when: 'getting the commit ref at the HEAD revision'
-        gitCommands.getCommitRefAtHeadRevision(Paths.get('subdir/file'))
-
-        then: 'it should throw an exception containing the unexpected exit code'
-        def e = thrown(GitException)
-        e.exitCode != null
-    }
-
-    def 'when Git produces an unexpected output it should throw an exception'() {
-        given: 'a Git runner that exits with code 0 and outputs two commit refs to stdout'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('28573fea3903ca83e973ae9d05d5d32942d1589f\n')
-                outWriter.write('a29cfccdb5beec24c9eca88cd0adecd0f165d7aa\n')
-                newGitRunnerResultWithExitCode(0)
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-
-        when: 'getting the commit ref at the HEAD revision'
-        gitCommands.getCommitRefAtHeadRevision(Paths.get('subdir/file'))
-
-        then: 'it should throw an exception containing the unexpected output'
-        def e = thrown(GitException)
-        e.output != null
-    }
-}
-
-@Subject(GitCommands)
-@Title('Unit tests for GitCommands#getRepoRelativeFilePathAtHeadRevision')
-class GitCommands_GetRepoRelativeFilePathAtHeadRevisionSpec extends GitCommandsSpecification {
-    def 'when file exists on HEAD it should return repo-relative path'() {
-        given: 'a Git runner that exits with code 0 and outputs the repo-relative path to stdout'
-        def expectedRepoRelativePath = Paths.get('subdir/file')
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write("$expectedRepoRelativePath\n")
-                newGitRunnerResultWithExitCode(0)
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-
-        when: 'getting the repo-relative path at the HEAD revision'
-        def repoRelativePath = gitCommands.getRepoRelativeFilePathAtHeadRevision(Paths.get('/root/subdir/file'))
-
-        then: 'it should be the repo-relative path produced by the Git runner'
-        repoRelativePath == expectedRepoRelativePath
-    }
-
-    def 'when file is inside repo but does not exist on HEAD it should throw an exception'() {
+    def 'when file does not exist on HEAD it should return null'() {
         given: 'a Git runner that exits with code 0 and outputs nothing to stdout'
         def gitRunner = Stub(IGitRunner) {
             run(_, _) >> {
@@ -120,194 +62,188 @@ class GitCommands_GetRepoRelativeFilePathAtHeadRevisionSpec extends GitCommandsS
         }
         def gitCommands = new GitCommands(gitRunner)
 
-        when: 'getting the repo-relative path at the HEAD revision'
-        gitCommands.getRepoRelativeFilePathAtHeadRevision(Paths.get('/root/subdir/file'))
+        when: 'getting the blob at the HEAD revision'
+        def blob = gitCommands.getBlobAtHeadRevision(Paths.get('subdir/file'))
 
-        then: 'it should throw an exception'
-        thrown(GitException)
+        then: 'it should be null'
+        blob == null
     }
 
-    def 'when Git returns an unexpected exit code it should throw an exception'() {
-        given: 'a Git runner that exits with code 1 and outputs the repo-relative path to stdout'
+    def 'when Git produces an expected error it should return null'() {
+        given: 'a Git runner that throws an exception with exit code 128'
         def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('subdir/file\n')
-                newGitRunnerResultWithExitCode(1)
+            run(_, _) >> {
+                throw GitException.newBuilder().withExitCode(128).build()
             }
         }
         def gitCommands = new GitCommands(gitRunner)
 
-        when: 'getting the repo-relative path at the HEAD revision'
-        gitCommands.getRepoRelativeFilePathAtHeadRevision(Paths.get('/root/subdir/file'))
+        when: 'getting the blob at the HEAD revision'
+        def blob = gitCommands.getBlobAtHeadRevision(Paths.get('subdir/file'))
 
-        then: 'it should throw an exception containing the unexpected exit code'
-        def e = thrown(GitException)
-        e.exitCode != null
+        then: 'it should be null'
+        blob == null
     }
 
     def 'when Git produces an unexpected output it should throw an exception'() {
-        given: 'a Git runner that exits with code 0 and outputs two repo-relative paths to stdout'
+        given: 'a Git runner that exits with code 0 and outputs an unexpected tree entry to stdout'
         def gitRunner = Stub(IGitRunner) {
             run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('subdir/file\n')
-                outWriter.write('subdir/another-file\n')
+                outWriter.write(output)
                 newGitRunnerResultWithExitCode(0)
             }
         }
         def gitCommands = new GitCommands(gitRunner)
 
-        when: 'getting the repo-relative path at the HEAD revision'
-        gitCommands.getRepoRelativeFilePathAtHeadRevision(Paths.get('/root/subdir/file'))
+        when: 'getting the blob at the HEAD revision'
+        gitCommands.getBlobAtHeadRevision(Paths.get('subdir/file'))
 
         then: 'it should throw an exception containing the unexpected output'
         def e = thrown(GitException)
         e.output != null
+
+        where:
+        output << [
+            '100644 blob 28573fea3903ca83e973ae9d05d5d32942d1589f\tsubdir/file\n',
+            '160000 commit 28573fea3903ca83e973ae9d05d5d32942d1589f       -\tsubdir/file\n',
+            '100644 blob 28573fea3903ca83e973ae9d05d5d32942d1589f       x\tsubdir/file\n',
+        ]
     }
 }
 
 @Subject(GitCommands)
-@Title('Unit tests for GitCommands#isFilePresentAtHeadRevision')
-class GitCommands_IsFilePresentAtHeadRevisionSpec extends GitCommandsSpecification {
-    def 'when file exists on HEAD it should return true'() {
-        given: 'a Git runner that exits with code 0 and outputs one line to stdout'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('subdir/file\n')
+@Title('Unit tests for GitCommands#getWorkingTreeStatus')
+class GitCommands_GetWorkingTreeStatusSpec extends GitCommandsSpecification {
+    private static final String HASH = '28573fea3903ca83e973ae9d05d5d32942d1589f'
+
+    private IGitRunner newGitRunner(String statusOutput, String numstatOutput, List<String[]> invocations = []) {
+        Stub(IGitRunner) {
+            run(_ as OutputStream, _) >> { OutputStream outStream, String[] args ->
+                invocations << args
+                outStream.write(((args[1] == 'status') ? statusOutput : numstatOutput).bytes)
                 newGitRunnerResultWithExitCode(0)
             }
         }
-        def gitCommands = new GitCommands(gitRunner)
-
-        when: 'asking if the file is present at the HEAD revision'
-        def result = gitCommands.isFilePresentAtHeadRevision(Paths.get('/root/subdir/file'))
-
-        then: 'it should be true'
-        result == true
     }
 
-    def 'when file is inside repo but does not exist on HEAD it should return false'() {
-        given: 'a Git runner that exits with code 0 and outputs nothing to stdout'
+    def 'it should return the kind and line counts of each dirty file'() {
+        given: 'a Git runner that outputs the status and line counts of several files'
+        def statusOutput = [
+            "1 .M N... 100644 100644 100644 $HASH $HASH modified file",
+            "1 A. N... 000000 100644 100644 $HASH $HASH subdir/added",
+            "1 .D N... 100644 100644 000000 $HASH $HASH deleted",
+            "2 R. N... 100644 100644 100644 $HASH $HASH R100 renamed",
+            'original',
+            "u UU N... 100644 100644 100644 100644 $HASH $HASH $HASH unmerged",
+            '? untracked',
+            '! ignored',
+            '',
+        ].join('\u0000')
+        def numstatOutput = [
+            '2\t1\tmodified file',
+            '1\t0\tsubdir/added',
+            '0\t3\tdeleted',
+            '-\t-\trenamed',
+            '4\t4\tunmerged',
+            '',
+        ].join('\u0000')
+        def gitCommands = new GitCommands(newGitRunner(statusOutput, numstatOutput))
+
+        when: 'getting the status of the working tree'
+        def fileStatuses = gitCommands.getWorkingTreeStatus([])
+
+        then: 'it should report each dirty file'
+        fileStatuses == [
+            'modified file': new FileStatus(FileStatus.Kind.MODIFIED, 2, 1),
+            'subdir/added': new FileStatus(FileStatus.Kind.ADDED, 1, 0),
+            'deleted': new FileStatus(FileStatus.Kind.DELETED, 0, 3),
+            'renamed': new FileStatus(FileStatus.Kind.RENAMED, -1, -1),
+            'unmerged': new FileStatus(FileStatus.Kind.UNMERGED, 4, 4),
+            'untracked': new FileStatus(FileStatus.Kind.UNTRACKED, -1, -1),
+        ]
+    }
+
+    def 'it should preserve line breaks in paths'() {
+        given: 'a Git runner that outputs the status and line counts of files whose names contain line breaks'
+        def statusOutput = "1 .M N... 100644 100644 100644 $HASH $HASH line\nbreak\u0000" +
+                "1 .M N... 100644 100644 100644 $HASH $HASH carriage\rreturn\n\u0000"
+        def numstatOutput = '1\t2\tline\nbreak\u00003\t4\tcarriage\rreturn\n\u0000'
+        def gitCommands = new GitCommands(newGitRunner(statusOutput, numstatOutput))
+
+        when: 'getting the status of the working tree'
+        def fileStatuses = gitCommands.getWorkingTreeStatus([])
+
+        then: 'it should report each file under its exact name'
+        fileStatuses == [
+            'line\nbreak': new FileStatus(FileStatus.Kind.MODIFIED, 1, 2),
+            'carriage\rreturn\n': new FileStatus(FileStatus.Kind.MODIFIED, 3, 4),
+        ]
+    }
+
+    def 'when names are specified it should restrict both commands to those names'() {
+        given: 'a Git runner that records its invocations'
+        def invocations = []
+        def statusOutput = "1 .M N... 100644 100644 100644 $HASH $HASH file\u0000"
+        def gitCommands = new GitCommands(newGitRunner(statusOutput, '1\t1\tfile\u0000', invocations))
+
+        when: 'getting the status of a single file'
+        gitCommands.getWorkingTreeStatus(['file'])
+
+        then: 'both commands should be passed a literal pathspec for the file'
+        invocations.size() == 2
+        invocations.every { it[-2..-1] == ['--', ':(literal)file'] }
+    }
+
+    def 'when the working tree is clean it should not read line counts'() {
+        given: 'a Git runner that records its invocations and reports no dirty files'
+        def invocations = []
+        def gitCommands = new GitCommands(newGitRunner('', '', invocations))
+
+        when: 'getting the status of the working tree'
+        def fileStatuses = gitCommands.getWorkingTreeStatus([])
+
+        then: 'it should report no dirty files after running only the status command'
+        fileStatuses.isEmpty()
+        invocations.size() == 1
+    }
+
+    def 'when HEAD does not exist it should report unknown line counts'() {
+        given: 'a Git runner that fails to diff against HEAD with exit code 128'
         def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> {
+            run(_ as OutputStream, _) >> { OutputStream outStream, String[] args ->
+                if (args[1] != 'status') {
+                    throw GitException.newBuilder().withExitCode(128).build()
+                }
+                outStream.write(('1 A. N... 000000 100644 100644 0000000000000000000000000000000000000000 ' +
+                        "$HASH file\u0000").bytes)
                 newGitRunnerResultWithExitCode(0)
             }
         }
         def gitCommands = new GitCommands(gitRunner)
 
-        when: 'asking if the file is present at the HEAD revision'
-        def result = gitCommands.isFilePresentAtHeadRevision(Paths.get('/root/subdir/file'))
+        when: 'getting the status of the working tree'
+        def fileStatuses = gitCommands.getWorkingTreeStatus([])
 
-        then: 'it should be false'
-        result == false
+        then: 'it should report the file with unknown line counts'
+        fileStatuses == ['file': new FileStatus(FileStatus.Kind.ADDED, -1, -1)]
     }
 
-    def 'when Git returns a nonzero exit code it should return false'() {
-        given: 'a Git runner that exits with code 1 and outputs one line to stdout'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('subdir/file\n')
-                newGitRunnerResultWithExitCode(1)
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-
-        when: 'asking if the file is present at the HEAD revision'
-        def result = gitCommands.isFilePresentAtHeadRevision(Paths.get('/root/subdir/file'))
-
-        then: 'it should be false'
-        result == false
-    }
-
-    def 'when Git produces an unexpected output it should return false'() {
-        given: 'a Git runner that exits with code 0 and outputs two lines to stdout'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('subdir/file\n')
-                outWriter.write('subdir/another-file\n')
-                newGitRunnerResultWithExitCode(0)
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-
-        when: 'asking if the file is present at the HEAD revision'
-        def result = gitCommands.isFilePresentAtHeadRevision(Paths.get('/root/subdir/file'))
-
-        then: 'it should be false'
-        result == false
-    }
-
-    def 'when Git produces an expected error it should return false'() {
-        given: 'a Git runner that throws an exception with exit code 128'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> {
-                throw GitException.newBuilder().withExitCode(128).build()
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-
-        when: 'asking if the file is present at the HEAD revision'
-        def result = gitCommands.isFilePresentAtHeadRevision(Paths.get('/root/subdir/file'))
-
-        then: 'it should be false'
-        result == false
-    }
-
-    def 'when Git produces an unexpected error it should return false'() {
-        given: 'a Git runner that throws an exception with exit code 129'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> {
-                throw GitException.newBuilder().withExitCode(129).build()
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-
-        when: 'asking if the file is present at the HEAD revision'
-        gitCommands.isFilePresentAtHeadRevision(Paths.get('/root/subdir/file'))
-
-        then: 'it should throw an exception'
-        thrown(GitException)
-    }
-}
-
-@Subject(GitCommands)
-@Title('Unit tests for GitCommands#readFileContentAtHeadRevision')
-class GitCommands_ReadFileContentAtHeadRevisionSpec extends GitCommandsSpecification {
-    def 'when file exists on HEAD it should read file content'() {
-        given: 'a Git runner that exits with code 0 and outputs file content to stdout'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('line1\n')
-                outWriter.write('line2\n')
-                newGitRunnerResultWithExitCode(0)
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-        def writer = new StringWriter()
-
-        when: 'reading the file content at the HEAD revision'
-        gitCommands.readFileContentAtHeadRevision(Paths.get('file'), writer)
-
-        then: 'it should be the file content produced by the Git runner'
-        writer.toString() == 'line1\nline2\n'
-    }
-
-    def 'when Git returns an unexpected exit code it should throw an exception'() {
-        given: 'a Git runner that exits with code 1 and outputs the file content to stdout'
-        def gitRunner = Stub(IGitRunner) {
-            run(_, _) >> { Writer outWriter, String[] args ->
-                outWriter.write('line1\n')
-                outWriter.write('line2\n')
-                newGitRunnerResultWithExitCode(1)
-            }
-        }
-        def gitCommands = new GitCommands(gitRunner)
-        def writer = new StringWriter()
+    def 'when Git produces an unexpected output it should throw an exception'() {
+        given: 'a Git runner that outputs an unexpected status or line count'
+        def gitCommands = new GitCommands(newGitRunner(statusOutput, numstatOutput))
 
-        when: 'reading the file content at the HEAD revision'
-        gitCommands.readFileContentAtHeadRevision(Paths.get('file'), writer)
+        when: 'getting the status of the working tree'
+        gitCommands.getWorkingTreeStatus([])
 
-        then: 'it should throw an exception containing the unexpected exit code'
+        then: 'it should throw an exception containing the unexpected output'
         def e = thrown(GitException)
-        e.exitCode != null
+        e.output != null
+
+        where:
+        statusOutput                                               | numstatOutput
+        'x file\u0000'                                          | ''
+        "1 .M N... 100644 100644 $HASH $HASH file\u0000"         | ''
+        "1 .M N... 100644 100644 100644 $HASH $HASH file\u0000"  | '1\tfile\u0000'
+        "1 .M N... 100644 100644 100644 $HASH $HASH file\u0000"  | 'x\t1\tfile\u0000'
     }
 }
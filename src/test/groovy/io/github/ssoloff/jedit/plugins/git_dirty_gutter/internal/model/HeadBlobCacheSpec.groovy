@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(HeadBlobCache)
+@Title('Unit tests for HeadBlobCache')
+class HeadBlobCacheSpec extends Specification {
+    def 'when blob is cached it should return its content'() {
+        given: 'a cache containing a blob'
+        def cache = new HeadBlobCache(100)
+        cache.put('blob1', 'line1\n')
+
+        expect: 'the content of the blob'
+        cache.get('blob1') == 'line1\n'
+        cache.get('blob2') == null
+    }
+
+    def 'when maximum size is exceeded it should evict the least recently used blobs'() {
+        given: 'a cache containing two blobs'
+        def cache = new HeadBlobCache(10)
+        cache.put('blob1', 'aaaa')
+        cache.put('blob2', 'bbbb')
+
+        and: 'the first blob is used more recently than the second'
+        cache.get('blob1')
+
+        when: 'adding a blob that exceeds the maximum size'
+        cache.put('blob3', 'cccc')
+
+        then: 'the least recently used blob should be evicted'
+        cache.get('blob1') == 'aaaa'
+        cache.get('blob2') == null
+        cache.get('blob3') == 'cccc'
+        cache.sizeInCharacters == 8
+        cache.blobCount == 2
+    }
+
+    def 'when blob is larger than the maximum size it should not be cached'() {
+        given: 'an empty cache'
+        def cache = new HeadBlobCache(3)
+
+        when: 'adding a blob larger than the maximum size'
+        cache.put('blob1', 'aaaa')
+
+        then: 'the blob should not be cached'
+        cache.get('blob1') == null
+        cache.sizeInCharacters == 0
+    }
+
+    def 'when blob is evicted without a compressed tier it should no longer be cached'() {
+        given: 'a cache containing two blobs'
+        def cache = new HeadBlobCache(100)
+        cache.put('blob1', 'aaaa')
+        cache.put('blob2', 'bbbb')
+
+        when: 'evicting a blob'
+        cache.evict('blob1')
+
+        then: 'the blob should no longer be cached'
+        cache.get('blob1') == null
+        cache.get('blob2') == 'bbbb'
+        cache.sizeInCharacters == 4
+    }
+
+    def 'when trimmed it should evict the least recently used blobs'() {
+        given: 'a cache containing three blobs'
+        def cache = new HeadBlobCache(100)
+        cache.put('blob1', 'aaaa')
+        cache.put('blob2', 'bbbb')
+        cache.put('blob3', 'cccc')
+
+        and: 'the first blob is used more recently than the others'
+        cache.get('blob1')
+
+        when: 'trimming the cache to half its size'
+        cache.trimToSize(6)
+
+        then: 'the least recently used blobs should be evicted'
+        cache.get('blob1') == 'aaaa'
+        cache.get('blob2') == null
+        cache.get('blob3') == null
+        cache.sizeInCharacters == 4
+    }
+
+    def 'when blob is evicted with a compressed tier it should be compressed and inflated on access'() {
+        given: 'a cache with a compressed tier containing a blob'
+        def cache = new HeadBlobCache(1000, internLines, 1000)
+        def content = 'line\n' * 100
+        cache.put('blob1', content)
+
+        when: 'evicting the blob'
+        cache.evict('blob1')
+
+        then: 'the blob should be compressed'
+        cache.blobCount == 0
+        cache.sizeInCharacters == 0
+        cache.compressedBlobCount == 1
+        cache.compressedSizeInBytes < content.length()
+        cache.compressionRatioPercent > 100
+
+        when: 'accessing the blob'
+        def lines = cache.getLines('blob1')
+
+        then: 'the blob should be inflated into the uncompressed tier'
+        lines == ['line'] * 100 + ['']
+        cache.get('blob1') == content
+        cache.blobCount == 1
+        cache.compressedBlobCount == 0
+        cache.compressedSizeInBytes == 0
+
+        where:
+        internLines << [false, true]
+    }
+
+    def 'when uncompressed tier is full it should compress the least recently used blobs'() {
+        given: 'a cache with a compressed tier'
+        def cache = new HeadBlobCache(10, false, 1000)
+
+        when: 'adding blobs that exceed the maximum size of the uncompressed tier'
+        cache.put('blob1', 'aaaa\n')
+        cache.put('blob2', 'bbbb\n')
+        cache.put('blob3', 'cccc\n')
+
+        then: 'the least recently used blob should be compressed'
+        cache.blobCount == 2
+        cache.compressedBlobCount == 1
+        cache.get('blob1') == 'aaaa\n'
+
+        and: 'accessing it should compress the next least recently used blob'
+        cache.blobCount == 2
+        cache.compressedBlobCount == 1
+        cache.get('blob2') == 'bbbb\n'
+    }
+
+    def 'when compressed tier is full it should evict the least recently used compressed blobs'() {
+        given: 'a cache with a compressed tier that holds a single compressed blob'
+        def cache = new HeadBlobCache(100, false, 15)
+        cache.put('blob1', 'aaaa\n')
+        cache.put('blob2', 'bbbb\n')
+
+        when: 'evicting both blobs'
+        cache.evict('blob1')
+        cache.evict('blob2')
+
+        then: 'only the most recently compressed blob should be cached'
+        cache.get('blob1') == null
+        cache.get('blob2') == 'bbbb\n'
+    }
+
+    def 'when compressed tier is trimmed it should evict the least recently used compressed blobs'() {
+        given: 'a cache with two compressed blobs'
+        def cache = new HeadBlobCache(100, false, 1000)
+        cache.put('blob1', 'aaaa\n')
+        cache.put('blob2', 'bbbb\n')
+        cache.trimToSize(0)
+
+        when: 'trimming the compressed tier'
+        cache.trimCompressedToSize(cache.compressedSizeInBytes - 1)
+
+        then: 'the least recently used compressed blob should be evicted'
+        cache.compressedBlobCount == 1
+        cache.get('blob1') == null
+        cache.get('blob2') == 'bbbb\n'
+    }
+
+    def 'when blob is cached it should return its lines with an explicit final line'() {
+        given: 'a cache containing a blob'
+        def cache = new HeadBlobCache(100, internLines)
+        cache.put('blob1', 'line1\nline2\n')
+
+        expect: 'the lines of the blob'
+        cache.getLines('blob1') == ['line1', 'line2', '']
+        cache.get('blob1') == 'line1\nline2\n'
+        cache.getLines('blob2') == null
+
+        where:
+        internLines << [false, true]
+    }
+
+    def 'when interning lines it should share equal lines across blobs'() {
+        given: 'a cache that interns lines'
+        def cache = new HeadBlobCache(100, true)
+
+        when: 'adding two blobs with a common line'
+        cache.put('blob1', new String('}\naaa\n'))
+        cache.put('blob2', new String('bbb\n}\n'))
+
+        then: 'the common line should be shared'
+        cache.getLines('blob1')[0].is(cache.getLines('blob2')[1])
+
+        and: 'the shared content should be reported'
+        cache.sharedSizeInCharacters == 2
+        cache.internedLineCount == 4
+        cache.sizeInCharacters == 12
+    }
+
+    def 'when interning lines it should stop reporting the shared content of evicted blobs'() {
+        given: 'a cache that interns lines containing two blobs with a common line'
+        def cache = new HeadBlobCache(10, true)
+        cache.put('blob1', '}\naa\n')
+        cache.put('blob2', '}\n')
+
+        when: 'evicting the blob sharing the line'
+        cache.get('blob1')
+        cache.put('blob3', 'ccc\n')
+
+        then: 'the shared content should no longer be reported'
+        cache.getLines('blob2') == null
+        cache.sharedSizeInCharacters == 0
+        cache.sizeInCharacters == 9
+    }
+
+    def 'when not interning lines it should report no shared content'() {
+        given: 'a cache that does not intern lines'
+        def cache = new HeadBlobCache(100)
+
+        when: 'adding two blobs with a common line'
+        cache.put('blob1', '}\n')
+        cache.put('blob2', '}\n')
+
+        then: 'no shared content should be reported'
+        cache.sharedSizeInCharacters == 0
+        cache.internedLineCount == 0
+    }
+
+    def 'it should normalize content to line-feed-terminated lines'() {
+        expect: 'the normalized content'
+        HeadBlobCache.normalizeContent(content) == normalizedContent
+
+        where:
+        content          || normalizedContent
+        ''               || ''
+        'line1'          || 'line1\n'
+        'line1\n'        || 'line1\n'
+        'line1\r\nline2' || 'line1\nline2\n'
+        '\n'             || '\n'
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import difflib.ChangeDelta
+import difflib.Chunk
+import difflib.DiffUtils
+import difflib.Patch
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(HunkTable)
+@Title('Unit tests for HunkTable#fromPatch')
+class HunkTable_FromPatchSpec extends Specification {
+    def 'when patch contains context lines it should throw an exception'() {
+        given: 'a patch that contains context lines'
+        def patch = new Patch()
+        patch.addDelta(new ChangeDelta(
+            new Chunk(8, ['9', '10/old', '11']),
+            new Chunk(8, ['9', '10/new', '11'])
+        ))
+
+        when: 'creating a hunk table from the patch'
+        HunkTable.fromPatch(patch)
+
+        then: 'it should throw an exception'
+        thrown(IllegalArgumentException)
+    }
+
+    def 'when patch is empty it should return the empty hunk table'() {
+        expect: 'the hunk table of an empty patch to be the empty hunk table'
+        HunkTable.fromPatch(new Patch()).is(HunkTable.EMPTY)
+    }
+
+    def 'it should record the position and size of each chunk'() {
+        given: 'a patch describing an addition, a change and a removal'
+        def patch = DiffUtils.diff(['1', '2/old', '3', '4', '5'], ['0', '1', '2/new', '3', '5'])
+
+        when: 'creating a hunk table from the patch'
+        def hunkTable = HunkTable.fromPatch(patch)
+
+        then: 'it should contain one hunk per delta'
+        hunkTable.hunkCount == 3
+        (0..<3).collect { hunkIndex ->
+            [
+                hunkTable.getOriginalPosition(hunkIndex),
+                hunkTable.getOriginalSize(hunkIndex),
+                hunkTable.getRevisedPosition(hunkIndex),
+                hunkTable.getRevisedSize(hunkIndex),
+            ]
+        } == [[0, 0, 0, 1], [1, 1, 2, 1], [3, 1, 4, 0]]
+    }
+}
+
+@Subject(HunkTable.Builder)
+@Title('Unit tests for HunkTable.Builder')
+class HunkTable_BuilderSpec extends Specification {
+    def 'it should order hunks by original position'() {
+        given: 'a builder with hunks added out of order'
+        def builder = new HunkTable.Builder()
+            .addHunk(5, 1, 5, 1)
+            .addHunk(1, 0, 1, 2)
+            .addHunk(5, 2, 5, 0)
+            .addHunk(3, 1, 4, 1)
+            .addHunk(9, 1, 9, 1)
+
+        when: 'building the hunk table'
+        def hunkTable = builder.build()
+
+        then: 'hunks should be ordered by original position, keeping hunks at the same position in order of addition'
+        (0..<hunkTable.hunkCount).collect { hunkIndex ->
+            [hunkTable.getOriginalPosition(hunkIndex), hunkTable.getOriginalSize(hunkIndex)]
+        } == [[1, 0], [3, 1], [5, 1], [5, 2], [9, 1]]
+    }
+
+    def 'it should produce equal hunk tables for equal hunks'() {
+        expect: 'hunk tables built from the same hunks to be equal'
+        new HunkTable.Builder().addHunk(1, 2, 3, 4).build() == new HunkTable.Builder().addHunk(1, 2, 3, 4).build()
+        new HunkTable.Builder().addHunk(1, 2, 3, 4).build() != new HunkTable.Builder().addHunk(1, 2, 3, 5).build()
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import java.nio.file.Files
+import java.nio.file.Path
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(MappedBlob)
+@Title('Unit tests for MappedBlob')
+class MappedBlobSpec extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    private Path newBlobFile(String content) {
+        def filePath = temporaryFolder.newFile().toPath()
+        filePath.setText(content, 'UTF-8')
+        filePath
+    }
+
+    def 'it should split the lines with an explicit final line'() {
+        given: 'a mapped blob'
+        def blob = MappedBlob.map(newBlobFile(content))
+
+        expect: 'the lines of the blob'
+        blob.lineCount == lines.size()
+        blob.readLines() == lines
+
+        cleanup:
+        blob?.close()
+
+        where:
+        content                 || lines
+        ''                      || []
+        'line1'                 || ['line1']
+        'line1\n'               || ['line1', '']
+        'line1\n\nline3\n'      || ['line1', '', 'line3', '']
+        '\u00e9t\u00e9\n\u2603' || ['\u00e9t\u00e9', '\u2603']
+    }
+
+    def 'it should read lines longer than its line buffer'() {
+        given: 'a mapped blob containing a long line'
+        def longLine = 'x' * 1000
+        def blob = MappedBlob.map(newBlobFile("short\n${longLine}\nshort"))
+
+        expect: 'the lines of the blob'
+        blob.readLines() == ['short', longLine, 'short']
+
+        cleanup:
+        blob?.close()
+    }
+
+    def 'when closed it should delete the file and stop reading lines'() {
+        given: 'a mapped blob'
+        def filePath = newBlobFile('line1\n')
+        def blob = MappedBlob.map(filePath)
+
+        when: 'the blob is closed'
+        blob.close()
+
+        then: 'the file should be deleted'
+        !Files.exists(filePath)
+
+        and: 'no lines should be read'
+        blob.readLines() == null
+
+        when: 'the blob is closed again'
+        blob.close()
+
+        then: 'it should do nothing'
+        notThrown(IOException)
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import static io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.DirtyMarkType.ADDED
+import static io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.DirtyMarkType.CHANGED
+import static io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.DirtyMarkType.REMOVED_ABOVE
+import static io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.DirtyMarkType.REMOVED_BELOW
+import static io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model.DirtyMarkType.UNCHANGED
+
+import difflib.DiffUtils
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+class PatchRemapperSpecification extends Specification {
+    protected static diff(originalLines, revisedLines) {
+        HunkTable.fromPatch(DiffUtils.diff(originalLines, revisedLines))
+    }
+
+    protected static getDirtyMarks(patch, lineCount) {
+        def patchAnalyzer = new PatchAnalyzer(patch)
+        (0..<lineCount).collect { patchAnalyzer.getDirtyMarkForLine(it) }
+    }
+}
+
+@Subject(PatchRemapper)
+@Title('Unit tests for PatchRemapper#remapForInsertedLines')
+class PatchRemapper_RemapForInsertedLinesSpec extends PatchRemapperSpecification {
+    def 'when no lines are inserted it should return the same patch'() {
+        given: 'a patch describing a modification at line 1'
+        def patch = diff(['1', '2/old', '3'], ['1', '2/new', '3'])
+
+        when: 'remapping for zero inserted lines'
+        def result = PatchRemapper.remapForInsertedLines(patch, 0, 0)
+
+        then: 'it should return the same patch'
+        result.is(patch)
+    }
+
+    def 'it should shift marks below the insertion and mark the inserted lines as added'() {
+        given: 'a patch describing a modification at line 3'
+        def patch = diff(['1', '2', '3', '4/old', '5'], ['1', '2', '3', '4/new', '5'])
+
+        when: 'remapping for two lines inserted after line 0'
+        def result = PatchRemapper.remapForInsertedLines(patch, 0, 2)
+
+        then: 'the inserted lines should be added and the modification shifted down'
+        getDirtyMarks(result, 7) == [UNCHANGED, ADDED, ADDED, UNCHANGED, UNCHANGED, CHANGED, UNCHANGED]
+    }
+
+    def 'when lines are inserted within a changed chunk it should extend the chunk'() {
+        given: 'a patch describing a modification at line 1'
+        def patch = diff(['1', '2/old', '3'], ['1', '2/new', '3'])
+
+        when: 'remapping for one line inserted after line 1'
+        def result = PatchRemapper.remapForInsertedLines(patch, 1, 1)
+
+        then: 'the changed chunk should cover the inserted line'
+        getDirtyMarks(result, 4) == [UNCHANGED, CHANGED, CHANGED, UNCHANGED]
+    }
+
+    def 'it should not modify the original patch'() {
+        given: 'a patch describing a modification at line 1'
+        def patch = diff(['1', '2/old', '3'], ['1', '2/new', '3'])
+
+        when: 'remapping for one line inserted after line 0'
+        PatchRemapper.remapForInsertedLines(patch, 0, 1)
+
+        then: 'the original patch should be unchanged'
+        getDirtyMarks(patch, 3) == [UNCHANGED, CHANGED, UNCHANGED]
+    }
+}
+
+@Subject(PatchRemapper)
+@Title('Unit tests for PatchRemapper#remapForRemovedLines')
+class PatchRemapper_RemapForRemovedLinesSpec extends PatchRemapperSpecification {
+    def 'it should shift marks below the removal and mark the removal'() {
+        given: 'a patch describing a modification at line 4'
+        def patch = diff(['1', '2', '3', '4', '5/old', '6'], ['1', '2', '3', '4', '5/new', '6'])
+
+        when: 'remapping for two lines removed after line 0'
+        def result = PatchRemapper.remapForRemovedLines(patch, 0, 2)
+
+        then: 'the removal should be marked and the modification shifted up'
+        getDirtyMarks(result, 4) == [REMOVED_BELOW, REMOVED_ABOVE, CHANGED, UNCHANGED]
+    }
+
+    def 'when only added lines are removed it should not mark the removal'() {
+        given: 'a patch describing an addition at lines 1 and 2'
+        def patch = diff(['1', '4'], ['1', '2', '3', '4'])
+
+        when: 'remapping for two lines removed after line 0'
+        def result = PatchRemapper.remapForRemovedLines(patch, 0, 2)
+
+        then: 'no lines should be dirty'
+        getDirtyMarks(result, 2) == [UNCHANGED, UNCHANGED]
+    }
+
+    def 'when some added lines are removed it should truncate the added chunk'() {
+        given: 'a patch describing an addition at lines 1 through 3'
+        def patch = diff(['1', '5'], ['1', '2', '3', '4', '5'])
+
+        when: 'remapping for one line removed after line 1'
+        def result = PatchRemapper.remapForRemovedLines(patch, 1, 1)
+
+        then: 'the added chunk should cover the remaining added lines'
+        getDirtyMarks(result, 4) == [UNCHANGED, ADDED, ADDED, UNCHANGED]
+    }
+}
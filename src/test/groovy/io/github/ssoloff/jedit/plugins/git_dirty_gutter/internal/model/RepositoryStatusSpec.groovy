@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import java.nio.file.Paths
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(RepositoryStatus)
+@Title('Unit tests for RepositoryStatus')
+class RepositoryStatusSpec extends Specification {
+    private static final REPO_ROOT_PATH = Paths.get('/repo').toAbsolutePath()
+
+    private static RepositoryStatus newRepositoryStatus(Map<String, FileStatus> fileStatuses) {
+        new RepositoryStatus(REPO_ROOT_PATH, new HashMap<String, FileStatus>(fileStatuses))
+    }
+
+    def 'it should return the status of each dirty file by path'() {
+        given: 'a status containing two dirty files'
+        def modified = new FileStatus(FileStatus.Kind.MODIFIED, 2, 1)
+        def untracked = new FileStatus(FileStatus.Kind.UNTRACKED, -1, -1)
+        def status = newRepositoryStatus(['subdir/file': modified, 'new file': untracked])
+
+        expect: 'the status of each file'
+        status.getFileStatus(REPO_ROOT_PATH.resolve('subdir').resolve('file')) == modified
+        status.getFileStatus(REPO_ROOT_PATH.resolve('subdir').resolve('..').resolve('new file')) == untracked
+        status.getFileStatus(REPO_ROOT_PATH.resolve('clean')) == null
+        status.getFileStatus(REPO_ROOT_PATH.resolveSibling('other').resolve('subdir').resolve('file')) == null
+        status.getFileStatus(REPO_ROOT_PATH) == null
+    }
+
+    def 'it should total the line counts of the dirty files whose line counts are known'() {
+        given: 'a status containing dirty files with known and unknown line counts'
+        def status = newRepositoryStatus([
+            'file1': new FileStatus(FileStatus.Kind.MODIFIED, 2, 1),
+            'file2': new FileStatus(FileStatus.Kind.DELETED, 0, 5),
+            'file3': new FileStatus(FileStatus.Kind.UNTRACKED, -1, -1),
+        ])
+
+        expect: 'the totals over the dirty files'
+        status.dirtyFileCount == 3
+        status.addedLineCount == 2
+        status.removedLineCount == 6
+        status.dirtyFilePaths as Set == ['file1', 'file2', 'file3'].collect { REPO_ROOT_PATH.resolve(it) } as Set
+    }
+
+    def 'when the status of some files is replaced it should keep the status of the other files'() {
+        given: 'a status containing two dirty files'
+        def status = newRepositoryStatus([
+            'file1': new FileStatus(FileStatus.Kind.MODIFIED, 2, 1),
+            'file2': new FileStatus(FileStatus.Kind.MODIFIED, 3, 0),
+        ])
+
+        when: 'replacing the status of the first file with clean and a third file with dirty'
+        def newStatus = status.withFileStatuses(['file1', 'file3'],
+                ['file3': new FileStatus(FileStatus.Kind.UNTRACKED, -1, -1)])
+
+        then: 'only the status of the replaced files should change'
+        newStatus.fileStatuses == [
+            'file2': new FileStatus(FileStatus.Kind.MODIFIED, 3, 0),
+            'file3': new FileStatus(FileStatus.Kind.UNTRACKED, -1, -1),
+        ]
+        newStatus.addedLineCount == 3
+        newStatus.removedLineCount == 0
+
+        and: 'the original status should be unchanged'
+        status.dirtyFileCount == 2
+    }
+}
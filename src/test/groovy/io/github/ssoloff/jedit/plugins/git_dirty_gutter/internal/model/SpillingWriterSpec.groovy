@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.model
+
+import java.nio.file.Files
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(SpillingWriter)
+@Title('Unit tests for SpillingWriter')
+class SpillingWriterSpec extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def 'when content does not exceed threshold it should keep the content in memory'() {
+        given: 'a writer'
+        def directoryPath = temporaryFolder.newFolder().toPath()
+        def writer = new SpillingWriter(directoryPath, 6)
+
+        when: 'writing content equal to the threshold'
+        writer.write('line1\n')
+        writer.close()
+
+        then: 'the content should be kept in memory'
+        writer.spillFilePath == null
+        writer.toString() == 'line1\n'
+        directoryPath.toFile().list().length == 0
+    }
+
+    def 'when content exceeds threshold it should write all content to a spill file'() {
+        given: 'a writer'
+        def directoryPath = temporaryFolder.newFolder().toPath()
+        def writer = new SpillingWriter(directoryPath, 8)
+
+        when: 'writing content exceeding the threshold'
+        writer.write('line1\n')
+        writer.write('\u00e9t\u00e9\n')
+        writer.close()
+
+        then: 'all content should be written to a spill file'
+        writer.spillFilePath.parent == directoryPath
+        writer.spillFilePath.getText('UTF-8') == 'line1\n\u00e9t\u00e9\n'
+        writer.toString() == ''
+    }
+
+    def 'when expected size exceeds threshold it should write the content to a spill file'() {
+        given: 'a writer for content whose expected size exceeds the threshold'
+        def writer = new SpillingWriter(temporaryFolder.newFolder().toPath(), 8, 9)
+
+        when: 'writing content that does not exceed the threshold'
+        writer.write('line1\n')
+        writer.close()
+
+        then: 'the content should be written to a spill file'
+        writer.spillFilePath.getText('UTF-8') == 'line1\n'
+        writer.toString() == ''
+    }
+
+    def 'when expected size does not exceed threshold it should keep the content in memory'() {
+        given: 'a writer for content whose expected size does not exceed the threshold'
+        def writer = new SpillingWriter(temporaryFolder.newFolder().toPath(), 8, 8)
+
+        when: 'writing the content'
+        writer.write('line1\n')
+        writer.close()
+
+        then: 'the content should be kept in memory'
+        writer.spillFilePath == null
+        writer.toString() == 'line1\n'
+    }
+
+    def 'when discarded it should delete the spill file'() {
+        given: 'a writer that has spilled its content'
+        def writer = new SpillingWriter(temporaryFolder.newFolder().toPath(), 0)
+        writer.write('line1\n')
+
+        when: 'the writer is discarded'
+        writer.discard()
+
+        then: 'the spill file should be deleted'
+        !Files.exists(writer.spillFilePath)
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util
+
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(AdaptiveDebouncer)
+@Title('Unit tests for AdaptiveDebouncer')
+class AdaptiveDebouncerSpec extends Specification {
+    private final debouncer = new AdaptiveDebouncer(500, 1000)
+
+    def 'when no costs have been recorded it should not delay'() {
+        expect:
+        debouncer.getDelayInMilliseconds(0) == 0
+    }
+
+    def 'it should delay in proportion to the average recorded cost'() {
+        given:
+        debouncer.recordCost(10)
+        debouncer.recordCost(30)
+
+        expect:
+        debouncer.averageCostInMilliseconds == 20
+        debouncer.getDelayInMilliseconds(0) == 40
+    }
+
+    def 'it should average only the most recent costs'() {
+        given:
+        debouncer.recordCost(1000)
+        5.times { debouncer.recordCost(10) }
+
+        expect:
+        debouncer.averageCostInMilliseconds == 10
+    }
+
+    def 'it should not delay longer than the maximum delay'() {
+        given:
+        debouncer.recordCost(400)
+
+        expect:
+        debouncer.getDelayInMilliseconds(0) == 500
+    }
+
+    def 'it should not delay beyond the maximum staleness'() {
+        given:
+        debouncer.recordCost(400)
+
+        expect:
+        debouncer.getDelayInMilliseconds(elapsedTime) == delay
+
+        where:
+        elapsedTime || delay
+        600         || 400
+        1000        || 0
+        2000        || 0
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util
+
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(AdaptivePollInterval)
+@Title('Unit tests for AdaptivePollInterval')
+class AdaptivePollIntervalSpec extends Specification {
+    private static final BASE_POLL_TIME = 5000
+    private static final MAX_POLL_TIME = 60000
+
+    private focused = true
+    private nanoTime = 0L
+    private final pollInterval = new AdaptivePollInterval(
+            { BASE_POLL_TIME } as ISupplier<Integer>,
+            MAX_POLL_TIME,
+            { focused } as ISupplier<Boolean>,
+            { nanoTime } as ISupplier<Long>)
+
+    private advanceTime(long milliseconds) {
+        nanoTime += TimeUnit.MILLISECONDS.toNanos(milliseconds)
+    }
+
+    def 'it should initially poll at the base poll time'() {
+        expect:
+        pollInterval.pollTimeInMilliseconds == BASE_POLL_TIME
+    }
+
+    def 'while the repository is unchanged it should back off'() {
+        when: 'time elapses without a change'
+        advanceTime(unchangedTime)
+
+        then: 'it should back off in proportion to the unchanged time'
+        pollInterval.pollTimeInMilliseconds == pollTime
+
+        where:
+        unchangedTime || pollTime
+        5000          || BASE_POLL_TIME
+        20000         || 10000
+        60000         || 30000
+        600000        || MAX_POLL_TIME
+    }
+
+    def 'while the application is not focused it should back off faster'() {
+        given: 'the application is not focused'
+        focused = false
+
+        when: 'time elapses without a change'
+        advanceTime(20000)
+
+        then: 'it should back off faster'
+        pollInterval.pollTimeInMilliseconds == 20000
+    }
+
+    def 'it should not poll faster than a multiple of the Git latency'() {
+        when: 'polls are slow'
+        4.times { pollInterval.recordPoll(false, 1000) }
+
+        then: 'it should scale the poll time with the latency'
+        pollInterval.pollTimeInMilliseconds > BASE_POLL_TIME
+        pollInterval.pollTimeInMilliseconds <= MAX_POLL_TIME
+    }
+
+    def 'when a change is detected it should snap back to the base poll time and notify listeners'() {
+        given: 'a listener'
+        def resetCount = 0
+        pollInterval.addResetListener { resetCount++ }
+
+        and: 'the poll time has backed off'
+        advanceTime(60000)
+        assert pollInterval.pollTimeInMilliseconds > BASE_POLL_TIME
+
+        when: 'a change is detected'
+        pollInterval.recordPoll(true, 0)
+
+        then: 'it should poll at the base poll time'
+        pollInterval.pollTimeInMilliseconds == BASE_POLL_TIME
+
+        and: 'the listener should be notified'
+        resetCount == 1
+    }
+
+    def 'when a listener is removed it should not be notified'() {
+        given: 'a removed listener'
+        def resetCount = 0
+        def listener = { resetCount++ } as Runnable
+        pollInterval.addResetListener(listener)
+        pollInterval.removeResetListener(listener)
+
+        when: 'the interval is reset'
+        pollInterval.reset()
+
+        then: 'the listener should not be notified'
+        resetCount == 0
+    }
+}
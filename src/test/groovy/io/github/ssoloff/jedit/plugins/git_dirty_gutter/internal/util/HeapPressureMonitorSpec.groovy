@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util
+
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(HeapPressureMonitor)
+@Title('Unit tests for HeapPressureMonitor')
+class HeapPressureMonitorSpec extends Specification {
+    private monitor = new HeapPressureMonitor(90)
+
+    def cleanup() {
+        monitor.stop()
+    }
+
+    def 'when notified it should invoke all listeners'() {
+        given: 'two listeners'
+        def invocationCount = 0
+        monitor.addListener { ++invocationCount }
+        monitor.addListener { ++invocationCount }
+
+        when: 'notifying the listeners'
+        monitor.notifyListeners()
+
+        then: 'both listeners should be invoked'
+        invocationCount == 2
+    }
+
+    def 'when listener is removed it should not be invoked'() {
+        given: 'a removed listener'
+        def invoked = false
+        def listener = { invoked = true } as Runnable
+        monitor.addListener(listener)
+        monitor.removeListener(listener)
+
+        when: 'notifying the listeners'
+        monitor.notifyListeners()
+
+        then: 'the listener should not be invoked'
+        !invoked
+    }
+
+    def 'when started it should set the collection usage threshold of the tenured pools until stopped'() {
+        given: 'the pools whose collection usage threshold may be set'
+        def pools = ManagementFactory.memoryPoolMXBeans.findAll {
+            (it.type == MemoryType.HEAP) && it.collectionUsageThresholdSupported && it.usageThresholdSupported && (it.usage.max > 0)
+        }
+
+        when: 'starting the monitor'
+        monitor.start()
+
+        then: 'the collection usage threshold of the tenured pools should be set'
+        monitor.monitoredPoolCount == pools.size()
+        pools.every { it.collectionUsageThreshold > 0 }
+
+        when: 'stopping the monitor'
+        monitor.stop()
+
+        then: 'the collection usage threshold should be cleared'
+        monitor.monitoredPoolCount == 0
+        pools.every { it.collectionUsageThreshold == 0 }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(RefreshScheduler)
+@Title('Unit tests for RefreshScheduler')
+class RefreshSchedulerSpec extends Specification {
+    private static final LONG_POLL_TIME = { Integer.valueOf(60000) } as ISupplier<Integer>
+
+    private final scheduler = new RefreshScheduler('test', 2, 500, 1000, false)
+
+    def cleanup() {
+        scheduler.shutdown()
+    }
+
+    def 'when a refresh is requested it should run the task with refresh requested'() {
+        given: 'a registered task'
+        def latch = new CountDownLatch(1)
+        def refreshRequestedValues = new ConcurrentLinkedQueue()
+        def registration = scheduler.register({ refreshRequested ->
+            refreshRequestedValues << refreshRequested
+            latch.countDown()
+        } as IRefreshTask, LONG_POLL_TIME)
+
+        when: 'a refresh is requested'
+        registration.requestRefresh()
+
+        then: 'the task should run with refresh requested'
+        latch.await(5, TimeUnit.SECONDS)
+        refreshRequestedValues as List == [true]
+    }
+
+    def 'when the poll time elapses it should run the task without refresh requested'() {
+        given: 'a task registered with a short poll time'
+        def latch = new CountDownLatch(1)
+        def refreshRequestedValues = new ConcurrentLinkedQueue()
+        scheduler.register({ refreshRequested ->
+            refreshRequestedValues << refreshRequested
+            latch.countDown()
+        } as IRefreshTask, { Integer.valueOf(1) } as ISupplier<Integer>)
+
+        expect: 'the task should run without refresh requested'
+        latch.await(5, TimeUnit.SECONDS)
+        refreshRequestedValues.peek() == false
+    }
+
+    def 'it should run more tasks than it has threads'() {
+        given: 'more registered tasks than scheduler threads'
+        def taskCount = 50
+        def latch = new CountDownLatch(taskCount)
+        def registrations = (1..taskCount).collect {
+            scheduler.register({ latch.countDown() } as IRefreshTask, LONG_POLL_TIME)
+        }
+
+        when: 'a refresh is requested for every task'
+        registrations*.requestRefresh()
+
+        then: 'every task should run'
+        latch.await(5, TimeUnit.SECONDS)
+    }
+
+    def 'when refreshes are requested while the task is running it should run the task once more'() {
+        given: 'a registered task that blocks on its first run'
+        def firstRunStarted = new CountDownLatch(1)
+        def firstRunReleased = new CountDownLatch(1)
+        def runCount = new AtomicInteger()
+        def secondRunFinished = new CountDownLatch(1)
+        def registration = scheduler.register({ refreshRequested ->
+            if (runCount.incrementAndGet() == 1) {
+                firstRunStarted.countDown()
+                firstRunReleased.await()
+            } else {
+                secondRunFinished.countDown()
+            }
+        } as IRefreshTask, LONG_POLL_TIME)
+
+        when: 'several refreshes are requested while the task is running'
+        registration.requestRefresh()
+        firstRunStarted.await(5, TimeUnit.SECONDS)
+        3.times { registration.requestRefresh() }
+        firstRunReleased.countDown()
+
+        then: 'the task should run exactly once more'
+        secondRunFinished.await(5, TimeUnit.SECONDS)
+        Thread.sleep(100)
+        runCount.get() == 2
+    }
+
+    def 'when refreshes are requested in a burst after a costly refresh it should run the task once'() {
+        given: 'a registered task whose first run is costly'
+        def firstRunFinished = new CountDownLatch(1)
+        def runCount = new AtomicInteger()
+        def secondRunFinished = new CountDownLatch(1)
+        def registration = scheduler.register({ refreshRequested ->
+            if (runCount.incrementAndGet() == 1) {
+                Thread.sleep(100)
+                firstRunFinished.countDown()
+            } else {
+                secondRunFinished.countDown()
+            }
+        } as IRefreshTask, LONG_POLL_TIME)
+        registration.requestRefresh()
+        firstRunFinished.await(5, TimeUnit.SECONDS)
+        Thread.sleep(50)
+
+        when: 'several refreshes are requested in a burst'
+        5.times { registration.requestRefresh() }
+
+        then: 'the task should run exactly once more'
+        secondRunFinished.await(5, TimeUnit.SECONDS)
+        Thread.sleep(100)
+        runCount.get() == 2
+    }
+
+    def 'when suspended it should defer requested refreshes until resumed'() {
+        given: 'a suspended registration'
+        def latch = new CountDownLatch(1)
+        def refreshRequestedValues = new ConcurrentLinkedQueue()
+        def registration = scheduler.register({ refreshRequested ->
+            refreshRequestedValues << refreshRequested
+            latch.countDown()
+        } as IRefreshTask, LONG_POLL_TIME)
+        registration.suspend()
+
+        when: 'a refresh is requested'
+        registration.requestRefresh()
+        Thread.sleep(100)
+
+        then: 'the task should not run'
+        refreshRequestedValues.empty
+
+        when: 'the registration is resumed'
+        registration.resume()
+
+        then: 'the task should run once with refresh requested'
+        latch.await(5, TimeUnit.SECONDS)
+        Thread.sleep(100)
+        refreshRequestedValues as List == [true]
+    }
+
+    def 'when suspended it should not poll'() {
+        given: 'a task registered with a short poll time'
+        def runCount = new AtomicInteger()
+        def registration = scheduler.register({ runCount.incrementAndGet() } as IRefreshTask,
+                { Integer.valueOf(50) } as ISupplier<Integer>)
+
+        when: 'the registration is suspended'
+        registration.suspend()
+        Thread.sleep(200)
+
+        then: 'the task should not run'
+        runCount.get() == 0
+    }
+
+    def 'when resumed without pending refreshes it should run the task once without refresh requested'() {
+        given: 'a suspended registration'
+        def latch = new CountDownLatch(1)
+        def refreshRequestedValues = new ConcurrentLinkedQueue()
+        def registration = scheduler.register({ refreshRequested ->
+            refreshRequestedValues << refreshRequested
+            latch.countDown()
+        } as IRefreshTask, LONG_POLL_TIME)
+        registration.suspend()
+
+        when: 'the registration is resumed'
+        registration.resume()
+
+        then: 'the task should run once without refresh requested'
+        latch.await(5, TimeUnit.SECONDS)
+        Thread.sleep(100)
+        refreshRequestedValues as List == [false]
+    }
+
+    def 'when virtual threads are preferred it should use them only if the runtime supports them'() {
+        given: 'a scheduler that prefers virtual threads'
+        def virtualThreadScheduler = new RefreshScheduler('test', 2, 500, 1000, true)
+
+        and: 'whether the runtime supports virtual threads'
+        def virtualThreadExecutor = VirtualThreads.newThreadPerTaskExecutor('probe')
+        virtualThreadExecutor?.shutdown()
+
+        expect: 'it should use virtual threads if supported'
+        virtualThreadScheduler.usingVirtualThreads == (virtualThreadExecutor != null)
+
+        cleanup:
+        virtualThreadScheduler.shutdown()
+    }
+
+    def 'it should not run more tasks concurrently than its thread count'() {
+        given: 'a scheduler with two threads'
+        def boundedScheduler = new RefreshScheduler('test', 2, 500, 1000, preferVirtualThreads)
+
+        and: 'several registered tasks that record their concurrency'
+        def taskCount = 6
+        def latch = new CountDownLatch(taskCount)
+        def runningCount = new AtomicInteger()
+        def maxRunningCount = new AtomicInteger()
+        def registrations = (1..taskCount).collect {
+            boundedScheduler.register({
+                def count = runningCount.incrementAndGet()
+                maxRunningCount.accumulateAndGet(count) { a, b -> Math.max(a, b) }
+                Thread.sleep(50)
+                runningCount.decrementAndGet()
+                latch.countDown()
+            } as IRefreshTask, LONG_POLL_TIME)
+        }
+
+        when: 'a refresh is requested for every task'
+        registrations*.requestRefresh()
+
+        then: 'no more than two tasks should run concurrently'
+        latch.await(5, TimeUnit.SECONDS)
+        maxRunningCount.get() <= 2
+
+        cleanup:
+        boundedScheduler.shutdown()
+
+        where:
+        preferVirtualThreads << [false, true]
+    }
+
+    def 'it should report the number of queued and running tasks'() {
+        given: 'more blocking registered tasks than the scheduler has threads'
+        def taskCount = 4
+        def released = new CountDownLatch(1)
+        def finished = new CountDownLatch(taskCount)
+        def registrations = (1..taskCount).collect {
+            scheduler.register({
+                released.await()
+                finished.countDown()
+            } as IRefreshTask, LONG_POLL_TIME)
+        }
+
+        when: 'a refresh is requested for every task'
+        registrations*.requestRefresh()
+
+        then: 'two tasks should be running and two tasks should be queued'
+        waitUntil { scheduler.runningTaskCount == 2 && scheduler.queuedTaskCount == 2 }
+
+        when: 'the tasks are released'
+        released.countDown()
+
+        then: 'no tasks should be running or queued'
+        finished.await(5, TimeUnit.SECONDS)
+        waitUntil { scheduler.runningTaskCount == 0 && scheduler.queuedTaskCount == 0 }
+    }
+
+    def 'when superseded while the task is running it should interrupt the task and run it again'() {
+        given: 'a registered task that blocks on its first run'
+        def firstRunStarted = new CountDownLatch(1)
+        def firstRunInterrupted = new CountDownLatch(1)
+        def runCount = new AtomicInteger()
+        def secondRunFinished = new CountDownLatch(1)
+        def registration = scheduler.register({ refreshRequested ->
+            if (runCount.incrementAndGet() == 1) {
+                firstRunStarted.countDown()
+                try {
+                    Thread.sleep(60000)
+                } catch (InterruptedException e) {
+                    firstRunInterrupted.countDown()
+                    throw e
+                }
+            } else {
+                secondRunFinished.countDown()
+            }
+        } as IRefreshTask, LONG_POLL_TIME)
+
+        when: 'the registration is superseded while the task is running'
+        registration.requestRefresh()
+        firstRunStarted.await(5, TimeUnit.SECONDS)
+        registration.supersede()
+
+        then: 'the task should be interrupted and run again'
+        firstRunInterrupted.await(5, TimeUnit.SECONDS)
+        secondRunFinished.await(5, TimeUnit.SECONDS)
+        runCount.get() == 2
+    }
+
+    def 'when the poll time decreases it should reschedule a waiting poll'() {
+        given: 'a task registered with a long poll time'
+        def pollTime = 60000
+        def latch = new CountDownLatch(1)
+        def registration = scheduler.register({ latch.countDown() } as IRefreshTask,
+                { Integer.valueOf(pollTime) } as ISupplier<Integer>)
+
+        when: 'the poll time decreases and the poll is rescheduled'
+        pollTime = 1
+        registration.reschedulePoll()
+
+        then: 'the task should run'
+        latch.await(5, TimeUnit.SECONDS)
+    }
+
+    def 'when cancelled it should not run the task'() {
+        given: 'a registered task'
+        def runCount = new AtomicInteger()
+        def registration = scheduler.register({ runCount.incrementAndGet() } as IRefreshTask, LONG_POLL_TIME)
+
+        when: 'the registration is cancelled and a refresh is requested'
+        registration.cancel()
+        registration.requestRefresh()
+        Thread.sleep(100)
+
+        then: 'the task should not run'
+        runCount.get() == 0
+    }
+
+    private static waitUntil(condition) {
+        def deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+        while (!condition() && System.nanoTime() < deadline) {
+            Thread.sleep(10)
+        }
+        condition()
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util
+
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(WeakInterner)
+@Title('Unit tests for WeakInterner')
+class WeakInternerSpec extends Specification {
+    private interner = new WeakInterner<String>()
+
+    def 'when interning an equal object it should return the first instance'() {
+        given: 'an interned object'
+        def first = new String('line')
+        interner.intern(first)
+
+        when: 'interning an equal object'
+        def result = interner.intern(new String('line'))
+
+        then: 'the first instance should be returned'
+        result.is(first)
+        interner.size == 1
+    }
+
+    def 'when interning a distinct object it should return that object'() {
+        given: 'an interned object'
+        interner.intern('line1')
+
+        when: 'interning a distinct object'
+        def second = new String('line2')
+        def result = interner.intern(second)
+
+        then: 'the distinct object should be returned'
+        result.is(second)
+        interner.size == 2
+    }
+
+    def 'when an interned object is no longer referenced it should be released'() {
+        given: 'an interned object that is no longer referenced'
+        interner.intern(new String('line'))
+
+        when: 'collecting garbage'
+        for (def i = 0; (i < 10) && (interner.size > 0); ++i) {
+            System.gc()
+            Thread.sleep(10)
+        }
+
+        then: 'the object should be released'
+        interner.size == 0
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics
+
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(LatencyHistogram)
+@Title('Unit tests for LatencyHistogram')
+class LatencyHistogramSpec extends Specification {
+    private final histogram = new LatencyHistogram()
+
+    def 'when no latencies have been recorded it should report zero'() {
+        expect:
+        with(histogram) {
+            count == 0
+            maxInMilliseconds == 0.0
+            meanInMilliseconds == 0.0
+            get50thPercentileInMilliseconds() == 0.0
+            get99thPercentileInMilliseconds() == 0.0
+        }
+    }
+
+    def 'it should report the exact count, mean, and maximum'() {
+        when:
+        [1, 2, 6].each { histogram.record(TimeUnit.MILLISECONDS.toNanos(it)) }
+
+        then:
+        with(histogram) {
+            count == 3
+            maxInMilliseconds == 6.0
+            meanInMilliseconds == 3.0
+        }
+    }
+
+    def 'it should estimate a percentile to within a factor of two'() {
+        given:
+        90.times { histogram.record(TimeUnit.MILLISECONDS.toNanos(1)) }
+        10.times { histogram.record(TimeUnit.MILLISECONDS.toNanos(100)) }
+
+        expect:
+        histogram.get50thPercentileInMilliseconds() >= 1.0
+        histogram.get50thPercentileInMilliseconds() < 2.0
+        histogram.get90thPercentileInMilliseconds() < 2.0
+        histogram.get99thPercentileInMilliseconds() == 100.0
+    }
+
+    def 'it should record negative latencies as zero'() {
+        when:
+        histogram.record(-1)
+
+        then:
+        histogram.count == 1
+        histogram.maxInMilliseconds == 0.0
+    }
+
+    def 'when reset it should discard all recorded latencies'() {
+        given:
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5))
+
+        when:
+        histogram.reset()
+
+        then:
+        histogram.count == 0
+        histogram.maxInMilliseconds == 0.0
+        histogram.get50thPercentileInMilliseconds() == 0.0
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics
+
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.ISupplier
+import javax.management.MBeanServerFactory
+import javax.management.ObjectName
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(MetricsRegistry)
+@Title('Unit tests for MetricsRegistry')
+class MetricsRegistrySpec extends Specification {
+    private final mbeanServer = MBeanServerFactory.newMBeanServer()
+    private final registry = new MetricsRegistry('test')
+
+    def cleanup() {
+        registry.unregisterMBeans()
+    }
+
+    def 'it should return the same metric for the same name'() {
+        expect:
+        registry.counter('a').is(registry.counter('a'))
+        !registry.counter('a').is(registry.counter('b'))
+        registry.histogram('a').is(registry.histogram('a'))
+    }
+
+    def 'when MBeans are registered it should register existing and future metrics'() {
+        given: 'a metric created before the MBeans are registered'
+        registry.counter('before').add(2)
+
+        when: 'the MBeans are registered and more metrics are created'
+        registry.registerMBeans(mbeanServer)
+        registry.histogram('after').record(1000000)
+        registry.registerGauge('gauge', { 42 } as ISupplier<Integer>)
+
+        then: 'all metrics should be readable through the MBean server'
+        mbeanServer.getAttribute(registry.getObjectName('Counter', 'before'), 'Count') == 2
+        mbeanServer.getAttribute(registry.getObjectName('LatencyHistogram', 'after'), 'Count') == 1
+        mbeanServer.getAttribute(registry.getObjectName('Gauge', 'gauge'), 'Value') == 42
+    }
+
+    def 'it should reset a metric through the MBean server'() {
+        given:
+        registry.registerMBeans(mbeanServer)
+        registry.counter('counter').increment()
+
+        when:
+        mbeanServer.invoke(registry.getObjectName('Counter', 'counter'), 'reset', null, null)
+
+        then:
+        registry.counter('counter').count == 0
+    }
+
+    def 'when a gauge is registered again it should replace the previous gauge'() {
+        given:
+        registry.registerMBeans(mbeanServer)
+        registry.registerGauge('gauge', { 1 } as ISupplier<Integer>)
+
+        when:
+        registry.registerGauge('gauge', { 2 } as ISupplier<Integer>)
+
+        then:
+        mbeanServer.getAttribute(registry.getObjectName('Gauge', 'gauge'), 'Value') == 2
+    }
+
+    def 'when MBeans are unregistered it should unregister all metrics'() {
+        given:
+        registry.registerMBeans(mbeanServer)
+        registry.counter('counter')
+
+        when:
+        registry.unregisterMBeans()
+
+        then:
+        mbeanServer.queryNames(registry.getObjectName('*', '*'), null).empty
+    }
+
+    def 'it should dump every metric ordered by name'() {
+        given:
+        registry.counter('b').add(3)
+        registry.histogram('a').record(2000000)
+        registry.registerGauge('c', { 7 } as ISupplier<Integer>)
+
+        when:
+        def lines = registry.dump().readLines()
+
+        then:
+        lines.size() == 3
+        lines[0].startsWith('a count=1 mean=2.000ms')
+        lines[1] == 'b count=3'
+        lines[2] == 'c value=7'
+    }
+
+    def 'it should dump and reset all metrics through the MBean server'() {
+        given:
+        registry.registerMBeans(mbeanServer)
+        registry.counter('counter').increment()
+        registry.histogram('histogram').record(1000)
+        def registryObjectName = new ObjectName('test:type=MetricsRegistry')
+
+        when:
+        mbeanServer.invoke(registryObjectName, 'resetAll', null, null)
+
+        then:
+        mbeanServer.invoke(registryObjectName, 'dump', null, null).readLines().every { it.contains('count=0') }
+    }
+}
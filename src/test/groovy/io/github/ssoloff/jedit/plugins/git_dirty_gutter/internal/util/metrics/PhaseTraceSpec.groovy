@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2015-2016 Steven Soloff
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics
+
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Title
+
+@Subject(PhaseTrace)
+@Title('Unit tests for PhaseTrace')
+class PhaseTraceSpec extends Specification {
+    private final metrics = new MetricsRegistry('test')
+
+    def 'it should have a unique identifier'() {
+        expect:
+        new PhaseTrace(metrics, 'trace').id != new PhaseTrace(metrics, 'trace').id
+    }
+
+    def 'when completed it should record the latency of each phase and the total latency'() {
+        given:
+        def trace = new PhaseTrace(metrics, 'trace')
+
+        when:
+        Thread.sleep(5)
+        trace.mark('first')
+        trace.mark('second')
+        trace.complete()
+
+        then:
+        metrics.histogram('trace.first').count == 1
+        metrics.histogram('trace.first').maxInMilliseconds >= 5.0
+        metrics.histogram('trace.second').count == 1
+        metrics.histogram('trace.total').count == 1
+        metrics.histogram('trace.total').maxInMilliseconds >=
+                metrics.histogram('trace.first').maxInMilliseconds
+    }
+
+    def 'when a phase is marked more than once it should record the sum of its durations'() {
+        given:
+        def trace = new PhaseTrace(metrics, 'trace')
+
+        when:
+        trace.mark('retried')
+        Thread.sleep(5)
+        trace.mark('retried')
+        trace.complete()
+
+        then:
+        metrics.histogram('trace.retried').count == 1
+        metrics.histogram('trace.retried').maxInMilliseconds >= 5.0
+    }
+
+    def 'when not completed it should record nothing'() {
+        when:
+        new PhaseTrace(metrics, 'trace').mark('phase')
+
+        then:
+        metrics.histogram('trace.phase').count == 0
+        metrics.histogram('trace.total').count == 0
+    }
+
+    def 'when completed more than once it should record only once'() {
+        given:
+        def trace = new PhaseTrace(metrics, 'trace')
+        trace.mark('phase')
+
+        when:
+        trace.complete()
+        trace.mark('late')
+        trace.complete()
+
+        then:
+        metrics.histogram('trace.phase').count == 1
+        metrics.histogram('trace.late').count == 0
+        metrics.histogram('trace.total').count == 1
+    }
+}
@@ -97,4 +97,58 @@ class ProcessRunnerSpec extends Specification {
         then: 'an exception is thrown'
         thrown(IOException)
     }
+
+    def 'when interrupted while waiting for the process it should destroy the process'() {
+        given: 'a process executor that is interrupted while waiting for the process'
+        def destroyed = false
+        def process = new Process() {
+            @Override
+            void destroy() {
+                destroyed = true
+            }
+
+            @Override
+            int exitValue() {
+                0
+            }
+
+            @Override
+            InputStream getErrorStream() {
+                null
+            }
+
+            @Override
+            InputStream getInputStream() {
+                null
+            }
+
+            @Override
+            OutputStream getOutputStream() {
+                null
+            }
+
+            @Override
+            int waitFor() {
+                0
+            }
+        }
+        def interruptingProcessRunner = new ProcessRunner({ command ->
+            new ProcessExecutor(command) {
+                Process start() {
+                    process
+                }
+
+                int waitFor() {
+                    throw new InterruptedException()
+                }
+            }
+        })
+
+        when: 'the process is run'
+        interruptingProcessRunner.run(newDefaultWriter(), newDefaultWriter(), WORKING_DIR_PATH, COMMAND)
+
+        then: 'the process should be destroyed'
+        thrown(InterruptedException)
+        destroyed
+    }
 }
@@ -17,9 +17,14 @@
  */
 package io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.git
 
+import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.metrics.MetricsRegistry
 import io.github.ssoloff.jedit.plugins.git_dirty_gutter.internal.util.process.IProcessRunner
+import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.Paths
+import jdk.jfr.Configuration
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
 import spock.lang.Specification
 import spock.lang.Subject
 import spock.lang.Title
@@ -108,6 +113,31 @@ class GitRunnerSpec extends Specification {
         outWriter.toString() == 'stdout-line-1\nstdout-line-2\n'
     }
 
+    def 'when the output is captured as bytes it should capture stdout unchanged'() {
+        given: 'a process that exits with code 0 and writes line breaks and NULs to standard output'
+        def processRunner = Stub(IProcessRunner)
+        processRunner.run(_ as OutputStream, _, _, _) >> { OutputStream outStream, Writer errWriter,
+                Path workingDirPath, String[] command ->
+            outStream.write('line\r\nbreak\u0000'.bytes)
+            0
+        }
+        def gitRunner = newGitRunner(processRunner)
+        def outStream = new ByteArrayOutputStream()
+
+        when: 'Git is run'
+        def result = gitRunner.run(outStream)
+
+        then: 'the result should capture the process context'
+        with(result) {
+            command == [PROGRAM_PATH.toString()]
+            exitCode == 0
+            workingDirPath == WORKING_DIR_PATH
+        }
+
+        and: 'it should capture standard output unchanged'
+        outStream.toByteArray() == 'line\r\nbreak\u0000'.bytes
+    }
+
     def 'when the process exits with error it should throw an exception'() {
         given: 'a process that writes to standard error'
         def processRunner = Stub(IProcessRunner)
@@ -130,4 +160,63 @@ class GitRunnerSpec extends Specification {
             workingDirPath == WORKING_DIR_PATH
         }
     }
+
+    def 'it should record the latency and errors of the process by subcommand'() {
+        given: 'a process that writes to standard error'
+        def processRunner = Stub(IProcessRunner)
+        processRunner.run(_, _, _, _) >> { Writer outWriter, Writer errWriter, Path workingDirPath, String[] command ->
+            errWriter.write('stderr-line-1\n')
+            1
+        }
+        def gitRunner = newGitRunner(processRunner)
+
+        and: 'the current metrics of the subcommand'
+        def metrics = MetricsRegistry.default
+        def latencyCount = metrics.histogram('git.rev-parse').count
+        def errorCount = metrics.counter('git.rev-parse.errors').count
+
+        when: 'Git is run'
+        gitRunner.run(new StringWriter(), '--no-pager', 'rev-parse', 'HEAD')
+
+        then: 'it should record the latency and error of the subcommand'
+        thrown(GitException)
+        metrics.histogram('git.rev-parse').count == latencyCount + 1
+        metrics.counter('git.rev-parse.errors').count == errorCount + 1
+    }
+
+    def 'when enabled by the shipped JFR profile it should record a Git run event'() {
+        given: 'a process that writes to standard output'
+        def processRunner = Stub(IProcessRunner)
+        processRunner.run(_, _, _, _) >> { Writer outWriter, Writer errWriter, Path workingDirPath, String[] command ->
+            outWriter.write('stdout-line-1\n')
+            0
+        }
+        def gitRunner = newGitRunner(processRunner)
+
+        and: 'a flight recording using the shipped JFR profile'
+        def configuration = Configuration.create(Paths.get('src/main/dist/jfr/git-dirty-gutter.jfc'))
+        def recording = new Recording(configuration)
+        def recordingPath = Files.createTempFile('git-runner', '.jfr')
+        recording.start()
+
+        when: 'Git is run'
+        gitRunner.run(new StringWriter(), 'show', 'HEAD')
+        recording.stop()
+        recording.dump(recordingPath)
+
+        then: 'it should record the command, exit code, and characters read'
+        def events = RecordingFile.readAllEvents(recordingPath).findAll {
+            it.eventType.name == 'io.github.ssoloff.jedit.plugins.git_dirty_gutter.GitRun'
+        }
+        events.size() == 1
+        with(events[0]) {
+            getString('command') == "${PROGRAM_PATH} show HEAD"
+            getInt('exitCode') == 0
+            getLong('charactersRead') == 14
+        }
+
+        cleanup:
+        recording?.close()
+        Files.deleteIfExists(recordingPath)
+    }
 }